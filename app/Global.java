@@ -1,6 +1,8 @@
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import drones.scheduler.AdvancedScheduler;
 import drones.scheduler.AdvancedSchedulerWithControlTower;
+import drones.scheduler.MatchingScheduler;
+import drones.scheduler.RegionalScheduler;
 import drones.scheduler.Scheduler;
 import drones.scheduler.SchedulerException;
 import play.Application;
@@ -53,10 +55,22 @@ public class Global extends GlobalSettings {
         return F.Promise.pure(error);
     }
 
+    static Class<? extends Scheduler> schedulerType(String type) {
+        if ("matching".equals(type)) {
+            return MatchingScheduler.class;
+        } else if ("controltower".equals(type)) {
+            return AdvancedSchedulerWithControlTower.class;
+        } else if ("regional".equals(type)) {
+            return RegionalScheduler.class;
+        } else {
+            return AdvancedScheduler.class;
+        }
+    }
+
     public void onStart(Application application) {
         super.onStart(application);
         try {
-            Scheduler.start(AdvancedScheduler.class);
+            Scheduler.start(schedulerType(application.configuration().getString("scheduler.type")));
         }catch(SchedulerException ex){
             Logger.error("Scheduler failed on start.",ex);
         }
@@ -8,7 +8,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import droneapi.api.DroneCommander;
 import droneapi.model.properties.FlyingState;
+import droneapi.model.properties.PropertyStore;
+import droneapi.model.properties.PropertyType;
 import drones.models.Fleet;
+import drones.models.FleetState;
 import drones.scheduler.Helper;
 import drones.scheduler.Scheduler;
 import drones.scheduler.SchedulerException;
@@ -16,6 +19,7 @@ import models.Drone;
 import models.DroneType;
 import models.Location;
 import models.User;
+import parrot.shared.models.PingResult;
 import play.Logger;
 import play.data.Form;
 import play.libs.Akka;
@@ -35,6 +39,7 @@ import utilities.annotations.Authentication;
 import javax.persistence.OptimisticLockException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -59,6 +64,7 @@ public class DroneController {
         links.add(new ControllerHelper.Link("self", controllers.routes.DroneController.getAll().absoluteURL(request())));
         links.add(new ControllerHelper.Link("total", controllers.routes.DroneController.getTotal().absoluteURL(request())));
         links.add(new ControllerHelper.Link("types", controllers.routes.DroneController.getSuportedTypes().absoluteURL(request())));
+        links.add(new ControllerHelper.Link("connection", controllers.routes.DroneController.testConnections().absoluteURL(request())));
 
         try {
             JsonNode result = JsonHelper.createJsonNode(tuples, links, Drone.class);
@@ -198,10 +204,17 @@ public class DroneController {
             // Return drone control back to framework only if drone has landed
             if(oldStatus == Drone.Status.MANUAL_CONTROL) {
                 DroneCommander commander = Fleet.getFleet().getCommanderForDrone(drone);
-                FlyingState state = null;
-                try {
-                    state = Await.result(commander.getFlyingState(), Duration.create(1, TimeUnit.SECONDS));
-                } catch (Exception ex) {
+                FleetState.DroneState view = Fleet.getFleet().getState().get(id);
+                PropertyStore store = commander.getPropertyStore();
+                FlyingState state = view != null ? view.getFlyingState() : null;
+                if (state == null && store != null) {
+                    state = store.get(PropertyType.FLYINGSTATE);
+                }
+                if (state == null) {
+                    try {
+                        state = Await.result(commander.getFlyingState(), Duration.create(1, TimeUnit.SECONDS));
+                    } catch (Exception ex) {
+                    }
                 }
                 if(state != FlyingState.LANDED){
                     return forbidden(Json.toJson("Drone needs to land before changing from manual control."));
@@ -237,13 +250,31 @@ public class DroneController {
             return F.Promise.pure(notFound());
         }
 
+        // Read from the fleet view when its values are recent
+        FleetState.DroneState state = Fleet.getFleet().getState().get(id);
+        if (state != null && !state.isStale(PropertyType.LOCATION) && !state.isStale(PropertyType.ALTITUDE)) {
+            return F.Promise.pure(locationResult(state.getLocation(), state.getAltitude()));
+        }
+
         DroneCommander commander = Fleet.getFleet().getCommanderForDrone(drone);
-        return F.Promise.wrap(commander.getLocation()).flatMap(v -> F.Promise.wrap(commander.getAltitude()).map(altitude ->  {
-            Location l = new Location(v.getLatitude(),v.getLongitude(), altitude);
-            JsonNode node = JsonHelper.addRootElement(Json.toJson(l), Location.class);
-            return ok(JsonHelper.addRootElement(node, Drone.class));
-        }));
 
+        // Read directly when the drone state is available locally
+        PropertyStore store = commander.getPropertyStore();
+        if (store != null) {
+            droneapi.model.properties.Location v = store.get(PropertyType.LOCATION);
+            Double altitude = store.get(PropertyType.ALTITUDE);
+            if (v != null && altitude != null) {
+                return F.Promise.pure(locationResult(v, altitude));
+            }
+        }
+        return F.Promise.wrap(commander.getLocation()).flatMap(v -> F.Promise.wrap(commander.getAltitude()).map(altitude ->
+                locationResult(v, altitude)));
+    }
+
+    private static Result locationResult(droneapi.model.properties.Location v, double altitude) {
+        Location l = new Location(v.getLatitude(),v.getLongitude(), altitude);
+        JsonNode node = JsonHelper.addRootElement(Json.toJson(l), Location.class);
+        return ok(JsonHelper.addRootElement(node, Drone.class));
     }
 
     @Authentication({User.Role.ADMIN, User.Role.READONLY_ADMIN})
@@ -252,9 +283,23 @@ public class DroneController {
         if (drone == null)
             return F.Promise.pure(notFound());
 
-        ObjectNode node = Json.newObject();
-        node.put("connection", true); // TODO: call connection Test
-        return F.Promise.pure(ok(JsonHelper.addRootElement(node, Drone.class)));
+        return F.Promise.wrap(Fleet.getFleet().isReachable(drone)).map(result -> result == PingResult.OK)
+                .recover(ex -> false).map(reachable -> {
+            ObjectNode node = Json.newObject();
+            node.put("connection", reachable);
+            return ok(JsonHelper.addRootElement(node, Drone.class));
+        });
+    }
+
+    @Authentication({User.Role.ADMIN, User.Role.READONLY_ADMIN})
+    public static F.Promise<Result> testConnections() {
+        return F.Promise.wrap(Fleet.getFleet().isReachable(Drone.FIND.all())).map(results -> {
+            ObjectNode node = Json.newObject();
+            for (Map.Entry<Long, PingResult> result : results.entrySet()) {
+                node.put(result.getKey().toString(), result.getValue() == PingResult.OK);
+            }
+            return ok(JsonHelper.addRootElement(Json.newObject().set("connection", node), Drone.class));
+        });
     }
 
     @Authentication({User.Role.ADMIN, User.Role.READONLY_ADMIN})
@@ -263,7 +308,19 @@ public class DroneController {
         if (drone == null)
             return F.Promise.pure(notFound());
 
+        FleetState.DroneState state = Fleet.getFleet().getState().get(id);
+        if (state != null && !state.isStale(PropertyType.BATTERY)) {
+            ObjectNode node = Json.newObject().put("battery", state.getBatteryPercentage());
+            return F.Promise.pure(ok(JsonHelper.addRootElement(node, Drone.class)));
+        }
+
         DroneCommander commander = Fleet.getFleet().getCommanderForDrone(drone);
+        PropertyStore store = commander.getPropertyStore();
+        Byte battery = store == null ? null : store.get(PropertyType.BATTERY);
+        if (battery != null) {
+            ObjectNode node = Json.newObject().put("battery", battery);
+            return F.Promise.pure(ok(JsonHelper.addRootElement(node, Drone.class)));
+        }
         return F.Promise.wrap(commander.getBatteryPercentage()).map(percentage -> {
             ObjectNode node = Json.newObject().put("battery", percentage);
             return ok(JsonHelper.addRootElement(node, Drone.class));
@@ -290,6 +347,13 @@ public class DroneController {
         if (drone == null)
             return F.Promise.pure(notFound());
 
+        FleetState.DroneState state = Fleet.getFleet().getState().get(id);
+        if (state != null && !state.isStale(PropertyType.SPEED)) {
+            ObjectNode node = Json.newObject();
+            node.put("speed", Json.toJson(state.getSpeed()));
+            return F.Promise.pure(ok(JsonHelper.addRootElement(node, Drone.class)));
+        }
+
         DroneCommander commander = Fleet.getFleet().getCommanderForDrone(drone);
         return F.Promise.wrap(commander.getSpeed()).map(speed -> {
             ObjectNode node = Json.newObject();
@@ -304,6 +368,13 @@ public class DroneController {
         if (drone == null)
             return F.Promise.pure(notFound());
 
+        FleetState.DroneState state = Fleet.getFleet().getState().get(id);
+        if (state != null && !state.isStale(PropertyType.ALTITUDE)) {
+            ObjectNode node = Json.newObject();
+            node.put("altitude", Json.toJson(state.getAltitude()));
+            return F.Promise.pure(ok(JsonHelper.addRootElement(node, Drone.class)));
+        }
+
         DroneCommander commander = Fleet.getFleet().getCommanderForDrone(drone);
         return F.Promise.wrap(commander.getAltitude()).map(altitude -> {
             ObjectNode node = Json.newObject();
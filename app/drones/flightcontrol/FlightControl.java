@@ -18,7 +18,8 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class FlightControl extends AbstractActor {
 
-    protected static final double DEFAULT_ALTITUDE = 2;
+    // Cruising altitude of a pilot that is not given one
+    public static final double DEFAULT_ALTITUDE = 2;
 
     //max delay times
     protected static final FiniteDuration MAX_DURATION_SHORT = Duration.create(30, TimeUnit.SECONDS);
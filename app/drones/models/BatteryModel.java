@@ -0,0 +1,199 @@
+package drones.models;
+
+import droneapi.api.DroneType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Battery consumption of drones, fitted online from the battery used by completed flights.
+ * The percentage a flight uses is modelled as
+ * perMeter * distance + perSecond * hoverTime + perMeterClimbed * climb,
+ * fitted with recursive least squares per drone type, starting from a prior, and per drone.
+ * A drone is estimated with its own fit once it completed enough flights, before that with the fit of its type.
+ * The battery a flight requires includes the uncertainty of the fit, so a type is trusted with more work as it learns.
+ * Until a type completed enough flights, a flight never requires more than the 0.01% per meter used before the model.
+ */
+public class BatteryModel {
+
+    // Prior consumption in battery percentage: per meter flown, per second hovering and per meter climbed
+    public static final double PER_METER = 0.01;
+    public static final double PER_SECOND = 0.02;
+    public static final double PER_METER_CLIMBED = 0.05;
+
+    // Standard deviation of the prior, relative to its value
+    private static final double PRIOR_DEVIATION = 0.5;
+
+    private static class Fit {
+        private final double[] weights;
+        private final double[][] covariance;
+        // Variances of the prior, the weights never become less certain
+        private final double[] bound;
+        private int samples = 0;
+
+        public Fit(double[] weights, double[] variances) {
+            this.weights = weights.clone();
+            this.bound = variances.clone();
+            this.covariance = new double[weights.length][weights.length];
+            for (int i = 0; i < weights.length; i++) {
+                covariance[i][i] = variances[i];
+            }
+        }
+
+        public double estimate(double[] x) {
+            double estimate = 0;
+            for (int i = 0; i < x.length; i++) {
+                estimate += weights[i] * x[i];
+            }
+            return estimate;
+        }
+
+        /**
+         * @return Variance of the estimate caused by the uncertainty of the weights
+         */
+        public double variance(double[] x) {
+            double variance = 0;
+            for (int i = 0; i < x.length; i++) {
+                for (int j = 0; j < x.length; j++) {
+                    variance += x[i] * covariance[i][j] * x[j];
+                }
+            }
+            return variance;
+        }
+
+        public void update(double[] x, double used, double noise, double forgetting) {
+            int n = x.length;
+            double[] px = new double[n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    px[i] += covariance[i][j] * x[j];
+                }
+            }
+            double denominator = noise + variance(x);
+            double error = used - estimate(x);
+            for (int i = 0; i < n; i++) {
+                double gain = px[i] / denominator;
+                // Consumption never becomes negative
+                weights[i] = Math.max(0, weights[i] + gain * error);
+                for (int j = 0; j < n; j++) {
+                    covariance[i][j] = (covariance[i][j] - gain * px[j]) / forgetting;
+                }
+            }
+            // Forgetting inflates the directions the flights do not excite, they are scaled back to the prior
+            double[] scale = new double[n];
+            for (int i = 0; i < n; i++) {
+                scale[i] = covariance[i][i] > bound[i] ? Math.sqrt(bound[i] / covariance[i][i]) : 1;
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    covariance[i][j] *= scale[i] * scale[j];
+                }
+            }
+            samples++;
+        }
+    }
+
+    private final double noise;
+    private final double confidence;
+    private final int minSamples;
+    private final double forgetting;
+    private final Map<String, Fit> types = new HashMap<>();
+    private final Map<Long, Fit> drones = new HashMap<>();
+
+    /**
+     * @param noise      Variance of the percentage used by flights with the same profile
+     * @param confidence Standard deviations added to the estimate for the battery a flight requires
+     * @param minSamples Flights a drone completes before its own fit is used, and a type before its fit is trusted
+     * @param forgetting Weight of earlier flights per new flight, 1 to never forget
+     */
+    public BatteryModel(double noise, double confidence, int minSamples, double forgetting) {
+        this.noise = noise;
+        this.confidence = confidence;
+        this.minSamples = minSamples;
+        this.forgetting = forgetting;
+    }
+
+    private static String key(DroneType type) {
+        return type.getType() + "/" + type.getVersionNumber();
+    }
+
+    private static double[] profile(double distance, double hoverTime, double climb) {
+        return new double[]{distance, hoverTime, climb};
+    }
+
+    private static double[] prior() {
+        return new double[]{PER_METER, PER_SECOND, PER_METER_CLIMBED};
+    }
+
+    private static double[] priorVariances() {
+        double[] prior = prior();
+        double[] variances = new double[prior.length];
+        for (int i = 0; i < prior.length; i++) {
+            variances[i] = Math.pow(prior[i] * PRIOR_DEVIATION, 2);
+        }
+        return variances;
+    }
+
+    private Fit typeFit(DroneType type) {
+        Fit fit = types.get(key(type));
+        if (fit == null) {
+            fit = new Fit(prior(), priorVariances());
+            types.put(key(type), fit);
+        }
+        return fit;
+    }
+
+    private Fit fit(DroneType type, long droneId) {
+        Fit fit = drones.get(droneId);
+        return fit != null && fit.samples >= minSamples ? fit : typeFit(type);
+    }
+
+    /**
+     * @return Expected battery percentage used by a flight
+     */
+    public synchronized double estimate(DroneType type, long droneId, double distance, double hoverTime, double climb) {
+        return fit(type, droneId).estimate(profile(distance, hoverTime, climb));
+    }
+
+    /**
+     * @return Battery percentage a drone needs to complete a flight safely
+     */
+    public synchronized double required(DroneType type, long droneId, double distance, double hoverTime, double climb) {
+        double[] x = profile(distance, hoverTime, climb);
+        Fit fit = fit(type, droneId);
+        double required = fit.estimate(x) + confidence * Math.sqrt(fit.variance(x) + noise);
+        if (fit.samples < minSamples) {
+            // Cold start: no stricter than the rule used before the model
+            return Math.min(required, PER_METER * distance);
+        }
+        return required;
+    }
+
+    public boolean isSufficient(DroneType type, long droneId, double battery, double distance, double hoverTime, double climb) {
+        return battery > required(type, droneId, distance, hoverTime, climb);
+    }
+
+    /**
+     * Fits the battery percentage used by a completed flight.
+     */
+    public synchronized void observe(DroneType type, long droneId, double used, double distance, double hoverTime, double climb) {
+        double[] x = profile(distance, hoverTime, climb);
+        Fit typeFit = typeFit(type);
+        Fit droneFit = drones.get(droneId);
+        if (droneFit == null) {
+            // A drone starts from what is known about its type, but may differ from it as much as from the prior
+            droneFit = new Fit(typeFit.weights, priorVariances());
+            drones.put(droneId, droneFit);
+        }
+        typeFit.update(x, used, noise, forgetting);
+        droneFit.update(x, used, noise, forgetting);
+    }
+
+    /**
+     * @return Completed flights fitted for the drone
+     */
+    public synchronized int getSamples(long droneId) {
+        Fit fit = drones.get(droneId);
+        return fit == null ? 0 : fit.samples;
+    }
+}
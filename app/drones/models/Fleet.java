@@ -7,23 +7,35 @@ import akka.dispatch.Mapper;
 import akka.dispatch.OnFailure;
 import akka.pattern.Patterns;
 import akka.util.Timeout;
+import com.typesafe.config.Config;
 import droneapi.api.DroneCommander;
+import droneapi.api.DroneDispatchers;
 import droneapi.api.DroneDriver;
+import droneapi.cluster.DroneSharding;
 import droneapi.messages.*;
 import models.Drone;
 import models.DroneType;
 import parrot.ardrone2.ArDrone2Driver;
 import parrot.ardrone3.BebopDriver;
+import parrot.messages.PingFleetMessage;
+import parrot.messages.PingFleetResult;
 import parrot.messages.PingMessage;
 import parrot.shared.models.PingResult;
-import parrot.shared.protocols.ICMPPing;
+import parrot.shared.protocols.ReachabilityProber;
 import play.libs.Akka;
 import scala.concurrent.Future;
 import scala.concurrent.duration.Duration;
 import simulator.SimulatorDriver;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
@@ -54,6 +66,16 @@ public class Fleet {
         return drivers.get(droneType);
     }
 
+    // Key of a driver in a DroneEnvelope, resolved again on the node hosting the drone
+    private static String driverKey(DroneType droneType) {
+        return droneType.getType() + "/" + droneType.getVersionNumber();
+    }
+
+    private static DroneDriver driverForKey(String key) {
+        int split = key.indexOf('/');
+        return split < 0 ? null : getDriver(new DroneType(key.substring(0, split), key.substring(split + 1)));
+    }
+
     static {
 
         BebopDriver bebopDriver = new BebopDriver();
@@ -67,6 +89,9 @@ public class Fleet {
         // TODO: do this dynamically by scanning all classes extending DroneActor for factory property
     }
 
+    // Maximum rate (per second) of the telemetry messages that are forwarded to the fleet bus
+    public static final double FLEET_TELEMETRY_RATE = 2;
+
     /* Singleton */
 
     private static final Fleet fleet = new Fleet();
@@ -80,14 +105,53 @@ public class Fleet {
 
     private ConcurrentMap<Long, DroneCommander> drones;
 
-    private ActorRef fleetBus;
+    // Partitions of the fleet bus, each forwarding the events of the drones with id modulo its index
+    private static final int FLEET_BUS_PARTITIONS = Runtime.getRuntime().availableProcessors();
+
+    private ActorRef[] fleetBus;
+
+    private static final String BOOTSTRAP_PARALLELISM = "fleet.bootstrap.parallelism";
+    private static final int DEFAULT_BOOTSTRAP_PARALLELISM = 8;
+
+    private FleetState state;
+
+    // Shard region hosting the drone actors when they are spread over a cluster, null when they run locally
+    private ActorRef droneRegion;
 
     public Fleet() {
         drones = new ConcurrentHashMap<>();
-        fleetBus =  Akka.system().actorOf(Props.create(BroadcastBus.class), "fleetbus");
+        // Values are republished at least every heartbeat, so a few missed heartbeats make them stale
+        state = new FleetState(3 * Akka.system().settings().config().getDuration("drone-events.heartbeat", TimeUnit.MILLISECONDS));
+        fleetBus = new ActorRef[FLEET_BUS_PARTITIONS];
+        for (int i = 0; i < fleetBus.length; i++) {
+            fleetBus[i] = Akka.system().actorOf(Props.create(FleetBus.class, () -> new FleetBus(state)), "fleetbus-" + i);
+        }
+        if (Akka.system().settings().config().getBoolean("drone-sharding.enabled")) {
+            droneRegion = DroneSharding.start(Akka.system(), Fleet::driverForKey);
+        }
     }
 
     private ActorRef pinger;
+    private int pingParallelism;
+
+    private static final String REACHABILITY_TTL = "fleet.reachability.ttl";
+    private static final long DEFAULT_REACHABILITY_TTL = 10000;
+    private static final String REACHABILITY_PARALLELISM = "fleet.reachability.parallelism";
+    private static final int DEFAULT_REACHABILITY_PARALLELISM = 16;
+
+    private synchronized ActorRef getPinger() {
+        // Lazy load the prober
+        if (pinger == null) {
+            Config config = Akka.system().settings().config();
+            long ttl = config.hasPath(REACHABILITY_TTL) ?
+                    config.getDuration(REACHABILITY_TTL, TimeUnit.MILLISECONDS) : DEFAULT_REACHABILITY_TTL;
+            pingParallelism = config.hasPath(REACHABILITY_PARALLELISM) ?
+                    config.getInt(REACHABILITY_PARALLELISM) : DEFAULT_REACHABILITY_PARALLELISM;
+            int parallelism = pingParallelism;
+            pinger = Akka.system().actorOf(Props.create(ReachabilityProber.class, () -> new ReachabilityProber(ttl, parallelism)), "pinger");
+        }
+        return pinger;
+    }
 
     public Future<PingResult> isReachable(Drone droneEntity) {
         // If the entity has no commander, fail immediately
@@ -99,13 +163,8 @@ public class Fleet {
             return Futures.successful(PingResult.OK);
         }
 
-        // Lazy load the ping class
-        if (pinger == null) {
-            pinger = Akka.system().actorOf(Props.create(ICMPPing.class), "pinger");
-        }
-
-        return Patterns.ask(pinger, new PingMessage(droneEntity.getAddress()),
-                new Timeout(Duration.create(ICMPPing.PING_TIMEOUT + 1000, TimeUnit.MILLISECONDS)))
+        return Patterns.ask(getPinger(), new PingMessage(droneEntity.getAddress()),
+                new Timeout(Duration.create(ReachabilityProber.PING_TIMEOUT + 1000, TimeUnit.MILLISECONDS)))
                 .map(new Mapper<Object, PingResult>() {
                     public PingResult apply(Object s) {
                         return (PingResult) s;
@@ -113,16 +172,97 @@ public class Fleet {
                 }, Akka.system().dispatcher());
     }
 
-    private void registerFleetBus(DroneCommander cmd){
-        cmd.subscribeTopics(fleetBus, new Class[]{
-                LocationChangedMessage.class,
-                BatteryPercentageChangedMessage.class,
-                ConnectionStatusChangedMessage.class,
-                FlyingStateChangedMessage.class,
-                NavigationStateChangedMessage.class,
-                AltitudeChangedMessage.class,
-                SpeedChangedMessage.class
-        });
+    /**
+     * Probes all given drones at once, recent results are answered from the cache.
+     * Simulated drones are always reachable.
+     *
+     * @return The reachability by drone id
+     */
+    public Future<Map<Long, PingResult>> isReachable(Collection<Drone> droneEntities) {
+        Map<Long, PingResult> simulated = new HashMap<>();
+        Map<Long, String> addresses = new HashMap<>();
+        for (Drone droneEntity : droneEntities) {
+            if (SimulatorDriver.SIMULATOR_TYPE.equals(droneEntity.getDroneType())) {
+                simulated.put(droneEntity.getId(), PingResult.OK);
+            } else {
+                addresses.put(droneEntity.getId(), droneEntity.getAddress());
+            }
+        }
+        if (addresses.isEmpty()) {
+            return Futures.successful(simulated);
+        }
+
+        // Probes run concurrently, a batch of them takes about as long as a single probe
+        Set<String> ips = new HashSet<>(addresses.values());
+        ActorRef prober = getPinger();
+        long batches = (ips.size() + pingParallelism - 1) / pingParallelism;
+        return Patterns.ask(prober, new PingFleetMessage(ips),
+                new Timeout(Duration.create(ReachabilityProber.PING_TIMEOUT * batches + 1000, TimeUnit.MILLISECONDS)))
+                .map(new Mapper<Object, Map<Long, PingResult>>() {
+                    public Map<Long, PingResult> apply(Object s) {
+                        Map<String, PingResult> results = ((PingFleetResult) s).getResults();
+                        Map<Long, PingResult> reachable = new HashMap<>(simulated);
+                        for (Map.Entry<Long, String> address : addresses.entrySet()) {
+                            reachable.put(address.getKey(), results.getOrDefault(address.getValue(), PingResult.UNREACHABLE));
+                        }
+                        return reachable;
+                    }
+                }, Akka.system().dispatcher());
+    }
+
+    /**
+     * Latest telemetry of all drones, readable without messaging the drones
+     */
+    public FleetState getState() {
+        return state;
+    }
+
+    private BatteryModel batteryModel;
+
+    private static final String BATTERY_NOISE = "fleet.battery.noise";
+    private static final double DEFAULT_BATTERY_NOISE = 1;
+    private static final String BATTERY_CONFIDENCE = "fleet.battery.confidence";
+    private static final double DEFAULT_BATTERY_CONFIDENCE = 2;
+    private static final String BATTERY_MIN_SAMPLES = "fleet.battery.min-samples";
+    private static final int DEFAULT_BATTERY_MIN_SAMPLES = 5;
+    private static final String BATTERY_FORGETTING = "fleet.battery.forgetting";
+    private static final double DEFAULT_BATTERY_FORGETTING = 0.99;
+
+    /**
+     * @return Battery consumption of the drones, learned from their completed flights
+     */
+    public synchronized BatteryModel getBatteryModel() {
+        // Lazy load the model
+        if (batteryModel == null) {
+            Config config = Akka.system().settings().config();
+            batteryModel = new BatteryModel(
+                    config.hasPath(BATTERY_NOISE) ? config.getDouble(BATTERY_NOISE) : DEFAULT_BATTERY_NOISE,
+                    config.hasPath(BATTERY_CONFIDENCE) ? config.getDouble(BATTERY_CONFIDENCE) : DEFAULT_BATTERY_CONFIDENCE,
+                    config.hasPath(BATTERY_MIN_SAMPLES) ? config.getInt(BATTERY_MIN_SAMPLES) : DEFAULT_BATTERY_MIN_SAMPLES,
+                    config.hasPath(BATTERY_FORGETTING) ? config.getDouble(BATTERY_FORGETTING) : DEFAULT_BATTERY_FORGETTING);
+        }
+        return batteryModel;
+    }
+
+    private ActorRef fleetBusFor(long droneId) {
+        return fleetBus[(int) Math.floorMod(droneId, (long) fleetBus.length)];
+    }
+
+    private void registerFleetBus(long droneId, ActorRef droneActor){
+        fleetBusFor(droneId).tell(new FleetBus.RegisterDrone(droneId, droneActor,
+                // State changes are always forwarded
+                new SubscribeEventMessage(new Class[]{
+                        ConnectionStatusChangedMessage.class,
+                        FlyingStateChangedMessage.class,
+                        NavigationStateChangedMessage.class
+                }),
+                // Telemetry is only forwarded at the rate the fleet listeners need
+                new SubscribeEventMessage(new Class[]{
+                        LocationChangedMessage.class,
+                        BatteryPercentageChangedMessage.class,
+                        AltitudeChangedMessage.class,
+                        SpeedChangedMessage.class
+                }, FLEET_TELEMETRY_RATE)), ActorRef.noSender());
     }
 
     /**
@@ -130,7 +270,29 @@ public class Fleet {
      * @param actor The actor to forward all messages to
      */
     public void subscribe(final ActorRef actor){
-        fleetBus.tell(new SubscribeEventMessage(), actor);
+        subscribe(actor, null);
+    }
+
+    /**
+     * Subscribe to the messages of some drones of the fleet, replacing the previous subscription of the actor.
+     * Messages are forwarded with the drone actor as sender.
+     * @param actor The actor to forward the messages to
+     * @param droneIds Ids of the drones to forward the messages of, null for all drones
+     * @param types Message classes to forward, all messages when none are given
+     */
+    public void subscribe(final ActorRef actor, Collection<Long> droneIds, Class<?>... types){
+        FleetBus.Subscription subscription = new FleetBus.Subscription(droneIds, types);
+        Set<ActorRef> partitions = new HashSet<>();
+        if (droneIds == null) {
+            partitions.addAll(Arrays.asList(fleetBus));
+        } else {
+            for (long droneId : droneIds) {
+                partitions.add(fleetBusFor(droneId));
+            }
+        }
+        for (ActorRef bus : fleetBus) {
+            bus.tell(partitions.contains(bus) ? subscription : new UnsubscribeEventMessage(), actor);
+        }
     }
 
     /**
@@ -138,7 +300,9 @@ public class Fleet {
      * @param actor The actor to unsubscribe
      */
     public void unsubscribe(final ActorRef actor){
-        fleetBus.tell(new UnsubscribeEventMessage(), actor);
+        for (ActorRef bus : fleetBus) {
+            bus.tell(new UnsubscribeEventMessage(), actor);
+        }
     }
 
     public Future<DroneCommander> createCommanderForDrone(Drone droneEntity) {
@@ -147,11 +311,12 @@ public class Fleet {
             return null;
 
 
-        // Create commander
-        ActorRef droneActor = Akka.system().actorOf(
-                Props.create(driver.getActorClass(),
-                        () -> driver.createActor(droneEntity.getAddress())), String.format("droneactor-%d", droneEntity.getId()));
-        DroneCommander commander = new DroneCommander(droneActor);
+        // Create commander, with a proxy to the node hosting the drone when sharded
+        Props props = droneRegion == null ?
+                Props.create(driver.getActorClass(), () -> driver.createActor(droneEntity.getAddress())).withDispatcher(DroneDispatchers.DRONE) :
+                DroneSharding.proxyProps(droneRegion, droneEntity.getId(), driverKey(droneEntity.getDroneType()), droneEntity.getAddress());
+        ActorRef droneActor = Akka.system().actorOf(props, String.format("droneactor-%d", droneEntity.getId()));
+        DroneCommander commander = new DroneCommander(Akka.system(), droneActor);
         Future<Void> f = commander.init();
         f.onFailure(new OnFailure() {
             @Override
@@ -161,13 +326,35 @@ public class Fleet {
         }, Akka.system().dispatcher());
         return f.map(new Mapper<Void, DroneCommander>() {
             public DroneCommander apply(Void s) {
-                registerFleetBus(commander);
+                registerFleetBus(droneEntity.getId(), droneActor);
                 drones.put(droneEntity.getId(), commander);
                 return commander;
             }
         }, Akka.system().dispatcher());
     }
 
+    /**
+     * Initializes the commanders of the given drones, a limited number at a time.
+     * Drones that already have a commander are reported ready immediately.
+     *
+     * @param listener Receives a FleetBootstrap.DroneReady or DroneFailed per drone, followed by FleetBootstrap.Completed
+     * @return The actor performing the initialization
+     */
+    public ActorRef initialize(List<Drone> droneEntities, ActorRef listener) {
+        Map<Long, Drone> pending = new LinkedHashMap<>();
+        for (Drone droneEntity : droneEntities) {
+            pending.put(droneEntity.getId(), droneEntity);
+        }
+        List<Long> ids = new ArrayList<>(pending.keySet());
+        int parallelism = Akka.system().settings().config().hasPath(BOOTSTRAP_PARALLELISM) ?
+                Akka.system().settings().config().getInt(BOOTSTRAP_PARALLELISM) : DEFAULT_BOOTSTRAP_PARALLELISM;
+        return Akka.system().actorOf(Props.create(FleetBootstrap.class, () -> new FleetBootstrap(ids, parallelism, id -> {
+            Drone droneEntity = pending.get(id);
+            DroneCommander commander = drones.get(id);
+            return commander != null ? Futures.successful(commander) : createCommanderForDrone(droneEntity);
+        }, listener)));
+    }
+
     public void shutdown(){
         for(DroneCommander cmd : drones.values()){
             cmd.stop();
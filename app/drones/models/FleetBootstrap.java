@@ -0,0 +1,170 @@
+package drones.models;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.dispatch.OnComplete;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import akka.japi.pf.ReceiveBuilder;
+import scala.concurrent.Future;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Initializes the commanders of many drones at once, with at most a fixed number of initializations in flight.
+ * Every drone is reported to the listener as soon as it is ready or failed, followed by a summary when all are done.
+ */
+public class FleetBootstrap extends AbstractActor {
+
+    /**
+     * The commander of a drone was initialized
+     */
+    public static class DroneReady implements Serializable {
+        private final long droneId;
+
+        public DroneReady(long droneId) {
+            this.droneId = droneId;
+        }
+
+        public long getDroneId() {
+            return droneId;
+        }
+    }
+
+    /**
+     * The commander of a drone could not be initialized
+     */
+    public static class DroneFailed implements Serializable {
+        private final long droneId;
+        private final Throwable cause;
+
+        public DroneFailed(long droneId, Throwable cause) {
+            this.droneId = droneId;
+            this.cause = cause;
+        }
+
+        public long getDroneId() {
+            return droneId;
+        }
+
+        public Throwable getCause() {
+            return cause;
+        }
+    }
+
+    /**
+     * All drones were handled
+     */
+    public static class Completed implements Serializable {
+        private final int ready;
+        private final int failed;
+
+        public Completed(int ready, int failed) {
+            this.ready = ready;
+            this.failed = failed;
+        }
+
+        public int getReady() {
+            return ready;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+    }
+
+    private final LoggingAdapter log = Logging.getLogger(getContext().system(), this);
+
+    private final Iterator<Long> pending;
+    private final int total;
+    private final int parallelism;
+    private final Function<Long, Future<?>> initializer;
+    private final ActorRef listener;
+
+    private int running = 0;
+    private int ready = 0;
+    private int failed = 0;
+
+    /**
+     * @param droneIds Drones to initialize, in the order they are started
+     * @param parallelism Maximum number of initializations in progress
+     * @param initializer Starts the initialization of a drone, null when it cannot be initialized
+     * @param listener Receives the progress, may be null
+     */
+    public FleetBootstrap(List<Long> droneIds, int parallelism, Function<Long, Future<?>> initializer, ActorRef listener) {
+        this.pending = new ArrayList<>(droneIds).iterator();
+        this.total = droneIds.size();
+        this.parallelism = Math.max(1, parallelism);
+        this.initializer = initializer;
+        this.listener = listener;
+
+        receive(ReceiveBuilder.
+                match(DroneReady.class, m -> {
+                    ready++;
+                    finished(m);
+                }).
+                match(DroneFailed.class, m -> {
+                    failed++;
+                    log.warning("Drone {} failed to initialize: {}", m.getDroneId(), m.getCause());
+                    finished(m);
+                }).build());
+    }
+
+    @Override
+    public void preStart() throws Exception {
+        super.preStart();
+        log.info("Initializing {} drones, {} at a time.", total, parallelism);
+        while (running < parallelism && pending.hasNext()) {
+            start(pending.next());
+        }
+        checkCompleted();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void start(long droneId) {
+        running++;
+        ActorRef self = self();
+        Future<Object> future;
+        try {
+            future = (Future<Object>) initializer.apply(droneId);
+        } catch (RuntimeException ex) {
+            self.tell(new DroneFailed(droneId, ex), self);
+            return;
+        }
+        if (future == null) {
+            self.tell(new DroneFailed(droneId, new IllegalArgumentException("No driver for drone.")), self);
+            return;
+        }
+        future.onComplete(new OnComplete<Object>() {
+            @Override
+            public void onComplete(Throwable failure, Object result) throws Throwable {
+                self.tell(failure == null ? new DroneReady(droneId) : new DroneFailed(droneId, failure), self);
+            }
+        }, getContext().dispatcher());
+    }
+
+    private void finished(Object progress) {
+        running--;
+        if (listener != null) {
+            listener.tell(progress, self());
+        }
+        if (pending.hasNext()) {
+            start(pending.next());
+        }
+        checkCompleted();
+    }
+
+    private void checkCompleted() {
+        if (running == 0 && !pending.hasNext()) {
+            log.info("Initialized {} of {} drones.", ready, total);
+            if (listener != null) {
+                listener.tell(new Completed(ready, failed), self());
+            }
+            getContext().stop(self());
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package drones.models;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.japi.pf.ReceiveBuilder;
+import droneapi.messages.SubscribeEventMessage;
+import droneapi.messages.UnsubscribeEventMessage;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One partition of the fleet bus, forwarding the events of the drones assigned to it.
+ * Every subscriber has one subscription per partition, filtered by drone ids and event classes.
+ * Subscribers are indexed by event class, so an event only visits the subscribers that asked for its class.
+ * Events of registered drones also update the fleet state view, this partition is the only writer for its drones.
+ * A registered drone is subscribed through a relay, which tags its events with the drone id. Events of sharded
+ * drones are sent by the actor on the node hosting the drone, so they cannot be recognized by their sender.
+ */
+public class FleetBus extends AbstractActor {
+
+    /**
+     * Assigns a drone actor to this partition, its events are published under the drone id until it terminates
+     */
+    public static class RegisterDrone implements Serializable {
+        private final long droneId;
+        private final ActorRef drone;
+        private final SubscribeEventMessage[] subscriptions;
+
+        /**
+         * @param subscriptions Events to subscribe this partition to, sent to the drone actor
+         */
+        public RegisterDrone(long droneId, ActorRef drone, SubscribeEventMessage... subscriptions) {
+            this.droneId = droneId;
+            this.drone = drone;
+            this.subscriptions = subscriptions;
+        }
+    }
+
+    /**
+     * Event of a registered drone, as received from its relay
+     */
+    public static class DroneEvent implements Serializable {
+        private final long droneId;
+        private final Object event;
+
+        public DroneEvent(long droneId, Object event) {
+            this.droneId = droneId;
+            this.event = event;
+        }
+
+        public long getDroneId() {
+            return droneId;
+        }
+
+        public Object getEvent() {
+            return event;
+        }
+    }
+
+    /**
+     * Subscriber of a single drone, passing its events to the partition tagged with the drone id
+     */
+    public static class Relay extends AbstractActor {
+        public Relay(long droneId) {
+            receive(ReceiveBuilder.
+                    matchAny(e -> context().parent().forward(new DroneEvent(droneId, e), getContext())).build());
+        }
+    }
+
+    /**
+     * Subscribes the sender, replacing its previous subscription
+     */
+    public static class Subscription implements Serializable {
+        private final Set<Long> droneIds;
+        private final Set<Class<?>> types;
+
+        /**
+         * @param droneIds Drones to receive events from, null for all drones
+         * @param types Event classes to receive, null for all events
+         */
+        public Subscription(Collection<Long> droneIds, Class<?>[] types) {
+            this.droneIds = droneIds == null ? null : Collections.unmodifiableSet(new HashSet<>(droneIds));
+            this.types = types == null || types.length == 0 ? null : Collections.unmodifiableSet(new HashSet<>(Arrays.asList(types)));
+        }
+
+        public Set<Long> getDroneIds() {
+            return droneIds;
+        }
+
+        public Set<Class<?>> getTypes() {
+            return types;
+        }
+
+        private boolean accepts(Long droneId) {
+            return droneIds == null || (droneId != null && droneIds.contains(droneId));
+        }
+    }
+
+    private final FleetState state;
+
+    // Registered drone actors by id and the other way around, with the relay of each drone
+    private final Map<ActorRef, Long> drones = new HashMap<>();
+    private final Map<Long, ActorRef> droneActors = new HashMap<>();
+    private final Map<Long, ActorRef> relays = new HashMap<>();
+
+    private final Map<ActorRef, Subscription> subscriptions = new HashMap<>();
+
+    // Subscribers by event class, and subscribers to all events
+    private final Map<Class<?>, Map<ActorRef, Subscription>> byType = new HashMap<>();
+    private final Map<ActorRef, Subscription> allTypes = new LinkedHashMap<>();
+
+    /**
+     * @param state View to update with the events of the drones, null to only forward events
+     */
+    public FleetBus(FleetState state) {
+        this.state = state;
+        receive(ReceiveBuilder.
+                match(RegisterDrone.class, this::register).
+                match(DroneEvent.class, e -> publish(e.event, e.droneId, droneActors.getOrDefault(e.droneId, sender()))).
+                match(Subscription.class, s -> subscribe(sender(), s)).
+                match(SubscribeEventMessage.class, s -> subscribe(sender(), new Subscription(null, null))).
+                match(UnsubscribeEventMessage.class, s -> unsubscribe(sender())).
+                match(Terminated.class, s -> {
+                    Long droneId = drones.remove(s.actor());
+                    if (droneId != null) {
+                        droneActors.remove(droneId);
+                        ActorRef relay = relays.remove(droneId);
+                        if (relay != null) {
+                            getContext().stop(relay);
+                        }
+                        if (state != null) {
+                            state.remove(droneId);
+                        }
+                    }
+                    unsubscribe(s.actor());
+                }).
+                matchAny(msg -> publish(msg, drones.get(sender()), sender())).build());
+    }
+
+    private void register(RegisterDrone registration) {
+        drones.put(registration.drone, registration.droneId);
+        droneActors.put(registration.droneId, registration.drone);
+        getContext().watch(registration.drone);
+
+        ActorRef previous = relays.remove(registration.droneId);
+        if (previous != null) {
+            getContext().stop(previous);
+        }
+        if (registration.subscriptions.length > 0) {
+            long droneId = registration.droneId;
+            ActorRef relay = getContext().actorOf(Props.create(Relay.class, () -> new Relay(droneId)));
+            relays.put(droneId, relay);
+            for (SubscribeEventMessage subscription : registration.subscriptions) {
+                registration.drone.tell(subscription, relay);
+            }
+        }
+    }
+
+    private void subscribe(ActorRef subscriber, Subscription subscription) {
+        if (subscriptions.containsKey(subscriber)) {
+            remove(subscriber);
+        } else {
+            getContext().watch(subscriber);
+        }
+
+        subscriptions.put(subscriber, subscription);
+        if (subscription.types == null) {
+            allTypes.put(subscriber, subscription);
+        } else {
+            for (Class<?> type : subscription.types) {
+                byType.computeIfAbsent(type, t -> new LinkedHashMap<>()).put(subscriber, subscription);
+            }
+        }
+    }
+
+    private void unsubscribe(ActorRef subscriber) {
+        if (subscriptions.containsKey(subscriber)) {
+            remove(subscriber);
+            if (!drones.containsKey(subscriber)) {
+                getContext().unwatch(subscriber);
+            }
+        }
+    }
+
+    private void remove(ActorRef subscriber) {
+        Subscription subscription = subscriptions.remove(subscriber);
+        if (subscription.types == null) {
+            allTypes.remove(subscriber);
+        } else {
+            for (Class<?> type : subscription.types) {
+                Map<ActorRef, Subscription> subscribers = byType.get(type);
+                subscribers.remove(subscriber);
+                if (subscribers.isEmpty()) {
+                    byType.remove(type);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param droneId Id of the drone, null when the event is not of a registered drone
+     * @param drone Registered drone actor, or the sender of the event, sent along as sender
+     */
+    private void publish(Object msg, Long droneId, ActorRef drone) {
+        // Events of unregistered drones only reach the subscribers to all drones
+        if (droneId != null && state != null) {
+            state.update(droneId, msg, System.currentTimeMillis());
+        }
+        Map<ActorRef, Subscription> subscribers = byType.get(msg.getClass());
+        if (subscribers != null) {
+            forward(msg, droneId, drone, subscribers);
+        }
+        forward(msg, droneId, drone, allTypes);
+    }
+
+    private void forward(Object msg, Long droneId, ActorRef drone, Map<ActorRef, Subscription> subscribers) {
+        for (Map.Entry<ActorRef, Subscription> entry : subscribers.entrySet()) {
+            if (entry.getValue().accepts(droneId)) {
+                entry.getKey().tell(msg, drone);
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package drones.models;
+
+import droneapi.geo.GeoGrid;
+import droneapi.messages.*;
+import droneapi.model.properties.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Predicate;
+
+/**
+ * Latest telemetry of every drone in the fleet, kept up to date by the fleet bus.
+ * Reads never message the drone actors: every drone has an immutable state, which is replaced on each update.
+ * Counts by flying state, a battery histogram and a spatial index of the drone locations are maintained incrementally.
+ */
+public class FleetState {
+
+    private static final PropertyType[] TYPES = PropertyType.values();
+    private static final FlyingState[] FLYING_STATES = FlyingState.values();
+
+    // Width of a bucket of the battery histogram, in percent
+    public static final int BATTERY_BUCKET = 10;
+
+    // Cell size of the location index in degrees, about a kilometer
+    private static final double LOCATION_CELL = 0.01;
+
+    /**
+     * Immutable state of a single drone at the time of its latest update
+     */
+    public static class DroneState {
+        private final long droneId;
+        private final Object[] values;
+        private final long[] updated;
+        private final long staleAfter;
+
+        private DroneState(long droneId, long staleAfter) {
+            this.droneId = droneId;
+            this.values = new Object[TYPES.length];
+            this.updated = new long[TYPES.length];
+            this.staleAfter = staleAfter;
+        }
+
+        private DroneState(DroneState state, PropertyType type, Object value, long now) {
+            this.droneId = state.droneId;
+            this.values = state.values.clone();
+            this.updated = state.updated.clone();
+            this.staleAfter = state.staleAfter;
+            values[type.ordinal()] = value;
+            updated[type.ordinal()] = now;
+        }
+
+        public long getDroneId() {
+            return droneId;
+        }
+
+        /**
+         * @return The latest value of the given property, null when never received
+         */
+        public Object get(PropertyType type) {
+            return values[type.ordinal()];
+        }
+
+        /**
+         * @return Time of the latest update of the given property in milliseconds since epoch, 0 when never received
+         */
+        public long getUpdated(PropertyType type) {
+            return updated[type.ordinal()];
+        }
+
+        /**
+         * @return True when the property was never received, or not updated within the staleness interval of the view
+         */
+        public boolean isStale(PropertyType type) {
+            long time = updated[type.ordinal()];
+            return time == 0 || System.currentTimeMillis() - time > staleAfter;
+        }
+
+        public Location getLocation() {
+            return (Location) get(PropertyType.LOCATION);
+        }
+
+        public Double getAltitude() {
+            return (Double) get(PropertyType.ALTITUDE);
+        }
+
+        public Speed getSpeed() {
+            return (Speed) get(PropertyType.SPEED);
+        }
+
+        public Byte getBatteryPercentage() {
+            return (Byte) get(PropertyType.BATTERY);
+        }
+
+        public FlyingState getFlyingState() {
+            return (FlyingState) get(PropertyType.FLYINGSTATE);
+        }
+
+        public NavigationState getNavigationState() {
+            return (NavigationState) get(PropertyType.NAVIGATIONSTATE);
+        }
+
+        public Boolean isOnline() {
+            return (Boolean) get(PropertyType.NETWORK_STATUS);
+        }
+
+        /**
+         * @return Snapshot of the given properties, null when any of them is stale
+         */
+        public DroneSnapshot toSnapshot(PropertyType... types) {
+            Map<PropertyType, Object> snapshot = new EnumMap<>(PropertyType.class);
+            long timestamp = Long.MAX_VALUE;
+            for (PropertyType type : types) {
+                if (isStale(type)) {
+                    return null;
+                }
+                snapshot.put(type, get(type));
+                timestamp = Math.min(timestamp, getUpdated(type));
+            }
+            return new DroneSnapshot(types.length == 0 ? System.currentTimeMillis() : timestamp, snapshot);
+        }
+    }
+
+    private final long staleAfter;
+    private final ConcurrentMap<Long, DroneState> drones = new ConcurrentHashMap<>();
+
+    private final AtomicIntegerArray flyingStates = new AtomicIntegerArray(FLYING_STATES.length);
+    private final AtomicIntegerArray batteryHistogram = new AtomicIntegerArray(100 / BATTERY_BUCKET + 1);
+    private final GeoGrid<Long> locations = new GeoGrid<>(LOCATION_CELL);
+
+    /**
+     * @param staleAfter Time in milliseconds after which a property that was not updated is stale
+     */
+    public FleetState(long staleAfter) {
+        this.staleAfter = staleAfter;
+    }
+
+    /**
+     * @return The state of the given drone, null when nothing was received from it
+     */
+    public DroneState get(long droneId) {
+        return drones.get(droneId);
+    }
+
+    /**
+     * @return Read-only view of the states of all drones
+     */
+    public Map<Long, DroneState> getAll() {
+        return Collections.unmodifiableMap(drones);
+    }
+
+    public int size() {
+        return drones.size();
+    }
+
+    /**
+     * @return Number of drones by their latest flying state
+     */
+    public Map<FlyingState, Integer> getFlyingStateCounts() {
+        Map<FlyingState, Integer> counts = new EnumMap<>(FlyingState.class);
+        for (FlyingState state : FLYING_STATES) {
+            counts.put(state, flyingStates.get(state.ordinal()));
+        }
+        return counts;
+    }
+
+    /**
+     * @return Number of drones by battery percentage, bucket i counts percentages from i * BATTERY_BUCKET
+     */
+    public int[] getBatteryHistogram() {
+        int[] histogram = new int[batteryHistogram.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = batteryHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * @param k Maximum number of drones to return
+     * @param maxDistance Maximum distance in meters
+     * @param filter Drones to consider, for example by battery or by a set of available drone ids
+     * @return The k drones with a recent location closest to the given location, ordered by increasing distance
+     */
+    public List<DroneState> nearest(double latitude, double longitude, int k, double maxDistance, Predicate<DroneState> filter) {
+        List<Long> ids = locations.nearest(latitude, longitude, k, maxDistance, id -> {
+            DroneState state = drones.get(id);
+            return state != null && !state.isStale(PropertyType.LOCATION) && filter.test(state);
+        });
+        List<DroneState> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            DroneState state = drones.get(id);
+            if (state != null) {
+                result.add(state);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The drones with a recent location within the given distance in meters, ordered by increasing distance
+     */
+    public List<DroneState> within(double latitude, double longitude, double radius, Predicate<DroneState> filter) {
+        return nearest(latitude, longitude, Integer.MAX_VALUE, radius, filter);
+    }
+
+    /**
+     * Applies a drone event to the state of the drone.
+     * Updates of one drone must come from a single thread, such as the fleet bus partition of the drone.
+     *
+     * @return True when the event carries a property of the view
+     */
+    public boolean update(long droneId, Object msg, long now) {
+        if (msg instanceof LocationChangedMessage) {
+            LocationChangedMessage m = (LocationChangedMessage) msg;
+            set(droneId, PropertyType.LOCATION, new Location(m.getLatitude(), m.getLongitude(), m.getGpsHeight()), now);
+            locations.put(droneId, m.getLatitude(), m.getLongitude());
+        } else if (msg instanceof AltitudeChangedMessage) {
+            set(droneId, PropertyType.ALTITUDE, ((AltitudeChangedMessage) msg).getAltitude(), now);
+        } else if (msg instanceof SpeedChangedMessage) {
+            SpeedChangedMessage m = (SpeedChangedMessage) msg;
+            set(droneId, PropertyType.SPEED, new Speed(m.getSpeedX(), m.getSpeedY(), m.getSpeedZ()), now);
+        } else if (msg instanceof BatteryPercentageChangedMessage) {
+            set(droneId, PropertyType.BATTERY, ((BatteryPercentageChangedMessage) msg).getPercent(), now);
+        } else if (msg instanceof FlyingStateChangedMessage) {
+            set(droneId, PropertyType.FLYINGSTATE, ((FlyingStateChangedMessage) msg).getState(), now);
+        } else if (msg instanceof NavigationStateChangedMessage) {
+            NavigationStateChangedMessage m = (NavigationStateChangedMessage) msg;
+            set(droneId, PropertyType.NAVIGATIONSTATE, m.getState(), now);
+            set(droneId, PropertyType.NAVIGATIONREASON, m.getReason(), now);
+        } else if (msg instanceof ConnectionStatusChangedMessage) {
+            set(droneId, PropertyType.NETWORK_STATUS, ((ConnectionStatusChangedMessage) msg).isConnected(), now);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private void set(long droneId, PropertyType type, Object value, long now) {
+        DroneState old = drones.get(droneId);
+        DroneState state = new DroneState(old == null ? new DroneState(droneId, staleAfter) : old, type, value, now);
+        drones.put(droneId, state);
+        count(old, -1);
+        count(state, 1);
+    }
+
+    /**
+     * Removes a drone from the view, when it is no longer part of the fleet
+     */
+    public void remove(long droneId) {
+        count(drones.remove(droneId), -1);
+        locations.remove(droneId);
+    }
+
+    private void count(DroneState state, int delta) {
+        if (state == null) {
+            return;
+        }
+        FlyingState flyingState = state.getFlyingState();
+        if (flyingState != null) {
+            flyingStates.addAndGet(flyingState.ordinal(), delta);
+        }
+        Byte battery = state.getBatteryPercentage();
+        if (battery != null) {
+            batteryHistogram.addAndGet(Math.max(0, Math.min(100, battery)) / BATTERY_BUCKET, delta);
+        }
+    }
+}
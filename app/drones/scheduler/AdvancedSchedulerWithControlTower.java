@@ -2,25 +2,28 @@ package drones.scheduler;
 
 import akka.actor.ActorRef;
 import akka.actor.Props;
-import akka.japi.pf.ReceiveBuilder;
+import akka.dispatch.OnComplete;
 import akka.japi.pf.UnitPFBuilder;
 import com.avaje.ebean.Ebean;
 import com.avaje.ebean.Query;
 import droneapi.api.DroneCommander;
+import droneapi.model.properties.DroneSnapshot;
+import droneapi.model.properties.PropertyType;
 import drones.flightcontrol.SimpleControlTower;
 import drones.flightcontrol.SimplePilot;
 import drones.flightcontrol.messages.*;
 import drones.models.Fleet;
+import drones.models.FleetState;
 import drones.scheduler.messages.from.*;
 import drones.scheduler.messages.to.*;
 import models.Assignment;
 import models.Drone;
 import models.Location;
+import models.RouteMetrics;
 import play.Logger;
-import scala.concurrent.Await;
 import scala.concurrent.duration.Duration;
 
-import javax.persistence.OptimisticLockException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -34,17 +37,21 @@ import java.util.concurrent.TimeUnit;
  */
 public class AdvancedSchedulerWithControlTower extends Scheduler implements Comparator<Assignment> {
 
-    // Temporary metric in battery percentage per meter.
-    // Every meter, this drone uses 0.01% of his total power, so he can fly 10km.
-    public static final float BATTERY_PERCENTAGE_PER_METER = 0.01f;
+    // Time a fetched location and battery snapshot is used
     private static final Duration TIMEOUT = Duration.create(2, TimeUnit.SECONDS);
     private Map<Long, Flight> flights = new HashMap<>();
+    // Snapshots fetched from drones, with the decisions waiting for them
+    private SnapshotTable snapshots = new SnapshotTable(TIMEOUT.toMillis());
+    // Pending assignments, kept in step with every assignment status the scheduler writes
+    private PendingAssignments pending = new PendingAssignments();
 
     //settings for control tower
     private int numberOfFlights = 0;
     private static final int MAX_NUMBER_OF_FLIGHTS = 200;
     private static final int MIN_CRUISING_ALTITUDE_DRONE = 2;
     private static final int MAX_CRUISING_ALTITUDE_DRONE = MIN_CRUISING_ALTITUDE_DRONE + MAX_NUMBER_OF_FLIGHTS * 2;
+    // Meters a flight climbs: the control tower gives it a cruising altitude up to the maximum, kept along the route
+    private static final double CLIMB = MAX_CRUISING_ALTITUDE_DRONE;
 
     ActorRef controlTower;
 
@@ -57,6 +64,7 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
                 .match(WayPointCompletedMessage.class, m -> waypointCompleted(m))
                 .match(RemoveFlightCompletedMessage.class, m -> flightCanceled(m))
                 .match(FlightCompletedMessage.class, m -> flightCompleted(m))
+                .match(SnapshotTable.SnapshotMessage.class, m -> snapshotArrived(m))
                 .match(FlightControlCanceledMessage.class, m -> flightControlCanceled(m))
                 .match(ControlTowerFullMessage.class, m -> controlTowerFullMessage(m));
     }
@@ -89,13 +97,27 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
         );
         controlTower.tell(new StartFlightControlMessage(), self());
 
-        // Initial scheduling
-        List<Drone> drones = Drone.FIND.all();
-        for(Drone drone : drones){
+        Query<Assignment> query = Ebean.createQuery(Assignment.class);
+        query.where().eq("status", Assignment.Status.PENDING);
+        for(Assignment assignment : query.findList()){
+            pending.add(assignment);
+        }
+
+        // Initial scheduling, drones without a commander are scheduled as soon as they are initialized
+        Fleet fleet = Fleet.getFleet();
+        List<Drone> uninitialized = new ArrayList<>();
+        for(Drone drone : Drone.FIND.all()){
             if(drone.getStatus() == Drone.Status.AVAILABLE) {
-                scheduleDrone(drone.getId());
+                if(fleet.hasCommander(drone)) {
+                    scheduleDrone(drone.getId());
+                }else{
+                    uninitialized.add(drone);
+                }
             }
         }
+        if(!uninitialized.isEmpty()) {
+            fleet.initialize(uninitialized, self());
+        }
     }
 
     @Override
@@ -103,7 +125,7 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
         // Cancel all remaining flights
         if (flights.isEmpty()) {
             // Termination
-            eventBus.publish(new SchedulerStoppedMessage());
+            publish(new SchedulerStoppedMessage());
             controlTower.tell(new StopFlightControlMessage(),self());
             Logger.info("Scheduler terminates.");
             context().stop(self());
@@ -111,7 +133,7 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
         }
         // Termination phase
         // Hotswap new receive behaviour
-        context().become(ReceiveBuilder
+        context().become(persistenceReceivers()
                 .match(FlightControlExceptionMessage.class, m -> termination(m))
                 .match(RemoveFlightCompletedMessage.class, m -> termination(m))
                 .match(FlightCompletedMessage.class, m -> termination(m))
@@ -133,7 +155,7 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
         flightCompleted(message);
         // Check if we can terminate
         if (flights.isEmpty()) {
-            eventBus.publish(new SchedulerStoppedMessage());
+            publish(new SchedulerStoppedMessage());
             controlTower.tell(new StopFlightControlMessage(),self());
         }
     }
@@ -142,7 +164,7 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
         flightCanceled(message);
         // Check if we can terminate
         if (flights.isEmpty()) {
-            eventBus.publish(new SchedulerStoppedMessage());
+            publish(new SchedulerStoppedMessage());
             controlTower.tell(new StopFlightControlMessage(),self());
         }
     }
@@ -151,7 +173,7 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
         flightFailed(message);
         // Check if we can terminate
         if (flights.isEmpty()) {
-            eventBus.publish(new SchedulerStoppedMessage());
+            publish(new SchedulerStoppedMessage());
             controlTower.tell(new StopFlightControlMessage(),self());
         }
     }
@@ -187,6 +209,11 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
         }
         if(assignment.getStatus() != Assignment.Status.PENDING){
             Logger.warn("ScheduleAssignment: assignment is not pending.");
+            pending.remove(assignment.getId());
+            return;
+        }
+        if(!pending.add(assignment)){
+            Logger.warn("ScheduleAssignment: invalid route.");
             return;
         }
         Drone drone = fetchDrone(assignment);
@@ -226,30 +253,17 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
 
     protected boolean assign(Drone drone, Assignment assignment) {
         assignment.setAssignedDrone(drone);
-        try {
-            assignment.update();
-            eventBus.publish(new DroneAssignedMessage(assignment.getId(), drone.getId()));
-            return true;
-        } catch (OptimisticLockException ex) {
-            Logger.warn("Assign: OptimisticLockException.");
-            return false;
-        }
+        writes.assignedDrone(assignment.getId(), drone.getId());
+        persist();
+        publish(new DroneAssignedMessage(assignment.getId(), drone.getId()));
+        return true;
     }
 
     protected void unassign(Drone drone, Assignment assignment) {
-        // Update assignment
-        boolean updated = false;
-        while(!updated) {
-            assignment.refresh();
-            assignment.setAssignedDrone(null);
-            try {
-                assignment.update();
-                updated = true;
-            } catch (OptimisticLockException ex) {
-                Logger.warn("Unassign: retry to update.");
-            }
-        }
-        eventBus.publish(new DroneUnassignedMessage(assignment.getId(), drone.getId()));
+        assignment.setAssignedDrone(null);
+        writes.assignedDrone(assignment.getId(), null);
+        persist();
+        publish(new DroneUnassignedMessage(assignment.getId(), drone.getId()));
     }
 
     protected void flightCompleted(FlightCompletedMessage message) {
@@ -273,9 +287,10 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
             }else{
                 unassign(drone, assignment);
                 updateAssignmentStatus(assignment, Assignment.Status.COMPLETED);
-                eventBus.publish(new AssignmentCompletedMessage(assignment.getId()));
+                publish(new AssignmentCompletedMessage(assignment.getId()));
             }
         }
+        learnBatteryUsage(drone, flight);
         updateDroneStatus(drone,Drone.Status.AVAILABLE);
         scheduleDrone(drone.getId());
     }
@@ -305,7 +320,7 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
         }
         unassign(drone, assignment);
         if(assignment.getStatus() == Assignment.Status.CANCELED){
-            eventBus.publish(new AssignmentCanceledMessage(assignment.getId()));
+            publish(new AssignmentCanceledMessage(assignment.getId()));
         }else{
             updateAssignmentProgress(assignment, 0);
             updateAssignmentStatus(assignment, Assignment.Status.PENDING);
@@ -327,7 +342,7 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
             return;
         }
         updateDroneStatus(drone, Drone.Status.ERROR);
-        eventBus.publish(new DroneFailedMessage(drone.getId(),message.getMessage()));
+        publish(new DroneFailedMessage(drone.getId(),message.getMessage()));
         //Assignment
         Assignment assignment = getAssignment(flight.getAssignmentId());
         if(assignment == null){
@@ -359,33 +374,39 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
     }
 
     protected Assignment fetchAssignment(Drone drone){
-        // Fetch
-        Query<Assignment> query = Ebean.createQuery(Assignment.class);
-        query.where().eq("status", Assignment.Status.PENDING);
-        query.orderBy("priority, id");
-        List<Assignment> assignments = query.findList();
-
-        DroneCommander commander = getCommander(drone);
-        Location droneLocation = getDroneLocation(commander);
-        if (droneLocation == null) {
-            Logger.warn("FetchAssignment: drone location is null.");
+        // Location and battery in a single request
+        DroneSnapshot snapshot = getDroneSnapshot(drone, new ScheduleDroneMessage(drone.getId()));
+        if (snapshot == null || snapshot.getLocation() == null) {
+            if (!snapshots.isRequested(drone.getId())) {
+                Logger.warn("FetchAssignment: drone location is null.");
+            }
             return null;
         }
-        for(Assignment assignment : assignments){
-            // Distance to complete the assignment route.
-            double routeLength = Helper.getRouteLength(assignment);
-            if (Double.isNaN(routeLength)) {
-                Logger.warn("FetchAssignment: invalid route length.");
-                continue;
+        double latitude = snapshot.getLocation().getLatitude();
+        double longitude = snapshot.getLocation().getLongitude();
+        while(true) {
+            // First pending assignment the drone can complete: distance to its start plus the route
+            PendingAssignments.Entry entry = pending.first(e ->
+                    hasSufficientBattery(drone, snapshot, e.distanceFrom(latitude, longitude) + e.getRouteLength(),
+                            e.getHoverTime(), CLIMB));
+            if (entry == null) {
+                return null;
             }
-            Location startLocation = assignment.getRoute().get(0).getLocation();
-            double distance = Helper.distance(droneLocation, startLocation);
-            double totalDistance = distance + routeLength;
-            if(hasSufficientBattery(commander,totalDistance)){
+            Assignment assignment = getAssignment(entry.getAssignmentId());
+            if (assignment != null && assignment.getStatus() == Assignment.Status.PENDING) {
                 return assignment;
             }
+            // Deleted or changed outside the scheduler
+            pending.remove(entry.getAssignmentId());
         }
-        return null;
+    }
+
+    /**
+     * @return Metrics of the route, computed again for assignments stored without them
+     */
+    private static RouteMetrics getRouteMetrics(Assignment assignment) {
+        RouteMetrics metrics = assignment.getRouteMetrics();
+        return metrics != null ? metrics : RouteMetrics.of(assignment.getRoute());
     }
 
     protected Drone fetchDrone(Assignment assignment) {
@@ -396,26 +417,52 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
             return null;
         }
         // Fetch drones
-        Query<Drone> query = Ebean.createQuery(Drone.class);
-        query.where().eq("status", Drone.Status.AVAILABLE);
-        List<Drone> drones = query.findList();
+        List<Drone> drones = findDrones(Drone.Status.AVAILABLE);
         // Find the closest drone to this assignment start location
-        Location startLocation = assignment.getRoute().get(0).getLocation();
+        RouteMetrics metrics = getRouteMetrics(assignment);
+        Location startLocation = metrics.getStart();
         double minDistance = Double.MAX_VALUE;
         Drone minDrone = null;
-        // Consider all drones
+        // Drones with a recent location and battery in the fleet view are found through its spatial index
+        FleetState fleetState = Fleet.getFleet().getState();
+        Map<Long, Drone> indexed = new HashMap<>();
+        for (Drone drone : drones) {
+            FleetState.DroneState state = fleetState.get(drone.getId());
+            if (state != null && state.toSnapshot(PropertyType.LOCATION, PropertyType.BATTERY) != null) {
+                indexed.put(drone.getId(), drone);
+            }
+        }
+        List<FleetState.DroneState> closest = fleetState.nearest(startLocation.getLatitude(), startLocation.getLongitude(),
+                1, Double.MAX_VALUE, state -> {
+                    DroneSnapshot snapshot = state.toSnapshot(PropertyType.LOCATION, PropertyType.BATTERY);
+                    return indexed.containsKey(state.getDroneId()) && snapshot != null
+                            && hasSufficientBattery(indexed.get(state.getDroneId()), snapshot,
+                            Helper.distance(Helper.droneToEntityLocation(snapshot.getLocation()), startLocation) + routeLength,
+                            metrics.getHoverTime(), CLIMB);
+                });
+        if (!closest.isEmpty()) {
+            minDrone = indexed.get(closest.get(0).getDroneId());
+            minDistance = Helper.distance(Helper.droneToEntityLocation(closest.get(0).getLocation()), startLocation);
+        }
+        // Other drones are asked for their location and battery
         for (Drone drone : drones) {
-            DroneCommander commander = getCommander(drone);
-            Location droneLocation = getDroneLocation(commander);
-            if (droneLocation == null) {
-                Logger.warn("FetchDrone: drone location is null.");
+            if (indexed.containsKey(drone.getId())) {
+                continue;
+            }
+            // Location and battery in a single request
+            DroneSnapshot snapshot = getDroneSnapshot(drone, new ScheduleAssignmentMessage(assignment.getId()));
+            if (snapshot == null || snapshot.getLocation() == null) {
+                if (!snapshots.isRequested(drone.getId())) {
+                    Logger.warn("FetchDrone: drone location is null.");
+                }
                 continue;
             }
+            Location droneLocation = Helper.droneToEntityLocation(snapshot.getLocation());
             // Calculate distance to first checkpoint.
             double distance = Helper.distance(droneLocation, startLocation);
             if (distance < minDistance) {
                 double totalDistance = distance + routeLength;
-                if (hasSufficientBattery(commander, totalDistance)) {
+                if (hasSufficientBattery(drone, snapshot, totalDistance, metrics.getHoverTime(), CLIMB)) {
                     minDistance = distance;
                     minDrone = drone;
                 }
@@ -424,19 +471,68 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
         return minDrone;
     }
 
-    private Location getDroneLocation(DroneCommander commander) {
+    /**
+     * Location and battery of a drone, without waiting for the drone.
+     * When they are not known, they are requested and the decision is sent to the scheduler again once they arrive.
+     *
+     * @param decision Message to handle again when the snapshot arrives
+     * @return The snapshot, null when it is not available yet
+     */
+    private DroneSnapshot getDroneSnapshot(Drone drone, Object decision) {
+        DroneSnapshot snapshot = getRecentSnapshot(drone.getId());
+        if (snapshot != null) {
+            return snapshot;
+        }
+        DroneCommander commander = getCommander(drone);
         // Make sure we have a commander
         if (commander == null) {
-            Logger.warn("GetDroneLocation: commander is null.");
+            Logger.warn("GetDroneSnapshot: commander is null.");
             return null;
         }
-        // Retrieve drone location
-        try {
-            droneapi.model.properties.Location loc = Await.result(commander.getLocation(), TIMEOUT);
-            return new Location(loc.getLatitude(), loc.getLongitude(), loc.getHeight());
-        } catch (Exception ex) {
-            Logger.warn("GetDroneLocation: getLocation timed out.");
-            return null;
+        // Retrieve drone location and battery at once, the reply is piped back to the scheduler
+        if (snapshots.await(drone.getId(), decision)) {
+            long droneId = drone.getId();
+            ActorRef self = self();
+            commander.getSnapshot(PropertyType.LOCATION, PropertyType.BATTERY).onComplete(new OnComplete<DroneSnapshot>() {
+                @Override
+                public void onComplete(Throwable failure, DroneSnapshot result) throws Throwable {
+                    self.tell(new SnapshotTable.SnapshotMessage(droneId, failure == null ? result : null), self);
+                }
+            }, getContext().dispatcher());
+        }
+        return null;
+    }
+
+    /**
+     * @return Location and battery of a drone from the fleet view or fetched recently, null when there are none
+     */
+    private DroneSnapshot getRecentSnapshot(long droneId) {
+        // Read from the fleet view when its values are recent
+        FleetState.DroneState state = Fleet.getFleet().getState().get(droneId);
+        DroneSnapshot snapshot = state == null ? null : state.toSnapshot(PropertyType.LOCATION, PropertyType.BATTERY);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // Or from a snapshot fetched recently
+        return snapshots.get(droneId, System.currentTimeMillis());
+    }
+
+    private void snapshotArrived(SnapshotTable.SnapshotMessage message) {
+        List<Object> decisions = snapshots.arrived(message.getDroneId(), message.getSnapshot(), System.currentTimeMillis());
+        if (message.getSnapshot() == null) {
+            Logger.warn("SnapshotArrived: drone did not answer.");
+            return;
+        }
+        for (Object decision : decisions) {
+            // Skip decisions made in the meantime
+            if (decision instanceof ScheduleAssignmentMessage
+                    && !pending.contains(((ScheduleAssignmentMessage) decision).getAssignmentId())) {
+                continue;
+            }
+            if (decision instanceof ScheduleDroneMessage && flights.containsKey(((ScheduleDroneMessage) decision).getDroneId())) {
+                continue;
+            }
+            self().tell(decision, self());
         }
     }
 
@@ -451,31 +547,51 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
     }
 
     /**
-     * Decides if a drone has enough battery power left to fly a certain distance.
+     * Decides if a drone has enough battery power left for a flight, with the battery model learned for it.
      *
-     * @param commander of the drone
-     * @param distance  to fly
+     * @param snapshot  of the drone, containing the battery percentage
+     * @param distance  to fly in meters
+     * @param hoverTime waiting at the checkpoints in seconds
+     * @param climb     in meters
      * @return true if there's enough battery power left, false otherwise
-     * @throws Exception if we failed to retrieve battery status
      */
-    protected boolean hasSufficientBattery(DroneCommander commander, double distance) {
-        // TODO: Have a battery usage approximation for every Dronetype.
-        // TODO: Take into account static battery loss and estimated travel time
-        if (commander == null) {
-            Logger.warn("HasSufficientBattery: commander is null.");
+    protected boolean hasSufficientBattery(Drone drone, DroneSnapshot snapshot, double distance, double hoverTime, double climb) {
+        Byte battery = snapshot.getBatteryPercentage();
+        if (battery == null) {
+            Logger.warn("HasSufficientBattery: battery percentage unknown.");
             return false;
         }
-        try {
-            int battery = Await.result(commander.getBatteryPercentage(), TIMEOUT);
-            return battery > distance * BATTERY_PERCENTAGE_PER_METER;
-        } catch (Exception ex) {
-            Logger.warn("HasSufficientBattery: getBatteryPercentage timed out.");
-            return false;
+        return Fleet.getFleet().getBatteryModel().isSufficient(drone.getDroneType(), drone.getId(), battery,
+                distance, hoverTime, climb);
+    }
+
+    /**
+     * Fits the battery used by a completed flight into the battery model.
+     */
+    private void learnBatteryUsage(Drone drone, Flight flight) {
+        if (Double.isNaN(flight.getStartBattery())) {
+            return;
+        }
+        FleetState.DroneState state = Fleet.getFleet().getState().get(drone.getId());
+        if (state == null || state.getBatteryPercentage() == null || state.isStale(PropertyType.BATTERY)) {
+            Logger.info("LearnBatteryUsage: battery percentage unknown.");
+            return;
         }
+        double used = flight.getStartBattery() - state.getBatteryPercentage();
+        if (used < 0) {
+            // Charged during the flight
+            return;
+        }
+        Fleet.getFleet().getBatteryModel().observe(drone.getDroneType(), drone.getId(), used,
+                flight.getDistance(), flight.getHoverTime(), flight.getClimb());
     }
 
     @Override
     protected void cancelAssignment(CancelAssignmentMessage message) {
+        pending.remove(message.getAssignmentId());
+        // Canceled in the database, status changes that are not written yet must not overwrite it
+        writes.assignmentStatus(message.getAssignmentId(), Assignment.Status.CANCELED);
+        persist();
         // Assignment
         Assignment assignment = getAssignment(message.getAssignmentId());
         if(assignment == null){
@@ -495,11 +611,19 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
         long droneId = drone.getId();
 
         Flight flight = new Flight(droneId, assignment.getId());
+        // Flight profile, to learn the battery it uses
+        DroneSnapshot snapshot = getRecentSnapshot(droneId);
+        if (snapshot != null && snapshot.getLocation() != null && snapshot.getBatteryPercentage() != null) {
+            RouteMetrics metrics = getRouteMetrics(assignment);
+            double distance = Helper.distance(Helper.droneToEntityLocation(snapshot.getLocation()), metrics.getStart())
+                    + metrics.getRouteLength();
+            flight.setProfile(snapshot.getBatteryPercentage(), distance, metrics.getHoverTime(), CLIMB);
+        }
         flights.put(droneId, flight);
         // Start
         updateDroneStatus(drone, Drone.Status.FLYING);
         updateAssignmentStatus(assignment, Assignment.Status.EXECUTING);
-        eventBus.publish(new AssignmentStartedMessage(assignment.getId()));
+        publish(new AssignmentStartedMessage(assignment.getId()));
         controlTower.tell(new AddFlightMessage(droneId,assignment.getRoute()),self());
     }
 
@@ -521,45 +645,30 @@ public class AdvancedSchedulerWithControlTower extends Scheduler implements Comp
     }
 
     private void updateDroneStatus(Drone drone, Drone.Status newStatus) {
-        boolean updated = false;
-        while(!updated) {
-            drone.refresh();
-            Drone.Status oldStatus = drone.getStatus();
-            drone.setStatus(newStatus);
-            try {
-                drone.update();
-                updated = true;
-                eventBus.publish(new DroneStatusMessage(drone.getId(), oldStatus, newStatus));
-            } catch (OptimisticLockException ex) {
-                Logger.warn("UpdateDroneStatus: retry to update.");
-            }
-        }
+        Drone.Status oldStatus = drone.getStatus();
+        drone.setStatus(newStatus);
+        writes.droneStatus(drone.getId(), newStatus);
+        persist();
+        publish(new DroneStatusMessage(drone.getId(), oldStatus, newStatus));
     }
 
     private void updateAssignmentStatus(Assignment assignment, Assignment.Status newStatus){
-        boolean updated = false;
-        while(!updated) {
-            assignment.refresh();
-            Assignment.Status oldStatus = assignment.getStatus();
-            assignment.setStatus(newStatus);
-            try {
-                assignment.update();
-                updated = true;
-                eventBus.publish(new AssignmentStatusMessage(assignment.getId(), oldStatus, newStatus));
-            } catch (OptimisticLockException ex) {
-                Logger.warn("UpdateAssignmentStatus: retry to update.");
-            }
+        Assignment.Status oldStatus = assignment.getStatus();
+        assignment.setStatus(newStatus);
+        writes.assignmentStatus(assignment.getId(), newStatus);
+        persist();
+        if(newStatus == Assignment.Status.PENDING){
+            pending.add(assignment);
+        }else{
+            pending.remove(assignment.getId());
         }
+        publish(new AssignmentStatusMessage(assignment.getId(), oldStatus, newStatus));
     }
 
     private void updateAssignmentProgress(Assignment assignment, int progress){
         assignment.setProgress(progress);
-        try {
-            assignment.update();
-        }catch (OptimisticLockException ex){
-            Logger.warn("UpdateAssignmentProgress: failed to update.");
-            return;
-        }
-        eventBus.publish(new AssignmentProgressedMessage(assignment.getId(), progress));
+        writes.assignmentProgress(assignment.getId(), progress);
+        persist();
+        publish(new AssignmentProgressedMessage(assignment.getId(), progress));
     }
 }
@@ -13,6 +13,11 @@ public class Flight {
     private ActorRef flightControl;
     private Type type;
     private Drone.Status cancelStatus;
+    // Battery at the start and profile of the flight, to learn the battery consumption from
+    private double startBattery = Double.NaN;
+    private double distance;
+    private double hoverTime;
+    private double climb;
 
     public Flight(long droneId, long assignmentId) {
         this.droneId = droneId;
@@ -54,6 +59,32 @@ public class Flight {
         this.cancelStatus = cancelStatus;
     }
 
+    public void setProfile(double startBattery, double distance, double hoverTime, double climb) {
+        this.startBattery = startBattery;
+        this.distance = distance;
+        this.hoverTime = hoverTime;
+        this.climb = climb;
+    }
+
+    /**
+     * @return Battery percentage at the start, NaN when unknown
+     */
+    public double getStartBattery() {
+        return startBattery;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getHoverTime() {
+        return hoverTime;
+    }
+
+    public double getClimb() {
+        return climb;
+    }
+
     public enum Type{
         ASSIGNMENT,
         CANCELED;
@@ -1,5 +1,6 @@
 package drones.scheduler;
 
+import droneapi.geo.Geodesy;
 import models.*;
 
 import java.util.ArrayList;
@@ -23,22 +24,8 @@ public class Helper {
      * @return the distance between two location in meters.
      */
     public static double distance(Location loc1, Location loc2) {
-        double lat1 = loc1.getLatitude();
-        double lat2 = loc2.getLatitude();
-        double lon1 = loc1.getLongitude();
-        double lon2 = loc2.getLongitude();
-        // Conversion to radians for Math functions.
-        double phi1 = Math.toRadians(lat1);
-        double phi2 = Math.toRadians(lat2);
-        double dPhi = Math.toRadians(lat2 - lat1);
-        double dLambda = Math.toRadians(lon2 - lon1);
-        // Sin(dPhi/2)^2 + Cos(phi1) * Cos(phi2) * Sin(dLambda/2)^2
-        double a = Math.pow(Math.sin(dPhi / 2), 2);
-        double b = Math.cos(phi1) * Math.cos(phi2) * Math.pow(Math.sin(dLambda / 2), 2);
-        double c = a + b;
-        c = 2 * Math.atan2(Math.sqrt(c), Math.sqrt(1 - c));
-        // Final result in meters
-        return EARTH_RADIUS * c;
+        return Geodesy.distance(Geodesy.Tier.HAVERSINE,
+                loc1.getLatitude(), loc1.getLongitude(), loc2.getLatitude(), loc2.getLongitude());
     }
 
     /**
@@ -47,17 +34,7 @@ public class Helper {
      * @return the closest base station
      */
     public static Basestation closestBaseStation(Location location) {
-        List<Basestation> stations = Basestation.FIND.all();
-        double minDist = Double.MAX_VALUE;
-        Basestation closest = null;
-        for (Basestation station : stations) {
-            double dist = distance(station.getLocation(), location);
-            if (dist < minDist) {
-                minDist = dist;
-                closest = station;
-            }
-        }
-        return closest;
+        return BasestationIndex.closest(location);
     }
 
     /**
@@ -66,6 +43,10 @@ public class Helper {
      * @return route length or NaN if invalid route
      */
     public static double getRouteLength(Assignment assignment){
+        RouteMetrics metrics = assignment.getRouteMetrics();
+        if(metrics != null){
+            return metrics.getRouteLength();
+        }
         List<Checkpoint> route = assignment.getRoute();
         if(route == null || route.isEmpty()){
             return Double.NaN;
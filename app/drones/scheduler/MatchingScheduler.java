@@ -0,0 +1,165 @@
+package drones.scheduler;
+
+import akka.japi.pf.UnitPFBuilder;
+import com.typesafe.config.Config;
+import droneapi.model.properties.DroneSnapshot;
+import drones.scheduler.messages.to.ScheduleAssignmentMessage;
+import drones.scheduler.messages.to.ScheduleDroneMessage;
+import models.Assignment;
+import models.Drone;
+import play.Logger;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdvancedScheduler that matches drones and assignments in batches instead of one at a time.
+ * Work that becomes available within a short window is collected, then the drones are matched to the
+ * assignments with the least total distance to fly: from each drone to the start of its assignment plus the route.
+ */
+public class MatchingScheduler extends AdvancedScheduler {
+
+    private static class MatchMessage implements Serializable {
+    }
+
+    private static final String WINDOW = "scheduler.matching.window";
+    private static final long DEFAULT_WINDOW = 500;
+
+    // Assignments considered per available drone, the highest priorities first
+    private static final int CANDIDATES_PER_DRONE = 2;
+
+    private final FiniteDuration window;
+    private boolean matchScheduled = false;
+
+    public MatchingScheduler() {
+        Config config = getContext().system().settings().config();
+        window = Duration.create(config.hasPath(WINDOW) ?
+                config.getDuration(WINDOW, TimeUnit.MILLISECONDS) : DEFAULT_WINDOW, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected UnitPFBuilder<Object> initReceivers() {
+        return super.initReceivers()
+                .match(MatchMessage.class, m -> match());
+    }
+
+    @Override
+    protected void scheduleAssignment(ScheduleAssignmentMessage message) {
+        Assignment assignment = getAssignment(message.getAssignmentId());
+        if (assignment == null) {
+            Logger.warn("ScheduleAssignment: assignment is null.");
+            return;
+        }
+        if (assignment.getStatus() != Assignment.Status.PENDING) {
+            Logger.warn("ScheduleAssignment: assignment is not pending.");
+            pending.remove(assignment.getId());
+            return;
+        }
+        if (!pending.add(assignment)) {
+            Logger.warn("ScheduleAssignment: invalid route.");
+            return;
+        }
+        scheduleMatch();
+    }
+
+    @Override
+    protected void scheduleDrone(ScheduleDroneMessage message) {
+        scheduleMatch();
+    }
+
+    private void scheduleMatch() {
+        if (!matchScheduled) {
+            matchScheduled = true;
+            getContext().system().scheduler().scheduleOnce(window, self(), new MatchMessage(),
+                    getContext().dispatcher(), self());
+        }
+    }
+
+    private void match() {
+        matchScheduled = false;
+
+        // Available drones with a known location and battery
+        List<Drone> drones = new ArrayList<>();
+        List<DroneSnapshot> snapshots = new ArrayList<>();
+        for (Drone drone : findDrones(Drone.Status.AVAILABLE)) {
+            if (flights.containsKey(drone.getId())) {
+                continue;
+            }
+            // Drones that are still asked for their location join a later match
+            DroneSnapshot snapshot = getDroneSnapshot(drone, new ScheduleDroneMessage(drone.getId()));
+            if (snapshot == null || snapshot.getLocation() == null) {
+                continue;
+            }
+            drones.add(drone);
+            snapshots.add(snapshot);
+        }
+        if (drones.isEmpty()) {
+            return;
+        }
+
+        // The highest priorities that one of the drones can complete, infeasible work does not crowd out the rest
+        List<double[]> columns = new ArrayList<>();
+        List<PendingAssignments.Entry> entries = pending.first(drones.size() * CANDIDATES_PER_DRONE, entry -> {
+            double[] column = cost(entry, drones, snapshots);
+            for (double distance : column) {
+                if (distance != MinCostMatching.INFEASIBLE) {
+                    columns.add(column);
+                    return true;
+                }
+            }
+            return false;
+        });
+        if (entries.isEmpty()) {
+            return;
+        }
+        double[][] cost = new double[drones.size()][entries.size()];
+        for (int a = 0; a < entries.size(); a++) {
+            for (int d = 0; d < drones.size(); d++) {
+                cost[d][a] = columns.get(a)[d];
+            }
+        }
+
+        int[] match = MinCostMatching.solve(cost);
+        boolean retry = false;
+        for (int d = 0; d < match.length; d++) {
+            if (match[d] < 0) {
+                continue;
+            }
+            Drone drone = drones.get(d);
+            long assignmentId = entries.get(match[d]).getAssignmentId();
+            Assignment assignment = getAssignment(assignmentId);
+            if (assignment == null || assignment.getStatus() != Assignment.Status.PENDING) {
+                // Deleted or changed outside the scheduler
+                pending.remove(assignmentId);
+                retry = true;
+            } else if (assign(drone, assignment)) {
+                createFlight(drone, assignment);
+            } else {
+                retry = true;
+            }
+        }
+        if (retry) {
+            scheduleMatch();
+        }
+    }
+
+    /**
+     * @return Distance each drone flies for the assignment: to its start plus the route,
+     * INFEASIBLE when its battery is not sufficient
+     */
+    private double[] cost(PendingAssignments.Entry entry, List<Drone> drones, List<DroneSnapshot> snapshots) {
+        double[] cost = new double[drones.size()];
+        for (int d = 0; d < drones.size(); d++) {
+            DroneSnapshot snapshot = snapshots.get(d);
+            double distance = entry.distanceFrom(snapshot.getLocation().getLatitude(), snapshot.getLocation().getLongitude())
+                    + entry.getRouteLength();
+            cost[d] = hasSufficientBattery(drones.get(d), snapshot, distance, entry.getHoverTime(), CLIMB)
+                    ? distance : MinCostMatching.INFEASIBLE;
+        }
+        return cost;
+    }
+}
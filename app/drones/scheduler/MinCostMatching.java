@@ -0,0 +1,115 @@
+package drones.scheduler;
+
+import java.util.Arrays;
+
+/**
+ * Minimum cost assignment of rows to columns with the Hungarian algorithm, in O(n²m) for n rows and m columns.
+ * Every row is matched to a different column, the total cost of the matched pairs is minimal.
+ */
+public final class MinCostMatching {
+
+    /**
+     * Cost of a row and column that cannot be matched
+     */
+    public static final double INFEASIBLE = Double.POSITIVE_INFINITY;
+
+    private MinCostMatching() {
+    }
+
+    /**
+     * As many feasible pairs as possible are matched, with minimal total cost among those matchings.
+     *
+     * @param cost cost[i][j] of matching row i to column j, INFEASIBLE when they cannot be matched
+     * @return The column matched to every row, -1 for rows without a feasible column
+     */
+    public static int[] solve(double[][] cost) {
+        int rows = cost.length;
+        int columns = rows == 0 ? 0 : cost[0].length;
+        int[] match = new int[rows];
+        Arrays.fill(match, -1);
+        if (rows == 0 || columns == 0) {
+            return match;
+        }
+
+        // Infeasible pairs cost more than all feasible pairs together, so they are only used when nothing else fits
+        double penalty = 1;
+        for (double[] row : cost) {
+            for (double c : row) {
+                if (c != INFEASIBLE) {
+                    penalty += Math.abs(c);
+                }
+            }
+        }
+
+        // The algorithm needs at least as many columns as rows
+        boolean transposed = rows > columns;
+        int n = transposed ? columns : rows;
+        int m = transposed ? rows : columns;
+        double[][] a = new double[n][m];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                double c = transposed ? cost[j][i] : cost[i][j];
+                a[i][j] = c == INFEASIBLE ? penalty : c;
+            }
+        }
+
+        // Potentials u and v, p[j] is the row (1-based) matched to column j, column 0 is a sentinel
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] p = new int[m + 1];
+        int[] way = new int[m + 1];
+        double[] minv = new double[m + 1];
+        boolean[] used = new boolean[m + 1];
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                double delta = Double.POSITIVE_INFINITY;
+                int j1 = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (!used[j]) {
+                        double cur = a[i0 - 1][j - 1] - u[i0] - v[j];
+                        if (cur < minv[j]) {
+                            minv[j] = cur;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            // Augment along the alternating path
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        for (int j = 1; j <= m; j++) {
+            if (p[j] != 0) {
+                int row = transposed ? j - 1 : p[j] - 1;
+                int column = transposed ? p[j] - 1 : j - 1;
+                if (cost[row][column] != INFEASIBLE) {
+                    match[row] = column;
+                }
+            }
+        }
+        return match;
+    }
+}
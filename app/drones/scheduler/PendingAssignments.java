@@ -0,0 +1,168 @@
+package drones.scheduler;
+
+import droneapi.geo.Geodesy;
+import models.Assignment;
+import models.RouteMetrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Pending assignments in scheduling order: by priority, then by id.
+ * The start location and route length come from the metrics stored with the assignment, its route is not loaded.
+ * The database stays the source of truth, the scheduler updates this queue with every assignment status it writes.
+ */
+public class PendingAssignments {
+
+    /**
+     * A pending assignment with the values needed to pick a drone for it
+     */
+    public static class Entry {
+        private final long assignmentId;
+        private final int priority;
+        private final double latitude;
+        private final double longitude;
+        private final double routeLength;
+        private final double hoverTime;
+
+        public Entry(long assignmentId, int priority, double latitude, double longitude, double routeLength) {
+            this(assignmentId, priority, latitude, longitude, routeLength, 0);
+        }
+
+        public Entry(long assignmentId, int priority, double latitude, double longitude, double routeLength,
+                     double hoverTime) {
+            this.assignmentId = assignmentId;
+            this.priority = priority;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.routeLength = routeLength;
+            this.hoverTime = hoverTime;
+        }
+
+        public long getAssignmentId() {
+            return assignmentId;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public double getRouteLength() {
+            return routeLength;
+        }
+
+        public double getHoverTime() {
+            return hoverTime;
+        }
+
+        /**
+         * @return Distance in meters from the given location to the start of the route
+         */
+        public double distanceFrom(double latitude, double longitude) {
+            return Geodesy.distance(Geodesy.Tier.HAVERSINE, latitude, longitude, this.latitude, this.longitude);
+        }
+    }
+
+    private static final Comparator<Entry> ORDER =
+            Comparator.comparingInt(Entry::getPriority).thenComparingLong(Entry::getAssignmentId);
+
+    private final TreeSet<Entry> ordered = new TreeSet<>(ORDER);
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    /**
+     * Adds an assignment, or updates it when it was added before.
+     *
+     * @return false when the assignment has no valid route, it is not added
+     */
+    public boolean add(Assignment assignment) {
+        // Assignments stored before their metrics were computed need their route
+        RouteMetrics metrics = assignment.getRouteMetrics();
+        if (metrics == null) {
+            metrics = RouteMetrics.of(assignment.getRoute());
+        }
+        if (metrics == null) {
+            remove(assignment.getId());
+            return false;
+        }
+        add(new Entry(assignment.getId(), assignment.getPriority(),
+                metrics.getStartLatitude(), metrics.getStartLongitude(), metrics.getRouteLength(),
+                metrics.getHoverTime()));
+        return true;
+    }
+
+    public void add(Entry entry) {
+        remove(entry.getAssignmentId());
+        entries.put(entry.getAssignmentId(), entry);
+        ordered.add(entry);
+    }
+
+    public boolean remove(long assignmentId) {
+        Entry entry = entries.remove(assignmentId);
+        if (entry == null) {
+            return false;
+        }
+        ordered.remove(entry);
+        return true;
+    }
+
+    /**
+     * @return The pending assignment, null when it is not pending
+     */
+    public Entry get(long assignmentId) {
+        return entries.get(assignmentId);
+    }
+
+    public boolean contains(long assignmentId) {
+        return entries.containsKey(assignmentId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        ordered.clear();
+    }
+
+    /**
+     * @return The first assignment in scheduling order accepted by the filter, null when there is none
+     */
+    public Entry first(Predicate<Entry> filter) {
+        for (Entry entry : ordered) {
+            if (filter.test(entry)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return At most count assignments in scheduling order accepted by the filter
+     */
+    public List<Entry> first(int count, Predicate<Entry> filter) {
+        List<Entry> first = new ArrayList<>();
+        for (Entry entry : ordered) {
+            if (first.size() >= count) {
+                break;
+            }
+            if (filter.test(entry)) {
+                first.add(entry);
+            }
+        }
+        return first;
+    }
+}
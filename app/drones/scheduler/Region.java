@@ -0,0 +1,86 @@
+package drones.scheduler;
+
+import droneapi.geo.Geodesy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Geographic region owned by one scheduler shard: the locations closer to its center than to any other region.
+ */
+public class Region {
+
+    private final int index;
+    private final String name;
+    private final double latitude;
+    private final double longitude;
+
+    /**
+     * @param index Position of the region in the list of all regions
+     */
+    public Region(int index, String name, double latitude, double longitude) {
+        this.index = index;
+        this.name = name;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return Distance in meters from the given location to the center of the region
+     */
+    public double distanceFrom(double latitude, double longitude) {
+        return Geodesy.distance(Geodesy.Tier.HAVERSINE, latitude, longitude, this.latitude, this.longitude);
+    }
+
+    /**
+     * @return The region the location belongs to, null when there are no regions
+     */
+    public static Region closest(List<Region> regions, double latitude, double longitude) {
+        Region closest = null;
+        double minDistance = Double.MAX_VALUE;
+        for (Region region : regions) {
+            double distance = region.distanceFrom(latitude, longitude);
+            if (distance < minDistance) {
+                minDistance = distance;
+                closest = region;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * @return At most count other regions, the closest first
+     */
+    public List<Region> neighbours(List<Region> regions, int count) {
+        List<Region> neighbours = new ArrayList<>();
+        for (Region region : regions) {
+            if (region.index != index) {
+                neighbours.add(region);
+            }
+        }
+        neighbours.sort(Comparator.comparingDouble(region -> region.distanceFrom(latitude, longitude)));
+        return neighbours.size() > count ? new ArrayList<>(neighbours.subList(0, count)) : neighbours;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
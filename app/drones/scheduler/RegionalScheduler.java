@@ -0,0 +1,438 @@
+package drones.scheduler;
+
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.dispatch.OnComplete;
+import akka.japi.pf.UnitPFBuilder;
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Query;
+import com.typesafe.config.Config;
+import droneapi.api.DroneCommander;
+import droneapi.model.properties.Location;
+import drones.models.Fleet;
+import drones.models.FleetState;
+import drones.scheduler.messages.from.*;
+import drones.scheduler.messages.to.*;
+import models.Assignment;
+import models.Basestation;
+import models.Drone;
+import models.RouteMetrics;
+import play.Logger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Scheduler that partitions the work into regions, one around every basestation, each scheduled by its own shard.
+ * Assignments are routed to the region where their route starts, drones to the region they are in.
+ * Every drone is owned by exactly one shard at a time. A shard without idle drones borrows one from
+ * its closest neighbours. Every drone is routed by its location again when its flight is done.
+ * The shards record their changes in the write-behind of this scheduler, which writes them in the order
+ * they were made, so a drone or assignment loaded by any shard is as recent as its last change.
+ * Events of all shards are published by this scheduler, so it is used like any other scheduler.
+ */
+public class RegionalScheduler extends Scheduler {
+
+    /**
+     * To a shard: the drone is owned by the shard from now on and is scheduled
+     */
+    public static class OwnDroneMessage implements Serializable {
+        private final long droneId;
+        private final boolean borrowed;
+
+        public OwnDroneMessage(long droneId, boolean borrowed) {
+            this.droneId = droneId;
+            this.borrowed = borrowed;
+        }
+
+        public long getDroneId() {
+            return droneId;
+        }
+
+        public boolean isBorrowed() {
+            return borrowed;
+        }
+    }
+
+    /**
+     * From a shard: it has a pending assignment starting at the location and no idle drone
+     */
+    public static class BorrowDroneMessage implements Serializable {
+        private final double latitude;
+        private final double longitude;
+
+        public BorrowDroneMessage(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    /**
+     * To a shard: none of the neighbours could lend a drone
+     */
+    public static class BorrowFailedMessage implements Serializable {
+    }
+
+    /**
+     * To a shard: lend an idle drone to the borrowing region, the one closest to the location
+     */
+    public static class LendDroneMessage implements Serializable {
+        private final int borrower;
+        private final double latitude;
+        private final double longitude;
+
+        public LendDroneMessage(int borrower, double latitude, double longitude) {
+            this.borrower = borrower;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public int getBorrower() {
+            return borrower;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    /**
+     * From a shard: the drone it released for the borrower, null when it has no idle drone
+     */
+    public static class DroneLentMessage implements Serializable {
+        private final int borrower;
+        private final Long droneId;
+
+        public DroneLentMessage(int borrower, Long droneId) {
+            this.borrower = borrower;
+            this.droneId = droneId;
+        }
+
+        public int getBorrower() {
+            return borrower;
+        }
+
+        public Long getDroneId() {
+            return droneId;
+        }
+    }
+
+    /**
+     * From a shard: the flight of the drone is done, the shard released it
+     */
+    public static class ReturnDroneMessage implements Serializable {
+        private final long droneId;
+
+        public ReturnDroneMessage(long droneId) {
+            this.droneId = droneId;
+        }
+
+        public long getDroneId() {
+            return droneId;
+        }
+    }
+
+    private static class DroneLocatedMessage implements Serializable {
+        private final long droneId;
+        private final Location location;
+
+        public DroneLocatedMessage(long droneId, Location location) {
+            this.droneId = droneId;
+            this.location = location;
+        }
+    }
+
+    private static class Borrow {
+        private final double latitude;
+        private final double longitude;
+        private final Iterator<Region> lenders;
+
+        public Borrow(double latitude, double longitude, Iterator<Region> lenders) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.lenders = lenders;
+        }
+    }
+
+    private static final String NEIGHBOURS = "scheduler.regional.neighbours";
+    private static final int DEFAULT_NEIGHBOURS = 2;
+
+    private final int neighbours;
+    private final List<Region> regions = new ArrayList<>();
+    private final List<ActorRef> shards = new ArrayList<>();
+    // Region index of the shard owning a drone or an assignment
+    private final Map<Long, Integer> droneOwners = new HashMap<>();
+    private final Map<Long, Integer> assignmentOwners = new HashMap<>();
+    // Drones asked for their location before they are routed
+    private final Set<Long> locating = new HashSet<>();
+    // Borrow requests in progress, by region index of the borrower
+    private final Map<Integer, Borrow> borrows = new HashMap<>();
+    private int stopped = 0;
+
+    public RegionalScheduler() {
+        Config config = getContext().system().settings().config();
+        neighbours = config.hasPath(NEIGHBOURS) ? config.getInt(NEIGHBOURS) : DEFAULT_NEIGHBOURS;
+    }
+
+    @Override
+    protected UnitPFBuilder<Object> initReceivers() {
+        return super.initReceivers()
+                .match(BorrowDroneMessage.class, m -> borrow(m))
+                .match(DroneLentMessage.class, m -> lent(m))
+                .match(ReturnDroneMessage.class, m -> returned(m))
+                .match(DroneLocatedMessage.class, m -> located(m))
+                .match(SubscribedMessage.class, m -> {})
+                .match(SchedulerStoppedMessage.class, m -> shardStopped())
+                .match(SchedulerEvent.class, m -> shardEvent(m));
+    }
+
+    @Override
+    protected void startScheduler(StartSchedulerMessage message) {
+        for (Basestation station : Basestation.FIND.all()) {
+            if (station.getLocation() != null) {
+                regions.add(new Region(regions.size(), station.getName(),
+                        station.getLocation().getLatitude(), station.getLocation().getLongitude()));
+            }
+        }
+        if (regions.isEmpty()) {
+            // Without basestations everything is one region
+            regions.add(new Region(0, "All", 0, 0));
+        }
+        ActorRef self = self();
+        WriteBehind shared = writes;
+        for (Region region : regions) {
+            ActorRef shard = getContext().actorOf(
+                    Props.create(SchedulerShard.class, () -> new SchedulerShard(region, self, shared)),
+                    "shard-" + region.getIndex());
+            // Events of the shards are published by the regional scheduler
+            for (Class type : SchedulerEventBus.EVENTS) {
+                shard.tell(new SubscribeMessage(type), self());
+            }
+            shard.tell(new StartSchedulerMessage(), self());
+            shards.add(shard);
+        }
+        Logger.info("Regional scheduler started with regions " + regions + ".");
+
+        Query<Assignment> query = Ebean.createQuery(Assignment.class);
+        query.where().eq("status", Assignment.Status.PENDING);
+        for (Assignment assignment : query.findList()) {
+            routeAssignment(assignment, new ScheduleAssignmentMessage(assignment.getId()));
+        }
+        // Drones without a commander are routed as soon as they are initialized
+        Fleet fleet = Fleet.getFleet();
+        List<Drone> uninitialized = new ArrayList<>();
+        for (Drone drone : Drone.FIND.all()) {
+            if (drone.getStatus() == Drone.Status.AVAILABLE) {
+                if (fleet.hasCommander(drone)) {
+                    routeDrone(drone.getId(), null);
+                } else {
+                    uninitialized.add(drone);
+                }
+            }
+        }
+        if (!uninitialized.isEmpty()) {
+            fleet.initialize(uninitialized, self());
+        }
+    }
+
+    @Override
+    protected void stopScheduler(StopSchedulerMessage message) {
+        for (ActorRef shard : shards) {
+            shard.tell(message, self());
+        }
+    }
+
+    private void shardStopped() {
+        stopped++;
+        if (stopped == shards.size()) {
+            publish(new SchedulerStoppedMessage());
+            Logger.info("Scheduler terminates.");
+            context().stop(self());
+        }
+    }
+
+    private void shardEvent(SchedulerEvent event) {
+        if (event instanceof AssignmentCompletedMessage) {
+            assignmentOwners.remove(((AssignmentCompletedMessage) event).getAssignmentId());
+        } else if (event instanceof AssignmentCanceledMessage) {
+            assignmentOwners.remove(((AssignmentCanceledMessage) event).getAssignmentId());
+        }
+        publish(event);
+    }
+
+    @Override
+    protected void scheduleAssignment(ScheduleAssignmentMessage message) {
+        Integer owner = assignmentOwners.get(message.getAssignmentId());
+        if (owner != null) {
+            shards.get(owner).tell(message, self());
+            return;
+        }
+        Assignment assignment = getAssignment(message.getAssignmentId());
+        if (assignment == null) {
+            Logger.warn("ScheduleAssignment: assignment is null.");
+            return;
+        }
+        routeAssignment(assignment, message);
+    }
+
+    @Override
+    protected void cancelAssignment(CancelAssignmentMessage message) {
+        Integer owner = assignmentOwners.get(message.getAssignmentId());
+        if (owner != null) {
+            shards.get(owner).tell(message, self());
+            return;
+        }
+        Assignment assignment = getAssignment(message.getAssignmentId());
+        if (assignment == null) {
+            Logger.warn("CancelAssignment: assignment == null.");
+            return;
+        }
+        routeAssignment(assignment, message);
+    }
+
+    private void routeAssignment(Assignment assignment, Object message) {
+        // Region where the route starts, assignments without a route are rejected by the first shard
+        RouteMetrics metrics = assignment.getRouteMetrics();
+        if (metrics == null) {
+            metrics = RouteMetrics.of(assignment.getRoute());
+        }
+        int owner = metrics == null ? 0 :
+                Region.closest(regions, metrics.getStartLatitude(), metrics.getStartLongitude()).getIndex();
+        assignmentOwners.put(assignment.getId(), owner);
+        shards.get(owner).tell(message, self());
+    }
+
+    @Override
+    protected void scheduleDrone(ScheduleDroneMessage message) {
+        routeDrone(message.getDroneId(), message);
+    }
+
+    @Override
+    protected void droneEmergency(DroneEmergencyMessage message) {
+        Integer owner = droneOwners.get(message.getDroneId());
+        shards.get(owner == null ? 0 : owner).tell(message, self());
+    }
+
+    /**
+     * Sends a message to the shard owning the drone. A drone without owner is given to the region it is in.
+     *
+     * @param message Message for the owner, null when a new owner schedules the drone anyway
+     */
+    private void routeDrone(long droneId, Object message) {
+        Integer owner = droneOwners.get(droneId);
+        if (owner != null) {
+            if (message != null) {
+                shards.get(owner).tell(message, self());
+            }
+            return;
+        }
+        if (locating.contains(droneId)) {
+            return;
+        }
+        // Location from the fleet view, or asked from the drone
+        FleetState.DroneState state = Fleet.getFleet().getState().get(droneId);
+        if (state != null && state.getLocation() != null) {
+            own(droneId, state.getLocation(), false);
+            return;
+        }
+        Drone drone = getDrone(droneId);
+        Fleet fleet = Fleet.getFleet();
+        if (drone == null || !fleet.hasCommander(drone)) {
+            Logger.warn("RouteDrone: drone has no commander.");
+            return;
+        }
+        locating.add(droneId);
+        DroneCommander commander = fleet.getCommanderForDrone(drone);
+        ActorRef self = self();
+        commander.getLocation().onComplete(new OnComplete<Location>() {
+            @Override
+            public void onComplete(Throwable failure, Location result) throws Throwable {
+                self.tell(new DroneLocatedMessage(droneId, failure == null ? result : null), self);
+            }
+        }, getContext().dispatcher());
+    }
+
+    private void located(DroneLocatedMessage message) {
+        locating.remove(message.droneId);
+        if (droneOwners.containsKey(message.droneId)) {
+            return;
+        }
+        if (message.location == null) {
+            Logger.warn("RouteDrone: drone location is null.");
+            return;
+        }
+        own(message.droneId, message.location, false);
+    }
+
+    private void own(long droneId, Location location, boolean borrowed) {
+        own(droneId, Region.closest(regions, location.getLatitude(), location.getLongitude()).getIndex(), borrowed);
+    }
+
+    private void own(long droneId, int owner, boolean borrowed) {
+        droneOwners.put(droneId, owner);
+        shards.get(owner).tell(new OwnDroneMessage(droneId, borrowed), self());
+    }
+
+    private void borrow(BorrowDroneMessage message) {
+        int borrower = shards.indexOf(sender());
+        if (borrower < 0 || borrows.containsKey(borrower)) {
+            return;
+        }
+        Region region = regions.get(borrower);
+        borrows.put(borrower, new Borrow(message.getLatitude(), message.getLongitude(),
+                region.neighbours(regions, neighbours).iterator()));
+        askLender(borrower);
+    }
+
+    private void askLender(int borrower) {
+        Borrow borrow = borrows.get(borrower);
+        if (!borrow.lenders.hasNext()) {
+            borrows.remove(borrower);
+            shards.get(borrower).tell(new BorrowFailedMessage(), self());
+            return;
+        }
+        Region lender = borrow.lenders.next();
+        shards.get(lender.getIndex()).tell(new LendDroneMessage(borrower, borrow.latitude, borrow.longitude), self());
+    }
+
+    private void lent(DroneLentMessage message) {
+        if (!borrows.containsKey(message.getBorrower())) {
+            if (message.getDroneId() != null) {
+                // Released without a borrower waiting for it
+                droneOwners.remove(message.getDroneId());
+                routeDrone(message.getDroneId(), null);
+            }
+            return;
+        }
+        if (message.getDroneId() == null) {
+            askLender(message.getBorrower());
+            return;
+        }
+        borrows.remove(message.getBorrower());
+        own(message.getDroneId(), message.getBorrower(), true);
+    }
+
+    private void returned(ReturnDroneMessage message) {
+        // Routed by its location again
+        droneOwners.remove(message.getDroneId());
+        routeDrone(message.getDroneId(), null);
+    }
+}
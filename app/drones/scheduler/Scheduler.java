@@ -7,6 +7,10 @@ import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import akka.japi.pf.ReceiveBuilder;
 import akka.japi.pf.UnitPFBuilder;
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Query;
+import com.typesafe.config.Config;
+import drones.models.FleetBootstrap;
 import drones.scheduler.messages.from.SchedulerEvent;
 import drones.scheduler.messages.from.SchedulerReplyMessage;
 import drones.scheduler.messages.from.SubscribedMessage;
@@ -15,6 +19,14 @@ import drones.scheduler.messages.to.*;
 import models.Assignment;
 import models.Drone;
 import play.libs.Akka;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Ronald on 16/03/2015.
@@ -158,12 +170,41 @@ public abstract class Scheduler extends AbstractActor {
 
     protected LoggingAdapter log = Logging.getLogger(getContext().system(), this);
     protected SchedulerEventBus eventBus;
+    // State changes not written to the database yet
+    protected WriteBehind writes;
+    private ActorRef writer;
+    private FiniteDuration flushInterval;
+    private boolean flushScheduled = false;
     private static ActorRef scheduler;
     private static Object lock = new Object();
 
+    private static final String FLUSH_INTERVAL = "scheduler.persistence.interval";
+    private static final long DEFAULT_FLUSH_INTERVAL = 100;
+    private static final String BATCH_SIZE = "scheduler.persistence.batch-size";
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
     protected Scheduler() {
+        this(null);
+    }
+
+    /**
+     * @param shared Write-behind of the parent scheduler, null for a scheduler writing its own changes.
+     *               The parent writes the changes recorded here, subscribes to the events of this scheduler
+     *               and holds them back itself.
+     */
+    protected Scheduler(WriteBehind shared) {
         // Create an event bus for listeners
         eventBus = new SchedulerEventBus();
+        // Write state changes behind the scheduler
+        Config config = getContext().system().settings().config();
+        flushInterval = Duration.create(config.hasPath(FLUSH_INTERVAL) ?
+                config.getDuration(FLUSH_INTERVAL, TimeUnit.MILLISECONDS) : DEFAULT_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        if (shared == null) {
+            writes = new WriteBehind(config.hasPath(BATCH_SIZE) ? config.getInt(BATCH_SIZE) : DEFAULT_BATCH_SIZE);
+            writer = getContext().actorOf(StateWriter.props(), "state-writer");
+        } else {
+            writes = shared;
+        }
         //Receive behaviour
         UnitPFBuilder<Object> builder = initReceivers();
         builder.matchAny(m -> log.warning("[Scheduler] Received unknown message: [{}]", m.getClass().getName()));
@@ -171,7 +212,7 @@ public abstract class Scheduler extends AbstractActor {
     }
 
     protected UnitPFBuilder<Object> initReceivers() {
-        return ReceiveBuilder
+        return persistenceReceivers()
                 .match(SubscribeMessage.class, m -> subscribe(m))
                 .match(UnsubscribeMessage.class, m -> unsubscribe(m))
                 .match(SchedulerRequestMessage.class, m -> reply(m))
@@ -181,7 +222,94 @@ public abstract class Scheduler extends AbstractActor {
                 .match(ScheduleDroneMessage.class, m -> scheduleDrone(m))
                 .match(CancelAssignmentMessage.class, m -> cancelAssignment(m))
                 .match(DroneEmergencyMessage.class, m -> droneEmergency(m))
-                .match(SchedulerPublishMessage.class, m -> eventBus.publish(m.getEvent()));
+                .match(SchedulerPublishMessage.class, m -> publish(m.getEvent()))
+                .match(FleetBootstrap.DroneReady.class, m -> scheduleDrone(new ScheduleDroneMessage(m.getDroneId())))
+                .match(FleetBootstrap.DroneFailed.class, m -> log.warning("[Scheduler] Drone {} could not be initialized.", m.getDroneId()))
+                .match(FleetBootstrap.Completed.class, m -> log.info("[Scheduler] Fleet initialized: {} ready, {} failed.", m.getReady(), m.getFailed()));
+    }
+
+    /**
+     * Receivers for the write-behind, which have to stay when the scheduler changes its behaviour.
+     */
+    protected UnitPFBuilder<Object> persistenceReceivers() {
+        return ReceiveBuilder
+                .match(WriteBehind.FlushMessage.class, m -> flush())
+                .match(WriteBehind.PersistMessage.class, m -> persist())
+                .match(StateWriter.Written.class, m -> written(m));
+    }
+
+    @Override
+    public void postStop() throws Exception {
+        if (writer == null) {
+            // Written by the parent, which stops after its children
+            super.postStop();
+            return;
+        }
+        // Write what is left before the scheduler is gone
+        WriteBehind.Batch batch = writes.drainAll();
+        try {
+            batch.write();
+        } catch (RuntimeException ex) {
+            log.error(ex, "[Scheduler] Could not write {} state changes on stop.", batch.size());
+        }
+        for (SchedulerEvent event : batch.getEvents()) {
+            eventBus.publish(event);
+        }
+        super.postStop();
+    }
+
+    /**
+     * Publish an event once the state changes made before it are written.
+     */
+    protected void publish(SchedulerEvent event) {
+        // With a shared write-behind, the parent holds the event back
+        if (writer != null && writes.hold(event)) {
+            persist();
+        } else {
+            eventBus.publish(event);
+        }
+    }
+
+    /**
+     * Make sure the changes recorded in the write-behind are written soon.
+     */
+    protected void persist() {
+        if (writer == null) {
+            getContext().parent().tell(new WriteBehind.PersistMessage(), self());
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            getContext().system().scheduler().scheduleOnce(flushInterval, self(), new WriteBehind.FlushMessage(),
+                    getContext().dispatcher(), self());
+        }
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        // Nothing is drained while a batch is being written, the next flush follows when it is done
+        WriteBehind.Batch batch = writes.drain();
+        if (batch != null) {
+            writer.tell(batch, self());
+        }
+    }
+
+    private void written(StateWriter.Written message) {
+        WriteBehind.Batch batch = message.getBatch();
+        List<SchedulerEvent> events;
+        if (message.getFailure() == null) {
+            events = writes.written(batch);
+        } else {
+            log.error(message.getFailure(), "[Scheduler] Could not write {} state changes, retrying.", batch.size());
+            events = writes.failed(batch);
+        }
+        for (String dropped : batch.getDropped()) {
+            log.error("[Scheduler] Gave up writing the state of {} after {} attempts.", dropped, WriteBehind.MAX_ATTEMPTS);
+        }
+        for (SchedulerEvent event : events) {
+            eventBus.publish(event);
+        }
+        if (writes.isPending()) {
+            persist();
+        }
     }
 
     private void subscribe(SubscribeMessage message) {
@@ -195,14 +323,48 @@ public abstract class Scheduler extends AbstractActor {
     }
 
     private void reply(SchedulerRequestMessage message) {
-        eventBus.publish(new SchedulerReplyMessage(message.getRequestId()));
+        publish(new SchedulerReplyMessage(message.getRequestId()));
     }
 
     protected Drone getDrone(long droneId) {
-        return Drone.FIND.byId(droneId);
+        Drone drone = Drone.FIND.byId(droneId);
+        if (drone != null) {
+            writes.apply(drone);
+        }
+        return drone;
     }
     protected Assignment getAssignment(long assignmentId) {
-        return Assignment.FIND.byId(assignmentId);
+        Assignment assignment = Assignment.FIND.byId(assignmentId);
+        if (assignment != null) {
+            writes.apply(assignment);
+        }
+        return assignment;
+    }
+
+    /**
+     * Drones with a status, including the changes that are not written yet.
+     */
+    protected List<Drone> findDrones(Drone.Status status) {
+        Query<Drone> query = Ebean.createQuery(Drone.class);
+        query.where().eq("status", status);
+        List<Drone> drones = new ArrayList<>();
+        Set<Long> found = new HashSet<>();
+        for (Drone drone : query.findList()) {
+            found.add(drone.getId());
+            writes.apply(drone);
+            if (drone.getStatus() == status) {
+                drones.add(drone);
+            }
+        }
+        for (long droneId : writes.dronesWithStatus(status)) {
+            if (!found.contains(droneId)) {
+                Drone drone = getDrone(droneId);
+                if (drone != null) {
+                    drones.add(drone);
+                }
+            }
+        }
+        return drones;
     }
     protected abstract void scheduleAssignment(ScheduleAssignmentMessage message);
     protected abstract void scheduleDrone(ScheduleDroneMessage message);
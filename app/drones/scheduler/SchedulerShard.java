@@ -0,0 +1,171 @@
+package drones.scheduler;
+
+import akka.actor.ActorRef;
+import akka.japi.pf.UnitPFBuilder;
+import droneapi.model.properties.Location;
+import drones.models.Fleet;
+import drones.models.FleetState;
+import drones.scheduler.messages.to.FlightCanceledMessage;
+import drones.scheduler.messages.to.FlightCompletedMessage;
+import drones.scheduler.messages.to.FlightControlExceptionMessage;
+import drones.scheduler.messages.to.ScheduleAssignmentMessage;
+import drones.scheduler.messages.to.ScheduleDroneMessage;
+import drones.scheduler.messages.to.StartSchedulerMessage;
+import models.Drone;
+import play.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * AdvancedScheduler for one region of the RegionalScheduler.
+ * It schedules the assignments routed to it with the drones it owns, and lends idle drones to its neighbours.
+ * Drones are released after every flight. All shards record their changes in the write-behind of
+ * the regional scheduler, so a new owner loads a drone as its former owner left it.
+ */
+public class SchedulerShard extends AdvancedScheduler {
+
+    private final Region region;
+    private final ActorRef coordinator;
+    private final Set<Long> owned = new HashSet<>();
+    private final Set<Long> borrowed = new HashSet<>();
+    private boolean borrowing = false;
+
+    /**
+     * @param writes Write-behind of the regional scheduler, shared by all shards
+     */
+    public SchedulerShard(Region region, ActorRef coordinator, WriteBehind writes) {
+        super(writes);
+        this.region = region;
+        this.coordinator = coordinator;
+    }
+
+    @Override
+    protected UnitPFBuilder<Object> initReceivers() {
+        return super.initReceivers()
+                .match(RegionalScheduler.OwnDroneMessage.class, m -> own(m))
+                .match(RegionalScheduler.LendDroneMessage.class, m -> lend(m))
+                .match(RegionalScheduler.BorrowFailedMessage.class, m -> borrowing = false);
+    }
+
+    @Override
+    protected void startScheduler(StartSchedulerMessage message) {
+        // Assignments and drones are routed by the regional scheduler
+        Logger.info("Scheduler shard started for region " + region + ".");
+    }
+
+    @Override
+    protected List<Drone> findDrones(Drone.Status status) {
+        List<Drone> drones = new ArrayList<>();
+        for (Drone drone : super.findDrones(status)) {
+            if (owned.contains(drone.getId())) {
+                drones.add(drone);
+            }
+        }
+        return drones;
+    }
+
+    private void own(RegionalScheduler.OwnDroneMessage message) {
+        owned.add(message.getDroneId());
+        if (message.isBorrowed()) {
+            borrowed.add(message.getDroneId());
+            borrowing = false;
+        }
+        super.scheduleDrone(new ScheduleDroneMessage(message.getDroneId()));
+        // The borrowed drone took one of several pending assignments
+        borrowIfStarved();
+    }
+
+    @Override
+    protected void scheduleDrone(ScheduleDroneMessage message) {
+        if (!owned.contains(message.getDroneId())) {
+            // Released after its flight, scheduled by its new owner
+            Logger.debug("ScheduleDrone: drone is owned by another region.");
+            return;
+        }
+        super.scheduleDrone(message);
+    }
+
+    @Override
+    protected void scheduleAssignment(ScheduleAssignmentMessage message) {
+        super.scheduleAssignment(message);
+        borrowIfStarved();
+    }
+
+    @Override
+    protected void flightCompleted(FlightCompletedMessage message) {
+        // Released before it is scheduled again, the drone is routed by the location where its flight ended
+        boolean released = owned.remove(message.getDroneId());
+        borrowed.remove(message.getDroneId());
+        super.flightCompleted(message);
+        if (released) {
+            coordinator.tell(new RegionalScheduler.ReturnDroneMessage(message.getDroneId()), self());
+        }
+    }
+
+    @Override
+    protected void flightCanceled(FlightCanceledMessage message) {
+        super.flightCanceled(message);
+        // The assignment might be pending again
+        borrowIfStarved();
+    }
+
+    @Override
+    protected void flightFailed(FlightControlExceptionMessage message) {
+        super.flightFailed(message);
+        borrowIfStarved();
+    }
+
+    /**
+     * Borrows a drone for the first pending assignment when the region has no idle drone.
+     */
+    private void borrowIfStarved() {
+        if (borrowing || pending.size() == 0 || !idleDrones().isEmpty()) {
+            return;
+        }
+        PendingAssignments.Entry entry = pending.first(e -> true);
+        if (entry != null) {
+            borrowing = true;
+            coordinator.tell(new RegionalScheduler.BorrowDroneMessage(entry.getLatitude(), entry.getLongitude()), self());
+        }
+    }
+
+    private List<Drone> idleDrones() {
+        List<Drone> idle = new ArrayList<>();
+        for (Drone drone : findDrones(Drone.Status.AVAILABLE)) {
+            if (!flights.containsKey(drone.getId())) {
+                idle.add(drone);
+            }
+        }
+        return idle;
+    }
+
+    private void lend(RegionalScheduler.LendDroneMessage message) {
+        Drone lent = null;
+        // Only drones without work in this region
+        if (pending.size() == 0) {
+            double minDistance = Double.MAX_VALUE;
+            FleetState fleetState = Fleet.getFleet().getState();
+            for (Drone drone : idleDrones()) {
+                FleetState.DroneState state = fleetState.get(drone.getId());
+                Location location = state == null ? null : state.getLocation();
+                double distance = location == null ? Double.MAX_VALUE / 2 :
+                        Helper.distance(Helper.droneToEntityLocation(location),
+                                new models.Location(message.getLatitude(), message.getLongitude(), 0));
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    lent = drone;
+                }
+            }
+        }
+        Long droneId = null;
+        if (lent != null) {
+            droneId = lent.getId();
+            owned.remove(droneId);
+            borrowed.remove(droneId);
+        }
+        sender().tell(new RegionalScheduler.DroneLentMessage(message.getBorrower(), droneId), self());
+    }
+}
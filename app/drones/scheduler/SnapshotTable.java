@@ -0,0 +1,119 @@
+package drones.scheduler;
+
+import droneapi.model.properties.DroneSnapshot;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Location and battery snapshots of drones, fetched by the scheduler without waiting for them.
+ * A decision that needs a snapshot which is not available is parked here until it arrives,
+ * so the scheduler keeps handling other messages while the drone answers.
+ */
+public class SnapshotTable {
+
+    /**
+     * A requested snapshot arrived, the snapshot is null when the drone did not answer
+     */
+    public static class SnapshotMessage implements Serializable {
+        private final long droneId;
+        private final DroneSnapshot snapshot;
+
+        public SnapshotMessage(long droneId, DroneSnapshot snapshot) {
+            this.droneId = droneId;
+            this.snapshot = snapshot;
+        }
+
+        public long getDroneId() {
+            return droneId;
+        }
+
+        public DroneSnapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+
+    private static class Fetched {
+        private final DroneSnapshot snapshot;
+        private final long time;
+
+        public Fetched(DroneSnapshot snapshot, long time) {
+            this.snapshot = snapshot;
+            this.time = time;
+        }
+    }
+
+    private final long maxAge;
+    private final Map<Long, Fetched> fetched = new HashMap<>();
+    // Decisions waiting for a requested snapshot, by drone
+    private final Map<Long, Set<Object>> waiting = new HashMap<>();
+
+    /**
+     * @param maxAge Time in milliseconds a fetched snapshot is used
+     */
+    public SnapshotTable(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return The snapshot of the drone fetched less than maxAge ago, null when there is none
+     */
+    public DroneSnapshot get(long droneId, long now) {
+        Fetched f = fetched.get(droneId);
+        if (f == null) {
+            return null;
+        }
+        if (now - f.time >= maxAge) {
+            fetched.remove(droneId);
+            return null;
+        }
+        return f.snapshot;
+    }
+
+    /**
+     * Parks a decision until the snapshot of the drone arrives. Equal decisions are parked once.
+     *
+     * @return true when the snapshot has to be requested, false when a request is in progress already
+     */
+    public boolean await(long droneId, Object decision) {
+        Set<Object> decisions = waiting.get(droneId);
+        boolean request = decisions == null;
+        if (request) {
+            decisions = new LinkedHashSet<>();
+            waiting.put(droneId, decisions);
+        }
+        decisions.add(decision);
+        return request;
+    }
+
+    public boolean isRequested(long droneId) {
+        return waiting.containsKey(droneId);
+    }
+
+    /**
+     * Number of drones with a snapshot request in progress
+     */
+    public int requests() {
+        return waiting.size();
+    }
+
+    /**
+     * Stores an arrived snapshot.
+     *
+     * @param snapshot The snapshot, null when the drone did not answer
+     * @return The decisions that were waiting for it, in the order they were parked
+     */
+    public List<Object> arrived(long droneId, DroneSnapshot snapshot, long now) {
+        if (snapshot != null) {
+            fetched.put(droneId, new Fetched(snapshot, now));
+        }
+        Set<Object> decisions = waiting.remove(droneId);
+        return decisions == null ? Collections.emptyList() : new ArrayList<>(decisions);
+    }
+}
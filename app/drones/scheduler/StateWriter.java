@@ -0,0 +1,53 @@
+package drones.scheduler;
+
+import akka.actor.AbstractActor;
+import akka.actor.Props;
+import akka.japi.pf.ReceiveBuilder;
+import droneapi.api.DroneDispatchers;
+
+import java.io.Serializable;
+
+/**
+ * Writes the batches of the scheduler's write-behind, on the dispatcher for blocking calls,
+ * so the scheduler never waits for the database.
+ */
+public class StateWriter extends AbstractActor {
+
+    /**
+     * A batch was written, the failure is null when it succeeded
+     */
+    public static class Written implements Serializable {
+        private final WriteBehind.Batch batch;
+        private final Throwable failure;
+
+        public Written(WriteBehind.Batch batch, Throwable failure) {
+            this.batch = batch;
+            this.failure = failure;
+        }
+
+        public WriteBehind.Batch getBatch() {
+            return batch;
+        }
+
+        public Throwable getFailure() {
+            return failure;
+        }
+    }
+
+    public static Props props() {
+        return Props.create(StateWriter.class).withDispatcher(DroneDispatchers.BLOCKING);
+    }
+
+    public StateWriter() {
+        receive(ReceiveBuilder.
+                match(WriteBehind.Batch.class, batch -> {
+                    Throwable failure = null;
+                    try {
+                        batch.write();
+                    } catch (RuntimeException ex) {
+                        failure = ex;
+                    }
+                    sender().tell(new Written(batch, failure), self());
+                }).build());
+    }
+}
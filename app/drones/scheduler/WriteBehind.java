@@ -0,0 +1,453 @@
+package drones.scheduler;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Transaction;
+import drones.scheduler.messages.from.SchedulerEvent;
+import models.Assignment;
+import models.Drone;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drone and assignment state changed by the scheduler, written to the database in batches behind its back.
+ * The values kept here are newer than the database until their batch is written, so the scheduler applies them
+ * to every drone and assignment it loads. Consecutive changes are coalesced: a flight writes only its last progress.
+ * Events are held back until the changes made before them are written, so subscribers find them in the database.
+ * The changes of a scheduler and its child schedulers are recorded in a single write-behind owned by the parent,
+ * so they are applied and written in one order. Its methods are synchronized for the children.
+ * A change that can not be written is retried with the next batches, and given up after MAX_ATTEMPTS failed writes,
+ * so a poisoned row does not hold back the events after it forever.
+ */
+public class WriteBehind {
+
+    /**
+     * Failed writes of a change before it is given up
+     */
+    public static final int MAX_ATTEMPTS = 5;
+
+    /**
+     * Time to write the changes recorded since the last batch
+     */
+    public static class FlushMessage implements Serializable {
+    }
+
+    /**
+     * From a child scheduler to the owner of the write-behind: changes were recorded, write them soon
+     */
+    public static class PersistMessage implements Serializable {
+    }
+
+    private static class DroneChange {
+        private final long droneId;
+        private Drone.Status status;
+        private int revision = 0;
+        private boolean dirty = true;
+        // Failed writes since the drone was last written
+        private int attempts = 0;
+
+        public DroneChange(long droneId) {
+            this.droneId = droneId;
+        }
+
+        public DroneChange copy() {
+            DroneChange copy = new DroneChange(droneId);
+            copy.status = status;
+            copy.revision = revision;
+            return copy;
+        }
+    }
+
+    private static class AssignmentChange {
+        private final long assignmentId;
+        // Null when unchanged
+        private Assignment.Status status;
+        private Integer progress;
+        // The assigned drone changed, its id is null when the assignment was unassigned
+        private boolean assigned = false;
+        private Long droneId;
+        private int revision = 0;
+        private boolean dirty = true;
+        // Failed writes since the assignment was last written
+        private int attempts = 0;
+
+        public AssignmentChange(long assignmentId) {
+            this.assignmentId = assignmentId;
+        }
+
+        public AssignmentChange copy() {
+            AssignmentChange copy = new AssignmentChange(assignmentId);
+            copy.status = status;
+            copy.progress = progress;
+            copy.assigned = assigned;
+            copy.droneId = droneId;
+            copy.revision = revision;
+            return copy;
+        }
+    }
+
+    /**
+     * Changes to write at once, with the events waiting for them
+     */
+    public static class Batch {
+        private final List<DroneChange> drones;
+        private final List<AssignmentChange> assignments;
+        private final List<SchedulerEvent> events;
+        private final int batchSize;
+        // Changes that could not be written on their own
+        private final List<Long> failedDrones = new ArrayList<>();
+        private final List<Long> failedAssignments = new ArrayList<>();
+        private final List<String> dropped = new ArrayList<>();
+
+        private Batch(List<DroneChange> drones, List<AssignmentChange> assignments, List<SchedulerEvent> events, int batchSize) {
+            this.drones = drones;
+            this.assignments = assignments;
+            this.events = events;
+            this.batchSize = batchSize;
+        }
+
+        public int size() {
+            return drones.size() + assignments.size();
+        }
+
+        public List<SchedulerEvent> getEvents() {
+            return events;
+        }
+
+        /**
+         * @return Drones and assignments given up after this batch, to report
+         */
+        public List<String> getDropped() {
+            return dropped;
+        }
+
+        /**
+         * Writes the changes in a single transaction, the updates are sent to the database in JDBC batches.
+         * When the transaction fails, every change is written on its own, so only the rows that fail are retried.
+         * Drones and assignments deleted in the meantime are skipped.
+         *
+         * @throws javax.persistence.PersistenceException when none of the changes could be written
+         */
+        public void write() {
+            if (size() == 0) {
+                return;
+            }
+            try {
+                write(drones, assignments);
+            } catch (RuntimeException ex) {
+                for (DroneChange change : drones) {
+                    try {
+                        write(Collections.singletonList(change), Collections.emptyList());
+                    } catch (RuntimeException failure) {
+                        failedDrones.add(change.droneId);
+                    }
+                }
+                for (AssignmentChange change : assignments) {
+                    try {
+                        write(Collections.emptyList(), Collections.singletonList(change));
+                    } catch (RuntimeException failure) {
+                        failedAssignments.add(change.assignmentId);
+                    }
+                }
+                if (failedDrones.size() + failedAssignments.size() == size()) {
+                    throw ex;
+                }
+            }
+        }
+
+        private void write(List<DroneChange> drones, List<AssignmentChange> assignments) {
+            Transaction transaction = Ebean.beginTransaction();
+            try {
+                transaction.setBatchMode(true);
+                transaction.setBatchSize(batchSize);
+                if (!drones.isEmpty()) {
+                    Map<Long, DroneChange> changes = new HashMap<>();
+                    for (DroneChange change : drones) {
+                        changes.put(change.droneId, change);
+                    }
+                    for (Drone drone : Ebean.find(Drone.class).where().idIn(new ArrayList<>(changes.keySet())).findList()) {
+                        drone.setStatus(changes.get(drone.getId()).status);
+                        drone.update();
+                    }
+                }
+                if (!assignments.isEmpty()) {
+                    Map<Long, AssignmentChange> changes = new HashMap<>();
+                    for (AssignmentChange change : assignments) {
+                        changes.put(change.assignmentId, change);
+                    }
+                    for (Assignment assignment : Ebean.find(Assignment.class).where().idIn(new ArrayList<>(changes.keySet())).findList()) {
+                        apply(changes.get(assignment.getId()), assignment);
+                        assignment.update();
+                    }
+                }
+                transaction.commit();
+            } finally {
+                transaction.end();
+            }
+        }
+    }
+
+    private final int batchSize;
+    private final Map<Long, DroneChange> drones = new LinkedHashMap<>();
+    private final Map<Long, AssignmentChange> assignments = new LinkedHashMap<>();
+    // Events waiting for the next batch
+    private final List<SchedulerEvent> events = new ArrayList<>();
+    private Batch writing = null;
+
+    /**
+     * @param batchSize Number of updates sent to the database in one JDBC batch
+     */
+    public WriteBehind(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public synchronized void droneStatus(long droneId, Drone.Status status) {
+        DroneChange change = drones.get(droneId);
+        if (change == null) {
+            change = new DroneChange(droneId);
+            drones.put(droneId, change);
+        }
+        change.status = status;
+        change.revision++;
+        change.dirty = true;
+    }
+
+    public synchronized void assignmentStatus(long assignmentId, Assignment.Status status) {
+        assignmentChange(assignmentId).status = status;
+    }
+
+    public synchronized void assignmentProgress(long assignmentId, int progress) {
+        assignmentChange(assignmentId).progress = progress;
+    }
+
+    /**
+     * @param droneId The assigned drone, null to unassign
+     */
+    public synchronized void assignedDrone(long assignmentId, Long droneId) {
+        AssignmentChange change = assignmentChange(assignmentId);
+        change.assigned = true;
+        change.droneId = droneId;
+    }
+
+    private AssignmentChange assignmentChange(long assignmentId) {
+        AssignmentChange change = assignments.get(assignmentId);
+        if (change == null) {
+            change = new AssignmentChange(assignmentId);
+            assignments.put(assignmentId, change);
+        }
+        change.revision++;
+        change.dirty = true;
+        return change;
+    }
+
+    /**
+     * Holds an event back until the changes recorded before it are written.
+     *
+     * @return false when nothing is waiting to be written, the event can be published right away
+     */
+    public synchronized boolean hold(SchedulerEvent event) {
+        if (drones.isEmpty() && assignments.isEmpty() && events.isEmpty() && writing == null) {
+            return false;
+        }
+        events.add(event);
+        return true;
+    }
+
+    /**
+     * Applies the changes that are not written yet to a drone loaded from the database.
+     */
+    public synchronized void apply(Drone drone) {
+        DroneChange change = drones.get(drone.getId());
+        if (change != null) {
+            drone.setStatus(change.status);
+        }
+    }
+
+    /**
+     * Applies the changes that are not written yet to an assignment loaded from the database.
+     */
+    public synchronized void apply(Assignment assignment) {
+        AssignmentChange change = assignments.get(assignment.getId());
+        if (change != null) {
+            apply(change, assignment);
+        }
+    }
+
+    private static void apply(AssignmentChange change, Assignment assignment) {
+        if (change.status != null) {
+            assignment.setStatus(change.status);
+        }
+        if (change.progress != null) {
+            assignment.setProgress(change.progress);
+        }
+        if (change.assigned) {
+            assignment.setAssignedDrone(change.droneId == null ? null : Drone.FIND.ref(change.droneId));
+        }
+    }
+
+    /**
+     * @return Drones that have the status, but might not have it in the database yet
+     */
+    public synchronized List<Long> dronesWithStatus(Drone.Status status) {
+        List<Long> droneIds = new ArrayList<>();
+        for (DroneChange change : drones.values()) {
+            if (change.status == status) {
+                droneIds.add(change.droneId);
+            }
+        }
+        return droneIds;
+    }
+
+    /**
+     * @return true when changes or events are waiting for a batch
+     */
+    public synchronized boolean isPending() {
+        if (!events.isEmpty()) {
+            return true;
+        }
+        for (DroneChange change : drones.values()) {
+            if (change.dirty) {
+                return true;
+            }
+        }
+        for (AssignmentChange change : assignments.values()) {
+            if (change.dirty) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes the changes and events recorded since the last batch. One batch is written at a time.
+     *
+     * @return The batch to write, null when a batch is being written or there is nothing to write
+     */
+    public synchronized Batch drain() {
+        if (writing != null || !isPending()) {
+            return null;
+        }
+        List<DroneChange> droneChanges = new ArrayList<>();
+        for (DroneChange change : drones.values()) {
+            if (change.dirty) {
+                change.dirty = false;
+                droneChanges.add(change.copy());
+            }
+        }
+        List<AssignmentChange> assignmentChanges = new ArrayList<>();
+        for (AssignmentChange change : assignments.values()) {
+            if (change.dirty) {
+                change.dirty = false;
+                assignmentChanges.add(change.copy());
+            }
+        }
+        writing = new Batch(droneChanges, assignmentChanges, new ArrayList<>(events), batchSize);
+        events.clear();
+        return writing;
+    }
+
+    /**
+     * Takes everything that is not written yet, including the batch being written.
+     */
+    public synchronized Batch drainAll() {
+        List<DroneChange> droneChanges = new ArrayList<>();
+        for (DroneChange change : drones.values()) {
+            droneChanges.add(change.copy());
+        }
+        List<AssignmentChange> assignmentChanges = new ArrayList<>();
+        for (AssignmentChange change : assignments.values()) {
+            assignmentChanges.add(change.copy());
+        }
+        List<SchedulerEvent> held = new ArrayList<>();
+        if (writing != null) {
+            held.addAll(writing.events);
+        }
+        held.addAll(events);
+        drones.clear();
+        assignments.clear();
+        events.clear();
+        writing = null;
+        return new Batch(droneChanges, assignmentChanges, held, batchSize);
+    }
+
+    /**
+     * The batch was written, except for the changes that failed on their own, which go with the next batch.
+     * Changes recorded while it was written stay until the next batch.
+     *
+     * @return The events held back for the batch, to publish now, empty while changes of the batch are retried
+     */
+    public synchronized List<SchedulerEvent> written(Batch batch) {
+        return settle(batch, new HashSet<>(batch.failedDrones), new HashSet<>(batch.failedAssignments));
+    }
+
+    /**
+     * The batch could not be written, its changes and events go with the next batch.
+     *
+     * @return The events held back for the batch, to publish now when all its changes were given up
+     */
+    public synchronized List<SchedulerEvent> failed(Batch batch) {
+        Set<Long> failedDrones = new HashSet<>();
+        for (DroneChange change : batch.drones) {
+            failedDrones.add(change.droneId);
+        }
+        Set<Long> failedAssignments = new HashSet<>();
+        for (AssignmentChange change : batch.assignments) {
+            failedAssignments.add(change.assignmentId);
+        }
+        return settle(batch, failedDrones, failedAssignments);
+    }
+
+    private List<SchedulerEvent> settle(Batch batch, Set<Long> failedDrones, Set<Long> failedAssignments) {
+        if (batch != writing) {
+            return Collections.emptyList();
+        }
+        writing = null;
+        boolean retried = false;
+        for (DroneChange written : batch.drones) {
+            DroneChange change = drones.get(written.droneId);
+            if (change == null) {
+                continue;
+            }
+            if (!failedDrones.contains(written.droneId)) {
+                if (change.revision == written.revision) {
+                    drones.remove(written.droneId);
+                }
+            } else if (++change.attempts < MAX_ATTEMPTS) {
+                change.dirty = true;
+                retried = true;
+            } else {
+                drones.remove(written.droneId);
+                batch.dropped.add("drone " + written.droneId);
+            }
+        }
+        for (AssignmentChange written : batch.assignments) {
+            AssignmentChange change = assignments.get(written.assignmentId);
+            if (change == null) {
+                continue;
+            }
+            if (!failedAssignments.contains(written.assignmentId)) {
+                if (change.revision == written.revision) {
+                    assignments.remove(written.assignmentId);
+                }
+            } else if (++change.attempts < MAX_ATTEMPTS) {
+                change.dirty = true;
+                retried = true;
+            } else {
+                assignments.remove(written.assignmentId);
+                batch.dropped.add("assignment " + written.assignmentId);
+            }
+        }
+        if (retried) {
+            events.addAll(0, batch.events);
+            return Collections.emptyList();
+        }
+        return batch.events;
+    }
+}
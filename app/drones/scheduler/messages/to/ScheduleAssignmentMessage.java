@@ -16,4 +16,14 @@ public class ScheduleAssignmentMessage implements Serializable {
     public long getAssignmentId() {
         return assignmentId;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ScheduleAssignmentMessage && ((ScheduleAssignmentMessage) obj).assignmentId == assignmentId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(assignmentId);
+    }
 }
@@ -16,4 +16,14 @@ public class ScheduleDroneMessage implements Serializable {
     public long getDroneId() {
         return droneId;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ScheduleDroneMessage && ((ScheduleDroneMessage) obj).droneId == droneId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(droneId);
+    }
 }
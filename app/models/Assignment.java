@@ -55,9 +55,13 @@ public class Assignment extends Model {
     @OneToOne
     private Drone assignedDrone;
 
+    @Embedded
+    @JsonIgnore
+    private RouteMetrics routeMetrics;
+
     public Assignment(List<Checkpoint> route, User creator) {
         this();
-        this.route = route;
+        setRoute(route);
         this.creator = creator;
     }
 
@@ -79,6 +83,22 @@ public class Assignment extends Model {
 
     public void setRoute(List<Checkpoint> route) {
         this.route = route;
+        this.routeMetrics = RouteMetrics.of(route);
+    }
+
+    /**
+     * @return Length, extent and duration of the route, null when the route is empty
+     */
+    public RouteMetrics getRouteMetrics() {
+        return routeMetrics;
+    }
+
+    @PrePersist
+    private void computeRouteMetrics() {
+        // The route may have been bound without its setter
+        if (routeMetrics == null) {
+            routeMetrics = RouteMetrics.of(route);
+        }
     }
 
     public int getProgress() {
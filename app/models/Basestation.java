@@ -80,6 +80,17 @@ public class Basestation extends Model {
         this.location = location;
     }
 
+    @PostPersist
+    @PostUpdate
+    private void indexLocation() {
+        BasestationIndex.saved(this);
+    }
+
+    @PostRemove
+    private void removeLocation() {
+        BasestationIndex.removed(this);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null)
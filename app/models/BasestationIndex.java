@@ -0,0 +1,81 @@
+package models;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.EbeanServer;
+import droneapi.geo.GeoGrid;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spatial index of the basestations, loaded on first use and kept up to date by the basestation lifecycle callbacks.
+ */
+public class BasestationIndex {
+
+    // Cell size in degrees, basestations are sparse
+    private static final double CELL_SIZE = 0.1;
+
+    private static volatile BasestationIndex index;
+
+    private final EbeanServer server;
+    private final GeoGrid<Long> grid = new GeoGrid<>(CELL_SIZE);
+    private final Map<Long, Basestation> stations = new ConcurrentHashMap<>();
+
+    private BasestationIndex(EbeanServer server) {
+        this.server = server;
+    }
+
+    /**
+     * @return The index of the current database, reloaded when the default server changed
+     */
+    private static BasestationIndex get() {
+        EbeanServer server = Ebean.getServer(null);
+        BasestationIndex current = index;
+        if (current == null || current.server != server) {
+            synchronized (BasestationIndex.class) {
+                current = index;
+                if (current == null || current.server != server) {
+                    current = new BasestationIndex(server);
+                    for (Basestation station : server.find(Basestation.class).findList()) {
+                        current.add(station);
+                    }
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void add(Basestation station) {
+        if (station.getId() != null && station.getLocation() != null) {
+            stations.put(station.getId(), station);
+            grid.put(station.getId(), station.getLocation().getLatitude(), station.getLocation().getLongitude());
+        }
+    }
+
+    /**
+     * @return The basestation closest to the given location, null when there are none
+     */
+    public static Basestation closest(Location location) {
+        BasestationIndex current = get();
+        List<Long> ids = current.grid.nearest(location.getLatitude(), location.getLongitude(), 1, Double.MAX_VALUE,
+                current.stations::containsKey);
+        return ids.isEmpty() ? null : current.stations.get(ids.get(0));
+    }
+
+    static void saved(Basestation station) {
+        BasestationIndex current = index;
+        if (current != null) {
+            current.add(station);
+        }
+    }
+
+    static void removed(Basestation station) {
+        BasestationIndex current = index;
+        if (current != null && station.getId() != null) {
+            current.stations.remove(station.getId());
+            current.grid.remove(station.getId());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package models;
+
+import droneapi.geo.Geodesy;
+
+import javax.persistence.Embeddable;
+import java.util.List;
+
+/**
+ * Values of a route computed once and stored with the assignment, so it can be scheduled without loading its checkpoints.
+ */
+@Embeddable
+public class RouteMetrics {
+
+    // Assumed average speed in meters per second when estimating the flight time
+    public static final double CRUISING_SPEED = 5.0;
+
+    // Meters
+    private double routeLength;
+
+    private double startLatitude;
+    private double startLongitude;
+    private double endLatitude;
+    private double endLongitude;
+
+    // Bounding box of all checkpoints
+    private double minLatitude;
+    private double minLongitude;
+    private double maxLatitude;
+    private double maxLongitude;
+
+    // Seconds of flight along the route plus waiting at the checkpoints
+    private double estimatedDuration;
+
+    // Seconds waiting at the checkpoints
+    private double hoverTime;
+
+    public RouteMetrics() {
+    }
+
+    /**
+     * @return The metrics of the route, null when it has no checkpoints
+     */
+    public static RouteMetrics of(List<Checkpoint> route) {
+        if (route == null || route.isEmpty()) {
+            return null;
+        }
+        RouteMetrics metrics = new RouteMetrics();
+        Location start = route.get(0).getLocation();
+        Location end = route.get(route.size() - 1).getLocation();
+        metrics.startLatitude = start.getLatitude();
+        metrics.startLongitude = start.getLongitude();
+        metrics.endLatitude = end.getLatitude();
+        metrics.endLongitude = end.getLongitude();
+        metrics.minLatitude = metrics.maxLatitude = start.getLatitude();
+        metrics.minLongitude = metrics.maxLongitude = start.getLongitude();
+
+        double length = 0;
+        int waiting = 0;
+        Location from = start;
+        for (Checkpoint checkpoint : route) {
+            Location to = checkpoint.getLocation();
+            length += Geodesy.distance(Geodesy.Tier.HAVERSINE,
+                    from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+            metrics.minLatitude = Math.min(metrics.minLatitude, to.getLatitude());
+            metrics.maxLatitude = Math.max(metrics.maxLatitude, to.getLatitude());
+            metrics.minLongitude = Math.min(metrics.minLongitude, to.getLongitude());
+            metrics.maxLongitude = Math.max(metrics.maxLongitude, to.getLongitude());
+            waiting += checkpoint.getWaitingTime();
+            from = to;
+        }
+        metrics.routeLength = length;
+        metrics.estimatedDuration = length / CRUISING_SPEED + waiting;
+        metrics.hoverTime = waiting;
+        return metrics;
+    }
+
+    public double getRouteLength() {
+        return routeLength;
+    }
+
+    public double getStartLatitude() {
+        return startLatitude;
+    }
+
+    public double getStartLongitude() {
+        return startLongitude;
+    }
+
+    public double getEndLatitude() {
+        return endLatitude;
+    }
+
+    public double getEndLongitude() {
+        return endLongitude;
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public double getEstimatedDuration() {
+        return estimatedDuration;
+    }
+
+    public double getHoverTime() {
+        return hoverTime;
+    }
+
+    public Location getStart() {
+        return new Location(startLatitude, startLongitude, 0);
+    }
+
+    public Location getEnd() {
+        return new Location(endLatitude, endLongitude, 0);
+    }
+}
@@ -3,10 +3,9 @@ package utilities;
 import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
 import akka.actor.Props;
-import akka.japi.pf.ReceiveBuilder;
-import akka.japi.pf.UnitPFBuilder;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import droneapi.messages.*;
+import droneapi.model.DispatchBuilder;
 import drones.models.Fleet;
 import drones.scheduler.Scheduler;
 import drones.scheduler.SchedulerException;
@@ -31,19 +30,14 @@ public class MessageWebSocket extends AbstractActor {
     private final ActorRef out;
 
     private static final List<F.Tuple<Class, String>> TYPENAMES;
-    private static final List<Class> IGNORETYPES;
 
     static {
         TYPENAMES = new ArrayList<>();
-        IGNORETYPES = new ArrayList<>();
 
         TYPENAMES.add(new F.Tuple<>(BatteryPercentageChangedMessage.class, "batteryPercentageChanged"));
         TYPENAMES.add(new F.Tuple<>(AltitudeChangedMessage.class, "altitudeChanged"));
         TYPENAMES.add(new F.Tuple<>(LocationChangedMessage.class, "locationChanged"));
         TYPENAMES.add(new F.Tuple<>(SpeedChangedMessage.class, "speedChanged"));
-
-        IGNORETYPES.add(FlyingStateChangedMessage.class);
-        IGNORETYPES.add(NavigationStateChangedMessage.class);
     }
 
     public MessageWebSocket(final ActorRef out) {
@@ -57,8 +51,13 @@ public class MessageWebSocket extends AbstractActor {
         Scheduler.subscribe(AssignmentStatusMessage.class, self());
         Scheduler.subscribe(AssignmentCanceledMessage.class, self());
 
-        Fleet.getFleet().subscribe(self());
-        UnitPFBuilder<Object> builder = ReceiveBuilder.match(TYPENAMES.get(0)._1, s -> {
+        // Only the telemetry shown to the client is forwarded by the fleet
+        Class<?>[] fleetTypes = new Class<?>[TYPENAMES.size()];
+        for (int i = 0; i < fleetTypes.length; i++) {
+            fleetTypes[i] = TYPENAMES.get(i)._1;
+        }
+        Fleet.getFleet().subscribe(self(), null, fleetTypes);
+        DispatchBuilder builder = new DispatchBuilder().match(TYPENAMES.get(0)._1, s -> {
             ObjectNode node = Json.newObject();
             node.put("type", TYPENAMES.get(0)._2);
             node.put("id", sender().path().name().split("-")[1]);
@@ -141,9 +140,6 @@ public class MessageWebSocket extends AbstractActor {
             out.tell(node.toString(), self());
         });
 
-        for (int i = 0; i < IGNORETYPES.size(); ++i)
-            builder = builder.match(IGNORETYPES.get(i), s -> {});
-
         builder = builder.matchAny(o -> Logger.debug("[websocket] Unkown message type..." + o.getClass().getName()));
 
         receive(builder.build());
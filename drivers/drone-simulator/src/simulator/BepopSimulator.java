@@ -1,16 +1,14 @@
 package simulator;
 
-import akka.actor.ActorSystem;
 import akka.actor.Cancellable;
 import akka.dispatch.Futures;
-import akka.japi.pf.ReceiveBuilder;
-import akka.japi.pf.UnitPFBuilder;
 import simulator.messages.ResetMovementMessage;
 import simulator.messages.SetConnectionLostMessage;
 import simulator.messages.SetCrashedMessage;
 import droneapi.messages.BatteryPercentageChangedMessage;
 import droneapi.model.DroneException;
 import droneapi.model.properties.DroneVersion;
+import droneapi.model.DispatchBuilder;
 import droneapi.model.NavigatedDroneActor;
 import droneapi.model.properties.*;
 import droneapi.navigator.LocationNavigator;
@@ -26,8 +24,6 @@ import java.util.concurrent.TimeUnit;
  */
 public class BepopSimulator extends NavigatedDroneActor {
 
-    private static final ActorSystem system = ActorSystem.create("BebopSimulator");
-
     private static class StepSimulationMessage implements Serializable {
         private FiniteDuration timeStep;
         public StepSimulationMessage(FiniteDuration timeStep) {
@@ -256,9 +252,9 @@ public class BepopSimulator extends NavigatedDroneActor {
     // External control
 
     @Override
-    protected UnitPFBuilder<Object> createListeners() {
+    protected DispatchBuilder createListeners() {
 
-        return ReceiveBuilder.
+        return new DispatchBuilder().
                 match(BatteryPercentageChangedMessage.class, m -> processBatteryLevel(m.getPercent())).
                 match(SetCrashedMessage.class, m -> setCrashed(m.isCrashed())).
                 match(SetConnectionLostMessage.class, m -> setConnectionLost(m.isConnectionLost())).
@@ -389,12 +385,12 @@ public class BepopSimulator extends NavigatedDroneActor {
         eventBus.setPublishDisabled(false);
 
         // Schedule drones.simulation loop
-        simulationTick = system.scheduler().schedule(
+        simulationTick = getContext().system().scheduler().schedule(
                 simulationTimeStep,
                 simulationTimeStep,
                 self(),
                 new StepSimulationMessage(simulationTimeStep),
-                system.dispatcher(),
+                getContext().dispatcher(),
                 self());
 
         initialized = true;
@@ -526,11 +522,11 @@ public class BepopSimulator extends NavigatedDroneActor {
         setRotation(new Rotation(roll, pitch, yaw));
 
         // After a 1.5 second: the rotation should be set back to normal
-        resetDefaultMovement = system.scheduler().scheduleOnce(
+        resetDefaultMovement = getContext().system().scheduler().scheduleOnce(
                 Duration.create(1500, TimeUnit.MILLISECONDS),   // At least 1 simulation step will have executed
                 self(),
                 new ResetMovementMessage(),
-                system.dispatcher(),
+                getContext().dispatcher(),
                 self()
         );
 
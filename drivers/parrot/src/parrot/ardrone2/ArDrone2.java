@@ -4,8 +4,8 @@ import akka.actor.ActorRef;
 import akka.actor.Props;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
-import akka.japi.pf.ReceiveBuilder;
-import akka.japi.pf.UnitPFBuilder;
+import droneapi.api.DroneDispatchers;
+import droneapi.model.DispatchBuilder;
 import droneapi.model.NavigatedDroneActor;
 import parrot.ardrone2.protocol.ArDrone2Protocol;
 import parrot.messages.InitCompletedMessage;
@@ -65,7 +65,7 @@ public class ArDrone2 extends NavigatedDroneActor {
                 initPromise = p;
 
                 protocol = getContext().actorOf(Props.create(ArDrone2Protocol.class,
-                        () -> new ArDrone2Protocol(new DroneConnectionDetails(ip, 5556, 5554), ArDrone2.this.self())));
+                        () -> new ArDrone2Protocol(new DroneConnectionDetails(ip, 5556, 5554), ArDrone2.this.self())).withDispatcher(DroneDispatchers.IO));
             }
         }
 
@@ -160,8 +160,8 @@ public class ArDrone2 extends NavigatedDroneActor {
     }
 
     @Override
-    protected UnitPFBuilder<Object> createListeners() {
-        return ReceiveBuilder.
+    protected DispatchBuilder createListeners() {
+        return new DispatchBuilder().
                 match(InitCompletedMessage.class, s -> handleInitCompletedResponse());
     }
 
@@ -8,8 +8,9 @@ import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import akka.io.Udp;
 import akka.io.UdpMessage;
-import akka.japi.pf.ReceiveBuilder;
+import droneapi.api.DroneDispatchers;
 import akka.util.ByteString;
+import droneapi.model.DispatchBuilder;
 import droneapi.model.properties.FlyingState;
 import droneapi.model.properties.NavigationState;
 import droneapi.model.properties.NavigationStateReason;
@@ -94,7 +95,7 @@ public class ArDrone2Protocol extends UntypedActor {
             log.info("[ARDRONE2] Socket ARDRone 2.0 bound.");
 
             // Setup handlers
-            getContext().become(ReceiveBuilder
+            getContext().become(new DispatchBuilder()
                     //.match(Udp.Unbound.class, s -> getContext().stop(getSelf()))
                     .match(Udp.Unbound.class, s -> {
                         log.info("UDP unbound received.");
@@ -197,7 +198,7 @@ public class ArDrone2Protocol extends UntypedActor {
                 videoInited = true;
                 // Create config data actor
                 ardrone2Video = getContext().actorOf(Props.create(ArDrone2Video.class,
-                        () -> new ArDrone2Video(details, listener, getSelf())));
+                        () -> new ArDrone2Video(details, listener, getSelf())).withDispatcher(DroneDispatchers.IO));
             }
         }
     }
@@ -307,16 +308,16 @@ public class ArDrone2Protocol extends UntypedActor {
 
         // Create watchdog actor
         ardrone2ResetWDG = getContext().actorOf(Props.create(ArDrone2ResetWDG.class,
-                () -> new ArDrone2ResetWDG(details)));
+                () -> new ArDrone2ResetWDG(details)).withDispatcher(DroneDispatchers.IO));
 
         // Create nav data actor
         ardrone2NavData = getContext().actorOf(Props.create(ArDrone2NavData.class,
-                () -> new ArDrone2NavData(details, listener, getSelf())));
+                () -> new ArDrone2NavData(details, listener, getSelf())).withDispatcher(DroneDispatchers.IO));
 
 
         // Create config data actor
         ardrone2Config = getContext().actorOf(Props.create(ArDrone2Config.class,
-                () -> new ArDrone2Config(details, listener, getSelf())));
+                () -> new ArDrone2Config(details, listener, getSelf())).withDispatcher(DroneDispatchers.IO));
     }
 
     private void handleFlatTrim() {
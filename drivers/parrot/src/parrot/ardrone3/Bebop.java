@@ -2,15 +2,15 @@ package parrot.ardrone3;
 
 import akka.actor.ActorRef;
 import akka.actor.Props;
-import akka.japi.pf.ReceiveBuilder;
-import akka.japi.pf.UnitPFBuilder;
 import parrot.ardrone3.protocol.ArDrone3;
 import parrot.ardrone3.protocol.ArDrone3Discovery;
 import parrot.messages.DroneDiscoveredMessage;
 import parrot.shared.commands.*;
 import parrot.shared.models.DroneConnectionDetails;
+import droneapi.api.DroneDispatchers;
 import droneapi.messages.StopMessage;
 import droneapi.model.DroneException;
+import droneapi.model.DispatchBuilder;
 import droneapi.model.NavigatedDroneActor;
 import droneapi.model.properties.ConnectionStatus;
 import droneapi.model.properties.FlipType;
@@ -57,8 +57,8 @@ public class Bebop extends NavigatedDroneActor {
     }
 
     @Override
-    protected UnitPFBuilder<Object> createListeners() {
-        return ReceiveBuilder.
+    protected DispatchBuilder createListeners() {
+        return new DispatchBuilder().
                 match(DroneDiscoveredMessage.class, this::handleDroneDiscoveryResponse).
                 match(String.class, s -> "reconnect".equals(s), s -> handleReconnect());
     }
@@ -170,10 +170,10 @@ public class Bebop extends NavigatedDroneActor {
 
                 //TODO: dispose each time when udp bound is fixed
                 protocol = getContext().actorOf(Props.create(ArDrone3.class,
-                        () -> new ArDrone3(d2cPort, Bebop.this.self())), "protocol"); // Initialize listening already before broadcasting itself
+                        () -> new ArDrone3(d2cPort, Bebop.this.self())).withDispatcher(DroneDispatchers.IO), "protocol"); // Initialize listening already before broadcasting itself
 
                 discoveryProtocol = getContext().actorOf(Props.create(ArDrone3Discovery.class,
-                        () -> new ArDrone3Discovery(ip, Bebop.this.self(), d2cPort)), "discovery");
+                        () -> new ArDrone3Discovery(ip, Bebop.this.self(), d2cPort)).withDispatcher(DroneDispatchers.IO), "discovery");
             }
         }
     }
@@ -199,7 +199,7 @@ public class Bebop extends NavigatedDroneActor {
 
             // Initiate new discovery
             discoveryProtocol = getContext().actorOf(Props.create(ArDrone3Discovery.class,
-                    () -> new ArDrone3Discovery(ip, Bebop.this.self(), d2cPort)), "discovery");
+                    () -> new ArDrone3Discovery(ip, Bebop.this.self(), d2cPort)).withDispatcher(DroneDispatchers.IO), "discovery");
         }
     }
 
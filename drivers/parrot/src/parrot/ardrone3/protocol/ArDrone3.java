@@ -5,7 +5,6 @@ import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import akka.io.Udp;
 import akka.io.UdpMessage;
-import akka.japi.pf.ReceiveBuilder;
 import akka.util.ByteIterator;
 import akka.util.ByteString;
 import parrot.ardrone3.models.*;
@@ -18,6 +17,7 @@ import parrot.shared.commands.*;
 import parrot.shared.models.DroneConnectionDetails;
 import droneapi.messages.ConnectionStatusChangedMessage;
 import droneapi.messages.StopMessage;
+import droneapi.model.DispatchBuilder;
 import droneapi.model.properties.FlipType;
 import parrot.shared.commands.MoveCommand;
 import org.joda.time.DateTime;
@@ -488,7 +488,7 @@ public class ArDrone3 extends UntypedActor {
             //senderRef = getSender();
 
             // Setup handlers
-            getContext().become(ReceiveBuilder
+            getContext().become(new DispatchBuilder()
                     .match(StopMessage.class, s -> stop())
                     .match(String.class, "tick"::equals, s -> tick())
                     .match(Udp.Received.class, s -> {
@@ -0,0 +1,21 @@
+package parrot.messages;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Requests the reachability of several addresses at once, answered with a PingFleetResult
+ */
+public class PingFleetMessage implements Serializable {
+    private List<String> ips;
+
+    public PingFleetMessage(Collection<String> ips) {
+        this.ips = new ArrayList<>(ips);
+    }
+
+    public List<String> getIps() {
+        return ips;
+    }
+}
@@ -0,0 +1,21 @@
+package parrot.messages;
+
+import parrot.shared.models.PingResult;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Reachability of every address of a PingFleetMessage
+ */
+public class PingFleetResult implements Serializable {
+    private Map<String, PingResult> results;
+
+    public PingFleetResult(Map<String, PingResult> results) {
+        this.results = results;
+    }
+
+    public Map<String, PingResult> getResults() {
+        return results;
+    }
+}
@@ -0,0 +1,199 @@
+package parrot.shared.protocols;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Status;
+import akka.dispatch.Futures;
+import akka.japi.pf.ReceiveBuilder;
+import akka.pattern.Patterns;
+import droneapi.api.DroneDispatchers;
+import parrot.messages.PingFleetMessage;
+import parrot.messages.PingFleetResult;
+import parrot.messages.PingMessage;
+import parrot.shared.models.PingResult;
+import scala.concurrent.ExecutionContext;
+
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Checks whether addresses are reachable. Probes block, so they run concurrently on the blocking dispatcher
+ * instead of in the actor. Results are cached for a while and concurrent requests for one address share a probe.
+ */
+public class ReachabilityProber extends AbstractActor {
+
+    public final static int PING_TIMEOUT = 2000;
+
+    private static class ProbeCompleted implements Serializable {
+        private final String ip;
+        private final PingResult result;
+
+        public ProbeCompleted(String ip, PingResult result) {
+            this.ip = ip;
+            this.result = result;
+        }
+    }
+
+    private static class CachedResult {
+        private final PingResult result;
+        private final long time;
+
+        public CachedResult(PingResult result, long time) {
+            this.result = result;
+            this.time = time;
+        }
+    }
+
+    private final long ttl;
+    private final int parallelism;
+    private final Predicate<InetAddress> probe;
+    private final ExecutionContext blocking;
+
+    private final Map<String, CachedResult> cache = new HashMap<>();
+    // Callbacks waiting for a probe in progress
+    private final Map<String, List<Consumer<PingResult>>> probing = new HashMap<>();
+    // Addresses waiting for a free probe
+    private final Queue<String> queued = new ArrayDeque<>();
+    private int running = 0;
+
+    /**
+     * @param ttl Time in milliseconds a result is answered from the cache
+     * @param parallelism Maximum number of probes at the same time
+     */
+    public ReachabilityProber(long ttl, int parallelism) {
+        this(ttl, parallelism, address -> {
+            try {
+                return address.isReachable(PING_TIMEOUT);
+            } catch (Exception ex) {
+                return false;
+            }
+        });
+    }
+
+    public ReachabilityProber(long ttl, int parallelism, Predicate<InetAddress> probe) {
+        this.ttl = ttl;
+        this.parallelism = Math.max(1, parallelism);
+        this.probe = probe;
+        this.blocking = getContext().system().dispatchers().lookup(DroneDispatchers.BLOCKING);
+
+        receive(ReceiveBuilder.
+                match(PingMessage.class, this::ping).
+                match(PingFleetMessage.class, this::pingFleet).
+                match(ProbeCompleted.class, this::probeCompleted).build());
+    }
+
+    private void ping(PingMessage msg) {
+        InetAddress address = parse(msg.getIp());
+        if (address == null) {
+            sender().tell(new Status.Failure(new IllegalArgumentException("IP address is in wrong format.")), self());
+            return;
+        }
+        ActorRef sender = sender();
+        lookup(msg.getIp(), address, result -> sender.tell(result, self()));
+    }
+
+    private void pingFleet(PingFleetMessage msg) {
+        ActorRef sender = sender();
+        Map<String, PingResult> results = new HashMap<>();
+        List<String> ips = msg.getIps();
+        int[] remaining = {ips.size()};
+        if (ips.isEmpty()) {
+            sender.tell(new PingFleetResult(results), self());
+            return;
+        }
+        for (String ip : ips) {
+            Consumer<PingResult> callback = result -> {
+                results.put(ip, result);
+                if (--remaining[0] == 0) {
+                    sender.tell(new PingFleetResult(results), self());
+                }
+            };
+            InetAddress address = parse(ip);
+            if (address == null) {
+                callback.accept(PingResult.UNREACHABLE);
+            } else {
+                lookup(ip, address, callback);
+            }
+        }
+    }
+
+    private void lookup(String ip, InetAddress address, Consumer<PingResult> callback) {
+        CachedResult cached = cache.get(ip);
+        if (cached != null && System.currentTimeMillis() - cached.time < ttl) {
+            callback.accept(cached.result);
+            return;
+        }
+
+        List<Consumer<PingResult>> waiting = probing.get(ip);
+        if (waiting != null) {
+            waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        probing.put(ip, waiting);
+
+        if (running < parallelism) {
+            probe(ip, address);
+        } else {
+            queued.add(ip);
+        }
+    }
+
+    private void probe(String ip, InetAddress address) {
+        running++;
+        Patterns.pipe(Futures.future(() -> {
+            boolean reachable;
+            try {
+                reachable = probe.test(address);
+            } catch (RuntimeException ex) {
+                reachable = false;
+            }
+            return new ProbeCompleted(ip, reachable ? PingResult.OK : PingResult.UNREACHABLE);
+        }, blocking), getContext().dispatcher()).to(self());
+    }
+
+    private void probeCompleted(ProbeCompleted msg) {
+        running--;
+        if (!queued.isEmpty()) {
+            String ip = queued.poll();
+            probe(ip, parse(ip));
+        }
+
+        cache.put(msg.ip, new CachedResult(msg.result, System.currentTimeMillis()));
+        List<Consumer<PingResult>> waiting = probing.remove(msg.ip);
+        if (waiting != null) {
+            for (Consumer<PingResult> callback : waiting) {
+                callback.accept(msg.result);
+            }
+        }
+    }
+
+    private static InetAddress parse(String ip) {
+        String[] splitted = ip == null ? new String[0] : ip.split("\\.");
+        if (splitted.length != 4) {
+            return null;
+        }
+        byte[] nums = new byte[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                int num = Integer.parseInt(splitted[i]);
+                if (num < 0 || num > 255) {
+                    return null;
+                }
+                nums[i] = (byte) num;
+            }
+            return InetAddress.getByAddress(nums);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+}
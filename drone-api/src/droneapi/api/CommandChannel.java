@@ -0,0 +1,140 @@
+package droneapi.api;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.PoisonPill;
+import akka.actor.Props;
+import akka.actor.Status;
+import akka.dispatch.Futures;
+import akka.japi.pf.ReceiveBuilder;
+import akka.pattern.AskTimeoutException;
+import droneapi.messages.CorrelatedMessage;
+import droneapi.messages.ExecutionResultMessage;
+import droneapi.model.DroneException;
+import scala.concurrent.Future;
+import scala.concurrent.Promise;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request/reply channel between a DroneCommander and its drone actor.
+ * Requests carry a correlation id and all replies go to one long-lived reply actor,
+ * instead of a temporary actor and scheduled timeout per request as with Patterns.ask.
+ */
+class CommandChannel {
+
+    private final ActorRef target;
+    private final ActorRef replyActor;
+    private final TimeoutWheel timeouts;
+
+    // Commands awaiting a reply by correlation id
+    private final ConcurrentHashMap<Long, PendingCommand> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    CommandChannel(ActorSystem system, ActorRef target, TimeoutWheel timeouts) {
+        this.target = target;
+        this.timeouts = timeouts;
+        this.replyActor = system.actorOf(ReplyActor.props(this));
+    }
+
+    /**
+     * Sends a request to the drone actor.
+     *
+     * @param msg The request message
+     * @param timeout Time to wait for the reply
+     * @return Future with the value of the ExecutionResultMessage reply
+     */
+    @SuppressWarnings("unchecked")
+    <T> Future<T> request(Object msg, FiniteDuration timeout) {
+        if (closed) {
+            return Futures.failed(new DroneException("DroneCommander was shut down previously."));
+        }
+
+        long id = nextId.incrementAndGet();
+        long deadline = TimeoutWheel.now() + timeout.toMillis();
+        PendingCommand cmd = new PendingCommand(this, id, deadline);
+        pending.put(id, cmd);
+        if (closed && pending.remove(id, cmd)) {
+            return Futures.failed(new DroneException("DroneCommander was shut down previously."));
+        }
+        timeouts.schedule(cmd);
+        target.tell(new CorrelatedMessage(id, msg), replyActor);
+        return (Future<T>) (Future<?>) cmd.promise.future();
+    }
+
+    /**
+     * Stops the reply actor and fails all commands still awaiting a reply.
+     */
+    void close() {
+        closed = true;
+        replyActor.tell(PoisonPill.getInstance(), ActorRef.noSender());
+        for (Long id : pending.keySet()) {
+            PendingCommand cmd = pending.remove(id);
+            if (cmd != null) {
+                cmd.promise.tryFailure(new DroneException("DroneCommander was shut down."));
+            }
+        }
+    }
+
+    private void complete(long id, Object reply) {
+        PendingCommand cmd = pending.remove(id);
+        if (cmd == null) {
+            return; // Timed out or shut down already
+        }
+
+        if (reply instanceof Status.Failure) {
+            cmd.promise.tryFailure(((Status.Failure) reply).cause());
+        } else if (reply instanceof ExecutionResultMessage) {
+            cmd.promise.trySuccess(((ExecutionResultMessage) reply).getValue());
+        } else {
+            cmd.promise.trySuccess(reply);
+        }
+    }
+
+    void expire(PendingCommand cmd) {
+        if (pending.remove(cmd.id, cmd)) {
+            cmd.promise.tryFailure(new AskTimeoutException("Drone command " + cmd.id + " timed out."));
+        }
+    }
+
+    /**
+     * Command awaiting a reply, also used as entry in the timeout wheel.
+     */
+    static class PendingCommand {
+        final CommandChannel channel;
+        final long id;
+        final long deadline;
+        final Promise<Object> promise = Futures.promise();
+
+        PendingCommand(CommandChannel channel, long id, long deadline) {
+            this.channel = channel;
+            this.id = id;
+            this.deadline = deadline;
+        }
+
+        boolean isDone() {
+            return promise.isCompleted();
+        }
+    }
+
+    /**
+     * Receives all correlated replies for a single channel.
+     */
+    static class ReplyActor extends AbstractActor {
+
+        static Props props(CommandChannel channel) {
+            return Props.create(ReplyActor.class, () -> new ReplyActor(channel));
+        }
+
+        ReplyActor(CommandChannel channel) {
+            receive(ReceiveBuilder.
+                    match(CorrelatedMessage.class, s -> channel.complete(s.getId(), s.getMessage())).
+                    build());
+        }
+    }
+}
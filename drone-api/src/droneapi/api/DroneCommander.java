@@ -5,15 +5,19 @@ import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.dispatch.Futures;
 import akka.dispatch.Mapper;
-import akka.pattern.Patterns;
-import akka.util.Timeout;
+import akka.dispatch.Recover;
 import droneapi.messages.*;
 import droneapi.model.DroneException;
+import droneapi.model.DroneMailbox;
+import droneapi.model.MailboxMetrics;
 import droneapi.model.properties.DroneVersion;
 import droneapi.model.properties.*;
 import scala.concurrent.Future;
 import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
 
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -21,27 +25,39 @@ import java.util.concurrent.TimeUnit;
  */
 public class DroneCommander implements DroneControl, DroneStatus {
 
-    private static final ActorSystem system = ActorSystem.create("DroneAPI");
+    private static final FiniteDuration TIMEOUT = Duration.create(2, TimeUnit.SECONDS);
 
-    private static final Timeout TIMEOUT = new Timeout(Duration.create(2, TimeUnit.SECONDS));
-
-    private static final Timeout INIT_TIMEOUT = new Timeout(Duration.create(100, TimeUnit.SECONDS));
+    private static final FiniteDuration INIT_TIMEOUT = Duration.create(100, TimeUnit.SECONDS);
 
+    private final ActorSystem system;
     private final ActorRef droneActor;
+    private final CommandChannel channel;
+
+    private volatile PropertyStore propertyStore;
 
     private boolean initialized = false;
     private boolean shutdown = false;
 
-    public DroneCommander(String droneAddress, DroneDriver driver) {
+    /**
+     * @param system Actor system of the application, the drone actor and the command replies run in it
+     */
+    public DroneCommander(ActorSystem system, String droneAddress, DroneDriver driver) {
+        this.system = system;
 
         // Create DroneActor
         droneActor = system.actorOf(
                 Props.create(driver.getActorClass(),
-                        () -> driver.createActor(droneAddress)));
+                        () -> driver.createActor(droneAddress)).withDispatcher(DroneDispatchers.DRONE));
+        channel = new CommandChannel(system, droneActor, TimeoutWheel.get(system));
     }
 
-    public DroneCommander(final ActorRef droneActor) {
+    /**
+     * @param system Actor system of the application, the command replies run in it
+     */
+    public DroneCommander(ActorSystem system, final ActorRef droneActor) {
+        this.system = system;
         this.droneActor = droneActor;
+        this.channel = new CommandChannel(system, droneActor, TimeoutWheel.get(system));
     }
 
     public boolean canSend(){
@@ -63,56 +79,74 @@ public class DroneCommander implements DroneControl, DroneStatus {
     @Override
     public Future<Void> init() {
         if (!initialized) {
-            return Patterns.ask(droneActor, new InitRequestMessage(), INIT_TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
+            return channel.request(new InitRequestMessage(), INIT_TIMEOUT).flatMap(new Mapper<Object, Future<Void>>() {
+                public Future<Void> apply(Object s) {
                     initialized = true;
-                    return null;
+                    return fetchPropertyStore();
                 }
             }, system.dispatcher());
         } else return Futures.failed(new DroneException("Drone already initialized/stopped."));
     }
 
+    /**
+     * Retrieves the property store of a local drone actor, so properties can be read without messaging the actor.
+     * Failing to retrieve it (e.g. for a remote drone actor) does not fail the initialization.
+     */
+    private Future<Void> fetchPropertyStore() {
+        return channel.request(new PropertyStoreRequestMessage(), TIMEOUT).map(new Mapper<Object, Void>() {
+            public Void apply(Object s) {
+                propertyStore = (PropertyStore) s;
+                return null;
+            }
+        }, system.dispatcher()).recover(new Recover<Void>() {
+            public Void recover(Throwable failure) {
+                return null;
+            }
+        }, system.dispatcher());
+    }
+
+    /**
+     * Store to read the latest drone properties from without messaging the drone actor.
+     * Unlike the getters, reads are not ordered with messages sent to the drone actor.
+     *
+     * @return The property store, null when not initialized or when the drone actor is not local
+     */
+    public PropertyStore getPropertyStore() {
+        return canSend() ? propertyStore : null;
+    }
+
+    /**
+     * @return Load metrics of the drone actor mailbox, null when the drone actor is not local
+     */
+    public MailboxMetrics getMailboxMetrics() {
+        return DroneMailbox.getMetrics(droneActor);
+    }
+
     @Override
     public Future<Void> takeOff() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new TakeOffRequestMessage(), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new TakeOffRequestMessage(), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> land() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new LandRequestMessage(), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new LandRequestMessage(), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> emergency() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new EmergencyRequestMessage(), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new EmergencyRequestMessage(), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> move3d(double vx, double vy, double vz, double vr) {
         if(canSend()) {
-            return Patterns.ask(droneActor, new MoveRequestMessage(vx, vy, vz, vr), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new MoveRequestMessage(vx, vy, vz, vr), TIMEOUT);
         } else return noDroneConnection();
     }
 
@@ -127,11 +161,7 @@ public class DroneCommander implements DroneControl, DroneStatus {
             return Futures.failed(new IllegalArgumentException("Max height cannot be lower than 0.5m"));
 
         if(canSend()) {
-            return Patterns.ask(droneActor, new SetMaxHeightRequestMessage(meters), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new SetMaxHeightRequestMessage(meters), TIMEOUT);
         } else return noDroneConnection();
     }
 
@@ -141,11 +171,7 @@ public class DroneCommander implements DroneControl, DroneStatus {
             return Futures.failed(new IllegalArgumentException("Max tilt cannot be negative."));
 
         if(canSend()) {
-            return Patterns.ask(droneActor, new SetMaxTiltRequestMessage(degrees), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new SetMaxTiltRequestMessage(degrees), TIMEOUT);
         } else return noDroneConnection();
     }
 
@@ -156,99 +182,63 @@ public class DroneCommander implements DroneControl, DroneStatus {
             return Futures.failed(new IllegalArgumentException("invalid coordinates"));
 
         if(canSend()) {
-            return Patterns.ask(droneActor, new MoveToLocationRequestMessage(latitude, longitude, altitude), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new MoveToLocationRequestMessage(latitude, longitude, altitude), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> cancelMoveToLocation() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new MoveToLocationCancellationMessage(), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new MoveToLocationCancellationMessage(), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> calibrate(boolean outdoor, boolean hull) {
         if(canSend()) {
-            return Patterns.ask(droneActor, new CalibrateRequestMessage(hull, outdoor), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new CalibrateRequestMessage(hull, outdoor), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> flatTrim() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new FlatTrimRequestMessage(), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new FlatTrimRequestMessage(), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> setOutdoor(boolean outdoor) {
         if(canSend()) {
-            return Patterns.ask(droneActor, new SetOutdoorRequestMessage(outdoor), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new SetOutdoorRequestMessage(outdoor), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> setHull(boolean hull) {
         if(canSend()) {
-            return Patterns.ask(droneActor, new SetHullRequestMessage(hull), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new SetHullRequestMessage(hull), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> flip(FlipType type) {
         if(canSend()) {
-            return Patterns.ask(droneActor, new FlipRequestMessage(type), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new FlipRequestMessage(type), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> initVideo() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new InitVideoRequestMessage(), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new InitVideoRequestMessage(), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Void> stopVideo() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new StopVideoRequestMessage(), TIMEOUT).map(new Mapper<Object, Void>() {
-                public Void apply(Object s) {
-                    return null;
-                }
-            }, system.dispatcher());
+            return channel.request(new StopVideoRequestMessage(), TIMEOUT);
         } else return noDroneConnection();
     }
 
@@ -256,147 +246,107 @@ public class DroneCommander implements DroneControl, DroneStatus {
     public void stop() {
         droneActor.tell(new StopMessage(), ActorRef.noSender());
         shutdown = true;
+        propertyStore = null;
+        channel.close();
     }
 
     @Override
     public Future<FlyingState> getFlyingState() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.FLYINGSTATE), TIMEOUT).map(new Mapper<Object, FlyingState>() {
-                public FlyingState apply(Object s) {
-                    return (FlyingState) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.FLYINGSTATE), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Location> getLocation() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.LOCATION), TIMEOUT).map(new Mapper<Object, Location>() {
-                public Location apply(Object s) {
-                    return (Location) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.LOCATION), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Byte> getBatteryPercentage() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.BATTERY), TIMEOUT).map(new Mapper<Object, Byte>() {
-                public Byte apply(Object s) {
-                    return (Byte) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.BATTERY), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Double> getAltitude() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.ALTITUDE), TIMEOUT).map(new Mapper<Object, Double>() {
-                public Double apply(Object s) {
-                    return (Double) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.ALTITUDE), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Rotation> getRotation() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.ROTATION), TIMEOUT).map(new Mapper<Object, Rotation>() {
-                public Rotation apply(Object s) {
-                    return (Rotation) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.ROTATION), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Speed> getSpeed() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.SPEED), TIMEOUT).map(new Mapper<Object, Speed>() {
-                public Speed apply(Object s) {
-                    return (Speed) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.SPEED), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<DroneVersion> getVersion() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.VERSION), TIMEOUT).map(new Mapper<Object, DroneVersion>() {
-                public DroneVersion apply(Object s) {
-                    return (DroneVersion) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.VERSION), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<NavigationState> getNavigationState() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.NAVIGATIONSTATE), TIMEOUT).map(new Mapper<Object, NavigationState>() {
-                public NavigationState apply(Object s) {
-                    return (NavigationState) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.NAVIGATIONSTATE), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<NavigationStateReason> getNavigationStateReason() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.NAVIGATIONREASON), TIMEOUT).map(new Mapper<Object, NavigationStateReason>() {
-                public NavigationStateReason apply(Object s) {
-                    return (NavigationStateReason) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.NAVIGATIONREASON), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Boolean> isGPSFixed() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.GPSFIX), TIMEOUT).map(new Mapper<Object, Boolean>() {
-                public Boolean apply(Object s) {
-                    return (Boolean) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.GPSFIX), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Boolean> isOnline() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.NETWORK_STATUS), TIMEOUT).map(new Mapper<Object, Boolean>() {
-                public Boolean apply(Object s) {
-                    return (Boolean) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.NETWORK_STATUS), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<Boolean> isCalibrationRequired() {
         if(canSend()) {
-            return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.CALIBRATION_REQUIRED), TIMEOUT).map(new Mapper<Object, Boolean>() {
-                public Boolean apply(Object s) {
-                    return (Boolean) ((ExecutionResultMessage) s).getValue();
-                }
-            }, system.dispatcher());
+            return channel.request(new PropertyRequestMessage(PropertyType.CALIBRATION_REQUIRED), TIMEOUT);
+        } else return noDroneConnection();
+    }
+
+    @Override
+    public Future<DroneSnapshot> getSnapshot(PropertyType... types) {
+        if(types.length == 0)
+            return Futures.failed(new IllegalArgumentException("At least one property is required."));
+
+        if(canSend()) {
+            return channel.request(new PropertyRequestMessage(EnumSet.copyOf(Arrays.asList(types))), TIMEOUT);
         } else return noDroneConnection();
     }
 
     @Override
     public Future<byte[]> getImage() {
-        return Patterns.ask(droneActor, new PropertyRequestMessage(PropertyType.IMAGE), TIMEOUT).map(new Mapper<Object, byte[]>() {
-            public byte[] apply(Object s) {
-                return (byte[]) ((ExecutionResultMessage) s).getValue();
-            }
-        }, system.dispatcher());
+        return channel.request(new PropertyRequestMessage(PropertyType.IMAGE), TIMEOUT);
     }
 
     /**
@@ -418,6 +368,28 @@ public class DroneCommander implements DroneControl, DroneStatus {
         droneActor.tell(new SubscribeEventMessage(topics), sub);
     }
 
+    /**
+     * Subscribe to messages of given topic, limiting the rate at which they are delivered.
+     * When messages arrive faster, only the latest value is sent.
+     *
+     * @param sub The actor to which the events have to be sent
+     * @param cl  The topic class of the message to subscribe to
+     * @param maxRate Maximum number of messages per second, unlimited when zero
+     */
+    public void subscribeTopic(final ActorRef sub, Class cl, double maxRate) {
+        subscribeTopics(sub, new Class[]{cl}, maxRate);
+    }
+
+    /**
+     * Subscribe to messages of given topics, limiting the rate at which each topic is delivered.
+     * @param sub The actor to which the events have to be sent
+     * @param topics The topic class of the message to subscribe to
+     * @param maxRate Maximum number of messages per second per topic, unlimited when zero
+     */
+    public void subscribeTopics(final ActorRef sub, Class[] topics, double maxRate){
+        droneActor.tell(new SubscribeEventMessage(topics, maxRate), sub);
+    }
+
     /**
      * Unsubscribe for a given topic
      *
@@ -0,0 +1,25 @@
+package droneapi.api;
+
+/**
+ * Names of the dispatchers the drone-api and the drivers run their actors on, configured in reference.conf.
+ */
+public final class DroneDispatchers {
+
+    /**
+     * Drone actors
+     */
+    public static final String DRONE = "drone-dispatcher";
+
+    /**
+     * Actors handling the network protocol of a drone
+     */
+    public static final String IO = "drone-io-dispatcher";
+
+    /**
+     * Blocking calls, kept apart so they cannot starve the other dispatchers
+     */
+    public static final String BLOCKING = "drone-blocking-dispatcher";
+
+    private DroneDispatchers() {
+    }
+}
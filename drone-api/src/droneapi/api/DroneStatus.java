@@ -20,4 +20,11 @@ public interface DroneStatus {
     Future<Boolean> isGPSFixed();
     Future<Boolean> isOnline();
     Future<Boolean> isCalibrationRequired();
+
+    /**
+     * Reads multiple properties at once in a single request
+     * @param types The properties to read
+     * @return Promise of a consistent snapshot of the requested properties
+     */
+    Future<DroneSnapshot> getSnapshot(PropertyType... types);
 }
@@ -0,0 +1,88 @@
+package droneapi.api;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel that expires the pending commands of all command channels.
+ * A single scheduled tick serves every channel, commands only add themselves to a slot.
+ * There is one wheel per actor system, see {@link #get(ActorSystem)}.
+ */
+class TimeoutWheel implements Extension {
+
+    private static final AbstractExtensionId<TimeoutWheel> ID = new AbstractExtensionId<TimeoutWheel>() {
+        @Override
+        public TimeoutWheel createExtension(ExtendedActorSystem system) {
+            return new TimeoutWheel(system);
+        }
+    };
+
+    /**
+     * @return The wheel of the given actor system, created on first use
+     */
+    static TimeoutWheel get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    private static final long TICK_MILLIS = 100;
+    private static final FiniteDuration TICK = Duration.create(TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+    // Number of slots, must be a power of two. Deadlines further away are checked again each revolution.
+    private static final int SLOTS = 64;
+
+    private final ConcurrentLinkedQueue<CommandChannel.PendingCommand>[] wheel;
+
+    // Only accessed from the tick
+    private long lastTick;
+
+    @SuppressWarnings("unchecked")
+    TimeoutWheel(ActorSystem system) {
+        wheel = new ConcurrentLinkedQueue[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        lastTick = now() / TICK_MILLIS;
+        system.scheduler().schedule(TICK, TICK, this::tick, system.dispatcher());
+    }
+
+    static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    void schedule(CommandChannel.PendingCommand cmd) {
+        // First tick at or after the deadline, so the command has expired once its slot is processed
+        wheel[slot((cmd.deadline + TICK_MILLIS - 1) / TICK_MILLIS)].add(cmd);
+    }
+
+    private void tick() {
+        long now = now();
+        long current = now / TICK_MILLIS;
+
+        // Process every slot passed since the previous tick, at most one revolution
+        for (long t = Math.max(lastTick + 1, current - SLOTS + 1); t <= current; t++) {
+            Iterator<CommandChannel.PendingCommand> it = wheel[slot(t)].iterator();
+            while (it.hasNext()) {
+                CommandChannel.PendingCommand cmd = it.next();
+                if (cmd.isDone()) {
+                    it.remove();
+                } else if (cmd.deadline <= now) {
+                    it.remove();
+                    cmd.channel.expire(cmd);
+                }
+            }
+        }
+        lastTick = current;
+    }
+
+    private static int slot(long tick) {
+        return (int) (tick & (SLOTS - 1));
+    }
+}
@@ -0,0 +1,59 @@
+package droneapi.cluster;
+
+import akka.actor.ActorRef;
+
+import java.io.Serializable;
+
+/**
+ * Message for a sharded drone, routed to the node hosting the drone by its id.
+ * Carries what is needed to (re)create the drone actor on whichever node the drone is placed.
+ */
+public class DroneEnvelope implements Serializable {
+    private final long droneId;
+    private final String driver;
+    private final String address;
+    private final ActorRef proxy;
+    private final long sequence;
+    private final Object message;
+
+    /**
+     * @param droneId Id of the drone, the sharding key
+     * @param driver Key of the driver that creates the drone actor
+     * @param address Network address of the drone
+     * @param proxy Proxy of the drone, which restores the drone after it was moved to another node
+     * @param sequence Number of the envelope among those sent by the proxy, starting at 1
+     * @param message The message for the drone actor, null to only make sure the drone is running
+     */
+    public DroneEnvelope(long droneId, String driver, String address, ActorRef proxy, long sequence, Object message) {
+        this.droneId = droneId;
+        this.driver = driver;
+        this.address = address;
+        this.proxy = proxy;
+        this.sequence = sequence;
+        this.message = message;
+    }
+
+    public long getDroneId() {
+        return droneId;
+    }
+
+    public String getDriver() {
+        return driver;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public ActorRef getProxy() {
+        return proxy;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Object getMessage() {
+        return message;
+    }
+}
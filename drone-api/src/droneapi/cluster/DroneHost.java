@@ -0,0 +1,145 @@
+package droneapi.cluster;
+
+import akka.actor.AbstractActorWithStash;
+import akka.actor.ActorRef;
+import akka.actor.Address;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Props;
+import akka.actor.ReceiveTimeout;
+import akka.actor.Terminated;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import akka.japi.pf.ReceiveBuilder;
+import droneapi.api.DroneDispatchers;
+import droneapi.api.DroneDriver;
+import droneapi.messages.InitRequestMessage;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sharded entry hosting a single drone actor. Creates the drone actor on the first message,
+ * restores its initialization and subscriptions from the drone proxy, and then forwards all messages to it.
+ * Only what an earlier host received is restored: envelopes from the first one on reach this host themselves,
+ * so their requests are answered by the drone instead of being replayed without a sender.
+ */
+public class DroneHost extends AbstractActorWithStash {
+
+    // Time to wait for the setup of the proxy, the drone starts without when the proxy is gone
+    private static final FiniteDuration SETUP_TIMEOUT = Duration.create(5, TimeUnit.SECONDS);
+
+    /**
+     * Requests the setup of a drone from its proxy
+     */
+    public static class SetupRequest implements Serializable {
+    }
+
+    /**
+     * Initialization and subscriptions of a drone to restore on a new node,
+     * each with the sequence number of the envelope that carried it
+     */
+    public static class Setup implements Serializable {
+        private final long initialized;
+        private final List<ActorRef> subscribers;
+        private final List<Object> subscriptions;
+        private final List<Long> sequences;
+
+        /**
+         * @param initialized Envelope carrying the initialization, 0 when not initialized
+         */
+        public Setup(long initialized, List<ActorRef> subscribers, List<Object> subscriptions, List<Long> sequences) {
+            this.initialized = initialized;
+            this.subscribers = new ArrayList<>(subscribers);
+            this.subscriptions = new ArrayList<>(subscriptions);
+            this.sequences = new ArrayList<>(sequences);
+        }
+    }
+
+    /**
+     * Requests the address of the node hosting the drone, answered with an akka.actor.Address
+     */
+    public static class HostRequest implements Serializable {
+    }
+
+    private final LoggingAdapter log = Logging.getLogger(getContext().system(), this);
+
+    private final Function<String, DroneDriver> drivers;
+    private ActorRef drone;
+
+    // Envelope that started this host, the proxy envelopes before it went to an earlier host
+    private long first;
+
+    public DroneHost(Function<String, DroneDriver> drivers) {
+        this.drivers = drivers;
+        receive(ReceiveBuilder.match(DroneEnvelope.class, this::start).build());
+    }
+
+    private void start(DroneEnvelope envelope) {
+        DroneDriver driver = drivers.apply(envelope.getDriver());
+        if (driver == null) {
+            log.error("No driver [{}] for drone [{}] on this node.", envelope.getDriver(), envelope.getDroneId());
+            getContext().stop(self());
+            return;
+        }
+
+        String address = envelope.getAddress();
+        drone = getContext().watch(getContext().actorOf(
+                Props.create(driver.getActorClass(), () -> driver.createActor(address)).withDispatcher(DroneDispatchers.DRONE), "drone"));
+        log.info("Started drone [{}] on [{}].", envelope.getDroneId(), selfAddress());
+
+        // Messages wait until the drone is restored
+        first = envelope.getSequence();
+        stash();
+        envelope.getProxy().tell(new SetupRequest(), self());
+        getContext().setReceiveTimeout(SETUP_TIMEOUT);
+        getContext().become(ReceiveBuilder.
+                match(Setup.class, this::restore).
+                match(ReceiveTimeout.class, s -> {
+                    log.warning("No setup received for drone [{}].", envelope.getDroneId());
+                    activate();
+                }).
+                match(Terminated.class, s -> getContext().stop(self())).
+                matchAny(s -> stash()).build());
+    }
+
+    private void restore(Setup setup) {
+        if (setup.initialized != 0 && setup.initialized < first) {
+            drone.tell(new InitRequestMessage(), ActorRef.noSender());
+        }
+        for (int i = 0; i < setup.subscriptions.size(); i++) {
+            if (setup.sequences.get(i) < first) {
+                drone.tell(setup.subscriptions.get(i), setup.subscribers.get(i));
+            }
+        }
+        activate();
+    }
+
+    private void activate() {
+        getContext().setReceiveTimeout(Duration.Undefined());
+        unstashAll();
+        getContext().become(ReceiveBuilder.
+                match(DroneEnvelope.class, this::deliver).
+                match(Terminated.class, s -> getContext().stop(self())).build());
+    }
+
+    private void deliver(DroneEnvelope envelope) {
+        Object msg = envelope.getMessage();
+        if (msg instanceof HostRequest) {
+            sender().tell(selfAddress(), self());
+        } else if (msg != null) {
+            drone.forward(msg, getContext());
+        }
+    }
+
+    /**
+     * @return Address of this node, the cluster address when the system is a cluster node
+     */
+    private Address selfAddress() {
+        return ((ExtendedActorSystem) getContext().system()).provider().getDefaultAddress();
+    }
+}
@@ -0,0 +1,125 @@
+package droneapi.cluster;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import akka.actor.Status;
+import akka.japi.pf.ReceiveBuilder;
+import droneapi.messages.*;
+import droneapi.model.DroneException;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for a sharded drone actor. Forwards all messages to the shard region, keeping the original sender.
+ * Remembers the initialization and event subscriptions of the drone, so they can be restored when the drone
+ * is recreated on another node.
+ */
+public class DroneProxy extends AbstractActor {
+
+    // Interval in which the drone is restarted on another node when its node left the cluster
+    private static final FiniteDuration KEEP_ALIVE_INTERVAL = Duration.create(5, TimeUnit.SECONDS);
+
+    private static class KeepAliveMessage implements Serializable {
+    }
+
+    private final ActorRef region;
+    private final long droneId;
+    private final String driver;
+    private final String address;
+
+    // Number of the last envelope sent to the region
+    private long sequence = 0;
+
+    // Envelope carrying the first initialization, 0 when not initialized
+    private long initialized = 0;
+
+    // Subscribe and unsubscribe messages, with their subscriber and envelope, in the order they were received
+    private final List<ActorRef> subscribers = new ArrayList<>();
+    private final List<Object> subscriptions = new ArrayList<>();
+    private final List<Long> sequences = new ArrayList<>();
+
+    private final Cancellable keepAlive;
+
+    public DroneProxy(ActorRef region, long droneId, String driver, String address) {
+        this.region = region;
+        this.droneId = droneId;
+        this.driver = driver;
+        this.address = address;
+
+        keepAlive = getContext().system().scheduler().schedule(KEEP_ALIVE_INTERVAL, KEEP_ALIVE_INTERVAL, self(),
+                new KeepAliveMessage(), getContext().dispatcher(), self());
+
+        receive(ReceiveBuilder.
+                match(DroneHost.SetupRequest.class, s -> sender().tell(
+                        new DroneHost.Setup(initialized, subscribers, subscriptions, sequences), self())).
+                match(KeepAliveMessage.class, s -> region.tell(envelope(null), self())).
+                matchAny(this::forward).build());
+    }
+
+    @Override
+    public void postStop() throws Exception {
+        keepAlive.cancel();
+        super.postStop();
+    }
+
+    private DroneEnvelope envelope(Object msg) {
+        return new DroneEnvelope(droneId, driver, address, self(), ++sequence, msg);
+    }
+
+    private void forward(Object msg) {
+        long correlationId = msg instanceof CorrelatedMessage ? ((CorrelatedMessage) msg).getId() : 0;
+        Object request = correlationId != 0 ? ((CorrelatedMessage) msg).getMessage() : msg;
+
+        if (request instanceof PropertyStoreRequestMessage) {
+            // The store would go stale once the drone moves to another node
+            Object failure = new Status.Failure(new DroneException("PropertyStore is not available for sharded drones."));
+            sender().tell(correlationId != 0 ? new CorrelatedMessage(correlationId, failure) : failure, self());
+            return;
+        }
+
+        DroneEnvelope envelope = envelope(msg);
+        if (request instanceof InitRequestMessage) {
+            if (initialized == 0) {
+                initialized = envelope.getSequence();
+            }
+        } else if (request instanceof SubscribeEventMessage) {
+            remember(sender(), request, envelope.getSequence());
+        } else if (request instanceof UnsubscribeEventMessage) {
+            if (((UnsubscribeEventMessage) request).getSubscribedClass() == null) {
+                forget(sender());
+            } else {
+                remember(sender(), request, envelope.getSequence());
+            }
+        }
+
+        region.forward(envelope, getContext());
+
+        if (request instanceof StopMessage) {
+            getContext().stop(self());
+        }
+    }
+
+    private void remember(ActorRef subscriber, Object msg, long sequence) {
+        if (subscriber != null && !subscriber.equals(getContext().system().deadLetters())) {
+            subscribers.add(subscriber);
+            subscriptions.add(msg);
+            sequences.add(sequence);
+        }
+    }
+
+    private void forget(ActorRef subscriber) {
+        for (int i = subscribers.size() - 1; i >= 0; i--) {
+            if (subscribers.get(i).equals(subscriber)) {
+                subscribers.remove(i);
+                subscriptions.remove(i);
+                sequences.remove(i);
+            }
+        }
+    }
+}
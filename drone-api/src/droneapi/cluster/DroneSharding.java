@@ -0,0 +1,73 @@
+package droneapi.cluster;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.contrib.pattern.ClusterSharding;
+import akka.contrib.pattern.ShardRegion;
+import droneapi.api.DroneDriver;
+
+import java.util.function.Function;
+
+/**
+ * Places drone actors on the nodes of an Akka cluster, sharded by drone id.
+ * Drones are moved to other nodes when nodes join or leave the cluster. A DroneProxy on the node that
+ * controls the drone forwards all messages to the current location, so DroneCommanders are not aware of sharding.
+ *
+ * The shard coordinator uses Akka persistence, a journal shared by all nodes must be configured.
+ */
+public class DroneSharding {
+
+    public static final String TYPE_NAME = "drone";
+
+    private DroneSharding() {
+    }
+
+    /**
+     * Starts the drone shard region on this node
+     *
+     * @param drivers Resolves a driver key to the driver creating the drone actor,
+     *                null when this node should not host any drones
+     * @return The shard region
+     */
+    public static ActorRef start(ActorSystem system, Function<String, DroneDriver> drivers) {
+        int shards = system.settings().config().getInt("drone-sharding.shards");
+        Props host = drivers == null ? null : Props.create(DroneHost.class, () -> new DroneHost(drivers));
+        return ClusterSharding.get(system).start(TYPE_NAME, host, new DroneMessageExtractor(shards));
+    }
+
+    /**
+     * @param region The drone shard region of this node
+     * @param droneId Id of the drone
+     * @param driver Key of the driver that creates the drone actor
+     * @param address Network address of the drone
+     * @return Props of a local proxy to use as drone actor
+     */
+    public static Props proxyProps(ActorRef region, long droneId, String driver, String address) {
+        return Props.create(DroneProxy.class, () -> new DroneProxy(region, droneId, driver, address));
+    }
+
+    private static class DroneMessageExtractor implements ShardRegion.MessageExtractor {
+
+        private final int shards;
+
+        private DroneMessageExtractor(int shards) {
+            this.shards = shards;
+        }
+
+        @Override
+        public String entryId(Object message) {
+            return message instanceof DroneEnvelope ? Long.toString(((DroneEnvelope) message).getDroneId()) : null;
+        }
+
+        @Override
+        public Object entryMessage(Object message) {
+            return message; // the host needs the envelope to create the drone actor
+        }
+
+        @Override
+        public String shardId(Object message) {
+            return message instanceof DroneEnvelope ? Long.toString(((DroneEnvelope) message).getDroneId() % shards) : null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package droneapi.geo;
+
+/**
+ * Mutable result holder for geodesy calculations, reused by the caller to avoid allocations.
+ */
+public class DistanceBearing {
+
+    private double distance;
+    private double bearing;
+
+    /**
+     * @return Distance in meters
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return Initial bearing in degrees, [0, 360[ clockwise from north
+     */
+    public double getBearing() {
+        return bearing;
+    }
+
+    void set(double distance, double bearing) {
+        this.distance = distance;
+        this.bearing = bearing;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DistanceBearing{distance=%f, bearing=%f}", distance, bearing);
+    }
+}
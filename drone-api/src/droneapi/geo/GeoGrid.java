@@ -0,0 +1,215 @@
+package droneapi.geo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index of points on a grid of equal sized latitude/longitude cells, answering nearest neighbour and
+ * radius queries by searching rings of cells around the query location until no closer point can exist.
+ * When the rings would visit more cells than there are points, e.g. to reach a far outlier, the points are scanned.
+ * Points are moved incrementally and queries run concurrently with updates. Each key must be updated by one thread
+ * at a time. Distances are great circle distances in meters.
+ */
+public class GeoGrid<K> {
+
+    private static final double METERS_PER_DEGREE = Geodesy.EARTH_RADIUS * Math.PI / 180;
+
+    private static final class Point<K> {
+        private final K key;
+        private final double latitude;
+        private final double longitude;
+        private final long cell;
+
+        private Point(K key, double latitude, double longitude, long cell) {
+            this.key = key;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cell = cell;
+        }
+    }
+
+    private static final class Candidate<K> {
+        private final K key;
+        private final double distance;
+
+        private Candidate(K key, double distance) {
+            this.key = key;
+            this.distance = distance;
+        }
+    }
+
+    private final double cellSize;
+    private final int rows;
+    private final int columns;
+
+    private final ConcurrentMap<K, Point<K>> points = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Set<Point<K>>> cells = new ConcurrentHashMap<>();
+
+    /**
+     * @param cellSize Size of a cell in degrees, about the distance of a typical query works best
+     */
+    public GeoGrid(double cellSize) {
+        if (cellSize <= 0 || cellSize > 90) {
+            throw new IllegalArgumentException("Cell size must be in ]0, 90] degrees.");
+        }
+        this.cellSize = cellSize;
+        this.rows = (int) Math.ceil(180 / cellSize);
+        this.columns = (int) Math.ceil(360 / cellSize);
+    }
+
+    /**
+     * Adds a point or moves it to a new location
+     */
+    public void put(K key, double latitude, double longitude) {
+        Point<K> point = new Point<>(key, latitude, longitude, cell(row(latitude), column(longitude)));
+        // Added to its new cell before it leaves the old one, queries skip the outdated entry
+        cells.compute(point.cell, (c, set) -> {
+            Set<Point<K>> result = set == null ? ConcurrentHashMap.newKeySet() : set;
+            result.add(point);
+            return result;
+        });
+        Point<K> old = points.put(key, point);
+        if (old != null) {
+            removeFromCell(old);
+        }
+    }
+
+    public void remove(K key) {
+        Point<K> old = points.remove(key);
+        if (old != null) {
+            removeFromCell(old);
+        }
+    }
+
+    private void removeFromCell(Point<K> point) {
+        cells.computeIfPresent(point.cell, (c, set) -> {
+            set.remove(point);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public boolean contains(K key) {
+        return points.containsKey(key);
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * @param k Maximum number of points to return
+     * @param maxDistance Maximum distance in meters of the returned points
+     * @param filter Points to consider
+     * @return The k points closest to the given location, ordered by increasing distance
+     */
+    public List<K> nearest(double latitude, double longitude, int k, double maxDistance, Predicate<? super K> filter) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Farthest candidate on top, so it is replaced first by a closer point
+        PriorityQueue<Candidate<K>> best = new PriorityQueue<>(Math.min(k, 64),
+                Comparator.<Candidate<K>>comparingDouble(c -> c.distance).reversed());
+        int row = row(latitude);
+        int column = column(longitude);
+        int seen = 0;
+        int probed = 0;
+        for (int r = 0; seen < points.size(); r++) {
+            double bound = ringBound(latitude, r);
+            if (bound > maxDistance || (best.size() == k && bound >= best.peek().distance)) {
+                break;
+            }
+            if (2 * r + 1 > columns || r > rows || probed + 8 * r > points.size()) {
+                // The ring wraps around the globe or costs more than a scan, all points are compared directly
+                best.clear();
+                for (Point<K> point : points.values()) {
+                    offer(best, k, point, latitude, longitude, maxDistance, filter);
+                }
+                break;
+            }
+            for (int dr = -r; dr <= r; dr++) {
+                int step = Math.abs(dr) == r ? 1 : Math.max(1, 2 * r);
+                for (int dc = -r; dc <= r; dc += step) {
+                    int cellRow = row + dr;
+                    if (cellRow < 0 || cellRow >= rows) {
+                        continue;
+                    }
+                    probed++;
+                    Set<Point<K>> cell = cells.get(cell(cellRow, Math.floorMod(column + dc, columns)));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Point<K> point : cell) {
+                        if (points.get(point.key) == point) {
+                            seen++;
+                            offer(best, k, point, latitude, longitude, maxDistance, filter);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<K> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().key);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * @return All points within the given distance in meters, ordered by increasing distance
+     */
+    public List<K> within(double latitude, double longitude, double radius, Predicate<? super K> filter) {
+        return nearest(latitude, longitude, Integer.MAX_VALUE, radius, filter);
+    }
+
+    private void offer(PriorityQueue<Candidate<K>> best, int k, Point<K> point, double latitude, double longitude,
+                       double maxDistance, Predicate<? super K> filter) {
+        if (!filter.test(point.key)) {
+            return;
+        }
+        double distance = Geodesy.distance(Geodesy.Tier.HAVERSINE, latitude, longitude, point.latitude, point.longitude);
+        if (distance <= maxDistance && (best.size() < k || distance < best.peek().distance)) {
+            if (best.size() == k) {
+                best.poll();
+            }
+            best.add(new Candidate<>(point.key, distance));
+        }
+    }
+
+    /**
+     * Lower bound of the distance to any point in ring r or beyond. Such a point differs at least r - 1 cells
+     * in latitude, or in longitude while staying within r cells of the query latitude.
+     */
+    private double ringBound(double latitude, int r) {
+        if (r <= 1) {
+            return 0;
+        }
+        double degrees = (r - 1) * cellSize;
+        double latitudeBound = degrees * METERS_PER_DEGREE;
+        double maxLatitude = Math.toRadians(Math.min(90, Math.abs(latitude) + (r + 1) * cellSize));
+        double longitudeBound = 2 * Geodesy.EARTH_RADIUS *
+                Math.asin(Math.min(1, Math.cos(maxLatitude) * Math.sin(Math.toRadians(degrees) / 2)));
+        return Math.min(latitudeBound, longitudeBound);
+    }
+
+    private int row(double latitude) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellSize)));
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellSize), columns);
+    }
+
+    private long cell(int row, int column) {
+        return (long) row * columns + column;
+    }
+}
@@ -0,0 +1,235 @@
+package droneapi.geo;
+
+/**
+ * Distance and bearing calculations between WGS84 coordinates (decimal degrees) with selectable accuracy.
+ * None of the methods allocate: results are returned as primitives or written into caller supplied holders.
+ */
+public final class Geodesy {
+
+    public enum Tier {
+        /**
+         * Flat earth approximation in a local east-north plane, using the WGS84 radii of curvature.
+         * Error stays below a centimeter for distances up to 1 km.
+         */
+        LOCAL,
+        /**
+         * Great circle distance on a sphere with the mean earth radius. Error up to 0.5%.
+         */
+        HAVERSINE,
+        /**
+         * Vincenty's inverse formula on the WGS84 ellipsoid. Accurate to a millimeter, iterative.
+         */
+        VINCENTY,
+        /**
+         * LOCAL for distances below {@link #LOCAL_RANGE}, VINCENTY otherwise.
+         */
+        AUTO
+    }
+
+    // Maximum distance in meters for which the AUTO tier uses the local approximation
+    public static final double LOCAL_RANGE = 1000d;
+
+    // Mean earth radius in meters, used by the spherical approximation
+    public static final double EARTH_RADIUS = 6371000d;
+
+    // WGS84 ellipsoid
+    private static final double A = 6378137.0; // semi-major axis
+    private static final double B = 6356752.3142; // semi-minor axis
+    private static final double F = (A - B) / A;
+    private static final double E2 = F * (2 - F); // first eccentricity squared
+    private static final double A_SQ_MINUS_B_SQ_OVER_B_SQ = (A * A - B * B) / (B * B);
+
+    private static final int VINCENTY_MAX_ITERATIONS = 20;
+
+    private Geodesy() {
+    }
+
+    /**
+     * @return Distance in meters between both coordinates
+     */
+    public static double distance(Tier tier, double lat1, double lon1, double lat2, double lon2) {
+        switch (tier) {
+            case LOCAL:
+                return local(lat1, lon1, lat2, lon2, null);
+            case HAVERSINE:
+                return haversine(lat1, lon1, lat2, lon2, null);
+            case VINCENTY:
+                return vincenty(lat1, lon1, lat2, lon2, null);
+            default:
+                double d = local(lat1, lon1, lat2, lon2, null);
+                return d < LOCAL_RANGE ? d : vincenty(lat1, lon1, lat2, lon2, null);
+        }
+    }
+
+    /**
+     * Calculates the distance and initial bearing from the first to the second coordinate.
+     *
+     * @param result Holder the distance and bearing are written to
+     */
+    public static void compute(Tier tier, double lat1, double lon1, double lat2, double lon2, DistanceBearing result) {
+        switch (tier) {
+            case LOCAL:
+                local(lat1, lon1, lat2, lon2, result);
+                break;
+            case HAVERSINE:
+                haversine(lat1, lon1, lat2, lon2, result);
+                break;
+            case VINCENTY:
+                vincenty(lat1, lon1, lat2, lon2, result);
+                break;
+            default:
+                if (local(lat1, lon1, lat2, lon2, result) >= LOCAL_RANGE) {
+                    vincenty(lat1, lon1, lat2, lon2, result);
+                }
+        }
+    }
+
+    /**
+     * Calculates the distances from one coordinate to many others.
+     *
+     * @param lats Latitudes of the other coordinates
+     * @param lons Longitudes of the other coordinates
+     * @param distances Receives the distance in meters to each of the coordinates
+     * @param count Number of coordinates to process
+     */
+    public static void distances(Tier tier, double lat, double lon, double[] lats, double[] lons, double[] distances, int count) {
+        for (int i = 0; i < count; i++) {
+            distances[i] = distance(tier, lat, lon, lats[i], lons[i]);
+        }
+    }
+
+    /**
+     * @param lats Latitudes of the consecutive points of the path
+     * @param lons Longitudes of the consecutive points of the path
+     * @param count Number of points in the path
+     * @return Total length in meters of the path
+     */
+    public static double pathLength(Tier tier, double[] lats, double[] lons, int count) {
+        double length = 0;
+        for (int i = 1; i < count; i++) {
+            length += distance(tier, lats[i - 1], lons[i - 1], lats[i], lons[i]);
+        }
+        return length;
+    }
+
+    private static double local(double lat1, double lon1, double lat2, double lon2, DistanceBearing result) {
+        double phi = Math.toRadians((lat1 + lat2) / 2);
+        double sinPhi = Math.sin(phi);
+        double w2 = 1 - E2 * sinPhi * sinPhi;
+        double w = Math.sqrt(w2);
+        double n = A / w; // prime vertical radius
+        double m = n * (1 - E2) / w2; // meridian radius
+
+        double dLon = lon2 - lon1;
+        if (dLon > 180) {
+            dLon -= 360;
+        } else if (dLon < -180) {
+            dLon += 360;
+        }
+        double east = Math.toRadians(dLon) * n * Math.cos(phi);
+        double north = Math.toRadians(lat2 - lat1) * m;
+        double distance = Math.sqrt(east * east + north * north);
+        if (result != null) {
+            result.set(distance, normalizeBearing(Math.toDegrees(Math.atan2(east, north))));
+        }
+        return distance;
+    }
+
+    // Source: http://www.movable-type.co.uk/scripts/latlong.html
+    private static double haversine(double lat1, double lon1, double lat2, double lon2, DistanceBearing result) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dLambda = Math.toRadians(lon2 - lon1);
+        double sinDPhi = Math.sin((phi2 - phi1) / 2);
+        double sinDLambda = Math.sin(dLambda / 2);
+        double cosPhi1 = Math.cos(phi1);
+        double cosPhi2 = Math.cos(phi2);
+
+        double a = sinDPhi * sinDPhi + cosPhi1 * cosPhi2 * sinDLambda * sinDLambda;
+        double distance = EARTH_RADIUS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        if (result != null) {
+            double y = Math.sin(dLambda) * cosPhi2;
+            double x = cosPhi1 * Math.sin(phi2) - Math.sin(phi1) * cosPhi2 * Math.cos(dLambda);
+            result.set(distance, normalizeBearing(Math.toDegrees(Math.atan2(y, x))));
+        }
+        return distance;
+    }
+
+    // Based on http://www.ngs.noaa.gov/PUBS_LIB/inverse.pdf using the "Inverse Formula" (section 4)
+    // Source: https://android.googlesource.com/platform/frameworks/base/+/refs/heads/master/location/java/android/location/Location.java
+    private static double vincenty(double lat1, double lon1, double lat2, double lon2, DistanceBearing result) {
+        lat1 = Math.toRadians(lat1);
+        lat2 = Math.toRadians(lat2);
+        double L = Math.toRadians(lon2 - lon1);
+        double A2 = 0.0;
+        double U1 = Math.atan((1.0 - F) * Math.tan(lat1));
+        double U2 = Math.atan((1.0 - F) * Math.tan(lat2));
+        double cosU1 = Math.cos(U1);
+        double cosU2 = Math.cos(U2);
+        double sinU1 = Math.sin(U1);
+        double sinU2 = Math.sin(U2);
+        double cosU1cosU2 = cosU1 * cosU2;
+        double sinU1sinU2 = sinU1 * sinU2;
+        double sigma = 0.0;
+        double deltaSigma = 0.0;
+        double cosSqAlpha;
+        double cos2SM;
+        double cosSigma;
+        double sinSigma;
+        double cosLambda = 0.0;
+        double sinLambda = 0.0;
+        double lambda = L; // initial guess
+        for (int iter = 0; iter < VINCENTY_MAX_ITERATIONS; iter++) {
+            double lambdaOrig = lambda;
+            cosLambda = Math.cos(lambda);
+            sinLambda = Math.sin(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            double sinSqSigma = t1 * t1 + t2 * t2; // (14)
+            sinSigma = Math.sqrt(sinSqSigma);
+            cosSigma = sinU1sinU2 + cosU1cosU2 * cosLambda; // (15)
+            sigma = Math.atan2(sinSigma, cosSigma); // (16)
+            double sinAlpha = (sinSigma == 0) ? 0.0 :
+                    cosU1cosU2 * sinLambda / sinSigma; // (17)
+            cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+            cos2SM = (cosSqAlpha == 0) ? 0.0 :
+                    cosSigma - 2.0 * sinU1sinU2 / cosSqAlpha; // (18)
+            double uSquared = cosSqAlpha * A_SQ_MINUS_B_SQ_OVER_B_SQ; // defn
+            A2 = 1 + (uSquared / 16384.0) * // (3)
+                    (4096.0 + uSquared *
+                            (-768 + uSquared * (320.0 - 175.0 * uSquared)));
+            double B2 = (uSquared / 1024.0) * // (4)
+                    (256.0 + uSquared *
+                            (-128.0 + uSquared * (74.0 - 47.0 * uSquared)));
+            double C = (F / 16.0) *
+                    cosSqAlpha *
+                    (4.0 + F * (4.0 - 3.0 * cosSqAlpha)); // (10)
+            double cos2SMSq = cos2SM * cos2SM;
+            deltaSigma = B2 * sinSigma * // (6)
+                    (cos2SM + (B2 / 4.0) *
+                            (cosSigma * (-1.0 + 2.0 * cos2SMSq) -
+                                    (B2 / 6.0) * cos2SM *
+                                            (-3.0 + 4.0 * sinSigma * sinSigma) *
+                                            (-3.0 + 4.0 * cos2SMSq)));
+            lambda = L +
+                    (1.0 - C) * F * sinAlpha *
+                            (sigma + C * sinSigma *
+                                    (cos2SM + C * cosSigma *
+                                            (-1.0 + 2.0 * cos2SM * cos2SM))); // (11)
+            double delta = (lambda - lambdaOrig) / lambda;
+            if (Math.abs(delta) < 1.0e-12) {
+                break;
+            }
+        }
+        double distance = B * A2 * (sigma - deltaSigma);
+        if (result != null) {
+            double bearing = Math.atan2(cosU2 * sinLambda, cosU1 * sinU2 - sinU1 * cosU2 * cosLambda);
+            result.set(distance, normalizeBearing(Math.toDegrees(bearing)));
+        }
+        return distance;
+    }
+
+    private static double normalizeBearing(double degrees) {
+        return degrees < 0 ? degrees + 360 : degrees;
+    }
+}
@@ -0,0 +1,28 @@
+package droneapi.messages;
+
+import java.io.Serializable;
+
+/**
+ * Wraps a request or its reply with the correlation id of the command it belongs to.
+ */
+public class CorrelatedMessage implements Serializable {
+    private long id;
+    private Object message;
+
+    /**
+     * @param id Correlation id of the command, never zero
+     * @param message The wrapped request or reply
+     */
+    public CorrelatedMessage(long id, Object message) {
+        this.id = id;
+        this.message = message;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Object getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,693 @@
+package droneapi.messages;
+
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.JSerializer;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import droneapi.cluster.DroneEnvelope;
+import droneapi.model.properties.*;
+import scala.Option;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Akka serializer for the drone-api messages and property values, bound to them in reference.conf.
+ * Every message is written as a one byte type id followed by its fields in a fixed binary layout.
+ * Nested values of unknown types are written with the serializer Akka has configured for them.
+ */
+public class MessageSerializer extends JSerializer {
+
+    // Unique among the serializers of an actor system, ids up to 40 are reserved for Akka
+    public static final int IDENTIFIER = 7401;
+
+    /*
+     * Type ids are part of the wire format. Never change or reuse one, only add new ids.
+     * Enums are written by ordinal, so new constants may only be added at the end.
+     */
+    private static final int ALTITUDE_CHANGED = 1;
+    private static final int ALERT_STATE_CHANGED = 2;
+    private static final int BATTERY_PERCENTAGE_CHANGED = 3;
+    private static final int CALIBRATE_REQUEST = 4;
+    private static final int CONNECTION_STATUS_CHANGED = 5;
+    private static final int CORRELATED = 6;
+    private static final int EMERGENCY_REQUEST = 7;
+    private static final int EXECUTION_RESULT = 8;
+    private static final int FLAT_TRIM_CHANGED = 9;
+    private static final int FLAT_TRIM_REQUEST = 10;
+    private static final int FLIP_REQUEST = 11;
+    private static final int FLYING_STATE_CHANGED = 12;
+    private static final int GPS_FIX_CHANGED = 13;
+    private static final int IMAGE = 14;
+    private static final int INIT_REQUEST = 15;
+    private static final int INIT_VIDEO_REQUEST = 16;
+    private static final int LAND_REQUEST = 17;
+    private static final int LOCATION_CHANGED = 18;
+    private static final int MAGNETO_CALIBRATION_STATE_CHANGED = 19;
+    private static final int MOVE_REQUEST = 20;
+    private static final int MOVE_TO_LOCATION_CANCELLATION = 21;
+    private static final int MOVE_TO_LOCATION_REQUEST = 22;
+    private static final int NAVIGATION_STATE_CHANGED = 23;
+    private static final int PRODUCT_VERSION_CHANGED = 24;
+    private static final int PROPERTY_REQUEST = 25;
+    private static final int PROPERTY_STORE_REQUEST = 26;
+    private static final int ROTATION_CHANGED = 27;
+    private static final int SET_HULL_REQUEST = 28;
+    private static final int SET_MAX_HEIGHT_REQUEST = 29;
+    private static final int SET_MAX_TILT_REQUEST = 30;
+    private static final int SET_OUTDOOR_REQUEST = 31;
+    private static final int SPEED_CHANGED = 32;
+    private static final int STOP = 33;
+    private static final int STOP_VIDEO_REQUEST = 34;
+    private static final int SUBSCRIBE_EVENT = 35;
+    private static final int TAKE_OFF_REQUEST = 36;
+    private static final int UNSUBSCRIBE_EVENT = 37;
+
+    // Property values
+    private static final int LOCATION = 64;
+    private static final int ROTATION = 65;
+    private static final int SPEED = 66;
+    private static final int DRONE_VERSION = 67;
+    private static final int DRONE_SNAPSHOT = 68;
+
+    // Cluster
+    private static final int DRONE_ENVELOPE = 96;
+
+    // Tags of nested values, such as replies and snapshot values
+    private static final byte NULL = 0;
+    private static final byte BYTE = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte STRING = 7;
+    private static final byte BYTES = 8;
+    private static final byte ENUM = 9;
+    private static final byte MESSAGE = 10;
+    private static final byte OTHER = 11;
+
+    // Enums that can be nested values, by index. Only add new enums at the end.
+    private static final Class<?>[] ENUMS = {
+            AlertState.class, ConnectionStatus.class, FlipType.class, FlyingState.class,
+            NavigationState.class, NavigationStateReason.class, PropertyType.class
+    };
+
+    private static final Map<Class<?>, Integer> TYPE_IDS = new HashMap<>();
+
+    static {
+        register(ALTITUDE_CHANGED, AltitudeChangedMessage.class);
+        register(ALERT_STATE_CHANGED, AlertStateChangedMessage.class);
+        register(BATTERY_PERCENTAGE_CHANGED, BatteryPercentageChangedMessage.class);
+        register(CALIBRATE_REQUEST, CalibrateRequestMessage.class);
+        register(CONNECTION_STATUS_CHANGED, ConnectionStatusChangedMessage.class);
+        register(CORRELATED, CorrelatedMessage.class);
+        register(EMERGENCY_REQUEST, EmergencyRequestMessage.class);
+        register(EXECUTION_RESULT, ExecutionResultMessage.class);
+        register(FLAT_TRIM_CHANGED, FlatTrimChangedMessage.class);
+        register(FLAT_TRIM_REQUEST, FlatTrimRequestMessage.class);
+        register(FLIP_REQUEST, FlipRequestMessage.class);
+        register(FLYING_STATE_CHANGED, FlyingStateChangedMessage.class);
+        register(GPS_FIX_CHANGED, GPSFixChangedMessage.class);
+        register(IMAGE, ImageMessage.class);
+        register(INIT_REQUEST, InitRequestMessage.class);
+        register(INIT_VIDEO_REQUEST, InitVideoRequestMessage.class);
+        register(LAND_REQUEST, LandRequestMessage.class);
+        register(LOCATION_CHANGED, LocationChangedMessage.class);
+        register(MAGNETO_CALIBRATION_STATE_CHANGED, MagnetoCalibrationStateChangedMessage.class);
+        register(MOVE_REQUEST, MoveRequestMessage.class);
+        register(MOVE_TO_LOCATION_CANCELLATION, MoveToLocationCancellationMessage.class);
+        register(MOVE_TO_LOCATION_REQUEST, MoveToLocationRequestMessage.class);
+        register(NAVIGATION_STATE_CHANGED, NavigationStateChangedMessage.class);
+        register(PRODUCT_VERSION_CHANGED, ProductVersionChangedMessage.class);
+        register(PROPERTY_REQUEST, PropertyRequestMessage.class);
+        register(PROPERTY_STORE_REQUEST, PropertyStoreRequestMessage.class);
+        register(ROTATION_CHANGED, RotationChangedMessage.class);
+        register(SET_HULL_REQUEST, SetHullRequestMessage.class);
+        register(SET_MAX_HEIGHT_REQUEST, SetMaxHeightRequestMessage.class);
+        register(SET_MAX_TILT_REQUEST, SetMaxTiltRequestMessage.class);
+        register(SET_OUTDOOR_REQUEST, SetOutdoorRequestMessage.class);
+        register(SPEED_CHANGED, SpeedChangedMessage.class);
+        register(STOP, StopMessage.class);
+        register(STOP_VIDEO_REQUEST, StopVideoRequestMessage.class);
+        register(SUBSCRIBE_EVENT, SubscribeEventMessage.class);
+        register(TAKE_OFF_REQUEST, TakeOffRequestMessage.class);
+        register(UNSUBSCRIBE_EVENT, UnsubscribeEventMessage.class);
+
+        register(LOCATION, Location.class);
+        register(ROTATION, Rotation.class);
+        register(SPEED, Speed.class);
+        register(DRONE_VERSION, DroneVersion.class);
+        register(DRONE_SNAPSHOT, DroneSnapshot.class);
+
+        register(DRONE_ENVELOPE, DroneEnvelope.class);
+    }
+
+    private static void register(int id, Class<?> type) {
+        if (TYPE_IDS.containsValue(id) || TYPE_IDS.put(type, id) != null) {
+            throw new IllegalStateException("Duplicate serializer registration: " + type);
+        }
+    }
+
+    private final ExtendedActorSystem system;
+
+    // Resolved on first use, the serializer is created while the extension is initialized
+    private Serialization serialization;
+
+    public MessageSerializer(ExtendedActorSystem system) {
+        this.system = system;
+    }
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public boolean includeManifest() {
+        return false;
+    }
+
+    @Override
+    public byte[] toBinary(Object o) {
+        Output out = new Output(o instanceof ImageMessage ? 64 + ((ImageMessage) o).getByteData().length : 64);
+        writeMessage(out, o);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object fromBinaryJava(byte[] bytes, Class<?> manifest) {
+        return readMessage(ByteBuffer.wrap(bytes));
+    }
+
+    private void writeMessage(Output out, Object o) {
+        Integer id = TYPE_IDS.get(o.getClass());
+        if (id == null) {
+            throw new IllegalArgumentException("Cannot serialize " + o.getClass().getName());
+        }
+        out.writeByte(id);
+        switch (id) {
+            case ALTITUDE_CHANGED:
+                out.writeDouble(((AltitudeChangedMessage) o).getAltitude());
+                break;
+            case ALERT_STATE_CHANGED:
+                out.writeEnum(((AlertStateChangedMessage) o).getState());
+                break;
+            case BATTERY_PERCENTAGE_CHANGED:
+                out.writeByte(((BatteryPercentageChangedMessage) o).getPercent());
+                break;
+            case CALIBRATE_REQUEST:
+                CalibrateRequestMessage calibrate = (CalibrateRequestMessage) o;
+                out.writeBoolean(calibrate.hasHull());
+                out.writeBoolean(calibrate.isOutdoor());
+                break;
+            case CONNECTION_STATUS_CHANGED:
+                out.writeBoolean(((ConnectionStatusChangedMessage) o).isConnected());
+                break;
+            case CORRELATED:
+                CorrelatedMessage correlated = (CorrelatedMessage) o;
+                out.writeLong(correlated.getId());
+                writeValue(out, correlated.getMessage());
+                break;
+            case EXECUTION_RESULT:
+                writeValue(out, ((ExecutionResultMessage) o).getValue());
+                break;
+            case FLIP_REQUEST:
+                out.writeEnum(((FlipRequestMessage) o).getFlip());
+                break;
+            case FLYING_STATE_CHANGED:
+                out.writeEnum(((FlyingStateChangedMessage) o).getState());
+                break;
+            case GPS_FIX_CHANGED:
+                out.writeBoolean(((GPSFixChangedMessage) o).isFixed());
+                break;
+            case IMAGE:
+                out.writeBytes(((ImageMessage) o).getByteData());
+                break;
+            case LOCATION_CHANGED:
+                LocationChangedMessage location = (LocationChangedMessage) o;
+                out.writeDoubles(location.getLatitude(), location.getLongitude(), location.getGpsHeight());
+                break;
+            case MAGNETO_CALIBRATION_STATE_CHANGED:
+                out.writeBoolean(((MagnetoCalibrationStateChangedMessage) o).isCalibrationRequired());
+                break;
+            case MOVE_REQUEST:
+                MoveRequestMessage move = (MoveRequestMessage) o;
+                out.writeDoubles(move.getVx(), move.getVy(), move.getVz());
+                out.writeDouble(move.getVr());
+                break;
+            case MOVE_TO_LOCATION_REQUEST:
+                MoveToLocationRequestMessage moveTo = (MoveToLocationRequestMessage) o;
+                out.writeDoubles(moveTo.getLatitude(), moveTo.getLongitude(), moveTo.getAltitude());
+                break;
+            case NAVIGATION_STATE_CHANGED:
+                NavigationStateChangedMessage navigation = (NavigationStateChangedMessage) o;
+                out.writeEnum(navigation.getState());
+                out.writeEnum(navigation.getReason());
+                break;
+            case PRODUCT_VERSION_CHANGED:
+                ProductVersionChangedMessage product = (ProductVersionChangedMessage) o;
+                out.writeString(product.getSoftware());
+                out.writeString(product.getHardware());
+                break;
+            case PROPERTY_REQUEST:
+                PropertyRequestMessage request = (PropertyRequestMessage) o;
+                out.writeBoolean(request.isSnapshotRequest());
+                if (request.isSnapshotRequest()) {
+                    out.writeLong(mask(request.getTypes()));
+                } else {
+                    out.writeEnum(request.getType());
+                }
+                break;
+            case ROTATION_CHANGED:
+                RotationChangedMessage rotation = (RotationChangedMessage) o;
+                out.writeDoubles(rotation.getRoll(), rotation.getPitch(), rotation.getYaw());
+                break;
+            case SET_HULL_REQUEST:
+                out.writeBoolean(((SetHullRequestMessage) o).hasHull());
+                break;
+            case SET_MAX_HEIGHT_REQUEST:
+                out.writeFloat(((SetMaxHeightRequestMessage) o).getMeters());
+                break;
+            case SET_MAX_TILT_REQUEST:
+                out.writeFloat(((SetMaxTiltRequestMessage) o).getDegrees());
+                break;
+            case SET_OUTDOOR_REQUEST:
+                out.writeBoolean(((SetOutdoorRequestMessage) o).isOutdoor());
+                break;
+            case SPEED_CHANGED:
+                SpeedChangedMessage speed = (SpeedChangedMessage) o;
+                out.writeDoubles(speed.getSpeedX(), speed.getSpeedY(), speed.getSpeedZ());
+                break;
+            case SUBSCRIBE_EVENT:
+                SubscribeEventMessage subscribe = (SubscribeEventMessage) o;
+                Class[] classes = subscribe.getSubscribedClasses();
+                out.writeInt(classes == null ? -1 : classes.length);
+                if (classes != null) {
+                    for (Class c : classes) {
+                        out.writeString(c.getName());
+                    }
+                }
+                out.writeDouble(subscribe.getMaxRate());
+                break;
+            case UNSUBSCRIBE_EVENT:
+                Class unsubscribed = ((UnsubscribeEventMessage) o).getSubscribedClass();
+                out.writeString(unsubscribed == null ? null : unsubscribed.getName());
+                break;
+
+            case LOCATION:
+                Location l = (Location) o;
+                out.writeDoubles(l.getLatitude(), l.getLongitude(), l.getHeight());
+                break;
+            case ROTATION:
+                Rotation r = (Rotation) o;
+                out.writeDoubles(r.getRoll(), r.getPitch(), r.getYaw());
+                break;
+            case SPEED:
+                Speed s = (Speed) o;
+                out.writeDoubles(s.getVx(), s.getVy(), s.getVz());
+                break;
+            case DRONE_VERSION:
+                DroneVersion version = (DroneVersion) o;
+                out.writeString(version.getSoftware());
+                out.writeString(version.getHardware());
+                break;
+            case DRONE_SNAPSHOT:
+                DroneSnapshot snapshot = (DroneSnapshot) o;
+                out.writeLong(snapshot.getTimestamp());
+                long mask = 0;
+                for (PropertyType type : PropertyType.values()) {
+                    if (snapshot.has(type)) {
+                        mask |= 1L << type.ordinal();
+                    }
+                }
+                out.writeLong(mask);
+                for (PropertyType type : PropertyType.values()) {
+                    if (snapshot.has(type)) {
+                        writeValue(out, snapshot.get(type));
+                    }
+                }
+                break;
+            case DRONE_ENVELOPE:
+                DroneEnvelope envelope = (DroneEnvelope) o;
+                out.writeLong(envelope.getDroneId());
+                out.writeString(envelope.getDriver());
+                out.writeString(envelope.getAddress());
+                out.writeString(Serialization.serializedActorPath(envelope.getProxy()));
+                out.writeLong(envelope.getSequence());
+                writeValue(out, envelope.getMessage());
+                break;
+            default:
+                // No fields
+                break;
+        }
+    }
+
+    private Object readMessage(ByteBuffer in) {
+        int id = in.get();
+        switch (id) {
+            case ALTITUDE_CHANGED:
+                return new AltitudeChangedMessage(in.getDouble());
+            case ALERT_STATE_CHANGED:
+                return new AlertStateChangedMessage(readEnum(in, AlertState.values()));
+            case BATTERY_PERCENTAGE_CHANGED:
+                return new BatteryPercentageChangedMessage(in.get());
+            case CALIBRATE_REQUEST:
+                return new CalibrateRequestMessage(readBoolean(in), readBoolean(in));
+            case CONNECTION_STATUS_CHANGED:
+                return new ConnectionStatusChangedMessage(readBoolean(in));
+            case CORRELATED:
+                return new CorrelatedMessage(in.getLong(), readValue(in));
+            case EMERGENCY_REQUEST:
+                return new EmergencyRequestMessage();
+            case EXECUTION_RESULT:
+                return new ExecutionResultMessage(readValue(in));
+            case FLAT_TRIM_CHANGED:
+                return new FlatTrimChangedMessage();
+            case FLAT_TRIM_REQUEST:
+                return new FlatTrimRequestMessage();
+            case FLIP_REQUEST:
+                return new FlipRequestMessage(readEnum(in, FlipType.values()));
+            case FLYING_STATE_CHANGED:
+                return new FlyingStateChangedMessage(readEnum(in, FlyingState.values()));
+            case GPS_FIX_CHANGED:
+                return new GPSFixChangedMessage(readBoolean(in));
+            case IMAGE:
+                return new ImageMessage(readBytes(in));
+            case INIT_REQUEST:
+                return new InitRequestMessage();
+            case INIT_VIDEO_REQUEST:
+                return new InitVideoRequestMessage();
+            case LAND_REQUEST:
+                return new LandRequestMessage();
+            case LOCATION_CHANGED: {
+                double latitude = in.getDouble();
+                double longitude = in.getDouble();
+                return new LocationChangedMessage(longitude, latitude, in.getDouble());
+            }
+            case MAGNETO_CALIBRATION_STATE_CHANGED:
+                return new MagnetoCalibrationStateChangedMessage(readBoolean(in));
+            case MOVE_REQUEST:
+                return new MoveRequestMessage(in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+            case MOVE_TO_LOCATION_CANCELLATION:
+                return new MoveToLocationCancellationMessage();
+            case MOVE_TO_LOCATION_REQUEST:
+                return new MoveToLocationRequestMessage(in.getDouble(), in.getDouble(), in.getDouble());
+            case NAVIGATION_STATE_CHANGED:
+                return new NavigationStateChangedMessage(readEnum(in, NavigationState.values()),
+                        readEnum(in, NavigationStateReason.values()));
+            case PRODUCT_VERSION_CHANGED:
+                return new ProductVersionChangedMessage(readString(in), readString(in));
+            case PROPERTY_REQUEST:
+                if (readBoolean(in)) {
+                    return new PropertyRequestMessage(types(in.getLong()));
+                }
+                return new PropertyRequestMessage(readEnum(in, PropertyType.values()));
+            case PROPERTY_STORE_REQUEST:
+                return new PropertyStoreRequestMessage();
+            case ROTATION_CHANGED:
+                return new RotationChangedMessage(in.getDouble(), in.getDouble(), in.getDouble());
+            case SET_HULL_REQUEST:
+                return new SetHullRequestMessage(readBoolean(in));
+            case SET_MAX_HEIGHT_REQUEST:
+                return new SetMaxHeightRequestMessage(in.getFloat());
+            case SET_MAX_TILT_REQUEST:
+                return new SetMaxTiltRequestMessage(in.getFloat());
+            case SET_OUTDOOR_REQUEST:
+                return new SetOutdoorRequestMessage(readBoolean(in));
+            case SPEED_CHANGED:
+                return new SpeedChangedMessage(in.getDouble(), in.getDouble(), in.getDouble());
+            case STOP:
+                return new StopMessage();
+            case STOP_VIDEO_REQUEST:
+                return new StopVideoRequestMessage();
+            case SUBSCRIBE_EVENT: {
+                int count = in.getInt();
+                Class[] classes = count < 0 ? null : new Class[count];
+                for (int i = 0; i < count; i++) {
+                    classes[i] = readClass(readString(in));
+                }
+                return new SubscribeEventMessage(classes, in.getDouble());
+            }
+            case TAKE_OFF_REQUEST:
+                return new TakeOffRequestMessage();
+            case UNSUBSCRIBE_EVENT:
+                return new UnsubscribeEventMessage(readClass(readString(in)));
+
+            case LOCATION:
+                return new Location(in.getDouble(), in.getDouble(), in.getDouble());
+            case ROTATION:
+                return new Rotation(in.getDouble(), in.getDouble(), in.getDouble());
+            case SPEED:
+                return new Speed(in.getDouble(), in.getDouble(), in.getDouble());
+            case DRONE_VERSION:
+                return new DroneVersion(readString(in), readString(in));
+            case DRONE_SNAPSHOT: {
+                long timestamp = in.getLong();
+                Map<PropertyType, Object> values = new EnumMap<>(PropertyType.class);
+                for (PropertyType type : types(in.getLong())) {
+                    values.put(type, readValue(in));
+                }
+                return new DroneSnapshot(timestamp, values);
+            }
+            case DRONE_ENVELOPE:
+                return new DroneEnvelope(in.getLong(), readString(in), readString(in),
+                        system.provider().resolveActorRef(readString(in)), in.getLong(), readValue(in));
+            default:
+                throw new IllegalArgumentException("Unknown message type id: " + id);
+        }
+    }
+
+    private void writeValue(Output out, Object v) {
+        if (v == null) {
+            out.writeByte(NULL);
+        } else if (v instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) v);
+        } else if (v instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) v);
+        } else if (v instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) v);
+        } else if (v instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) v);
+        } else if (v instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) v);
+        } else if (v instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) v);
+        } else if (v instanceof String) {
+            out.writeByte(STRING);
+            out.writeString((String) v);
+        } else if (v instanceof byte[]) {
+            out.writeByte(BYTES);
+            out.writeBytes((byte[]) v);
+        } else if (TYPE_IDS.containsKey(v.getClass())) {
+            out.writeByte(MESSAGE);
+            writeMessage(out, v);
+        } else {
+            int index = v instanceof Enum ? Arrays.asList(ENUMS).indexOf(((Enum) v).getDeclaringClass()) : -1;
+            if (index >= 0) {
+                out.writeByte(ENUM);
+                out.writeByte(index);
+                out.writeEnum((Enum) v);
+            } else {
+                writeOther(out, v);
+            }
+        }
+    }
+
+    private Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case BYTE:
+                return in.get();
+            case BOOLEAN:
+                return readBoolean(in);
+            case INT:
+                return in.getInt();
+            case LONG:
+                return in.getLong();
+            case FLOAT:
+                return in.getFloat();
+            case DOUBLE:
+                return in.getDouble();
+            case STRING:
+                return readString(in);
+            case BYTES:
+                return readBytes(in);
+            case MESSAGE:
+                return readMessage(in);
+            case ENUM:
+                return readEnum(in, (Enum[]) ENUMS[in.get()].getEnumConstants());
+            case OTHER:
+                return readOther(in);
+            default:
+                throw new IllegalArgumentException("Unknown value tag: " + tag);
+        }
+    }
+
+    // Values without fixed layout, such as failure replies, use the serializer Akka has configured for them
+    private void writeOther(Output out, Object v) {
+        Serializer serializer = serialization().findSerializerFor(v);
+        out.writeByte(OTHER);
+        out.writeInt(serializer.identifier());
+        out.writeString(serializer.includeManifest() ? v.getClass().getName() : null);
+        out.writeBytes(serializer.toBinary(v));
+    }
+
+    private Object readOther(ByteBuffer in) {
+        int serializerId = in.getInt();
+        String manifest = readString(in);
+        byte[] bytes = readBytes(in);
+        Option<Class<?>> type = manifest == null ? Option.<Class<?>>empty() : Option.<Class<?>>apply(readClass(manifest));
+        return serialization().deserialize(bytes, serializerId, type).get();
+    }
+
+    private Serialization serialization() {
+        if (serialization == null) {
+            serialization = SerializationExtension.get(system);
+        }
+        return serialization;
+    }
+
+    private Class<?> readClass(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Class.forName(name, false, system.dynamicAccess().classLoader());
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalArgumentException("Unknown class: " + name, ex);
+        }
+    }
+
+    private static long mask(Set<PropertyType> types) {
+        long mask = 0;
+        for (PropertyType type : types) {
+            mask |= 1L << type.ordinal();
+        }
+        return mask;
+    }
+
+    private static Set<PropertyType> types(long mask) {
+        Set<PropertyType> types = EnumSet.noneOf(PropertyType.class);
+        for (PropertyType type : PropertyType.values()) {
+            if ((mask & (1L << type.ordinal())) != 0) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    private static boolean readBoolean(ByteBuffer in) {
+        return in.get() != 0;
+    }
+
+    private static <E> E readEnum(ByteBuffer in, E[] values) {
+        byte ordinal = in.get();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Growing big endian output buffer
+     */
+    private static class Output {
+        private ByteBuffer buffer;
+
+        private Output(int capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+
+        private void writeByte(int b) {
+            ensure(1);
+            buffer.put((byte) b);
+        }
+
+        private void writeBoolean(boolean b) {
+            writeByte(b ? 1 : 0);
+        }
+
+        private void writeInt(int i) {
+            ensure(4);
+            buffer.putInt(i);
+        }
+
+        private void writeLong(long l) {
+            ensure(8);
+            buffer.putLong(l);
+        }
+
+        private void writeFloat(float f) {
+            ensure(4);
+            buffer.putFloat(f);
+        }
+
+        private void writeDouble(double d) {
+            ensure(8);
+            buffer.putDouble(d);
+        }
+
+        private void writeDoubles(double x, double y, double z) {
+            ensure(24);
+            buffer.putDouble(x).putDouble(y).putDouble(z);
+        }
+
+        private void writeEnum(Enum e) {
+            writeByte(e == null ? -1 : e.ordinal());
+        }
+
+        private void writeBytes(byte[] bytes) {
+            if (bytes == null) {
+                writeInt(-1);
+            } else {
+                ensure(4 + bytes.length);
+                buffer.putInt(bytes.length).put(bytes);
+            }
+        }
+
+        private void writeString(String s) {
+            writeBytes(s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private byte[] toByteArray() {
+            return buffer.position() == buffer.capacity() ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+}
@@ -3,18 +3,42 @@ package droneapi.messages;
 import droneapi.model.properties.PropertyType;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Created by Cedric on 3/10/2015.
  */
 public class PropertyRequestMessage implements Serializable {
     private PropertyType type;
+    private EnumSet<PropertyType> types;
 
     public PropertyRequestMessage(PropertyType type) {
         this.type = type;
     }
 
+    /**
+     * Requests a snapshot of multiple properties at once
+     * @param types The properties in the snapshot
+     */
+    public PropertyRequestMessage(Set<PropertyType> types) {
+        this.types = EnumSet.noneOf(PropertyType.class);
+        this.types.addAll(types);
+    }
+
     public PropertyType getType() {
         return type;
     }
+
+    /**
+     * @return The requested properties of a snapshot request, null when a single property is requested
+     */
+    public Set<PropertyType> getTypes() {
+        return types == null ? null : Collections.unmodifiableSet(types);
+    }
+
+    public boolean isSnapshotRequest() {
+        return types != null;
+    }
 }
@@ -0,0 +1,9 @@
+package droneapi.messages;
+
+import java.io.Serializable;
+
+/**
+ * Requests the PropertyStore of a drone actor, only answered to senders in the same JVM.
+ */
+public class PropertyStoreRequestMessage implements Serializable {
+}
@@ -7,9 +7,19 @@ import java.io.Serializable;
  */
 public class SubscribeEventMessage implements Serializable {
     private Class[] subscriptions;
+    private double maxRate;
 
     public SubscribeEventMessage(Class[] subscribedClass) {
+        this(subscribedClass, 0);
+    }
+
+    /**
+     * @param subscribedClass The message classes to subscribe to
+     * @param maxRate Maximum number of messages per second for each of the classes, unlimited when zero
+     */
+    public SubscribeEventMessage(Class[] subscribedClass, double maxRate) {
         this.subscriptions = subscribedClass;
+        this.maxRate = maxRate;
     }
 
     public SubscribeEventMessage(){}
@@ -17,4 +27,11 @@ public class SubscribeEventMessage implements Serializable {
     public Class[] getSubscribedClasses() {
         return subscriptions;
     }
+
+    /**
+     * @return Maximum number of messages per second per class, zero when unlimited
+     */
+    public double getMaxRate() {
+        return maxRate;
+    }
 }
@@ -0,0 +1,108 @@
+package droneapi.model;
+
+import com.typesafe.config.Config;
+import droneapi.geo.Geodesy;
+import droneapi.model.properties.PropertyType;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a drone property changed enough since it was last published.
+ * Numeric properties are published when they moved at least their deadband away from the last published value,
+ * or when they were not published for a heartbeat interval. Properties without deadband are always published.
+ * Only to be used from the owning actor.
+ */
+public class DeadbandFilter {
+
+    private static final PropertyType[] TYPES = PropertyType.values();
+
+    private final long heartbeat;
+
+    // Indexed by property type ordinal, NaN when the property has no deadband
+    private final double[] deadbands = new double[TYPES.length];
+    private final double[][] published = new double[TYPES.length][3];
+    private final long[] publishedAt = new long[TYPES.length];
+
+    /**
+     * @param heartbeat Interval in milliseconds after which a value is published regardless of its deadband
+     */
+    public DeadbandFilter(long heartbeat) {
+        this.heartbeat = heartbeat;
+        Arrays.fill(deadbands, Double.NaN);
+    }
+
+    /**
+     * Creates a filter from the drone-events configuration section
+     */
+    public DeadbandFilter(Config config) {
+        this(config.getDuration("heartbeat", TimeUnit.MILLISECONDS));
+        Config bands = config.getConfig("deadband");
+        for (PropertyType type : TYPES) {
+            String key = type.name().toLowerCase();
+            if (bands.hasPath(key)) {
+                setDeadband(type, bands.getDouble(key));
+            }
+        }
+    }
+
+    /**
+     * @param type Numeric property
+     * @param deadband Minimal change before the property is published again. For locations in meters,
+     *                 for multi component properties the largest change of any component.
+     */
+    public void setDeadband(PropertyType type, double deadband) {
+        deadbands[type.ordinal()] = deadband;
+    }
+
+    public boolean hasDeadband(PropertyType type) {
+        return !Double.isNaN(deadbands[type.ordinal()]);
+    }
+
+    public long getHeartbeat() {
+        return heartbeat;
+    }
+
+    public boolean offer(PropertyType type, double value, long now) {
+        return offer(type, value, 0, 0, now);
+    }
+
+    /**
+     * Offers a new value of a property, remembered as published value when accepted
+     *
+     * @param now Current time in milliseconds
+     * @return True when the value should be published
+     */
+    public boolean offer(PropertyType type, double x, double y, double z, long now) {
+        int i = type.ordinal();
+        double deadband = deadbands[i];
+        if (Double.isNaN(deadband)) {
+            return true;
+        }
+
+        double[] last = published[i];
+        if (publishedAt[i] != 0 && now - publishedAt[i] < heartbeat && change(type, last, x, y, z) < deadband) {
+            return false;
+        }
+        last[0] = x;
+        last[1] = y;
+        last[2] = z;
+        publishedAt[i] = now;
+        return true;
+    }
+
+    /**
+     * @return True when a property with deadband was published before, but not within the last heartbeat interval
+     */
+    public boolean isHeartbeatDue(PropertyType type, long now) {
+        int i = type.ordinal();
+        return !Double.isNaN(deadbands[i]) && publishedAt[i] != 0 && now - publishedAt[i] >= heartbeat;
+    }
+
+    private static double change(PropertyType type, double[] last, double x, double y, double z) {
+        if (type == PropertyType.LOCATION) { // latitude, longitude, height
+            return Geodesy.distance(Geodesy.Tier.LOCAL, last[0], last[1], x, y) + Math.abs(last[2] - z);
+        }
+        return Math.max(Math.abs(last[0] - x), Math.max(Math.abs(last[1] - y), Math.abs(last[2] - z)));
+    }
+}
@@ -0,0 +1,111 @@
+package droneapi.model;
+
+import akka.japi.JavaPartialFunction;
+import akka.japi.pf.FI;
+import scala.PartialFunction;
+import scala.runtime.BoxedUnit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drop-in replacement for ReceiveBuilder chains with many cases.
+ * The cases matching a message class are resolved once per class and cached, so dispatching a message
+ * costs a lookup instead of an instanceof check per case. First match semantics are the same as ReceiveBuilder.
+ * The cache belongs to the built behaviour and is collected with the actor using it.
+ */
+public class DispatchBuilder {
+
+    private final List<Case> cases = new ArrayList<>();
+
+    /**
+     * Adds a case for messages of the given type (or a subtype)
+     */
+    @SuppressWarnings("unchecked")
+    public <P> DispatchBuilder match(Class<P> type, FI.UnitApply<P> apply) {
+        cases.add(new Case(type, null, (FI.UnitApply<Object>) apply));
+        return this;
+    }
+
+    /**
+     * Adds a case for messages of the given type (or a subtype) accepted by the predicate
+     */
+    @SuppressWarnings("unchecked")
+    public <P> DispatchBuilder match(Class<P> type, FI.TypedPredicate<P> predicate, FI.UnitApply<P> apply) {
+        cases.add(new Case(type, (FI.TypedPredicate<Object>) predicate, (FI.UnitApply<Object>) apply));
+        return this;
+    }
+
+    /**
+     * Adds a case for any message
+     */
+    public DispatchBuilder matchAny(FI.UnitApply<Object> apply) {
+        return match(Object.class, apply);
+    }
+
+    /**
+     * @return Partial function to use as actor behaviour
+     */
+    public PartialFunction<Object, BoxedUnit> build() {
+        return new ClassDispatcher(cases.toArray(new Case[cases.size()]));
+    }
+
+    private static class Case {
+        private final Class<?> type;
+        private final FI.TypedPredicate<Object> predicate;
+        private final FI.UnitApply<Object> apply;
+
+        private Case(Class<?> type, FI.TypedPredicate<Object> predicate, FI.UnitApply<Object> apply) {
+            this.type = type;
+            this.predicate = predicate;
+            this.apply = apply;
+        }
+    }
+
+    private static class ClassDispatcher extends JavaPartialFunction<Object, BoxedUnit> {
+
+        private static final Case[] NO_CASES = new Case[0];
+
+        private final Case[] cases;
+        // Candidate cases per message class, in declaration order up to the first case without predicate.
+        // Only used by the actor, one message at a time.
+        private final Map<Class<?>, Case[]> candidates = new HashMap<>();
+
+        private ClassDispatcher(Case[] cases) {
+            this.cases = cases;
+        }
+
+        private Case[] candidates(Class<?> type) {
+            Case[] found = candidates.get(type);
+            if (found == null) {
+                List<Case> matching = new ArrayList<>();
+                for (Case c : cases) {
+                    if (c.type.isAssignableFrom(type)) {
+                        matching.add(c);
+                        if (c.predicate == null) {
+                            break; // later cases are never reached
+                        }
+                    }
+                }
+                found = matching.isEmpty() ? NO_CASES : matching.toArray(new Case[matching.size()]);
+                candidates.put(type, found);
+            }
+            return found;
+        }
+
+        @Override
+        public BoxedUnit apply(Object msg, boolean isCheck) throws Exception {
+            for (Case c : candidates(msg.getClass())) {
+                if (c.predicate == null || c.predicate.defined(msg)) {
+                    if (!isCheck) {
+                        c.apply.apply(msg);
+                    }
+                    return BoxedUnit.UNIT;
+                }
+            }
+            throw noMatch();
+        }
+    }
+}
@@ -2,35 +2,53 @@ package droneapi.model;
 
 import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
+import akka.actor.Cancellable;
 import akka.actor.OneForOneStrategy;
 import akka.actor.SupervisorStrategy;
 import akka.dispatch.Futures;
 import akka.dispatch.OnFailure;
 import akka.dispatch.OnSuccess;
+import akka.dispatch.RequiresMessageQueue;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
-import akka.japi.pf.ReceiveBuilder;
-import akka.japi.pf.UnitPFBuilder;
 import droneapi.messages.*;
 import droneapi.model.properties.*;
+import scala.PartialFunction;
 import scala.concurrent.ExecutionContext;
 import scala.concurrent.Future;
 import scala.concurrent.Promise;
 import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+import scala.runtime.BoxedUnit;
+
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Cedric on 3/8/2015.
  */
-public abstract class DroneActor extends AbstractActor {
+public abstract class DroneActor extends AbstractActor implements RequiresMessageQueue<DroneMailbox.DroneQueueSemantics> {
+
+    // Interval in which pending values of rate limited subscribers are sent
+    private static final FiniteDuration EVENT_FLUSH_INTERVAL = Duration.create(50, TimeUnit.MILLISECONDS);
+
+    private static class FlushEventsMessage implements Serializable {
+    }
+
+    private static class HeartbeatMessage implements Serializable {
+    }
 
     protected LazyProperty<FlyingState> state;
     protected LazyProperty<AlertState> alertState;
-    protected LazyProperty<Location> location;
+    protected LocationProperty location;
     protected LazyProperty<Byte> batteryPercentage;
     protected LazyProperty<Boolean> flatTrimStatus;
-    protected LazyProperty<Rotation> rotation;
-    protected LazyProperty<Speed> speed;
-    protected LazyProperty<Double> altitude;
+    protected RotationProperty rotation;
+    protected SpeedProperty speed;
+    protected DoubleProperty altitude;
     protected LazyProperty<DroneVersion> version;
     protected LazyProperty<NavigationState> navigationState;
     protected LazyProperty<NavigationStateReason> navigationStateReason;
@@ -40,23 +58,34 @@ public abstract class DroneActor extends AbstractActor {
     protected LazyProperty<byte[]> image;
 
     protected DroneEventBus eventBus;
+    private PropertyStore propertyStore;
+    private Cancellable eventFlushTick;
+
+    // Suppresses telemetry events that did not change beyond their deadband
+    private final DeadbandFilter deadband;
+    private Cancellable heartbeatTick;
 
     private boolean loaded = false;
     private boolean loading = false;
 
+    // Correlation id of the command being handled, zero for plain requests
+    private long correlationId = 0;
+    private PartialFunction<Object, BoxedUnit> behaviour;
+
     protected LoggingAdapter log = Logging.getLogger(getContext().system(), this);
 
     public DroneActor() {
         eventBus = new DroneEventBus(self());
+        deadband = new DeadbandFilter(getContext().system().settings().config().getConfig("drone-events"));
 
         batteryPercentage = new LazyProperty<>();
         state = new LazyProperty<>(FlyingState.LANDED); //TODO: check assumption of connecting in-flight
         alertState = new LazyProperty<>(AlertState.NONE);
         flatTrimStatus = new LazyProperty<>(false);
-        location = new LazyProperty<>();
-        rotation = new LazyProperty<>();
-        speed = new LazyProperty<>();
-        altitude = new LazyProperty<>();
+        location = new LocationProperty();
+        rotation = new RotationProperty();
+        speed = new SpeedProperty();
+        altitude = new DoubleProperty();
         version = new LazyProperty<>();
         navigationState = new LazyProperty<>(NavigationState.UNAVAILABLE);
         navigationStateReason = new LazyProperty<>(NavigationStateReason.CONNECTION_LOST);
@@ -66,15 +95,15 @@ public abstract class DroneActor extends AbstractActor {
         image = new LazyProperty<>();
 
         // TODO: build pipeline that directly forwards to the eventbus
-        //TODO: revert quickfix and support null
-        UnitPFBuilder<Object> extraListeners = createListeners();
+        // Listeners of the driver take precedence, dispatching is indexed by message class
+        DispatchBuilder extraListeners = createListeners();
         if (extraListeners == null) { // When null, create a new listener chain
-            extraListeners = ReceiveBuilder.match(PropertyRequestMessage.class, this::handlePropertyRequest);
-        } else {
-            extraListeners = extraListeners.match(PropertyRequestMessage.class, this::handlePropertyRequest);
+            extraListeners = new DispatchBuilder();
         }
-        receive(extraListeners.
+        behaviour = extraListeners.
+                match(PropertyRequestMessage.class, this::handlePropertyRequest).
                 match(StopMessage.class, s -> stop()).
+                match(CorrelatedMessage.class, this::handleCorrelatedMessage).
                 // General commands (can be converted to switch as well, depends on embedded data)
                 match(InitRequestMessage.class, s -> initInternal(sender(), self())).
                 match(TakeOffRequestMessage.class, s -> takeOffInternal(sender(), self())).
@@ -92,90 +121,206 @@ public abstract class DroneActor extends AbstractActor {
                 match(FlipRequestMessage.class, s -> flipInternal(sender(), self(), s.getFlip())).
                 match(InitVideoRequestMessage.class, s -> initVideoInternal(sender(), self())).
                 match(StopVideoRequestMessage.class, s -> stopVideoInternal(sender(), self())).
-                match(SubscribeEventMessage.class, s -> handleSubscribeMessage(sender(), s.getSubscribedClasses())).
+                match(PropertyStoreRequestMessage.class, s -> handlePropertyStoreRequest()).
+                match(SubscribeEventMessage.class, s -> handleSubscribeMessage(sender(), s.getSubscribedClasses(), s.getMaxRate())).
+                match(FlushEventsMessage.class, s -> flushEvents()).
+                match(HeartbeatMessage.class, s -> publishHeartbeat()).
                 match(UnsubscribeEventMessage.class, s -> handleUnsubscribeMessage(sender(), s.getSubscribedClass())).
 
                 // Drone -> external
-                match(LocationChangedMessage.class, s -> setLocation(new Location(s.getLatitude(), s.getLongitude(), s.getGpsHeight()))).
+                match(LocationChangedMessage.class, this::handleLocationChanged).
+                match(SpeedChangedMessage.class, this::handleSpeedChanged).
+                match(AltitudeChangedMessage.class, this::handleAltitudeChanged).
+                match(RotationChangedMessage.class, this::handleRotationChanged).
+                match(BatteryPercentageChangedMessage.class, this::handleBatteryPercentageChanged).
                 match(GPSFixChangedMessage.class, s -> setGPSFix(s.isFixed())).
-                match(BatteryPercentageChangedMessage.class, s -> setBatteryPercentage(s.getPercent())).
                 match(FlyingStateChangedMessage.class, s -> setFlyingState(s.getState())).
                 match(AlertStateChangedMessage.class, s -> setAlertState(s.getState())).
                 match(FlatTrimChangedMessage.class, s -> setFlatTrim(true)).
-                match(RotationChangedMessage.class, s -> setRotation(new Rotation(s.getRoll(), s.getPitch(), s.getYaw()))).
-                match(AltitudeChangedMessage.class, s -> setAltitude(s.getAltitude())).
-                match(SpeedChangedMessage.class, s -> setSpeed(new Speed(s.getSpeedX(), s.getSpeedY(), s.getSpeedZ()))).
                 match(ProductVersionChangedMessage.class, s -> setProductVersion(new DroneVersion(s.getSoftware(), s.getHardware()))).
                 match(NavigationStateChangedMessage.class, s -> setNavigationState(s.getState(), s.getReason())).
                 match(MagnetoCalibrationStateChangedMessage.class, s -> setMagnetoCalibrationState(s.isCalibrationRequired())).
                 match(ConnectionStatusChangedMessage.class, s -> setConnectionStatus(s.isConnected())).
-                match(ImageMessage.class, s -> setJPEGImage(s.getByteData())).
-                matchAny(o -> log.info("DroneActor unk message recv: [{}]", o.getClass().getCanonicalName())).build());
+                match(ImageMessage.class, this::handleImage).
+                matchAny(o -> log.info("DroneActor unk message recv: [{}]", o.getClass().getCanonicalName())).build();
+        receive(behaviour);
+
+        FiniteDuration heartbeat = Duration.create(deadband.getHeartbeat(), TimeUnit.MILLISECONDS);
+        heartbeatTick = getContext().system().scheduler().schedule(heartbeat, heartbeat, self(),
+                new HeartbeatMessage(), getContext().dispatcher(), self());
+    }
+
+    /**
+     * Handles a command sent over a command channel. The wrapped request is handled as usual,
+     * its reply is tagged with the same correlation id so the channel can complete the right future.
+     */
+    private void handleCorrelatedMessage(CorrelatedMessage msg) {
+        correlationId = msg.getId();
+        try {
+            behaviour.apply(msg.getMessage());
+        } finally {
+            correlationId = 0;
+        }
+    }
+
+    private static Object correlate(long id, Object reply) {
+        return id == 0 ? reply : new CorrelatedMessage(id, reply);
+    }
+
+    protected void replyFailure(final ActorRef sender, final ActorRef self, Throwable cause) {
+        sender.tell(correlate(correlationId, new akka.actor.Status.Failure(cause)), self);
+    }
+
+    /*
+     * Telemetry from the protocol is stored in place and the incoming message is republished as is,
+     * so no intermediate property objects or event messages are created per update.
+     */
+
+    protected void handleLocationChanged(LocationChangedMessage msg) {
+        location.update(msg.getLatitude(), msg.getLongitude(), msg.getGpsHeight());
+        if (changed(PropertyType.LOCATION, msg.getLatitude(), msg.getLongitude(), msg.getGpsHeight())) {
+            eventBus.publish(msg);
+        }
+    }
+
+    protected void handleSpeedChanged(SpeedChangedMessage msg) {
+        speed.update(msg.getSpeedX(), msg.getSpeedY(), msg.getSpeedZ());
+        if (changed(PropertyType.SPEED, msg.getSpeedX(), msg.getSpeedY(), msg.getSpeedZ())) {
+            eventBus.publish(msg);
+        }
+    }
+
+    protected void handleAltitudeChanged(AltitudeChangedMessage msg) {
+        altitude.update(msg.getAltitude());
+        if (changed(PropertyType.ALTITUDE, msg.getAltitude(), 0, 0)) {
+            eventBus.publish(msg);
+        }
+    }
+
+    protected void handleRotationChanged(RotationChangedMessage msg) {
+        rotation.update(msg.getRoll(), msg.getPitch(), msg.getYaw());
+        if (changed(PropertyType.ROTATION, msg.getRoll(), msg.getPitch(), msg.getYaw())) {
+            eventBus.publish(msg);
+        }
+    }
+
+    protected void handleBatteryPercentageChanged(BatteryPercentageChangedMessage msg) {
+        batteryPercentage.setValue(msg.getPercent()); // boxed bytes are cached
+        if (changed(PropertyType.BATTERY, msg.getPercent(), 0, 0)) {
+            eventBus.publish(msg);
+        }
+    }
+
+    protected void handleImage(ImageMessage msg) {
+        image.setValue(msg.getByteData());
+        eventBus.publish(msg);
+    }
+
+    /**
+     * @return True when the value moved beyond the deadband of the property since it was last published
+     */
+    protected boolean changed(PropertyType type, double x, double y, double z) {
+        return deadband.offer(type, x, y, z, System.currentTimeMillis());
+    }
+
+    /**
+     * Publishes the current values of the telemetry properties that were not published for a heartbeat interval
+     */
+    private void publishHeartbeat() {
+        long now = System.currentTimeMillis();
+        if (deadband.isHeartbeatDue(PropertyType.LOCATION, now) && location.isAvailable()) {
+            deadband.offer(PropertyType.LOCATION, location.getLatitude(), location.getLongitude(), location.getHeight(), now);
+            eventBus.publish(new LocationChangedMessage(location.getLongitude(), location.getLatitude(), location.getHeight()));
+        }
+        if (deadband.isHeartbeatDue(PropertyType.SPEED, now) && speed.isAvailable()) {
+            deadband.offer(PropertyType.SPEED, speed.getVx(), speed.getVy(), speed.getVz(), now);
+            eventBus.publish(new SpeedChangedMessage(speed.getVx(), speed.getVy(), speed.getVz()));
+        }
+        if (deadband.isHeartbeatDue(PropertyType.ALTITUDE, now) && altitude.isAvailable()) {
+            deadband.offer(PropertyType.ALTITUDE, altitude.getDouble(), 0, 0, now);
+            eventBus.publish(new AltitudeChangedMessage(altitude.getDouble()));
+        }
+        if (deadband.isHeartbeatDue(PropertyType.ROTATION, now) && rotation.isAvailable()) {
+            deadband.offer(PropertyType.ROTATION, rotation.getRoll(), rotation.getPitch(), rotation.getYaw(), now);
+            eventBus.publish(new RotationChangedMessage(rotation.getRoll(), rotation.getPitch(), rotation.getYaw()));
+        }
+        Byte battery = batteryPercentage.getRawValue();
+        if (deadband.isHeartbeatDue(PropertyType.BATTERY, now) && battery != null) {
+            deadband.offer(PropertyType.BATTERY, battery, 0, 0, now);
+            eventBus.publish(new BatteryPercentageChangedMessage(battery));
+        }
     }
 
     protected void setLocation(Location l) {
         location.setValue(l);
-        eventBus.publish(new DroneEventMessage(
-                new LocationChangedMessage(l.getLongitude(), l.getLatitude(), l.getHeight())));
+        if (changed(PropertyType.LOCATION, l.getLatitude(), l.getLongitude(), l.getHeight())) {
+            eventBus.publish(new LocationChangedMessage(l.getLongitude(), l.getLatitude(), l.getHeight()));
+        }
     }
 
     protected void setGPSFix(boolean fix) {
         log.info("GPS fix changed: [{}]", fix);
         gpsFix.setValue(fix);
-        eventBus.publish(new DroneEventMessage(new GPSFixChangedMessage(fix)));
+        eventBus.publish(new GPSFixChangedMessage(fix));
     }
 
     protected void setFlyingState(FlyingState s) {
         state.setValue(s);
-        eventBus.publish(new DroneEventMessage(new FlyingStateChangedMessage(s)));
+        eventBus.publish(new FlyingStateChangedMessage(s));
     }
 
     protected void setAlertState(AlertState state) {
         alertState.setValue(state);
-        eventBus.publish(new DroneEventMessage(new AlertStateChangedMessage(state)));
+        eventBus.publish(new AlertStateChangedMessage(state));
     }
 
     protected void setFlatTrim(boolean trimmed){
         flatTrimStatus.setValue(trimmed);
-        eventBus.publish(new DroneEventMessage(new FlatTrimChangedMessage()));
+        eventBus.publish(new FlatTrimChangedMessage());
     }
 
     protected void setBatteryPercentage(byte percentage) {
         batteryPercentage.setValue(percentage);
-        eventBus.publish(new DroneEventMessage(new BatteryPercentageChangedMessage(percentage)));
+        if (changed(PropertyType.BATTERY, percentage, 0, 0)) {
+            eventBus.publish(new BatteryPercentageChangedMessage(percentage));
+        }
     }
 
     protected void setRotation(Rotation rot){
         rotation.setValue(rot);
-        eventBus.publish(
-                new DroneEventMessage(new RotationChangedMessage(rot.getRoll(), rot.getPitch(), rot.getYaw())));
+        if (changed(PropertyType.ROTATION, rot.getRoll(), rot.getPitch(), rot.getYaw())) {
+            eventBus.publish(new RotationChangedMessage(rot.getRoll(), rot.getPitch(), rot.getYaw()));
+        }
     }
 
     protected void setAltitude(double a){
-        altitude.setValue(a);
-        eventBus.publish(new DroneEventMessage(new AltitudeChangedMessage(a)));
+        altitude.update(a);
+        if (changed(PropertyType.ALTITUDE, a, 0, 0)) {
+            eventBus.publish(new AltitudeChangedMessage(a));
+        }
     }
 
     protected void setSpeed(Speed s){
         speed.setValue(s);
-        eventBus.publish(
-                new DroneEventMessage(new SpeedChangedMessage(s.getVx(), s.getVy(), s.getVz())));
+        if (changed(PropertyType.SPEED, s.getVx(), s.getVy(), s.getVz())) {
+            eventBus.publish(new SpeedChangedMessage(s.getVx(), s.getVy(), s.getVz()));
+        }
     }
 
     protected void setProductVersion(DroneVersion v){
         version.setValue(v);
-        eventBus.publish(new DroneEventMessage(new ProductVersionChangedMessage(v.getSoftware(), v.getHardware())));
+        eventBus.publish(new ProductVersionChangedMessage(v.getSoftware(), v.getHardware()));
     }
 
     protected void setNavigationState(NavigationState state, NavigationStateReason reason){
         navigationState.setValue(state);
         navigationStateReason.setValue(reason);
-        eventBus.publish(new DroneEventMessage(new NavigationStateChangedMessage(state, reason)));
+        eventBus.publish(new NavigationStateChangedMessage(state, reason));
     }
 
     protected void setMagnetoCalibrationState(boolean calibRequired){
         calibrationRequired.setValue(calibRequired);
-        eventBus.publish(new DroneEventMessage(new MagnetoCalibrationStateChangedMessage(calibRequired)));
+        eventBus.publish(new MagnetoCalibrationStateChangedMessage(calibRequired));
 
         if (calibRequired)
             log.warning("Drone requires calibration!!!");
@@ -185,7 +330,7 @@ public abstract class DroneActor extends AbstractActor {
 
     protected void setConnectionStatus(boolean connected){
         isOnline.setValue(connected);
-        eventBus.publish(new DroneEventMessage(new ConnectionStatusChangedMessage(connected)));
+        eventBus.publish(new ConnectionStatusChangedMessage(connected));
 
         if (!connected) {
             log.warning("Drone network became unreachable.");
@@ -196,7 +341,7 @@ public abstract class DroneActor extends AbstractActor {
 
     protected void setJPEGImage(byte[] jpegImageData) {
         image.setValue(jpegImageData);
-        eventBus.publish(new DroneEventMessage(new ImageMessage(jpegImageData)));
+        eventBus.publish(new ImageMessage(jpegImageData));
     }
 
     @Override
@@ -209,9 +354,30 @@ public abstract class DroneActor extends AbstractActor {
                 });
     }
 
-    private void handleSubscribeMessage(final ActorRef sub, Class[] cl) {
+    @Override
+    public void postStop() throws Exception {
+        if (eventFlushTick != null) {
+            eventFlushTick.cancel();
+            eventFlushTick = null;
+        }
+        heartbeatTick.cancel();
+        super.postStop();
+    }
+
+    private void handleSubscribeMessage(final ActorRef sub, Class[] cl, double maxRate) {
         for (Class c : cl) {
-            eventBus.subscribe(sub, c);
+            eventBus.subscribe(sub, c, maxRate);
+        }
+
+        // Rate limited subscribers require periodic flushing of their pending values
+        if (eventFlushTick == null && eventBus.hasThrottledSubscribers()) {
+            eventFlushTick = getContext().system().scheduler().schedule(
+                    EVENT_FLUSH_INTERVAL,
+                    EVENT_FLUSH_INTERVAL,
+                    self(),
+                    new FlushEventsMessage(),
+                    getContext().dispatcher(),
+                    self());
         }
     }
 
@@ -223,76 +389,127 @@ public abstract class DroneActor extends AbstractActor {
         }
     }
 
+    private void flushEvents() {
+        eventBus.flush();
+        if (eventFlushTick != null && !eventBus.hasThrottledSubscribers()) {
+            eventFlushTick.cancel();
+            eventFlushTick = null;
+        }
+    }
+
     protected void handlePropertyRequest(PropertyRequestMessage msg) {
-        switch (msg.getType()) {
+        if (msg.isSnapshotRequest()) {
+            handleSnapshotRequest(msg.getTypes());
+            return;
+        }
+
+        LazyProperty<?> property = getProperty(msg.getType());
+        if (property == null) {
+            log.warning("No property handler for: [{}]", msg.getType());
+        } else {
+            Object current = property.getRawValue();
+            if (current != null) {
+                sender().tell(correlate(correlationId, new ExecutionResultMessage(current)), self());
+            } else {
+                handleMessage(property.getValue(), sender(), self()); // reply once available
+            }
+        }
+    }
+
+    /**
+     * Shares the properties of this actor with local readers, which can then read them without messaging this actor.
+     */
+    private void handlePropertyStoreRequest() {
+        if (!sender().path().address().hasLocalScope()) {
+            replyFailure(sender(), self(), new DroneException("PropertyStore is only available within the same JVM."));
+            return;
+        }
+
+        if (propertyStore == null) {
+            Map<PropertyType, LazyProperty<?>> properties = new EnumMap<>(PropertyType.class);
+            for (PropertyType type : PropertyType.values()) {
+                LazyProperty<?> property = getProperty(type);
+                if (property != null) {
+                    properties.put(type, property);
+                }
+            }
+            propertyStore = new PropertyStore(properties);
+        }
+        sender().tell(correlate(correlationId, new ExecutionResultMessage(propertyStore)), self());
+    }
+
+    /**
+     * Replies with the current values of the requested properties, all read at once.
+     * Properties without a value yet are left out instead of waiting for them.
+     */
+    private void handleSnapshotRequest(Set<PropertyType> types) {
+        Map<PropertyType, Object> values = new EnumMap<>(PropertyType.class);
+        for (PropertyType type : types) {
+            LazyProperty<?> property = getProperty(type);
+            Object value = property == null ? null : property.getRawValue();
+            if (value != null) {
+                values.put(type, value);
+            }
+        }
+        sender().tell(correlate(correlationId, new ExecutionResultMessage(new DroneSnapshot(System.currentTimeMillis(), values))), self());
+    }
+
+    protected LazyProperty<?> getProperty(PropertyType type) {
+        switch (type) {
             case LOCATION:
-                handleMessage(location.getValue(), sender(), self());
-                break;
+                return location;
             case ALTITUDE:
-                handleMessage(altitude.getValue(), sender(), self());
-                break;
+                return altitude;
             case BATTERY:
-                handleMessage(batteryPercentage.getValue(), sender(), self());
-                break;
+                return batteryPercentage;
             case FLATTRIMSTATUS:
-                handleMessage(flatTrimStatus.getValue(), sender(), self());
-                break;
+                return flatTrimStatus;
             case FLYINGSTATE:
-                handleMessage(state.getValue(), sender(), self());
-                break;
+                return state;
             case ROTATION:
-                handleMessage(rotation.getValue(), sender(), self());
-                break;
+                return rotation;
             case SPEED:
-                handleMessage(speed.getValue(), sender(), self());
-                break;
+                return speed;
             case VERSION:
-                handleMessage(version.getValue(), sender(), self());
-                break;
+                return version;
             case NAVIGATIONSTATE:
-                handleMessage(navigationState.getValue(), sender(), self());
-                break;
+                return navigationState;
             case NAVIGATIONREASON:
-                handleMessage(navigationStateReason.getValue(), sender(), self());
-                break;
+                return navigationStateReason;
             case GPSFIX:
-                handleMessage(gpsFix.getValue(), sender(), self());
-                break;
+                return gpsFix;
             case NETWORK_STATUS:
-                handleMessage(isOnline.getValue(), sender(), self());
-                break;
+                return isOnline;
             case CALIBRATION_REQUIRED:
-                handleMessage(calibrationRequired.getValue(), sender(), self());
-                break;
+                return calibrationRequired;
             case IMAGE:
-                handleMessage(image.getValue(), sender(), self());
-                break;
+                return image;
             default:
-                log.warning("No property handler for: [{}]", msg.getType());
-                break;
+                return null;
         }
     }
 
     protected <T> void handleMessage(final Future<T> value, final ActorRef sender, final ActorRef self) {
         final ExecutionContext ec = getContext().system().dispatcher();
+        final long id = correlationId;
         value.onSuccess(new OnSuccess<T>() {
             @Override
             public void onSuccess(T result) throws Throwable {
-                sender.tell(new ExecutionResultMessage(result), self); // prevent message is null error
+                sender.tell(correlate(id, new ExecutionResultMessage(result)), self); // prevent message is null error
             }
         }, ec);
         value.onFailure(new OnFailure() {
             @Override
             public void onFailure(Throwable failure) throws Throwable {
                 log.debug("Future failure: [{}]", failure.getMessage());
-                sender.tell(new akka.actor.Status.Failure(failure), self);
+                sender.tell(correlate(id, new akka.actor.Status.Failure(failure)), self);
             }
         }, ec);
     }
 
     private void setOutdoorInternal(final ActorRef sender, final ActorRef self, boolean outdoor) {
         if (!loaded) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone status cannot be changed when not initialized")), self);
+            replyFailure(sender, self, new DroneException("Drone status cannot be changed when not initialized"));
         } else {
             log.info("Setting outdoor property.");
             Promise<Void> v = Futures.promise();
@@ -303,7 +520,7 @@ public abstract class DroneActor extends AbstractActor {
 
     private void setHullInternal(final ActorRef sender, final ActorRef self, boolean hull) {
         if (!loaded) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone status cannot be changed when not initialized")), self);
+            replyFailure(sender, self, new DroneException("Drone status cannot be changed when not initialized"));
         } else {
             log.info("Setting hull property.");
             Promise<Void> v = Futures.promise();
@@ -314,7 +531,7 @@ public abstract class DroneActor extends AbstractActor {
 
     private void flatTrimInternal(final ActorRef sender, final ActorRef self) {
         if (!loaded) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone flattrim cannot be changed when not initialized")), self);
+            replyFailure(sender, self, new DroneException("Drone flattrim cannot be changed when not initialized"));
         } else {
             log.info("Flat trim requested.");
             Promise<Void> v = Futures.promise();
@@ -325,7 +542,7 @@ public abstract class DroneActor extends AbstractActor {
 
     private void calibrateInternal(final ActorRef sender, final ActorRef self, boolean hull, boolean outdoor) {
         if (!loaded) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone calibration not available when not initialized.")), self);
+            replyFailure(sender, self, new DroneException("Drone calibration not available when not initialized."));
         } else {
             log.info("Calibration requested.");
             Promise<Void> v = Futures.promise();
@@ -353,7 +570,7 @@ public abstract class DroneActor extends AbstractActor {
 
     protected void cancelMoveToLocationInternal(final ActorRef sender, final ActorRef self) {
         if (!loaded) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone cannot move when not initialized")), self);
+            replyFailure(sender, self, new DroneException("Drone cannot move when not initialized"));
         } else {
             log.info("Cancelling move to location.");
             Promise<Void> v = Futures.promise();
@@ -364,7 +581,7 @@ public abstract class DroneActor extends AbstractActor {
 
     protected void moveToLocationInternal(final ActorRef sender, final ActorRef self, final MoveToLocationRequestMessage msg) {
         if (!loaded) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone cannot move when not initialized")), self);
+            replyFailure(sender, self, new DroneException("Drone cannot move when not initialized"));
         } else {
             log.info("Navigating to lat=[{}], long=[{}], alt=[{}]", msg.getLatitude(), msg.getLongitude(), msg.getAltitude());
             Promise<Void> v = Futures.promise();
@@ -375,7 +592,7 @@ public abstract class DroneActor extends AbstractActor {
 
     private void moveInternal(final ActorRef sender, final ActorRef self, final MoveRequestMessage msg) {
         if (!loaded || state.getRawValue() == FlyingState.LANDED) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone cannot move when on the ground")), self);
+            replyFailure(sender, self, new DroneException("Drone cannot move when on the ground"));
         } else {
             log.debug("Attempting movement vx=[{}], vy=[{}], vz=[{}], vr=[{}]", msg.getVx(), msg.getVy(), msg.getVz(), msg.getVr());
             Promise<Void> v = Futures.promise();
@@ -413,7 +630,7 @@ public abstract class DroneActor extends AbstractActor {
 
     private void takeOffInternal(final ActorRef sender, final ActorRef self) {
         if (!loaded || state.getRawValue() != FlyingState.LANDED) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Cannot takeoff when not on ground / not initialized.")), self);
+            replyFailure(sender, self, new DroneException("Cannot takeoff when not on ground / not initialized."));
         } else {
             log.debug("Attempting takeoff.");
             Promise<Void> v = Futures.promise();
@@ -429,7 +646,7 @@ public abstract class DroneActor extends AbstractActor {
             handleMessage(v.future(), sender, self);
             land(v);
         } else {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone not initialized yet")), self);
+            replyFailure(sender, self, new DroneException("Drone not initialized yet"));
         }
     }
 
@@ -441,7 +658,7 @@ public abstract class DroneActor extends AbstractActor {
             handleMessage(v.future(), sender, self);
             emergency(v);
         } else {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone not initialized yet")), self);
+            replyFailure(sender, self, new DroneException("Drone not initialized yet"));
         }
     }
 
@@ -451,7 +668,7 @@ public abstract class DroneActor extends AbstractActor {
             handleMessage(v.future(), sender, self);
             setMaxHeight(v, meters);
         } else {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone not initialized yet")), self);
+            replyFailure(sender, self, new DroneException("Drone not initialized yet"));
         }
     }
 
@@ -461,13 +678,13 @@ public abstract class DroneActor extends AbstractActor {
             handleMessage(v.future(), sender, self);
             setMaxTilt(v, degrees);
         } else {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Drone not initialized yet")), self);
+            replyFailure(sender, self, new DroneException("Drone not initialized yet"));
         }
     }
 
     private void flipInternal(final ActorRef sender, final ActorRef self, FlipType type){
         if (!loaded || state.getRawValue() == FlyingState.LANDED) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Cannot flip when on ground / not initialized.")), self);
+            replyFailure(sender, self, new DroneException("Cannot flip when on ground / not initialized."));
         } else {
             log.debug("Attempting flip.");
             Promise<Void> v = Futures.promise();
@@ -478,7 +695,7 @@ public abstract class DroneActor extends AbstractActor {
 
     private void initVideoInternal(final ActorRef sender, final ActorRef self){
         if (!loaded) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Cannot init video when not initialized.")), self);
+            replyFailure(sender, self, new DroneException("Cannot init video when not initialized."));
         } else {
             log.info("Attempting init video.");
             Promise<Void> v = Futures.promise();
@@ -489,7 +706,7 @@ public abstract class DroneActor extends AbstractActor {
 
     private void stopVideoInternal(final ActorRef sender, final ActorRef self){
         if (!loaded) {
-            sender.tell(new akka.actor.Status.Failure(new DroneException("Cannot stop video when not initialized.")), self);
+            replyFailure(sender, self, new DroneException("Cannot stop video when not initialized."));
         } else {
             log.info("Attempting stopping video.");
             Promise<Void> v = Futures.promise();
@@ -532,5 +749,5 @@ public abstract class DroneActor extends AbstractActor {
 
     protected abstract void stopVideo(Promise<Void> p);
 
-    protected abstract UnitPFBuilder<Object> createListeners();
+    protected abstract DispatchBuilder createListeners();
 }
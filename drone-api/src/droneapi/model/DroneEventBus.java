@@ -3,15 +3,28 @@ package droneapi.model;
 import akka.actor.ActorRef;
 import akka.event.japi.LookupEventBus;
 
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
 /**
+ * Event bus of a single drone. Events are classified by their message class.
+ * Messages can be published directly, which avoids allocating a wrapper for every (high frequency) telemetry update.
+ * Wrapped DroneEventMessages are still accepted and unwrapped before being sent.
+ *
+ * Subscribers can limit the rate at which they receive a message class. For these subscribers only the latest
+ * pending value is kept, which is sent as soon as the subscriber's interval expired (see flush).
  * Created by Cedric on 3/17/2015.
  */
-public class DroneEventBus extends LookupEventBus<DroneEventMessage, ActorRef, Class> {
+public class DroneEventBus extends LookupEventBus<Object, ActorRef, Class> {
 
     private final ActorRef publisher;
 
+    // Rate limited subscribers per message class
+    private final Map<Class, List<ThrottledSubscriber>> throttled;
+
     public DroneEventBus(final ActorRef publisher){
         this.publisher = publisher;
+        this.throttled = new HashMap<>();
     }
 
     private boolean publishDisabled = false;
@@ -27,19 +40,138 @@ public class DroneEventBus extends LookupEventBus<DroneEventMessage, ActorRef, C
     }
 
     @Override
-    public Class classify(DroneEventMessage event) {
-        return event.getIdentifier();
+    public Class classify(Object event) {
+        if (event instanceof DroneEventMessage) {
+            return ((DroneEventMessage) event).getIdentifier();
+        }
+        return event.getClass();
     }
 
     @Override
-    public void publish(DroneEventMessage event, ActorRef subscriber) {
+    public void publish(Object event, ActorRef subscriber) {
         if(!publishDisabled) {
-            if (event.getInnerMsg() != null) {
-                subscriber.tell(event.getInnerMsg(), publisher);
+            Object msg = unwrap(event);
+            if (msg != null) {
+                subscriber.tell(msg, publisher);
+            }
+        }
+    }
+
+    @Override
+    public void publish(Object event) {
+        super.publish(event);
+
+        synchronized (throttled) {
+            if (!throttled.isEmpty()) {
+                List<ThrottledSubscriber> subs = throttled.get(classify(event));
+                if (subs != null) {
+                    long now = System.nanoTime();
+                    Object msg = unwrap(event);
+                    for (int i = 0; i < subs.size(); i++) {
+                        subs.get(i).offer(msg, now);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Subscribes to a message class with a maximum rate. Only the latest value is delivered when messages arrive faster.
+     * @param subscriber The actor to which the events have to be sent
+     * @param to The message class
+     * @param maxRate Maximum number of messages per second, unlimited when zero or negative
+     * @return True when subscribed
+     */
+    public boolean subscribe(ActorRef subscriber, Class to, double maxRate) {
+        if (maxRate <= 0) {
+            return subscribe(subscriber, to);
+        }
+
+        super.unsubscribe(subscriber, to);
+        long minInterval = (long) (TimeUnit.SECONDS.toNanos(1) / maxRate);
+        synchronized (throttled) {
+            List<ThrottledSubscriber> subs = throttled.get(to);
+            if (subs == null) {
+                subs = new ArrayList<>();
+                throttled.put(to, subs);
+            }
+            for (ThrottledSubscriber sub : subs) {
+                if (sub.subscriber.equals(subscriber)) {
+                    sub.minInterval = minInterval;
+                    return true;
+                }
+            }
+            subs.add(new ThrottledSubscriber(subscriber, minInterval));
+            return true;
+        }
+    }
+
+    @Override
+    public boolean subscribe(ActorRef subscriber, Class to) {
+        removeThrottled(subscriber, to);
+        return super.subscribe(subscriber, to);
+    }
+
+    @Override
+    public boolean unsubscribe(ActorRef subscriber, Class from) {
+        boolean removed = removeThrottled(subscriber, from);
+        return super.unsubscribe(subscriber, from) || removed;
+    }
+
+    @Override
+    public void unsubscribe(ActorRef subscriber) {
+        super.unsubscribe(subscriber);
+        synchronized (throttled) {
+            Iterator<List<ThrottledSubscriber>> it = throttled.values().iterator();
+            while (it.hasNext()) {
+                List<ThrottledSubscriber> subs = it.next();
+                subs.removeIf(s -> s.subscriber.equals(subscriber));
+                if (subs.isEmpty()) {
+                    it.remove();
+                }
             }
         }
     }
 
+    /**
+     * Sends the pending values of all rate limited subscribers whose interval expired.
+     * Should be called periodically by the owner of the bus.
+     */
+    public void flush() {
+        synchronized (throttled) {
+            long now = System.nanoTime();
+            for (List<ThrottledSubscriber> subs : throttled.values()) {
+                for (ThrottledSubscriber sub : subs) {
+                    sub.flush(now);
+                }
+            }
+        }
+    }
+
+    public boolean hasThrottledSubscribers() {
+        synchronized (throttled) {
+            return !throttled.isEmpty();
+        }
+    }
+
+    private boolean removeThrottled(ActorRef subscriber, Class from) {
+        synchronized (throttled) {
+            List<ThrottledSubscriber> subs = throttled.get(from);
+            if (subs == null) {
+                return false;
+            }
+            boolean removed = subs.removeIf(s -> s.subscriber.equals(subscriber));
+            if (subs.isEmpty()) {
+                throttled.remove(from);
+            }
+            return removed;
+        }
+    }
+
+    private static Object unwrap(Object event) {
+        return event instanceof DroneEventMessage ? ((DroneEventMessage) event).getInnerMsg() : event;
+    }
+
     public boolean isPublishDisabled() {
         return publishDisabled;
     }
@@ -47,4 +179,45 @@ public class DroneEventBus extends LookupEventBus<DroneEventMessage, ActorRef, C
     public void setPublishDisabled(boolean publishDisabled) {
         this.publishDisabled = publishDisabled;
     }
+
+    private class ThrottledSubscriber {
+        private final ActorRef subscriber;
+        private long minInterval;
+        private long lastSent;
+        private boolean sentBefore = false;
+        private Object pending;
+
+        public ThrottledSubscriber(ActorRef subscriber, long minInterval) {
+            this.subscriber = subscriber;
+            this.minInterval = minInterval;
+        }
+
+        public void offer(Object msg, long now) {
+            if (publishDisabled || msg == null) {
+                return;
+            }
+            if (!sentBefore || now - lastSent >= minInterval) {
+                send(msg, now);
+            } else {
+                pending = msg; // conflate, only the latest value is of interest
+            }
+        }
+
+        public void flush(long now) {
+            if (pending != null && now - lastSent >= minInterval) {
+                if (publishDisabled) {
+                    pending = null;
+                } else {
+                    send(pending, now);
+                }
+            }
+        }
+
+        private void send(Object msg, long now) {
+            subscriber.tell(msg, publisher);
+            lastSent = now;
+            sentBefore = true;
+            pending = null;
+        }
+    }
 }
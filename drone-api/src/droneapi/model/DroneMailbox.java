@@ -0,0 +1,191 @@
+package droneapi.model;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.DeadLetter;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import com.typesafe.config.Config;
+import droneapi.messages.*;
+import scala.Option;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mailbox of drone actors, configured as drone-mailbox in reference.conf.
+ * Safety commands (emergency, land, stop) overtake all other messages. Once the mailbox holds conflate-depth
+ * messages, a numeric telemetry message or image replaces the pending one of the same type instead of being appended.
+ * State changes (flying state, connection, navigation, alerts...) are transitions and always stay in order.
+ * When capacity is set, other messages are sent to dead letters while the mailbox is full.
+ */
+public class DroneMailbox implements MailboxType, ProducesMessageQueue<DroneMailbox.DroneMessageQueue> {
+
+    /**
+     * Message queue semantics required by DroneActor
+     */
+    public interface DroneQueueSemantics {
+    }
+
+    private static final Set<Class<?>> URGENT = new HashSet<>(Arrays.asList(
+            EmergencyRequestMessage.class, LandRequestMessage.class, StopMessage.class));
+
+    // Only the latest value of these matters
+    private static final Set<Class<?>> TELEMETRY = new HashSet<>(Arrays.asList(
+            AltitudeChangedMessage.class, BatteryPercentageChangedMessage.class, ImageMessage.class,
+            LocationChangedMessage.class, RotationChangedMessage.class, SpeedChangedMessage.class));
+
+    // Metrics of the local drone mailboxes by owner
+    private static final ConcurrentHashMap<ActorRef, MailboxMetrics> METRICS = new ConcurrentHashMap<>();
+
+    private final int capacity;
+    private final int conflateDepth;
+
+    public DroneMailbox(ActorSystem.Settings settings, Config config) {
+        this.capacity = config.hasPath("capacity") ? config.getInt("capacity") : 0;
+        this.conflateDepth = config.hasPath("conflate-depth") ? config.getInt("conflate-depth") : 32;
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        MailboxMetrics metrics = new MailboxMetrics();
+        if (owner.isDefined()) {
+            METRICS.put(owner.get(), metrics);
+        }
+        return new DroneMessageQueue(capacity, conflateDepth, metrics, system.isDefined() ? system.get() : null);
+    }
+
+    /**
+     * @param actor Local drone actor
+     * @return Metrics of the mailbox of the actor, null when it does not use a drone mailbox in this JVM
+     */
+    public static MailboxMetrics getMetrics(ActorRef actor) {
+        return METRICS.get(actor);
+    }
+
+    private static class Entry extends AtomicReference<Envelope> {
+        // Message type this entry holds the pending telemetry of, null for other messages
+        private final Class<?> type;
+        private final long enqueued = System.nanoTime();
+
+        private Entry(Envelope envelope, Class<?> type) {
+            super(envelope);
+            this.type = type;
+        }
+    }
+
+    public static class DroneMessageQueue implements MessageQueue, DroneQueueSemantics {
+
+        private final ConcurrentLinkedQueue<Entry> urgent = new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+        private final ConcurrentHashMap<Class<?>, Entry> pendingTelemetry = new ConcurrentHashMap<>();
+
+        private final int capacity;
+        private final int conflateDepth;
+        private final MailboxMetrics metrics;
+        private final ActorSystem system;
+
+        private DroneMessageQueue(int capacity, int conflateDepth, MailboxMetrics metrics, ActorSystem system) {
+            this.capacity = capacity;
+            this.conflateDepth = conflateDepth;
+            this.metrics = metrics;
+            this.system = system;
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            Object msg = handle.message();
+            if (msg instanceof CorrelatedMessage) {
+                msg = ((CorrelatedMessage) msg).getMessage();
+            }
+            Class<?> type = msg.getClass();
+
+            if (URGENT.contains(type)) {
+                metrics.increment();
+                urgent.add(new Entry(handle, null));
+                return;
+            }
+
+            boolean telemetry = TELEMETRY.contains(type);
+            int depth = metrics.getDepth();
+            if (telemetry && depth >= conflateDepth && replace(type, handle)) {
+                metrics.conflated();
+                return;
+            }
+
+            if (capacity > 0 && depth >= capacity) {
+                metrics.dropped();
+                if (system != null) {
+                    system.deadLetters().tell(new DeadLetter(handle.message(), handle.sender(), receiver), handle.sender());
+                }
+                return;
+            }
+
+            Entry entry = new Entry(handle, telemetry ? type : null);
+            if (telemetry) {
+                pendingTelemetry.put(type, entry);
+            }
+            metrics.increment();
+            queue.add(entry);
+        }
+
+        // Replaces the pending telemetry of the given type, fails when it was dequeued in the meantime
+        private boolean replace(Class<?> type, Envelope handle) {
+            Entry pending = pendingTelemetry.get(type);
+            if (pending == null) {
+                return false;
+            }
+            Envelope previous = pending.get();
+            return previous != null && pending.compareAndSet(previous, handle);
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Entry entry = urgent.poll();
+            if (entry == null) {
+                entry = queue.poll();
+                if (entry == null) {
+                    return null;
+                }
+            }
+            metrics.decrement();
+
+            Envelope envelope = entry.getAndSet(null);
+            if (entry.type != null) {
+                pendingTelemetry.remove(entry.type, entry);
+            } else {
+                metrics.commandDequeued(System.nanoTime() - entry.enqueued);
+            }
+            return envelope;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return metrics.getDepth();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !urgent.isEmpty() || !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            METRICS.remove(owner, metrics);
+            Envelope envelope;
+            while ((envelope = dequeue()) != null) {
+                deadLetters.enqueue(owner, envelope);
+            }
+        }
+
+        public MailboxMetrics getMetrics() {
+            return metrics;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package droneapi.model;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load metrics of a drone mailbox. Values are updated live and can be read from any thread.
+ */
+public class MailboxMetrics {
+
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // Only written by the dequeuing thread
+    private volatile long commands;
+    private volatile long totalCommandDelay;
+    private volatile long maxCommandDelay;
+
+    /**
+     * @return Number of messages waiting in the mailbox
+     */
+    public int getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * @return Highest number of messages that waited in the mailbox at once
+     */
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return Number of telemetry messages that replaced a pending message of the same type
+     */
+    public long getConflated() {
+        return conflated.sum();
+    }
+
+    /**
+     * @return Number of messages sent to dead letters because the mailbox was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return Number of commands taken out of the mailbox
+     */
+    public long getCommandCount() {
+        return commands;
+    }
+
+    /**
+     * @return Average time commands waited in the mailbox, in milliseconds
+     */
+    public double getAverageCommandDelay() {
+        long count = commands;
+        return count == 0 ? 0 : totalCommandDelay / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return Longest time a command waited in the mailbox, in milliseconds
+     */
+    public double getMaxCommandDelay() {
+        return maxCommandDelay / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    int increment() {
+        int current = depth.incrementAndGet();
+        maxDepth.accumulateAndGet(current, Math::max);
+        return current;
+    }
+
+    void decrement() {
+        depth.decrementAndGet();
+    }
+
+    void conflated() {
+        conflated.increment();
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    void commandDequeued(long delayNanos) {
+        commands++;
+        totalCommandDelay += delayNanos;
+        if (delayNanos > maxCommandDelay) {
+            maxCommandDelay = delayNanos;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth=%d maxDepth=%d conflated=%d dropped=%d commands=%d avgDelay=%.3fms maxDelay=%.3fms",
+                getDepth(), getMaxDepth(), getConflated(), getDropped(), getCommandCount(),
+                getAverageCommandDelay(), getMaxCommandDelay());
+    }
+}
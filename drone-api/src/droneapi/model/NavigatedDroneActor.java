@@ -3,6 +3,7 @@ package droneapi.model;
 import akka.actor.ActorRef;
 import akka.dispatch.Futures;
 import akka.dispatch.OnFailure;
+import droneapi.messages.LocationChangedMessage;
 import droneapi.messages.NavigationStateChangedMessage;
 import droneapi.model.properties.Location;
 import droneapi.model.properties.NavigationState;
@@ -29,10 +30,10 @@ public abstract class NavigatedDroneActor extends DroneActor {
         // Publish navigation state to event bus
         if (fix && !gpsFix.getRawValue()) {
             navigationState.setValue(NavigationState.AVAILABLE);
-            eventBus.publish(new DroneEventMessage(new NavigationStateChangedMessage(NavigationState.AVAILABLE, NavigationStateReason.ENABLED)));
+            eventBus.publish(new NavigationStateChangedMessage(NavigationState.AVAILABLE, NavigationStateReason.ENABLED));
         } else if (!fix && gpsFix.getRawValue()) {
             navigationState.setValue(NavigationState.UNAVAILABLE);
-            eventBus.publish(new DroneEventMessage(new NavigationStateChangedMessage(NavigationState.UNAVAILABLE, NavigationStateReason.CONNECTION_LOST)));
+            eventBus.publish(new NavigationStateChangedMessage(NavigationState.UNAVAILABLE, NavigationStateReason.CONNECTION_LOST));
         }
         super.setGPSFix(fix);
     }
@@ -43,6 +44,15 @@ public abstract class NavigatedDroneActor extends DroneActor {
         processLocation(l);
     }
 
+    @Override
+    protected void handleLocationChanged(LocationChangedMessage msg) {
+        super.handleLocationChanged(msg);
+        // Only materialize the location object when the navigator needs it
+        if (navigationState.getRawValue() == NavigationState.IN_PROGRESS) {
+            processLocation(location.getRawValue());
+        }
+    }
+
     protected void processLocation(Location location) {
         synchronized (navigationLock) {
             if (navigationState.getRawValue() != NavigationState.IN_PROGRESS)
@@ -57,8 +67,8 @@ public abstract class NavigatedDroneActor extends DroneActor {
             }
 
             // Prefer altitude of non-gps sensor
-            if (altitude.getRawValue() > 0) {
-                location = new Location(location.getLatitude(), location.getLongitude(), altitude.getRawValue());
+            if (altitude.isAvailable() && altitude.getDouble() > 0) {
+                location = new Location(location.getLatitude(), location.getLongitude(), altitude.getDouble());
             }
 
             MoveVector cmd = getNavigator().update(location);
@@ -68,7 +78,7 @@ public abstract class NavigatedDroneActor extends DroneActor {
                 log.info("Navigator finished at location [{}] for goal [{}]", location, getNavigator().getGoal());
                 navigationState.setValue(NavigationState.AVAILABLE);
                 navigationStateReason.setValue(NavigationStateReason.FINISHED);
-                eventBus.publish(new DroneEventMessage(new NavigationStateChangedMessage(NavigationState.AVAILABLE, NavigationStateReason.FINISHED)));
+                eventBus.publish(new NavigationStateChangedMessage(NavigationState.AVAILABLE, NavigationStateReason.FINISHED));
 
                 getNavigator().setCurrentLocation(null);
                 getNavigator().setGoal(null);
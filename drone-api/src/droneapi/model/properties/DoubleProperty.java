@@ -0,0 +1,34 @@
+package droneapi.model.properties;
+
+/**
+ * Single primitive double property (e.g. altitude) which avoids boxing on every update
+ */
+public class DoubleProperty extends TelemetryProperty<Double> {
+
+    public DoubleProperty() {
+        super();
+    }
+
+    public DoubleProperty(double value) {
+        super();
+        update(value);
+    }
+
+    public void update(double value) {
+        super.update(value, 0d, 0d);
+    }
+
+    @Override
+    public void setValue(Double value) {
+        update(value, 0d, 0d, value);
+    }
+
+    public double getDouble() {
+        return getX();
+    }
+
+    @Override
+    protected Double create(double x, double y, double z) {
+        return x;
+    }
+}
@@ -0,0 +1,81 @@
+package droneapi.model.properties;
+
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable set of drone properties which were read together at a single point in time.
+ * Properties that were not requested, or for which the drone has no value yet, are absent.
+ */
+public class DroneSnapshot implements Serializable {
+
+    private final long timestamp;
+    private final EnumMap<PropertyType, Object> values;
+
+    /**
+     * @param timestamp Time at which the properties were read, in milliseconds since epoch
+     * @param values The property values
+     */
+    public DroneSnapshot(long timestamp, Map<PropertyType, Object> values) {
+        this.timestamp = timestamp;
+        this.values = new EnumMap<>(PropertyType.class);
+        this.values.putAll(values);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean has(PropertyType type) {
+        return values.containsKey(type);
+    }
+
+    /**
+     * @return The value of the given property, null when absent
+     */
+    public Object get(PropertyType type) {
+        return values.get(type);
+    }
+
+    public Location getLocation() {
+        return (Location) values.get(PropertyType.LOCATION);
+    }
+
+    public Speed getSpeed() {
+        return (Speed) values.get(PropertyType.SPEED);
+    }
+
+    public Byte getBatteryPercentage() {
+        return (Byte) values.get(PropertyType.BATTERY);
+    }
+
+    public Double getAltitude() {
+        return (Double) values.get(PropertyType.ALTITUDE);
+    }
+
+    public FlyingState getFlyingState() {
+        return (FlyingState) values.get(PropertyType.FLYINGSTATE);
+    }
+
+    public Rotation getRotation() {
+        return (Rotation) values.get(PropertyType.ROTATION);
+    }
+
+    public NavigationState getNavigationState() {
+        return (NavigationState) values.get(PropertyType.NAVIGATIONSTATE);
+    }
+
+    public Boolean isGPSFixed() {
+        return (Boolean) values.get(PropertyType.GPSFIX);
+    }
+
+    public Boolean isOnline() {
+        return (Boolean) values.get(PropertyType.NETWORK_STATUS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DroneSnapshot{timestamp=%d, values=%s}", timestamp, values);
+    }
+}
@@ -4,15 +4,34 @@ import akka.dispatch.Futures;
 import scala.concurrent.Future;
 import scala.concurrent.Promise;
 
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.StampedLock;
+
 /**
  * Created by Cedric on 3/9/2015.
+ *
+ * Property written by the owning DroneActor only. Every write increments its version and stamps the time,
+ * other threads can read the latest value lock-free (optimistic reads) without messaging the actor.
  */
 public class LazyProperty<T> {
+
+    // Guards the value, version and timestamp. Only the owning actor takes the write lock.
+    protected final StampedLock lock = new StampedLock();
+
     private Promise<T> promise;
     private T value;
+    // Read by subclasses within their own optimistic read
+    long version = 0;
+    private long timestamp = 0;
+
+    // Readers waiting for a version newer than the one they know
+    private final ConcurrentLinkedQueue<VersionWaiter<T>> waiters = new ConcurrentLinkedQueue<>();
 
     public LazyProperty(T value){
         this.value = value;
+        this.version = 1;
+        this.timestamp = System.currentTimeMillis();
     }
 
     public LazyProperty(){
@@ -20,16 +39,24 @@ public class LazyProperty<T> {
     }
 
     public void setValue(T value){
-        this.value = value;
-        if(promise != null){
-            promise.success(value);
-            promise = null;
+        long stamp = lock.writeLock();
+        try {
+            this.value = value;
+            markUpdated();
+        } finally {
+            lock.unlockWrite(stamp);
         }
+        published(value);
     }
 
+    /**
+     * Future of the current value, or the first value when none is available yet.
+     * Only to be used from the owning actor.
+     */
     public Future<T> getValue(){
-        if(value != null){
-            return Futures.successful(value);
+        T current = getRawValue();
+        if(current != null){
+            return Futures.successful(current);
         } else {
             return promise.future();
         }
@@ -37,6 +64,113 @@ public class LazyProperty<T> {
 
     public T getRawValue(){
         // Might return null!
-        return value;
+        long stamp;
+        T current;
+        do {
+            // Only the owning actor writes, and only for a few instructions
+            stamp = lock.tryOptimisticRead();
+            current = value;
+        } while (!lock.validate(stamp));
+        return current;
+    }
+
+    /**
+     * @return Number of times this property was written, zero when no value is available yet
+     */
+    public long getVersion() {
+        long stamp;
+        long current;
+        do {
+            stamp = lock.tryOptimisticRead();
+            current = version;
+        } while (!lock.validate(stamp));
+        return current;
+    }
+
+    /**
+     * Reads the latest value together with its version and timestamp, safe from any thread.
+     *
+     * @param reading Holder the value, version and timestamp are written to
+     * @return True when a value is available
+     */
+    public boolean read(PropertyReading<? super T> reading) {
+        long stamp;
+        long v;
+        long ts;
+        T current;
+        do {
+            stamp = lock.tryOptimisticRead();
+            v = version;
+            ts = timestamp;
+            current = getRawValue();
+        } while (!lock.validate(stamp));
+        reading.set(current, v, ts);
+        return v > 0;
+    }
+
+    /**
+     * Waits for a version newer than the given one, safe from any thread.
+     *
+     * @param version Latest version known by the caller
+     * @return Future of the value once the property version exceeds the given version
+     */
+    public Future<T> awaitVersion(long version) {
+        if (getVersion() > version) {
+            return Futures.successful(getRawValue());
+        }
+
+        VersionWaiter<T> waiter = new VersionWaiter<>(version);
+        waiters.add(waiter);
+        if (getVersion() > version) { // written while registering
+            waiter.promise.trySuccess(getRawValue());
+        }
+        return waiter.promise.future();
+    }
+
+    /**
+     * Increments the version and timestamp, must be called while holding the write lock.
+     */
+    protected void markUpdated() {
+        version++;
+        timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * @return True when requests or readers wait for the next write
+     */
+    protected boolean isAwaited() {
+        return promise != null || !waiters.isEmpty();
+    }
+
+    /**
+     * Completes pending requests and version waiters after a write, outside of the write lock.
+     */
+    protected void published(T value) {
+        if(promise != null){
+            promise.success(value);
+            promise = null;
+        }
+        if (!waiters.isEmpty()) {
+            long current = getVersion();
+            Iterator<VersionWaiter<T>> it = waiters.iterator();
+            while (it.hasNext()) {
+                VersionWaiter<T> waiter = it.next();
+                if (current > waiter.version) {
+                    waiter.promise.trySuccess(value);
+                    it.remove();
+                } else if (waiter.promise.isCompleted()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static class VersionWaiter<T> {
+        private final long version;
+        private final Promise<T> promise = Futures.promise();
+
+        private VersionWaiter(long version) {
+            this.version = version;
+        }
     }
 }
@@ -1,5 +1,8 @@
 package droneapi.model.properties;
 
+import droneapi.geo.DistanceBearing;
+import droneapi.geo.Geodesy;
+
 import java.io.Serializable;
 
 /**
@@ -39,13 +42,13 @@ public class Location implements Serializable {
     }
 
     public static double distance(Location l1, double longitude2, double latitude2){
-        float[] res = computeDistanceAndBearing(l1.getLatitude(), latitude2, l1.getLongitude(), longitude2);
-        return res[0];
+        return Geodesy.distance(Geodesy.Tier.AUTO, l1.getLatitude(), l1.getLongitude(), latitude2, longitude2);
     }
 
     public static float getBearing(Location l1, Location l2){
-        float[] res = computeDistanceAndBearing(l1, l2);
-        return res[1];
+        DistanceBearing res = new DistanceBearing();
+        Geodesy.compute(Geodesy.Tier.AUTO, l1.getLatitude(), l1.getLongitude(), l2.getLatitude(), l2.getLongitude(), res);
+        return (float) res.getBearing();
     }
 
     public double distance(double longitude2, double latitude2){
@@ -72,108 +75,32 @@ public class Location implements Serializable {
         return degrees + minutes/60f + seconds/3600f;
     }
 
+    /**
+     * Calculates the distance and bearing between two locations in one pass.
+     *
+     * @param result Holder the distance (m) and initial bearing (degrees) are written to
+     */
+    public static void computeDistanceAndBearing(Location l1, Location l2, DistanceBearing result) {
+        Geodesy.compute(Geodesy.Tier.AUTO, l1.getLatitude(), l1.getLongitude(), l2.getLatitude(), l2.getLongitude(), result);
+    }
+
+    /**
+     * @deprecated Allocates a result array on every call, use {@link #computeDistanceAndBearing(Location, Location, DistanceBearing)}
+     */
+    @Deprecated
     public static float[] computeDistanceAndBearing(Location l1, Location l2) {
         return computeDistanceAndBearing(l1.getLatitude(), l2.getLatitude(), l1.getLongitude(), l2.getLongitude());
     }
 
-    // Source: https://android.googlesource.com/platform/frameworks/base/+/refs/heads/master/location/java/android/location/Location.java
+    /**
+     * @return [0] = distance, [1] = bearing, using Vincenty's formula
+     * @deprecated Allocates a result array on every call, use {@link Geodesy#compute}
+     */
+    @Deprecated
     public static float[] computeDistanceAndBearing(double lat1, double lat2, double lon1, double lon2) {
-
-        float[] results = new float[2]; //[0] = distance, [1] = bearing
-        // Based on http://www.ngs.noaa.gov/PUBS_LIB/inverse.pdf
-        // using the "Inverse Formula" (section 4)
-        int MAXITERS = 20;
-        // Convert lat/long to radians
-        lat1 *= Math.PI / 180.0;
-        lat2 *= Math.PI / 180.0;
-        lon1 *= Math.PI / 180.0;
-        lon2 *= Math.PI / 180.0;
-        double a = 6378137.0; // WGS84 major axis
-        double b = 6356752.3142; // WGS84 semi-major axis
-        double f = (a - b) / a;
-        double aSqMinusBSqOverBSq = (a * a - b * b) / (b * b);
-        double L = lon2 - lon1;
-        double A = 0.0;
-        double U1 = Math.atan((1.0 - f) * Math.tan(lat1));
-        double U2 = Math.atan((1.0 - f) * Math.tan(lat2));
-        double cosU1 = Math.cos(U1);
-        double cosU2 = Math.cos(U2);
-        double sinU1 = Math.sin(U1);
-        double sinU2 = Math.sin(U2);
-        double cosU1cosU2 = cosU1 * cosU2;
-        double sinU1sinU2 = sinU1 * sinU2;
-        double sigma = 0.0;
-        double deltaSigma = 0.0;
-        double cosSqAlpha = 0.0;
-        double cos2SM = 0.0;
-        double cosSigma = 0.0;
-        double sinSigma = 0.0;
-        double cosLambda = 0.0;
-        double sinLambda = 0.0;
-        double lambda = L; // initial guess
-        for (int iter = 0; iter < MAXITERS; iter++) {
-            double lambdaOrig = lambda;
-            cosLambda = Math.cos(lambda);
-            sinLambda = Math.sin(lambda);
-            double t1 = cosU2 * sinLambda;
-            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
-            double sinSqSigma = t1 * t1 + t2 * t2; // (14)
-            sinSigma = Math.sqrt(sinSqSigma);
-            cosSigma = sinU1sinU2 + cosU1cosU2 * cosLambda; // (15)
-            sigma = Math.atan2(sinSigma, cosSigma); // (16)
-            double sinAlpha = (sinSigma == 0) ? 0.0 :
-                    cosU1cosU2 * sinLambda / sinSigma; // (17)
-            cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
-            cos2SM = (cosSqAlpha == 0) ? 0.0 :
-                    cosSigma - 2.0 * sinU1sinU2 / cosSqAlpha; // (18)
-            double uSquared = cosSqAlpha * aSqMinusBSqOverBSq; // defn
-            A = 1 + (uSquared / 16384.0) * // (3)
-                    (4096.0 + uSquared *
-                            (-768 + uSquared * (320.0 - 175.0 * uSquared)));
-            double B = (uSquared / 1024.0) * // (4)
-                    (256.0 + uSquared *
-                            (-128.0 + uSquared * (74.0 - 47.0 * uSquared)));
-            double C = (f / 16.0) *
-                    cosSqAlpha *
-                    (4.0 + f * (4.0 - 3.0 * cosSqAlpha)); // (10)
-            double cos2SMSq = cos2SM * cos2SM;
-            deltaSigma = B * sinSigma * // (6)
-                    (cos2SM + (B / 4.0) *
-                            (cosSigma * (-1.0 + 2.0 * cos2SMSq) -
-                                    (B / 6.0) * cos2SM *
-                                            (-3.0 + 4.0 * sinSigma * sinSigma) *
-                                            (-3.0 + 4.0 * cos2SMSq)));
-            lambda = L +
-                    (1.0 - C) * f * sinAlpha *
-                            (sigma + C * sinSigma *
-                                    (cos2SM + C * cosSigma *
-                                            (-1.0 + 2.0 * cos2SM * cos2SM))); // (11)
-            double delta = (lambda - lambdaOrig) / lambda;
-            if (Math.abs(delta) < 1.0e-12) {
-                break;
-            }
-        }
-        float distance = (float) (b * A * (sigma - deltaSigma));
-        results[0] = distance;
-        if (results.length > 1) {
-            float initialBearing = (float) Math.atan2(cosU2 * sinLambda,
-                    cosU1 * sinU2 - sinU1 * cosU2 * cosLambda);
-            initialBearing *= 180.0 / Math.PI;
-
-            if(initialBearing < 0){
-                initialBearing += 360; // Correct angle always positive
-            }
-            results[1] = initialBearing;
-            if (results.length > 2) {
-                float finalBearing = (float) Math.atan2(cosU1 * sinLambda,
-                        -sinU1 * cosU2 + cosU1 * sinU2 * cosLambda);
-                finalBearing *= 180.0 / Math.PI;
-                results[2] = finalBearing;
-            }
-
-
-        }
-        return results;
+        DistanceBearing res = new DistanceBearing();
+        Geodesy.compute(Geodesy.Tier.VINCENTY, lat1, lon1, lat2, lon2, res);
+        return new float[]{(float) res.getDistance(), (float) res.getBearing()};
     }
 
 
@@ -0,0 +1,37 @@
+package droneapi.model.properties;
+
+/**
+ * Location of a drone, stored as primitive latitude, longitude and height
+ */
+public class LocationProperty extends TelemetryProperty<Location> {
+
+    public LocationProperty() {
+        super();
+    }
+
+    public void update(double latitude, double longitude, double height) {
+        super.update(latitude, longitude, height);
+    }
+
+    @Override
+    public void setValue(Location value) {
+        update(value.getLatitude(), value.getLongitude(), value.getHeight(), value);
+    }
+
+    public double getLatitude() {
+        return getX();
+    }
+
+    public double getLongitude() {
+        return getY();
+    }
+
+    public double getHeight() {
+        return getZ();
+    }
+
+    @Override
+    protected Location create(double latitude, double longitude, double height) {
+        return new Location(latitude, longitude, height);
+    }
+}
@@ -0,0 +1,38 @@
+package droneapi.model.properties;
+
+/**
+ * Mutable holder for a property value with its version and timestamp, reused by the reader to avoid allocations.
+ */
+public class PropertyReading<T> {
+
+    private T value;
+    private long version;
+    private long timestamp;
+
+    /**
+     * @return The value, null when not available
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * @return Number of times the property was written, zero when not available
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Time of the last write in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    void set(T value, long version, long timestamp) {
+        this.value = value;
+        this.version = version;
+        this.timestamp = timestamp;
+    }
+}
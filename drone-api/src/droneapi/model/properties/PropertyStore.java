@@ -0,0 +1,69 @@
+package droneapi.model.properties;
+
+import akka.dispatch.Futures;
+import scala.concurrent.Future;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Read-only view on the properties of a DroneActor, safe to use from any thread in the same JVM.
+ * Reads do not lock, allocate or send messages to the actor.
+ */
+public class PropertyStore {
+
+    private final Map<PropertyType, LazyProperty<?>> properties = new EnumMap<>(PropertyType.class);
+
+    public PropertyStore(Map<PropertyType, LazyProperty<?>> properties) {
+        this.properties.putAll(properties);
+    }
+
+    public boolean has(PropertyType type) {
+        return properties.containsKey(type);
+    }
+
+    /**
+     * @return The latest value of the property, null when not available
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(PropertyType type) {
+        LazyProperty<?> property = properties.get(type);
+        return property == null ? null : (T) property.getRawValue();
+    }
+
+    /**
+     * @return Number of times the property was written, zero when not available
+     */
+    public long getVersion(PropertyType type) {
+        LazyProperty<?> property = properties.get(type);
+        return property == null ? 0 : property.getVersion();
+    }
+
+    /**
+     * Reads the latest value of a property with its version and timestamp
+     *
+     * @param reading Holder the value, version and timestamp are written to
+     * @return True when a value is available
+     */
+    public boolean read(PropertyType type, PropertyReading<Object> reading) {
+        LazyProperty<?> property = properties.get(type);
+        if (property == null) {
+            reading.set(null, 0, 0);
+            return false;
+        }
+        return property.read(reading);
+    }
+
+    /**
+     * @param version Latest version known by the caller
+     * @return Future of the value once the property version exceeds the given version
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Future<T> awaitVersion(PropertyType type, long version) {
+        LazyProperty<?> property = properties.get(type);
+        if (property == null) {
+            return Futures.failed(new IllegalArgumentException("Unknown property: " + type));
+        }
+        return (Future<T>) property.awaitVersion(version);
+    }
+}
@@ -0,0 +1,37 @@
+package droneapi.model.properties;
+
+/**
+ * Rotation of a drone, stored as primitive roll, pitch and yaw
+ */
+public class RotationProperty extends TelemetryProperty<Rotation> {
+
+    public RotationProperty() {
+        super();
+    }
+
+    public void update(double roll, double pitch, double yaw) {
+        super.update(roll, pitch, yaw);
+    }
+
+    @Override
+    public void setValue(Rotation value) {
+        update(value.getRoll(), value.getPitch(), value.getYaw(), value);
+    }
+
+    public double getRoll() {
+        return getX();
+    }
+
+    public double getPitch() {
+        return getY();
+    }
+
+    public double getYaw() {
+        return getZ();
+    }
+
+    @Override
+    protected Rotation create(double roll, double pitch, double yaw) {
+        return new Rotation(roll, pitch, yaw);
+    }
+}
@@ -0,0 +1,37 @@
+package droneapi.model.properties;
+
+/**
+ * Speed of a drone, stored as primitive vx, vy and vz
+ */
+public class SpeedProperty extends TelemetryProperty<Speed> {
+
+    public SpeedProperty() {
+        super();
+    }
+
+    public void update(double vx, double vy, double vz) {
+        super.update(vx, vy, vz);
+    }
+
+    @Override
+    public void setValue(Speed value) {
+        update(value.getVx(), value.getVy(), value.getVz(), value);
+    }
+
+    public double getVx() {
+        return getX();
+    }
+
+    public double getVy() {
+        return getY();
+    }
+
+    public double getVz() {
+        return getZ();
+    }
+
+    @Override
+    protected Speed create(double vx, double vy, double vz) {
+        return new Speed(vx, vy, vz);
+    }
+}
@@ -0,0 +1,129 @@
+package droneapi.model.properties;
+
+/**
+ * Property backed by (at most) three primitive components which are overwritten in place on every update,
+ * so the ingest path of the DroneActor allocates nothing.
+ * The boxed value is created by the first reader of a version and cached for the other readers of that version.
+ * Readers never take a lock, they retry their optimistic read instead.
+ */
+public abstract class TelemetryProperty<T> extends LazyProperty<T> {
+
+    private double x;
+    private double y;
+    private double z;
+
+    private boolean available = false;
+    private T view;
+
+    // Boxed value of the latest version that was read
+    private volatile Boxed<T> boxed;
+
+    private static class Boxed<T> {
+        private final long version;
+        private final T value;
+
+        private Boxed(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    protected TelemetryProperty() {
+        super();
+    }
+
+    /**
+     * Overwrites the components of this property
+     * @param x First component
+     * @param y Second component
+     * @param z Third component
+     */
+    protected void update(double x, double y, double z) {
+        update(x, y, z, null);
+    }
+
+    /**
+     * Overwrites the components of this property, reusing an already existing boxed value
+     */
+    protected void update(double x, double y, double z, T view) {
+        if (view == null && isAwaited()) {
+            view = create(x, y, z);
+        }
+        long stamp = lock.writeLock();
+        try {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.view = view;
+            this.available = true;
+            markUpdated();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        if (isAwaited()) {
+            published(view); // complete pending requests
+        }
+    }
+
+    @Override
+    public T getRawValue() {
+        boolean avail;
+        T current;
+        long v;
+        double cx;
+        double cy;
+        double cz;
+        long stamp;
+        do {
+            // Only the owning actor writes, and only for a few instructions
+            stamp = lock.tryOptimisticRead();
+            avail = available;
+            current = view;
+            v = version;
+            cx = x;
+            cy = y;
+            cz = z;
+        } while (!lock.validate(stamp));
+
+        if (!avail || current != null) {
+            return current;
+        }
+        Boxed<T> cached = boxed;
+        if (cached != null && cached.version == v) {
+            return cached.value;
+        }
+        // Readers racing on a new version each box it once, the last one stays cached
+        current = create(cx, cy, cz);
+        boxed = new Boxed<>(v, current);
+        return current;
+    }
+
+    public boolean isAvailable() {
+        long stamp = lock.tryOptimisticRead();
+        boolean avail = available;
+        return lock.validate(stamp) ? avail : getVersion() > 0;
+    }
+
+    /*
+     * The single components are read without synchronization, use them from the owning actor only.
+     * Other threads should use getRawValue or read for a consistent value.
+     */
+
+    protected double getX() {
+        return x;
+    }
+
+    protected double getY() {
+        return y;
+    }
+
+    protected double getZ() {
+        return z;
+    }
+
+    /**
+     * Creates the boxed representation of the current components
+     */
+    protected abstract T create(double x, double y, double z);
+}
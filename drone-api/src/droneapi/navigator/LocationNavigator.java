@@ -1,5 +1,6 @@
 package droneapi.navigator;
 
+import droneapi.geo.DistanceBearing;
 import droneapi.model.properties.Location;
 
 /**
@@ -14,6 +15,10 @@ public class LocationNavigator {
     private float gpsAccuracy;
     private boolean hadHeading;
 
+    // Reused result holders, update is called for every GPS fix
+    private final DistanceBearing moved = new DistanceBearing();
+    private final DistanceBearing toGoal = new DistanceBearing();
+
     // Rotational values
     private float degreesLeft = 0;
     private boolean left;
@@ -45,9 +50,9 @@ public class LocationNavigator {
             return null;
         }
 
-        float[] res = Location.computeDistanceAndBearing(previousLocation, location); // calculate the currently moved direction
-        float movedDistance = res[0];
-        float movedBearing = res[1];
+        Location.computeDistanceAndBearing(previousLocation, location, moved); // calculate the currently moved direction
+        float movedDistance = (float) moved.getDistance();
+        float movedBearing = (float) moved.getBearing();
 
         double vz = 0;
         double heightDiff = goal.getHeight() - location.getHeight();
@@ -55,9 +60,9 @@ public class LocationNavigator {
             vz = Math.abs(heightDiff) > maxVerticalVelocity ? Math.signum(heightDiff) : (heightDiff / maxVerticalVelocity); // pos = rise, neg = down
         }
 
-        res = Location.computeDistanceAndBearing(location, goal);
-        float goalDistance = res[0];
-        float goalBearing = res[1];
+        Location.computeDistanceAndBearing(location, goal, toGoal);
+        float goalDistance = (float) toGoal.getDistance();
+        float goalBearing = (float) toGoal.getBearing();
 
         // When within 10m, go slower
         double vx;
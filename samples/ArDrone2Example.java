@@ -22,10 +22,10 @@ public class ArDrone2Example {
 
 		BebopDriver driver = new BebopDriver();
 		ArDrone2Driver ar2Driver = new ArDrone2Driver();
-		final DroneCommander commander = new DroneCommander("192.168.1.175", driver);
-
 		ActorSystem system = ActorSystem.create();
 
+		final DroneCommander commander = new DroneCommander(system, "192.168.1.175", driver);
+
 		ActorRef logger = system.actorOf(Props.create(Logger.class));
 
 		commander.subscribeTopics(logger, new Class[]{FlyingStateChangedMessage.class, LocationChangedMessage.class});
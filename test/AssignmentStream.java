@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Assignments submitted by the benchmark, each at its own time after the start.
+ * A stream is generated or replayed from a trace. A trace has one assignment per line:
+ * the offset in seconds followed by latitude, longitude, altitude and waiting time of each checkpoint,
+ * separated by commas. Empty lines and lines starting with # are skipped.
+ */
+public class AssignmentStream {
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    public static class Arrival {
+        private final long offset;
+        private final double[][] route;
+
+        /**
+         * @param offset Milliseconds after the start of the stream
+         * @param route  Latitude, longitude, altitude and waiting time of each checkpoint
+         */
+        public Arrival(long offset, double[][] route) {
+            this.offset = offset;
+            this.route = route;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public double[][] getRoute() {
+            return route;
+        }
+    }
+
+    private final List<Arrival> arrivals;
+
+    public AssignmentStream(List<Arrival> arrivals) {
+        this.arrivals = arrivals;
+    }
+
+    public List<Arrival> getArrivals() {
+        return arrivals;
+    }
+
+    public int size() {
+        return arrivals.size();
+    }
+
+    /**
+     * Generates assignments arriving as a Poisson process, with routes of one to three checkpoints
+     * around a random center.
+     *
+     * @param rate    Assignments per second, all at once when not positive
+     * @param centers Latitude and longitude of the areas the routes are in
+     * @param radius  Distance in meters from the center to the checkpoints at most
+     */
+    public static AssignmentStream synthetic(int count, double rate, List<double[]> centers, double radius, Random random) {
+        List<Arrival> arrivals = new ArrayList<>();
+        double time = 0;
+        for (int i = 0; i < count; i++) {
+            if (rate > 0) {
+                time += -Math.log(1 - random.nextDouble()) / rate;
+            }
+            double[] center = centers.get(random.nextInt(centers.size()));
+            double[][] route = new double[1 + random.nextInt(3)][];
+            for (int c = 0; c < route.length; c++) {
+                double distance = radius * Math.sqrt(random.nextDouble());
+                double angle = 2 * Math.PI * random.nextDouble();
+                double latitude = center[0] + distance * Math.cos(angle) / METERS_PER_DEGREE;
+                double longitude = center[1] + distance * Math.sin(angle)
+                        / (METERS_PER_DEGREE * Math.cos(Math.toRadians(center[0])));
+                route[c] = new double[]{latitude, longitude, 5 + random.nextInt(25), random.nextInt(5)};
+            }
+            arrivals.add(new Arrival((long) (time * 1000), route));
+        }
+        return new AssignmentStream(arrivals);
+    }
+
+    /**
+     * @param speedup Factor the offsets in the trace are divided by
+     */
+    public static AssignmentStream replay(Path trace, double speedup) throws IOException {
+        List<Arrival> arrivals = new ArrayList<>();
+        int number = 0;
+        for (String line : Files.readAllLines(trace, StandardCharsets.UTF_8)) {
+            number++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length < 5 || (fields.length - 1) % 4 != 0) {
+                throw new IOException("Invalid assignment on line " + number + " of " + trace + ".");
+            }
+            double[][] route = new double[(fields.length - 1) / 4][4];
+            for (int i = 1; i < fields.length; i++) {
+                route[(i - 1) / 4][(i - 1) % 4] = Double.parseDouble(fields[i].trim());
+            }
+            arrivals.add(new Arrival((long) (Double.parseDouble(fields[0].trim()) * 1000 / speedup), route));
+        }
+        arrivals.sort((a1, a2) -> Long.compare(a1.getOffset(), a2.getOffset()));
+        return new AssignmentStream(arrivals);
+    }
+
+    /**
+     * Writes the stream as a trace, to replay it later.
+     */
+    public void write(Path trace) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# offset (s), then latitude, longitude, altitude (m), waiting time (s) per checkpoint");
+        for (Arrival arrival : arrivals) {
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%.3f", arrival.getOffset() / 1000.0));
+            for (double[] checkpoint : arrival.getRoute()) {
+                line.append(String.format(Locale.ROOT, ",%.7f,%.7f,%.1f,%d",
+                        checkpoint[0], checkpoint[1], checkpoint[2], (int) checkpoint[3]));
+            }
+            lines.add(line.toString());
+        }
+        Files.write(trace, lines, StandardCharsets.UTF_8);
+    }
+}
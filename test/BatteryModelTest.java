@@ -0,0 +1,97 @@
+import drones.models.BatteryModel;
+import models.DroneType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests fitting the battery consumption of drones from completed flights.
+ */
+public class BatteryModelTest {
+
+    private static final DroneType TYPE = new DroneType("bepop", "1");
+
+    private static double used(double perMeter, double perSecond, double perMeterClimbed,
+                               double distance, double hoverTime, double climb, Random random) {
+        return perMeter * distance + perSecond * hoverTime + perMeterClimbed * climb + random.nextGaussian();
+    }
+
+    private static void fly(BatteryModel model, long droneId, int flights, double perMeter, Random random) {
+        for (int i = 0; i < flights; i++) {
+            double distance = 200 + random.nextDouble() * 2000;
+            double hoverTime = random.nextDouble() * 120;
+            double climb = 2 + random.nextDouble() * 20;
+            model.observe(TYPE, droneId, used(perMeter, 0.015, 0.03, distance, hoverTime, climb, random),
+                    distance, hoverTime, climb);
+        }
+    }
+
+    @Test
+    public void observe_LearnsType() {
+        BatteryModel model = new BatteryModel(1, 2, 5, 1);
+        // Prior: 0.01% per meter
+        Assert.assertEquals(15 + 1.2 + 0.5, model.estimate(TYPE, 1, 1500, 60, 10), 1e-9);
+        double before = model.required(TYPE, 1, 1500, 60, 10);
+
+        fly(model, 1, 100, 0.006, new Random(1));
+        // A drone of the same type that never flew
+        Assert.assertEquals(9 + 0.9 + 0.3, model.estimate(TYPE, 2, 1500, 60, 10), 0.5);
+        double after = model.required(TYPE, 2, 1500, 60, 10);
+        Assert.assertTrue(after < before);
+        // Accepted now, rejected with 0.01% per meter
+        Assert.assertTrue(model.isSufficient(TYPE, 2, 14, 1500, 60, 10));
+        Assert.assertFalse(14 > 1500 * BatteryModel.PER_METER);
+    }
+
+    @Test
+    public void observe_DroneFitAfterMinSamples() {
+        BatteryModel model = new BatteryModel(1, 2, 5, 1);
+        Random random = new Random(2);
+        fly(model, 1, 50, 0.006, random);
+        // A worn drone uses more
+        fly(model, 2, 4, 0.012, random);
+        Assert.assertEquals(4, model.getSamples(2));
+        Assert.assertEquals(model.estimate(TYPE, 3, 1500, 0, 0), model.estimate(TYPE, 2, 1500, 0, 0), 1e-9);
+        fly(model, 2, 30, 0.012, random);
+        Assert.assertTrue(model.estimate(TYPE, 2, 1500, 0, 0) > model.estimate(TYPE, 1, 1500, 0, 0) + 3);
+        // Requires more than it learned it uses
+        Assert.assertTrue(model.required(TYPE, 2, 1500, 0, 0) > 1500 * 0.012);
+    }
+
+    @Test
+    public void coldStart_AcceptsLikeBaseline() {
+        BatteryModel model = new BatteryModel(1, 2, 5, 0.99);
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            double distance = random.nextDouble() * 5000;
+            double hoverTime = random.nextDouble() * 120;
+            double climb = random.nextDouble() * 20;
+            double battery = random.nextDouble() * 60;
+            Assert.assertEquals(battery > distance * BatteryModel.PER_METER,
+                    model.isSufficient(TYPE, 1, battery, distance, hoverTime, climb));
+        }
+        // Until the type completed enough flights
+        fly(model, 1, 4, 0.01, random);
+        Assert.assertEquals(1500 * BatteryModel.PER_METER, model.required(TYPE, 2, 1500, 60, 10), 1e-9);
+    }
+
+    @Test
+    public void forgetting_UnexcitedUncertaintyBounded() {
+        BatteryModel model = new BatteryModel(1, 2, 5, 0.99);
+        Random random = new Random(4);
+        // Flights that never hover or climb
+        for (int i = 0; i < 2000; i++) {
+            double distance = 200 + random.nextDouble() * 2000;
+            model.observe(TYPE, 1, used(0.01, 0.02, 0.05, distance, 0, 0, random), distance, 0, 0);
+        }
+        // No more uncertain about hovering than the prior
+        double prior = 60 * BatteryModel.PER_SECOND;
+        double bound = prior + 2 * Math.sqrt(Math.pow(prior * 0.5, 2) + 1);
+        Assert.assertEquals(prior, model.estimate(TYPE, 1, 0, 60, 0), 1e-9);
+        Assert.assertTrue(model.required(TYPE, 1, 0, 60, 0) <= bound + 1e-9);
+        Assert.assertTrue(model.required(TYPE, 2, 0, 60, 0) <= bound + 1e-9);
+        // Still certain about distance
+        Assert.assertTrue(model.required(TYPE, 1, 1500, 0, 0) < 1500 * 0.01 + 2.5);
+    }
+}
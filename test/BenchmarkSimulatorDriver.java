@@ -0,0 +1,44 @@
+import droneapi.model.DroneActor;
+import droneapi.model.properties.Location;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+import simulator.BepopSimulator;
+import simulator.SimulatorDriver;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulator driver starting each simulated drone at its own location, looked up by the address of the drone.
+ * The location of a drone is known before its commander is created, so commanders can be created concurrently.
+ * Drones marked as slow are simulated by SlowBepopSimulator.
+ */
+public class BenchmarkSimulatorDriver extends SimulatorDriver {
+
+    private final ConcurrentHashMap<String, Location> startLocations = new ConcurrentHashMap<>();
+    private final Set<String> slowDrones = ConcurrentHashMap.newKeySet();
+    private volatile FiniteDuration replyDelay = Duration.create(100, TimeUnit.MILLISECONDS);
+
+    public void setStartLocation(String droneAddress, Location location) {
+        startLocations.put(droneAddress, location);
+    }
+
+    public void setSlow(String droneAddress) {
+        slowDrones.add(droneAddress);
+    }
+
+    public void setReplyDelay(FiniteDuration replyDelay) {
+        this.replyDelay = replyDelay;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends DroneActor> T createActor(String droneAddress) {
+        Location location = startLocations.getOrDefault(droneAddress, getStartLocation());
+        if (slowDrones.contains(droneAddress)) {
+            return (T) new SlowBepopSimulator(location, getMaxHeight(), getAngleWrtEquator(), getTopSpeed(), replyDelay);
+        }
+        return (T) new BepopSimulator(location, getMaxHeight(), getAngleWrtEquator(), getTopSpeed());
+    }
+}
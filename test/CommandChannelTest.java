@@ -0,0 +1,142 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Status;
+import akka.pattern.AskTimeoutException;
+import akka.testkit.JavaTestKit;
+import droneapi.api.DroneCommander;
+import droneapi.messages.*;
+import droneapi.model.DroneException;
+import droneapi.model.properties.PropertyType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import scala.concurrent.Await;
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the correlation of DroneCommander requests and replies, using a probe as drone actor.
+ */
+public class CommandChannelTest {
+
+    private static final Duration TIMEOUT = Duration.create(1, TimeUnit.SECONDS);
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void teardown() {
+        JavaTestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static DroneCommander initCommander(JavaTestKit drone) throws Exception {
+        DroneCommander commander = new DroneCommander(system, drone.getRef());
+        Future<Void> init = commander.init();
+        CorrelatedMessage msg = drone.expectMsgClass(CorrelatedMessage.class);
+        Assert.assertTrue(msg.getMessage() instanceof InitRequestMessage);
+        drone.reply(new CorrelatedMessage(msg.getId(), new ExecutionResultMessage(null)));
+
+        // No property store for this drone, should not fail the initialization
+        msg = drone.expectMsgClass(CorrelatedMessage.class);
+        Assert.assertTrue(msg.getMessage() instanceof PropertyStoreRequestMessage);
+        drone.reply(new CorrelatedMessage(msg.getId(), new Status.Failure(new DroneException("Not local"))));
+        Await.result(init, TIMEOUT);
+        Assert.assertNull(commander.getPropertyStore());
+        Assert.assertTrue(commander.isInitialized());
+        return commander;
+    }
+
+    @Test
+    public void replies_OutOfOrder_Resolved() throws Exception {
+        new JavaTestKit(system) {{
+            DroneCommander commander = initCommander(this);
+
+            Future<Byte> battery = commander.getBatteryPercentage();
+            CorrelatedMessage batteryRequest = expectMsgClass(CorrelatedMessage.class);
+            Assert.assertEquals(PropertyType.BATTERY, ((PropertyRequestMessage) batteryRequest.getMessage()).getType());
+            ActorRef replyTo = getLastSender();
+
+            Future<Double> altitude = commander.getAltitude();
+            CorrelatedMessage altitudeRequest = expectMsgClass(CorrelatedMessage.class);
+
+            Future<Void> takeOff = commander.takeOff();
+            CorrelatedMessage takeOffRequest = expectMsgClass(CorrelatedMessage.class);
+
+            // Reply in reverse order
+            replyTo.tell(new CorrelatedMessage(takeOffRequest.getId(), new Status.Failure(new DroneException("On ground"))), getRef());
+            replyTo.tell(new CorrelatedMessage(altitudeRequest.getId(), new ExecutionResultMessage(42d)), getRef());
+            replyTo.tell(new CorrelatedMessage(batteryRequest.getId(), new ExecutionResultMessage((byte) 25)), getRef());
+
+            Assert.assertEquals(Byte.valueOf((byte) 25), Await.result(battery, TIMEOUT));
+            Assert.assertEquals(42d, Await.result(altitude, TIMEOUT), 0);
+            try {
+                Await.result(takeOff, TIMEOUT);
+                Assert.fail("Failure reply should fail the future.");
+            } catch (DroneException ex) {
+                Assert.assertEquals("On ground", ex.getMessage());
+            }
+        }};
+    }
+
+    @Test
+    public void longPending_OthersResolved() throws Exception {
+        new JavaTestKit(system) {{
+            DroneCommander commander = initCommander(this);
+
+            // A command still waiting for its reply while many later ones complete
+            Future<Void> land = commander.land();
+            CorrelatedMessage landRequest = expectMsgClass(CorrelatedMessage.class);
+            ActorRef replyTo = getLastSender();
+            for (int i = 0; i < 1000; i++) {
+                Future<Byte> battery = commander.getBatteryPercentage();
+                CorrelatedMessage request = expectMsgClass(CorrelatedMessage.class);
+                replyTo.tell(new CorrelatedMessage(request.getId(), new ExecutionResultMessage((byte) 50)), getRef());
+                Assert.assertEquals(Byte.valueOf((byte) 50), Await.result(battery, TIMEOUT));
+            }
+            replyTo.tell(new CorrelatedMessage(landRequest.getId(), new ExecutionResultMessage(null)), getRef());
+            Await.result(land, TIMEOUT);
+        }};
+    }
+
+    @Test
+    public void noReply_TimesOut() throws Exception {
+        new JavaTestKit(system) {{
+            DroneCommander commander = initCommander(this);
+
+            Future<Void> land = commander.land();
+            expectMsgClass(CorrelatedMessage.class);
+            try {
+                Await.result(land, Duration.create(5, TimeUnit.SECONDS));
+                Assert.fail("Command without reply should time out.");
+            } catch (AskTimeoutException ex) {
+                // expected
+            }
+        }};
+    }
+
+    @Test
+    public void stop_FailsPending() throws Exception {
+        new JavaTestKit(system) {{
+            DroneCommander commander = initCommander(this);
+
+            Future<Void> land = commander.land();
+            expectMsgClass(CorrelatedMessage.class);
+            commander.stop();
+            expectMsgClass(StopMessage.class);
+            try {
+                Await.result(land, TIMEOUT);
+                Assert.fail("Pending command should fail on stop.");
+            } catch (DroneException ex) {
+                // expected
+            }
+        }};
+    }
+}
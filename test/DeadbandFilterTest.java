@@ -0,0 +1,88 @@
+import com.typesafe.config.ConfigFactory;
+import droneapi.model.DeadbandFilter;
+import droneapi.model.properties.PropertyType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests the suppression of drone events within the deadband of their property.
+ */
+public class DeadbandFilterTest {
+
+    private static DeadbandFilter createFilter() {
+        return new DeadbandFilter(ConfigFactory.parseString(
+                "heartbeat = 5s\ndeadband { altitude = 0.3, battery = 1, location = 0.5, speed = 0.1 }"));
+    }
+
+    @Test
+    public void withinDeadband_Suppressed() {
+        DeadbandFilter filter = createFilter();
+        Assert.assertTrue(filter.offer(PropertyType.ALTITUDE, 10, 1000));
+        Assert.assertFalse(filter.offer(PropertyType.ALTITUDE, 10.2, 1100));
+        Assert.assertFalse(filter.offer(PropertyType.ALTITUDE, 9.8, 1200));
+
+        // Compared to the last published value, not the last offered one
+        Assert.assertTrue(filter.offer(PropertyType.ALTITUDE, 10.3, 1300));
+        Assert.assertFalse(filter.offer(PropertyType.ALTITUDE, 10.5, 1400));
+
+        Assert.assertTrue(filter.offer(PropertyType.BATTERY, 80, 1000));
+        Assert.assertFalse(filter.offer(PropertyType.BATTERY, 80, 1100));
+        Assert.assertTrue(filter.offer(PropertyType.BATTERY, 79, 1200));
+    }
+
+    @Test
+    public void location_DeadbandInMeters() {
+        DeadbandFilter filter = createFilter();
+        Assert.assertTrue(filter.offer(PropertyType.LOCATION, 51.0, 4.0, 10, 1000));
+        Assert.assertFalse(filter.offer(PropertyType.LOCATION, 51.000001, 4.000001, 10.2, 1100)); // ~0.13m + 0.2m
+        Assert.assertTrue(filter.offer(PropertyType.LOCATION, 51.00001, 4.0, 10, 1200)); // ~1.1m
+    }
+
+    @Test
+    public void speed_AnyComponent() {
+        DeadbandFilter filter = createFilter();
+        Assert.assertTrue(filter.offer(PropertyType.SPEED, 0, 0, 0, 1000));
+        Assert.assertFalse(filter.offer(PropertyType.SPEED, 0.05, 0.05, 0.05, 1100));
+        Assert.assertTrue(filter.offer(PropertyType.SPEED, 0, 0, 0.15, 1200));
+    }
+
+    @Test
+    public void heartbeat_PublishesAgain() {
+        DeadbandFilter filter = createFilter();
+        Assert.assertFalse(filter.isHeartbeatDue(PropertyType.ALTITUDE, 1000));
+        Assert.assertTrue(filter.offer(PropertyType.ALTITUDE, 10, 1000));
+        Assert.assertFalse(filter.isHeartbeatDue(PropertyType.ALTITUDE, 5999));
+        Assert.assertTrue(filter.isHeartbeatDue(PropertyType.ALTITUDE, 6000));
+        Assert.assertTrue(filter.offer(PropertyType.ALTITUDE, 10, 6000));
+        Assert.assertFalse(filter.isHeartbeatDue(PropertyType.ALTITUDE, 6000));
+    }
+
+    @Test
+    public void withoutDeadband_AlwaysPublished() {
+        DeadbandFilter filter = createFilter();
+        Assert.assertFalse(filter.hasDeadband(PropertyType.ROTATION));
+        Assert.assertTrue(filter.offer(PropertyType.ROTATION, 1, 2, 3, 1000));
+        Assert.assertTrue(filter.offer(PropertyType.ROTATION, 1, 2, 3, 1000));
+        Assert.assertFalse(filter.isHeartbeatDue(PropertyType.ROTATION, 100000));
+    }
+
+    @Test
+    public void hoveringDrone_MostEventsSuppressed() {
+        DeadbandFilter filter = createFilter();
+        Random random = new Random(1);
+
+        // One minute of navdata at 15Hz, hovering at 10m with sensor noise
+        int updates = 15 * 60;
+        int published = 0;
+        for (int i = 0; i < updates; i++) {
+            long now = 1000 + i * 1000 / 15;
+            double altitude = 10 + random.nextGaussian() * 0.05;
+            if (filter.offer(PropertyType.ALTITUDE, altitude, now)) {
+                published++;
+            }
+        }
+        Assert.assertTrue(published < updates / 20);
+    }
+}
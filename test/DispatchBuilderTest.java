@@ -0,0 +1,243 @@
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.japi.pf.FI;
+import akka.japi.pf.ReceiveBuilder;
+import akka.japi.pf.UnitPFBuilder;
+import akka.testkit.JavaTestKit;
+import droneapi.messages.*;
+import droneapi.model.DispatchBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.PartialFunction;
+import scala.concurrent.duration.Duration;
+import scala.runtime.BoxedUnit;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the semantics of DispatchBuilder against ReceiveBuilder and benchmarks both for telemetry messages,
+ * as a bare partial function and as the behaviour of an actor.
+ */
+public class DispatchBuilderTest {
+
+    private static final int ROUNDS = 2000000;
+    private static final int ACTOR_ROUNDS = 1000000;
+
+    // Request messages handled before the telemetry messages, as in DroneActor
+    private static final Class<?>[] REQUESTS = {
+            PropertyRequestMessage.class, PropertyStoreRequestMessage.class, InitRequestMessage.class,
+            TakeOffRequestMessage.class, LandRequestMessage.class, MoveRequestMessage.class,
+            MoveToLocationRequestMessage.class, MoveToLocationCancellationMessage.class, SetMaxHeightRequestMessage.class,
+            SetMaxTiltRequestMessage.class, SetOutdoorRequestMessage.class, SetHullRequestMessage.class,
+            FlatTrimRequestMessage.class, CalibrateRequestMessage.class, EmergencyRequestMessage.class,
+            FlipRequestMessage.class, InitVideoRequestMessage.class, StopVideoRequestMessage.class,
+            SubscribeEventMessage.class, UnsubscribeEventMessage.class,
+            CorrelatedMessage.class, ExecutionResultMessage.class, ImageMessage.class
+    };
+
+    private static final Class<?>[] TELEMETRY = {
+            BatteryPercentageChangedMessage.class, AltitudeChangedMessage.class, FlyingStateChangedMessage.class,
+            NavigationStateChangedMessage.class, FlatTrimChangedMessage.class, AlertStateChangedMessage.class,
+            ConnectionStatusChangedMessage.class, GPSFixChangedMessage.class, ProductVersionChangedMessage.class,
+            MagnetoCalibrationStateChangedMessage.class, RotationChangedMessage.class, SpeedChangedMessage.class,
+            LocationChangedMessage.class
+    };
+
+    private static final Object[] MESSAGES = {
+            new LocationChangedMessage(4.4, 51.2, 10), new AltitudeChangedMessage(10),
+            new SpeedChangedMessage(1, 2, 3), new RotationChangedMessage(0.1, 0.2, 0.3),
+            new BatteryPercentageChangedMessage((byte) 80)
+    };
+
+    private long handled;
+
+    @Test
+    public void firstMatch_Wins() {
+        List<String> calls = new ArrayList<>();
+        PartialFunction<Object, BoxedUnit> pf = new DispatchBuilder()
+                .match(Integer.class, i -> calls.add("int"))
+                .match(Number.class, n -> calls.add("number"))
+                .match(Integer.class, i -> calls.add("unreachable"))
+                .build();
+
+        pf.apply(1);
+        pf.apply(1L);
+        Assert.assertEquals("int", calls.get(0));
+        Assert.assertEquals("number", calls.get(1));
+        Assert.assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void predicate_FallsThrough() {
+        List<String> calls = new ArrayList<>();
+        PartialFunction<Object, BoxedUnit> pf = new DispatchBuilder()
+                .match(String.class, "tick"::equals, s -> calls.add("tick"))
+                .match(String.class, s -> calls.add("string"))
+                .matchAny(o -> calls.add("any"))
+                .build();
+
+        pf.apply("tick");
+        pf.apply("tock");
+        pf.apply(3);
+        Assert.assertArrayEquals(new Object[]{"tick", "string", "any"}, calls.toArray());
+    }
+
+    @Test
+    public void unknownMessage_NotDefined() {
+        PartialFunction<Object, BoxedUnit> pf = new DispatchBuilder()
+                .match(String.class, "tick"::equals, s -> Assert.fail("Check should not apply the case."))
+                .build();
+
+        Assert.assertTrue(pf.isDefinedAt("tick"));
+        Assert.assertFalse(pf.isDefinedAt("tock"));
+        Assert.assertFalse(pf.isDefinedAt(3));
+        try {
+            pf.apply(3);
+            Assert.fail("Unmatched message should throw.");
+        } catch (scala.MatchError ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void benchmark_Telemetry() {
+        double receive = run(cases(ReceiveBuilder.match(Void.class, v -> {}), this::count).build());
+        double dispatch = run(cases(new DispatchBuilder(), this::count).build());
+        Assert.assertTrue(dispatch > receive);
+    }
+
+    @Test
+    public void benchmark_TelemetryActors() {
+        ActorSystem system = ActorSystem.create();
+        try {
+            // Alternate between both, so both actors see the same warmed up JIT and dispatcher
+            double receive = 0;
+            double dispatch = 0;
+            for (int i = 0; i < 3; i++) {
+                receive = runActor(system, Props.create(ReceiveBuilderActor.class));
+                dispatch = runActor(system, Props.create(DispatchBuilderActor.class));
+            }
+            Assert.assertTrue(dispatch > 0.9 * receive);
+        } finally {
+            JavaTestKit.shutdownActorSystem(system);
+        }
+    }
+
+    @Test
+    public void stoppedActor_DispatcherCollected() throws InterruptedException {
+        ActorSystem system = ActorSystem.create();
+        try {
+            JavaTestKit probe = new JavaTestKit(system);
+            ActorRef actor = system.actorOf(Props.create(DispatchBuilderActor.class));
+            probe.watch(actor);
+            for (Object message : MESSAGES) {
+                actor.tell(message, ActorRef.noSender());
+            }
+            actor.tell(new DispatcherMessage(), probe.getRef());
+            WeakReference<?> dispatcher = probe.expectMsgClass(WeakReference.class);
+            system.stop(actor);
+            probe.expectTerminated(actor);
+
+            // The message classes outlive the actor, their cached cases may not keep it reachable
+            for (int i = 0; i < 50 && dispatcher.get() != null; i++) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            Assert.assertNull(dispatcher.get());
+        } finally {
+            JavaTestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private void count(Object message) {
+        handled++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static UnitPFBuilder<Object> cases(UnitPFBuilder<Object> builder, FI.UnitApply<Object> telemetry) {
+        for (Class<?> type : REQUESTS) {
+            builder.match((Class<Object>) type, m -> Assert.fail("Telemetry should not match a request case."));
+        }
+        for (Class<?> type : TELEMETRY) {
+            builder.match((Class<Object>) type, telemetry);
+        }
+        return builder;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DispatchBuilder cases(DispatchBuilder builder, FI.UnitApply<Object> telemetry) {
+        for (Class<?> type : REQUESTS) {
+            builder.match((Class<Object>) type, m -> Assert.fail("Telemetry should not match a request case."));
+        }
+        for (Class<?> type : TELEMETRY) {
+            builder.match((Class<Object>) type, telemetry);
+        }
+        return builder;
+    }
+
+    private double run(PartialFunction<Object, BoxedUnit> pf) {
+        // Warm up
+        for (int i = 0; i < ROUNDS; i++) {
+            pf.apply(MESSAGES[i % MESSAGES.length]);
+        }
+        handled = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            pf.apply(MESSAGES[i % MESSAGES.length]);
+        }
+        long elapsed = System.nanoTime() - start;
+        Assert.assertEquals(ROUNDS, handled);
+        return ROUNDS * 1e9 / elapsed;
+    }
+
+    /**
+     * @return Telemetry messages per second handled by a single actor
+     */
+    private static double runActor(ActorSystem system, Props props) {
+        JavaTestKit probe = new JavaTestKit(system);
+        ActorRef actor = system.actorOf(props);
+        long start = System.nanoTime();
+        for (int i = 0; i < ACTOR_ROUNDS; i++) {
+            actor.tell(MESSAGES[i % MESSAGES.length], ActorRef.noSender());
+        }
+        actor.tell(new StopMessage(), probe.getRef());
+        long count = probe.expectMsgClass(Duration.create(30, TimeUnit.SECONDS), Long.class);
+        long elapsed = System.nanoTime() - start;
+        Assert.assertEquals(ACTOR_ROUNDS, count);
+        system.stop(actor);
+        return ACTOR_ROUNDS * 1e9 / elapsed;
+    }
+
+    /**
+     * Actor with the cases of DroneActor, replying the number of telemetry messages it handled when stopped
+     */
+    public static class ReceiveBuilderActor extends AbstractActor {
+        private long count;
+
+        public ReceiveBuilderActor() {
+            UnitPFBuilder<Object> builder = ReceiveBuilder.match(StopMessage.class, m -> sender().tell(count, self()));
+            receive(cases(builder, m -> count++).build());
+        }
+    }
+
+    public static class DispatchBuilderActor extends AbstractActor {
+        private long count;
+        private PartialFunction<Object, BoxedUnit> behaviour;
+
+        public DispatchBuilderActor() {
+            DispatchBuilder builder = new DispatchBuilder()
+                    .match(StopMessage.class, m -> sender().tell(count, self()))
+                    .match(DispatcherMessage.class, m -> sender().tell(new WeakReference<>(behaviour), self()));
+            behaviour = cases(builder, m -> count++).build();
+            receive(behaviour);
+        }
+    }
+
+    private static class DispatcherMessage {
+    }
+}
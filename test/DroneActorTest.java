@@ -38,7 +38,7 @@ public class DroneActorTest extends TestSuperclass{
     public void init() throws InterruptedException, TimeoutException {
         droneActor = Akka.system().actorOf(
                 Props.create(TestDroneActor.class));
-        commander = new DroneCommander(droneActor);
+        commander = new DroneCommander(Akka.system(), droneActor);
         Await.ready(commander.init(), TIMEOUT);
     }
 
@@ -104,6 +104,16 @@ public class DroneActorTest extends TestSuperclass{
         Assert.assertEquals(res.getVz(), 3f, 0);
     }
 
+    @Test
+    public void snapshot_Arrives() throws Exception {
+        droneActor.tell(new LocationChangedMessage(1, 2, 3), null);
+        droneActor.tell(new BatteryPercentageChangedMessage((byte)25), null);
+        DroneSnapshot snapshot = Await.result(commander.getSnapshot(PropertyType.LOCATION, PropertyType.BATTERY), TIMEOUT);
+        Assert.assertEquals(snapshot.getLocation().getLatitude(), 2, 0.0d);
+        Assert.assertEquals(snapshot.getBatteryPercentage(), Byte.valueOf((byte) 25));
+        Assert.assertFalse(snapshot.has(PropertyType.SPEED));
+    }
+
     @Test
     @Ignore   // Not used anymore from protocol, obsolete using LocationNavigator
     public void navigationStateChanged_Arrives() throws Exception {
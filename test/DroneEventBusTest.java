@@ -0,0 +1,95 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.JavaTestKit;
+import droneapi.messages.AltitudeChangedMessage;
+import droneapi.messages.LocationChangedMessage;
+import droneapi.model.DroneEventBus;
+import droneapi.model.DroneEventMessage;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import scala.concurrent.duration.Duration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the publishing and rate limiting of the drone event bus without a DroneActor.
+ */
+public class DroneEventBusTest {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void teardown() {
+        JavaTestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void publish_wrappedAndPlain_Arrive() {
+        new JavaTestKit(system) {{
+            DroneEventBus bus = new DroneEventBus(ActorRef.noSender());
+            bus.subscribe(getRef(), AltitudeChangedMessage.class);
+
+            bus.publish(new AltitudeChangedMessage(1));
+            bus.publish(new DroneEventMessage(new AltitudeChangedMessage(2)));
+            bus.publish(new LocationChangedMessage(1, 2, 3));
+
+            Assert.assertEquals(1, expectMsgClass(AltitudeChangedMessage.class).getAltitude(), 0);
+            Assert.assertEquals(2, expectMsgClass(AltitudeChangedMessage.class).getAltitude(), 0);
+            expectNoMsg(Duration.create(100, TimeUnit.MILLISECONDS));
+        }};
+    }
+
+    @Test
+    public void rateLimited_Conflates() throws InterruptedException {
+        new JavaTestKit(system) {{
+            DroneEventBus bus = new DroneEventBus(ActorRef.noSender());
+            JavaTestKit all = new JavaTestKit(system);
+            bus.subscribe(getRef(), AltitudeChangedMessage.class, 2); // every 500ms
+            bus.subscribe(all.getRef(), AltitudeChangedMessage.class);
+
+            for (int i = 1; i <= 10; i++) {
+                bus.publish(new AltitudeChangedMessage(i));
+            }
+
+            // Unlimited subscribers receive every sample
+            for (int i = 1; i <= 10; i++) {
+                Assert.assertEquals(i, all.expectMsgClass(AltitudeChangedMessage.class).getAltitude(), 0);
+            }
+
+            // First sample immediately, nothing else before the interval expired
+            Assert.assertEquals(1, expectMsgClass(AltitudeChangedMessage.class).getAltitude(), 0);
+            bus.flush();
+            expectNoMsg(Duration.create(100, TimeUnit.MILLISECONDS));
+
+            // Only the latest value is delivered afterwards
+            Thread.sleep(500);
+            bus.flush();
+            Assert.assertEquals(10, expectMsgClass(AltitudeChangedMessage.class).getAltitude(), 0);
+            bus.flush();
+            expectNoMsg(Duration.create(100, TimeUnit.MILLISECONDS));
+        }};
+    }
+
+    @Test
+    public void unsubscribe_RemovesRateLimited() {
+        new JavaTestKit(system) {{
+            DroneEventBus bus = new DroneEventBus(ActorRef.noSender());
+            bus.subscribe(getRef(), AltitudeChangedMessage.class, 2);
+            Assert.assertTrue(bus.hasThrottledSubscribers());
+
+            bus.unsubscribe(getRef());
+            Assert.assertFalse(bus.hasThrottledSubscribers());
+
+            bus.publish(new AltitudeChangedMessage(1));
+            expectNoMsg(Duration.create(100, TimeUnit.MILLISECONDS));
+        }};
+    }
+}
@@ -0,0 +1,160 @@
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.japi.pf.ReceiveBuilder;
+import akka.testkit.JavaTestKit;
+import droneapi.api.DroneDriver;
+import droneapi.api.DroneType;
+import droneapi.cluster.DroneEnvelope;
+import droneapi.cluster.DroneHost;
+import droneapi.cluster.DroneProxy;
+import droneapi.messages.*;
+import droneapi.model.DroneActor;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests how a drone proxy and its host restore a drone, without a cluster.
+ * A local region creates the host on the first envelope and moves the drone by stopping its host.
+ */
+public class DroneHostTest {
+
+    // Shorter than the setup timeout of the host, so a reply is never caused by a host that gave up on its proxy
+    private static final FiniteDuration TIMEOUT = Duration.create(3, TimeUnit.SECONDS);
+
+    private static final DroneDriver DRIVER = new DroneDriver() {
+        @Override
+        public Set<DroneType> supportedTypes() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends DroneActor> Class<T> getActorClass() {
+            return (Class<T>) (Class<?>) TestDroneActor.class;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends DroneActor> T createActor(String address) {
+            return (T) new TestDroneActor();
+        }
+    };
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void teardown() {
+        JavaTestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static class MoveMessage implements Serializable {
+    }
+
+    /**
+     * Region of a single drone, the drone moves to a new host on the next envelope after a MoveMessage
+     */
+    public static class LocalRegion extends AbstractActor {
+        private ActorRef host;
+
+        public LocalRegion() {
+            receive(ReceiveBuilder.
+                    match(DroneEnvelope.class, e -> {
+                        if (host == null) {
+                            host = getContext().actorOf(Props.create(DroneHost.class,
+                                    () -> new DroneHost(driver -> DRIVER)));
+                        }
+                        host.forward(e, getContext());
+                    }).
+                    match(MoveMessage.class, m -> {
+                        getContext().stop(host);
+                        host = null;
+                    }).build());
+        }
+    }
+
+    private static ActorRef proxy(ActorRef region) {
+        return system.actorOf(Props.create(DroneProxy.class, () -> new DroneProxy(region, 1, "test", "local")));
+    }
+
+    @Test
+    public void firstInit_Answered() {
+        new JavaTestKit(system) {{
+            ActorRef proxy = proxy(system.actorOf(Props.create(LocalRegion.class)));
+
+            proxy.tell(new CorrelatedMessage(1, new InitRequestMessage()), getRef());
+            CorrelatedMessage reply = expectMsgClass(TIMEOUT, CorrelatedMessage.class);
+            Assert.assertEquals(1, reply.getId());
+            Assert.assertTrue(reply.getMessage() instanceof ExecutionResultMessage);
+        }};
+    }
+
+    @Test
+    public void firstSubscription_DeliveredOnce() {
+        new JavaTestKit(system) {{
+            ActorRef proxy = proxy(system.actorOf(Props.create(LocalRegion.class)));
+
+            proxy.tell(new SubscribeEventMessage(new Class[]{LocationChangedMessage.class}), getRef());
+            proxy.tell(new LocationChangedMessage(4.4, 51.2, 10), ActorRef.noSender());
+            expectMsgClass(TIMEOUT, LocationChangedMessage.class);
+            expectNoMsg(Duration.create(200, TimeUnit.MILLISECONDS));
+        }};
+    }
+
+    @Test
+    public void moved_RestoresInitAndSubscriptions() {
+        new JavaTestKit(system) {{
+            ActorRef region = system.actorOf(Props.create(LocalRegion.class));
+            ActorRef proxy = proxy(region);
+            JavaTestKit subscriber = new JavaTestKit(system);
+
+            proxy.tell(new InitRequestMessage(), getRef());
+            expectMsgClass(TIMEOUT, ExecutionResultMessage.class);
+            proxy.tell(new SubscribeEventMessage(new Class[]{LocationChangedMessage.class}), subscriber.getRef());
+            proxy.tell(new FlatTrimRequestMessage(), getRef());
+            expectMsgClass(TIMEOUT, ExecutionResultMessage.class); // subscribed on the first host
+
+            region.tell(new MoveMessage(), ActorRef.noSender());
+            proxy.tell(new LocationChangedMessage(4.4, 51.2, 10), ActorRef.noSender());
+            subscriber.expectMsgClass(TIMEOUT, LocationChangedMessage.class);
+            subscriber.expectNoMsg(Duration.create(200, TimeUnit.MILLISECONDS));
+
+            // Initialized again on the new host, without asking
+            proxy.tell(new FlatTrimRequestMessage(), getRef());
+            expectMsgClass(TIMEOUT, ExecutionResultMessage.class);
+        }};
+    }
+
+    @Test
+    public void moved_InitArrivingAtNewHostAnswered() {
+        new JavaTestKit(system) {{
+            ActorRef region = system.actorOf(Props.create(LocalRegion.class));
+            ActorRef proxy = proxy(region);
+
+            proxy.tell(new SubscribeEventMessage(new Class[]{LocationChangedMessage.class}), getRef());
+            region.tell(new MoveMessage(), ActorRef.noSender());
+
+            proxy.tell(new InitRequestMessage(), getRef());
+            expectMsgClass(TIMEOUT, ExecutionResultMessage.class);
+            proxy.tell(new LocationChangedMessage(4.4, 51.2, 10), ActorRef.noSender());
+            expectMsgClass(TIMEOUT, LocationChangedMessage.class);
+            expectNoMsg(Duration.create(200, TimeUnit.MILLISECONDS));
+        }};
+    }
+}
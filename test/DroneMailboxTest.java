@@ -0,0 +1,141 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.dispatch.Envelope;
+import akka.dispatch.MessageQueue;
+import akka.testkit.JavaTestKit;
+import com.typesafe.config.ConfigFactory;
+import droneapi.messages.*;
+import droneapi.model.DroneMailbox;
+import droneapi.model.MailboxMetrics;
+import droneapi.model.properties.FlyingState;
+import droneapi.model.properties.PropertyType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import scala.Option;
+
+/**
+ * Tests the ordering, conflation and bounds of the drone mailbox.
+ */
+public class DroneMailboxTest {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void teardown() {
+        JavaTestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static MessageQueue createQueue(int capacity, int conflateDepth) {
+        DroneMailbox mailbox = new DroneMailbox(system.settings(), ConfigFactory.parseString(
+                String.format("capacity = %d%nconflate-depth = %d", capacity, conflateDepth)));
+        return mailbox.create(Option.<ActorRef>empty(), Option.apply(system));
+    }
+
+    private static void send(MessageQueue queue, Object msg) {
+        queue.enqueue(system.deadLetters(), Envelope.apply(msg, ActorRef.noSender(), system));
+    }
+
+    private static Object receive(MessageQueue queue) {
+        Envelope envelope = queue.dequeue();
+        return envelope == null ? null : envelope.message();
+    }
+
+    @Test
+    public void safetyCommands_Overtake() {
+        MessageQueue queue = createQueue(0, 32);
+        for (int i = 0; i < 10; i++) {
+            send(queue, new ImageMessage(new byte[0]));
+        }
+        send(queue, new CorrelatedMessage(1, new TakeOffRequestMessage()));
+        send(queue, new CorrelatedMessage(2, new LandRequestMessage()));
+        send(queue, new EmergencyRequestMessage());
+
+        Assert.assertEquals(13, queue.numberOfMessages());
+        Assert.assertEquals(2, ((CorrelatedMessage) receive(queue)).getId());
+        Assert.assertTrue(receive(queue) instanceof EmergencyRequestMessage);
+        Assert.assertTrue(receive(queue) instanceof ImageMessage);
+    }
+
+    @Test
+    public void telemetry_ConflatedWhenDeep() {
+        MessageQueue queue = createQueue(0, 2);
+        send(queue, new BatteryPercentageChangedMessage((byte) 80));
+        send(queue, new AltitudeChangedMessage(1));
+        send(queue, new BatteryPercentageChangedMessage((byte) 79));
+        send(queue, new BatteryPercentageChangedMessage((byte) 78));
+        send(queue, new TakeOffRequestMessage());
+
+        MailboxMetrics metrics = ((DroneMailbox.DroneMessageQueue) queue).getMetrics();
+        Assert.assertEquals(2, metrics.getConflated());
+        Assert.assertEquals(3, queue.numberOfMessages());
+
+        // Latest value at the position of the first pending one
+        Assert.assertEquals(78, ((BatteryPercentageChangedMessage) receive(queue)).getPercent());
+        Assert.assertTrue(receive(queue) instanceof AltitudeChangedMessage);
+        Assert.assertTrue(receive(queue) instanceof TakeOffRequestMessage);
+        Assert.assertNull(receive(queue));
+        Assert.assertEquals(1, metrics.getCommandCount());
+
+        // Nothing pending anymore, appended again
+        send(queue, new BatteryPercentageChangedMessage((byte) 77));
+        send(queue, new BatteryPercentageChangedMessage((byte) 76));
+        Assert.assertEquals(2, queue.numberOfMessages());
+    }
+
+    @Test
+    public void stateChanges_NeverConflated() {
+        MessageQueue queue = createQueue(0, 1);
+        send(queue, new FlyingStateChangedMessage(FlyingState.TAKINGOFF));
+        send(queue, new FlyingStateChangedMessage(FlyingState.HOVERING));
+        send(queue, new ConnectionStatusChangedMessage(false));
+        send(queue, new FlyingStateChangedMessage(FlyingState.LANDING));
+
+        MailboxMetrics metrics = ((DroneMailbox.DroneMessageQueue) queue).getMetrics();
+        Assert.assertEquals(0, metrics.getConflated());
+        Assert.assertEquals(4, queue.numberOfMessages());
+        Assert.assertEquals(FlyingState.TAKINGOFF, ((FlyingStateChangedMessage) receive(queue)).getState());
+        Assert.assertEquals(FlyingState.HOVERING, ((FlyingStateChangedMessage) receive(queue)).getState());
+        Assert.assertTrue(receive(queue) instanceof ConnectionStatusChangedMessage);
+        Assert.assertEquals(FlyingState.LANDING, ((FlyingStateChangedMessage) receive(queue)).getState());
+    }
+
+    @Test
+    public void bounded_DropsButAcceptsSafetyCommands() {
+        MessageQueue queue = createQueue(2, 32);
+        send(queue, new TakeOffRequestMessage());
+        send(queue, new FlatTrimRequestMessage());
+        send(queue, new CalibrateRequestMessage(false, false));
+        send(queue, new LandRequestMessage());
+
+        MailboxMetrics metrics = ((DroneMailbox.DroneMessageQueue) queue).getMetrics();
+        Assert.assertEquals(1, metrics.getDropped());
+        Assert.assertEquals(3, queue.numberOfMessages());
+        Assert.assertEquals(3, metrics.getMaxDepth());
+        Assert.assertTrue(receive(queue) instanceof LandRequestMessage);
+    }
+
+    @Test
+    public void droneActor_UsesDroneMailbox() {
+        new JavaTestKit(system) {{
+            ActorRef drone = system.actorOf(Props.create(TestDroneActor.class));
+
+            // Wait until the actor is started
+            drone.tell(new PropertyRequestMessage(PropertyType.FLYINGSTATE), getRef());
+            expectMsgClass(ExecutionResultMessage.class);
+
+            MailboxMetrics metrics = DroneMailbox.getMetrics(drone);
+            Assert.assertNotNull(metrics);
+            Assert.assertTrue(metrics.getCommandCount() >= 1);
+            system.stop(drone);
+        }};
+    }
+}
@@ -0,0 +1,182 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Address;
+import akka.actor.Props;
+import akka.cluster.Cluster;
+import akka.cluster.Member;
+import akka.cluster.MemberStatus;
+import akka.pattern.Patterns;
+import akka.persistence.journal.leveldb.SharedLeveldbJournal;
+import akka.persistence.journal.leveldb.SharedLeveldbStore;
+import akka.testkit.JavaTestKit;
+import akka.util.Timeout;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import droneapi.api.DroneCommander;
+import droneapi.api.DroneDriver;
+import droneapi.api.DroneType;
+import droneapi.cluster.DroneHost;
+import droneapi.cluster.DroneSharding;
+import droneapi.model.DroneActor;
+import droneapi.model.properties.FlyingState;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs three cluster nodes on the loopback interface in one JVM and checks that sharded drones
+ * are spread over the nodes and keep responding after a node leaves.
+ */
+public class DroneShardingTest {
+
+    private static final int NODES = 3;
+    private static final int DRONES = 12;
+    private static final FiniteDuration TIMEOUT = Duration.create(10, TimeUnit.SECONDS);
+    // The coordinator singleton of a cluster that came up at once waits out its hand-over retries, ten seconds
+    private static final FiniteDuration COORDINATOR_TIMEOUT = Duration.create(30, TimeUnit.SECONDS);
+    private static final File JOURNAL = new File("target/test-sharding-journal");
+
+    private static final Config CONFIG = ConfigFactory.parseString(
+            "akka.actor.provider = \"akka.cluster.ClusterActorRefProvider\"\n" +
+            "akka.remote.netty.tcp.hostname = \"127.0.0.1\"\n" +
+            "akka.remote.netty.tcp.port = 0\n" +
+            "akka.persistence.journal.plugin = \"akka.persistence.journal.leveldb-shared\"\n" +
+            "akka.persistence.journal.leveldb-shared.store.native = off\n" +
+            "akka.persistence.journal.leveldb-shared.store.dir = \"" + JOURNAL.getPath() + "\"\n" +
+            "akka.persistence.snapshot-store.local.dir = \"" + JOURNAL.getPath() + "/snapshots\"\n" +
+            "akka.contrib.cluster.sharding.least-shard-allocation-strategy.rebalance-threshold = 1\n" +
+            "drone-sharding.shards = 12\n").withFallback(ConfigFactory.load());
+
+    private static final DroneDriver DRIVER = new DroneDriver() {
+        @Override
+        public Set<DroneType> supportedTypes() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends DroneActor> Class<T> getActorClass() {
+            return (Class<T>) (Class<?>) TestDroneActor.class;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends DroneActor> T createActor(String address) {
+            return (T) new TestDroneActor();
+        }
+    };
+
+    private static ActorSystem[] systems = new ActorSystem[NODES];
+    private static ActorRef[] proxies = new ActorRef[DRONES];
+    private static DroneCommander[] commanders = new DroneCommander[DRONES];
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        delete(JOURNAL);
+        for (int i = 0; i < NODES; i++) {
+            systems[i] = ActorSystem.create("drones", CONFIG);
+        }
+
+        // Journal of the shard coordinator, hosted by the first node
+        ActorRef store = systems[0].actorOf(Props.create(SharedLeveldbStore.class), "store");
+        for (ActorSystem system : systems) {
+            SharedLeveldbJournal.setStore(store, system);
+        }
+
+        Address seed = Cluster.get(systems[0]).selfAddress();
+        for (ActorSystem system : systems) {
+            Cluster.get(system).join(seed);
+        }
+        awaitMembers(NODES);
+
+        ActorRef region = DroneSharding.start(systems[0], key -> DRIVER);
+        for (int i = 1; i < NODES; i++) {
+            DroneSharding.start(systems[i], key -> DRIVER);
+        }
+
+        // All drones are controlled from the first node
+        for (int i = 0; i < DRONES; i++) {
+            proxies[i] = systems[0].actorOf(DroneSharding.proxyProps(region, i, "test/1", "127.0.0.1"),
+                    String.format("droneactor-%d", i));
+            commanders[i] = new DroneCommander(systems[0], proxies[i]);
+            Await.result(commanders[i].init(), i == 0 ? COORDINATOR_TIMEOUT : TIMEOUT);
+        }
+    }
+
+    @AfterClass
+    public static void teardown() {
+        for (ActorSystem system : systems) {
+            JavaTestKit.shutdownActorSystem(system);
+        }
+        delete(JOURNAL);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static void awaitMembers(int count) {
+        new JavaTestKit(systems[0]) {{
+            new AwaitCond(duration("20 seconds"), duration("100 millis")) {
+                @Override
+                protected boolean cond() {
+                    // A leaving member is counted until it is removed, its shards are only moved then
+                    int up = 0;
+                    int members = 0;
+                    for (Member member : Cluster.get(systems[0]).state().getMembers()) {
+                        members++;
+                        if (member.status() == MemberStatus.up()) {
+                            up++;
+                        }
+                    }
+                    return up == count && members == count;
+                }
+            };
+        }};
+    }
+
+    private static Address host(int drone) throws Exception {
+        return (Address) Await.result(Patterns.ask(proxies[drone], new DroneHost.HostRequest(),
+                new Timeout(TIMEOUT)), TIMEOUT);
+    }
+
+    @Test
+    public void drones_SpreadOverNodes() throws Exception {
+        Set<Address> hosts = new HashSet<>();
+        for (int i = 0; i < DRONES; i++) {
+            hosts.add(host(i));
+            Assert.assertEquals(FlyingState.LANDED, Await.result(commanders[i].getFlyingState(), TIMEOUT));
+        }
+        Assert.assertTrue("Drones hosted by " + hosts, hosts.size() > 1);
+    }
+
+    @Test
+    public void nodeLeaves_DronesMoved() throws Exception {
+        Address leaving = Cluster.get(systems[NODES - 1]).selfAddress();
+        Cluster.get(systems[NODES - 1]).leave(leaving);
+        awaitMembers(NODES - 1);
+
+        // The proxies restart the drones of the leaving node, initialized and with their subscriptions
+        for (int i = 0; i < DRONES; i++) {
+            Assert.assertNotEquals(leaving, host(i));
+            Assert.assertTrue(commanders[i].canSend());
+            Assert.assertEquals(FlyingState.LANDED, Await.result(commanders[i].getFlyingState(), TIMEOUT));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.dispatch.Futures;
+import akka.testkit.JavaTestKit;
+import drones.models.FleetBootstrap;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import scala.concurrent.Promise;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Tests the bounded initialization of the fleet.
+ */
+public class FleetBootstrapTest {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void teardown() {
+        JavaTestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static ActorRef bootstrap(List<Long> ids, int parallelism, Function<Long, scala.concurrent.Future<?>> initializer, ActorRef listener) {
+        return system.actorOf(Props.create(FleetBootstrap.class, () -> new FleetBootstrap(ids, parallelism, initializer, listener)));
+    }
+
+    @Test
+    public void boundedParallelism_StreamsReadyDrones() {
+        new JavaTestKit(system) {{
+            Map<Long, Promise<Object>> started = new ConcurrentHashMap<>();
+            bootstrap(Arrays.asList(1L, 2L, 3L, 4L, 5L), 2, id -> {
+                Promise<Object> promise = Futures.promise();
+                started.put(id, promise);
+                return promise.future();
+            }, getRef());
+
+            new AwaitCond(duration("3 seconds")) {
+                @Override
+                protected boolean cond() {
+                    return started.size() == 2;
+                }
+            };
+            expectNoMsg(duration("100 millis"));
+            Assert.assertEquals(2, started.size());
+
+            // A slow drone does not hold back the others
+            started.get(2L).success("ready");
+            Assert.assertEquals(2, expectMsgClass(FleetBootstrap.DroneReady.class).getDroneId());
+            new AwaitCond(duration("3 seconds")) {
+                @Override
+                protected boolean cond() {
+                    return started.containsKey(3L);
+                }
+            };
+            Assert.assertEquals(3, started.size());
+
+            started.get(3L).success("ready");
+            Assert.assertEquals(3, expectMsgClass(FleetBootstrap.DroneReady.class).getDroneId());
+            new AwaitCond(duration("3 seconds")) {
+                @Override
+                protected boolean cond() {
+                    return started.containsKey(4L);
+                }
+            };
+            for (long id : new long[]{1L, 4L}) {
+                started.get(id).success("ready");
+                Assert.assertEquals(id, expectMsgClass(FleetBootstrap.DroneReady.class).getDroneId());
+            }
+            new AwaitCond(duration("3 seconds")) {
+                @Override
+                protected boolean cond() {
+                    return started.containsKey(5L);
+                }
+            };
+            started.get(5L).success("ready");
+            Assert.assertEquals(5, expectMsgClass(FleetBootstrap.DroneReady.class).getDroneId());
+
+            FleetBootstrap.Completed completed = expectMsgClass(FleetBootstrap.Completed.class);
+            Assert.assertEquals(5, completed.getReady());
+            Assert.assertEquals(0, completed.getFailed());
+        }};
+    }
+
+    @Test
+    public void failures_Reported() {
+        new JavaTestKit(system) {{
+            Map<Long, scala.concurrent.Future<?>> results = new HashMap<>();
+            results.put(1L, Futures.failed(new IllegalStateException("timeout")));
+            results.put(2L, Futures.successful("ready"));
+            ActorRef actor = bootstrap(Arrays.asList(1L, 2L, 3L, 4L), 1, id -> {
+                if (id == 4L) {
+                    throw new IllegalArgumentException("unknown drone");
+                }
+                return results.get(id);
+            }, getRef());
+            watch(actor);
+
+            FleetBootstrap.DroneFailed failed = expectMsgClass(FleetBootstrap.DroneFailed.class);
+            Assert.assertEquals(1, failed.getDroneId());
+            Assert.assertEquals("timeout", failed.getCause().getMessage());
+            Assert.assertEquals(2, expectMsgClass(FleetBootstrap.DroneReady.class).getDroneId());
+            // No future for the drone
+            Assert.assertEquals(3, expectMsgClass(FleetBootstrap.DroneFailed.class).getDroneId());
+            Assert.assertEquals(4, expectMsgClass(FleetBootstrap.DroneFailed.class).getDroneId());
+
+            FleetBootstrap.Completed completed = expectMsgClass(FleetBootstrap.Completed.class);
+            Assert.assertEquals(1, completed.getReady());
+            Assert.assertEquals(3, completed.getFailed());
+            expectTerminated(actor);
+        }};
+    }
+
+    @Test
+    public void noDrones_CompletesImmediately() {
+        new JavaTestKit(system) {{
+            ActorRef actor = bootstrap(Collections.emptyList(), 4, id -> Futures.successful("ready"), getRef());
+            watch(actor);
+            FleetBootstrap.Completed completed = expectMsgClass(FleetBootstrap.Completed.class);
+            Assert.assertEquals(0, completed.getReady());
+            expectTerminated(actor);
+        }};
+    }
+}
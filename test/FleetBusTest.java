@@ -0,0 +1,116 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.JavaTestKit;
+import droneapi.messages.*;
+import drones.models.FleetBus;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests the filtering of a fleet bus partition by drone and event class.
+ */
+public class FleetBusTest {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void teardown() {
+        JavaTestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void subscription_FiltersDronesAndTypes() {
+        new JavaTestKit(system) {{
+            ActorRef bus = system.actorOf(Props.create(FleetBus.class, () -> new FleetBus(null)));
+            JavaTestKit drone1 = new JavaTestKit(system);
+            JavaTestKit drone2 = new JavaTestKit(system);
+            bus.tell(new FleetBus.RegisterDrone(1, drone1.getRef()), ActorRef.noSender());
+            bus.tell(new FleetBus.RegisterDrone(2, drone2.getRef()), ActorRef.noSender());
+
+            JavaTestKit all = new JavaTestKit(system);
+            JavaTestKit location1 = new JavaTestKit(system);
+            bus.tell(new SubscribeEventMessage(), all.getRef());
+            bus.tell(new FleetBus.Subscription(Collections.singleton(1L),
+                    new Class<?>[]{LocationChangedMessage.class}), location1.getRef());
+
+            bus.tell(new LocationChangedMessage(1, 2, 3), drone2.getRef());
+            bus.tell(new AltitudeChangedMessage(5), drone1.getRef());
+            bus.tell(new LocationChangedMessage(4, 5, 6), drone1.getRef());
+
+            all.expectMsgClass(LocationChangedMessage.class);
+            all.expectMsgClass(AltitudeChangedMessage.class);
+            all.expectMsgClass(LocationChangedMessage.class);
+            LocationChangedMessage msg = location1.expectMsgClass(LocationChangedMessage.class);
+            Assert.assertEquals(4, msg.getLongitude(), 0);
+            Assert.assertEquals(drone1.getRef(), location1.getLastSender());
+            location1.expectNoMsg(duration("100 millis"));
+        }};
+    }
+
+    @Test
+    public void relayedEvents_TaggedWithDrone() {
+        new JavaTestKit(system) {{
+            ActorRef bus = system.actorOf(Props.create(FleetBus.class, () -> new FleetBus(null)));
+            JavaTestKit proxy = new JavaTestKit(system);
+            bus.tell(new FleetBus.RegisterDrone(3, proxy.getRef(),
+                    new SubscribeEventMessage(new Class[]{LocationChangedMessage.class})), ActorRef.noSender());
+            bus.tell(new FleetBus.Subscription(Collections.singleton(3L), null), getRef());
+
+            // A sharded drone sends its events from the node hosting it, not from its proxy
+            proxy.expectMsgClass(SubscribeEventMessage.class);
+            ActorRef relay = proxy.getLastSender();
+            JavaTestKit hosted = new JavaTestKit(system);
+            relay.tell(new LocationChangedMessage(4, 5, 6), hosted.getRef());
+
+            Assert.assertEquals(4, expectMsgClass(LocationChangedMessage.class).getLongitude(), 0);
+            Assert.assertEquals(proxy.getRef(), getLastSender());
+        }};
+    }
+
+    @Test
+    public void resubscribe_ReplacesSubscription() {
+        new JavaTestKit(system) {{
+            ActorRef bus = system.actorOf(Props.create(FleetBus.class, () -> new FleetBus(null)));
+            JavaTestKit drone = new JavaTestKit(system);
+            bus.tell(new FleetBus.RegisterDrone(7, drone.getRef()), ActorRef.noSender());
+
+            bus.tell(new FleetBus.Subscription(null, new Class<?>[]{AltitudeChangedMessage.class}), getRef());
+            bus.tell(new FleetBus.Subscription(Arrays.asList(7L, 8L), new Class<?>[]{SpeedChangedMessage.class}), getRef());
+            bus.tell(new AltitudeChangedMessage(5), drone.getRef());
+            bus.tell(new SpeedChangedMessage(1, 2, 3), drone.getRef());
+            expectMsgClass(SpeedChangedMessage.class);
+
+            bus.tell(new UnsubscribeEventMessage(), getRef());
+            bus.tell(new SpeedChangedMessage(1, 2, 3), drone.getRef());
+            expectNoMsg(duration("100 millis"));
+        }};
+    }
+
+    @Test
+    public void terminatedSubscriber_Removed() {
+        new JavaTestKit(system) {{
+            ActorRef bus = system.actorOf(Props.create(FleetBus.class, () -> new FleetBus(null)));
+            JavaTestKit subscriber = new JavaTestKit(system);
+            bus.tell(new SubscribeEventMessage(), subscriber.getRef());
+            watch(subscriber.getRef());
+            system.stop(subscriber.getRef());
+            expectTerminated(subscriber.getRef());
+
+            bus.tell(new SubscribeEventMessage(), getRef());
+            bus.tell(new BatteryPercentageChangedMessage((byte) 50), ActorRef.noSender());
+            expectMsgClass(BatteryPercentageChangedMessage.class);
+        }};
+    }
+}
@@ -0,0 +1,136 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.JavaTestKit;
+import droneapi.messages.*;
+import droneapi.model.properties.DroneSnapshot;
+import droneapi.model.properties.FlyingState;
+import droneapi.model.properties.PropertyType;
+import drones.models.FleetBus;
+import drones.models.FleetState;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the fleet state view and its aggregates.
+ */
+public class FleetStateTest {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void teardown() {
+        JavaTestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    @Test
+    public void update_KeepsLatestValues() {
+        FleetState fleet = new FleetState(10000);
+        long now = System.currentTimeMillis();
+        Assert.assertTrue(fleet.update(1, new LocationChangedMessage(4.4, 51.2, 10), now));
+        Assert.assertTrue(fleet.update(1, new BatteryPercentageChangedMessage((byte) 80), now));
+        Assert.assertTrue(fleet.update(1, new BatteryPercentageChangedMessage((byte) 75), now + 1));
+        Assert.assertFalse(fleet.update(1, new ImageMessage(new byte[0]), now));
+
+        FleetState.DroneState state = fleet.get(1);
+        Assert.assertEquals(51.2, state.getLocation().getLatitude(), 0);
+        Assert.assertEquals(4.4, state.getLocation().getLongitude(), 0);
+        Assert.assertEquals(Byte.valueOf((byte) 75), state.getBatteryPercentage());
+        Assert.assertEquals(now + 1, state.getUpdated(PropertyType.BATTERY));
+        Assert.assertFalse(state.isStale(PropertyType.LOCATION));
+        Assert.assertTrue(state.isStale(PropertyType.SPEED));
+        Assert.assertNull(fleet.get(2));
+    }
+
+    @Test
+    public void staleValues_NoSnapshot() {
+        FleetState fleet = new FleetState(1000);
+        long now = System.currentTimeMillis();
+        fleet.update(1, new LocationChangedMessage(4.4, 51.2, 10), now);
+        fleet.update(1, new BatteryPercentageChangedMessage((byte) 80), now - 5000);
+
+        FleetState.DroneState state = fleet.get(1);
+        Assert.assertTrue(state.isStale(PropertyType.BATTERY));
+        Assert.assertNull(state.toSnapshot(PropertyType.LOCATION, PropertyType.BATTERY));
+
+        DroneSnapshot snapshot = state.toSnapshot(PropertyType.LOCATION);
+        Assert.assertEquals(now, snapshot.getTimestamp());
+        Assert.assertEquals(10, snapshot.getLocation().getHeight(), 0);
+    }
+
+    @Test
+    public void aggregates_Incremental() {
+        FleetState fleet = new FleetState(10000);
+        long now = System.currentTimeMillis();
+        fleet.update(1, new FlyingStateChangedMessage(FlyingState.LANDED), now);
+        fleet.update(2, new FlyingStateChangedMessage(FlyingState.LANDED), now);
+        fleet.update(1, new FlyingStateChangedMessage(FlyingState.HOVERING), now);
+        fleet.update(1, new BatteryPercentageChangedMessage((byte) 95), now);
+        fleet.update(2, new BatteryPercentageChangedMessage((byte) 100), now);
+        fleet.update(2, new BatteryPercentageChangedMessage((byte) 42), now);
+
+        Assert.assertEquals(Integer.valueOf(1), fleet.getFlyingStateCounts().get(FlyingState.LANDED));
+        Assert.assertEquals(Integer.valueOf(1), fleet.getFlyingStateCounts().get(FlyingState.HOVERING));
+        int[] histogram = fleet.getBatteryHistogram();
+        Assert.assertEquals(1, histogram[9]);
+        Assert.assertEquals(1, histogram[4]);
+        Assert.assertEquals(0, histogram[10]);
+
+        fleet.remove(1);
+        Assert.assertEquals(1, fleet.size());
+        Assert.assertEquals(Integer.valueOf(0), fleet.getFlyingStateCounts().get(FlyingState.HOVERING));
+        Assert.assertEquals(0, fleet.getBatteryHistogram()[9]);
+    }
+
+    @Test
+    public void nearest_FiltersStaleAndBattery() {
+        FleetState fleet = new FleetState(1000);
+        long now = System.currentTimeMillis();
+        fleet.update(1, new LocationChangedMessage(3.72, 51.05, 0), now);
+        fleet.update(1, new BatteryPercentageChangedMessage((byte) 10), now);
+        fleet.update(2, new LocationChangedMessage(3.73, 51.06, 0), now);
+        fleet.update(2, new BatteryPercentageChangedMessage((byte) 90), now);
+        fleet.update(3, new LocationChangedMessage(3.72, 51.05, 0), now - 5000);
+        fleet.update(4, new LocationChangedMessage(4.40, 51.22, 0), now);
+
+        Assert.assertEquals(1, fleet.nearest(51.05, 3.72, 1, Double.MAX_VALUE, s -> true).get(0).getDroneId());
+        Assert.assertEquals(2, fleet.nearest(51.05, 3.72, 1, Double.MAX_VALUE,
+                s -> s.getBatteryPercentage() != null && s.getBatteryPercentage() > 50).get(0).getDroneId());
+        Assert.assertEquals(2, fleet.within(51.05, 3.72, 5000, s -> true).size());
+        Assert.assertEquals(3, fleet.nearest(51.05, 3.72, 10, Double.MAX_VALUE, s -> true).size());
+
+        fleet.remove(1);
+        Assert.assertEquals(2, fleet.nearest(51.05, 3.72, 1, Double.MAX_VALUE, s -> true).get(0).getDroneId());
+    }
+
+    @Test
+    public void fleetBus_UpdatesView() {
+        new JavaTestKit(system) {{
+            FleetState fleet = new FleetState(10000);
+            ActorRef bus = system.actorOf(Props.create(FleetBus.class, () -> new FleetBus(fleet)));
+            JavaTestKit drone = new JavaTestKit(system);
+            bus.tell(new FleetBus.RegisterDrone(3, drone.getRef()), ActorRef.noSender());
+            bus.tell(new SubscribeEventMessage(), getRef());
+            bus.tell(new AltitudeChangedMessage(12), drone.getRef());
+            expectMsgClass(AltitudeChangedMessage.class);
+            Assert.assertEquals(12, fleet.get(3).getAltitude(), 0);
+
+            // The view forgets drones that stopped
+            system.stop(drone.getRef());
+            new AwaitCond(duration("3 seconds")) {
+                @Override
+                protected boolean cond() {
+                    return fleet.get(3) == null;
+                }
+            };
+        }};
+    }
+}
@@ -0,0 +1,155 @@
+import droneapi.geo.GeoGrid;
+import droneapi.geo.Geodesy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the queries of the geospatial grid index with a linear scan and benchmarks nearest neighbour queries.
+ */
+public class GeoGridTest {
+
+    private static final double LAT = 51.05;
+    private static final double LON = 3.72;
+
+    private static double[][] randomPoints(Random random, int count, double spread) {
+        double[][] points = new double[count][];
+        for (int i = 0; i < count; i++) {
+            points[i] = new double[]{LAT + (random.nextDouble() - 0.5) * spread, LON + (random.nextDouble() - 0.5) * spread};
+        }
+        return points;
+    }
+
+    private static List<Integer> linearNearest(double[][] points, double lat, double lon, int k, double maxDistance) {
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < points.length; i++) {
+            if (i % 3 != 0 && distance(points[i], lat, lon) <= maxDistance) {
+                keys.add(i);
+            }
+        }
+        keys.sort(Comparator.comparingDouble(i -> distance(points[i], lat, lon)));
+        return keys.subList(0, Math.min(k, keys.size()));
+    }
+
+    private static int linearClosest(double[][] points, double lat, double lon) {
+        int closest = -1;
+        double min = Double.MAX_VALUE;
+        for (int i = 0; i < points.length; i++) {
+            double d = distance(points[i], lat, lon);
+            if (i % 3 != 0 && d < min) {
+                min = d;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    private static double distance(double[] point, double lat, double lon) {
+        return Geodesy.distance(Geodesy.Tier.HAVERSINE, lat, lon, point[0], point[1]);
+    }
+
+    private static GeoGrid<Integer> index(double[][] points, double cellSize) {
+        GeoGrid<Integer> grid = new GeoGrid<>(cellSize);
+        for (int i = 0; i < points.length; i++) {
+            grid.put(i, points[i][0], points[i][1]);
+        }
+        return grid;
+    }
+
+    @Test
+    public void nearest_MatchesLinearScan() {
+        Random random = new Random(42);
+        double[][] points = randomPoints(random, 2000, 0.5);
+        GeoGrid<Integer> grid = index(points, 0.01);
+        for (int q = 0; q < 200; q++) {
+            double lat = LAT + (random.nextDouble() - 0.5) * 0.8;
+            double lon = LON + (random.nextDouble() - 0.5) * 0.8;
+            int k = 1 + random.nextInt(10);
+            Assert.assertEquals(linearNearest(points, lat, lon, k, Double.MAX_VALUE),
+                    grid.nearest(lat, lon, k, Double.MAX_VALUE, i -> i % 3 != 0));
+        }
+    }
+
+    @Test
+    public void within_MatchesLinearScan() {
+        Random random = new Random(7);
+        double[][] points = randomPoints(random, 1000, 0.2);
+        GeoGrid<Integer> grid = index(points, 0.005);
+        for (int q = 0; q < 100; q++) {
+            double radius = random.nextDouble() * 3000;
+            Assert.assertEquals(linearNearest(points, LAT, LON, Integer.MAX_VALUE, radius),
+                    grid.within(LAT, LON, radius, i -> i % 3 != 0));
+        }
+    }
+
+    @Test
+    public void movedPoint_FoundAtNewLocation() {
+        GeoGrid<String> grid = new GeoGrid<>(0.01);
+        grid.put("a", LAT, LON);
+        grid.put("b", LAT + 0.1, LON);
+        grid.put("a", LAT + 0.2, LON);
+        Assert.assertEquals("b", grid.nearest(LAT, LON, 1, Double.MAX_VALUE, s -> true).get(0));
+        Assert.assertEquals(2, grid.within(LAT + 0.15, LON, 10000, s -> true).size());
+
+        grid.remove("b");
+        Assert.assertEquals(1, grid.size());
+        Assert.assertEquals("a", grid.nearest(LAT, LON, 5, Double.MAX_VALUE, s -> true).get(0));
+        Assert.assertTrue(grid.nearest(LAT, LON, 5, 1000, s -> true).isEmpty());
+    }
+
+    @Test
+    public void antimeridianAndPoles_Found() {
+        GeoGrid<String> grid = new GeoGrid<>(1);
+        grid.put("east", 0, 179.9);
+        grid.put("pole", 89.9, 0);
+        Assert.assertEquals("east", grid.nearest(0, -179.9, 1, Double.MAX_VALUE, s -> true).get(0));
+        Assert.assertEquals("pole", grid.nearest(89.9, 120, 1, Double.MAX_VALUE, s -> true).get(0));
+        Assert.assertEquals(2, grid.nearest(-60, 60, 5, Double.MAX_VALUE, s -> true).size());
+    }
+
+    @Test
+    public void benchmark_Nearest() {
+        Random random = new Random(1);
+        double[][] points = randomPoints(random, 10000, 1);
+        GeoGrid<Integer> grid = index(points, 0.01);
+        int queries = 2000;
+        double[][] targets = randomPoints(random, queries, 1);
+
+        long sink = 0;
+        long start = System.nanoTime();
+        for (double[] t : targets) {
+            sink += linearClosest(points, t[0], t[1]);
+        }
+        double linear = (System.nanoTime() - start) / 1000.0 / queries;
+        start = System.nanoTime();
+        for (double[] t : targets) {
+            sink -= grid.nearest(t[0], t[1], 1, Double.MAX_VALUE, i -> i % 3 != 0).get(0);
+        }
+        double indexed = (System.nanoTime() - start) / 1000.0 / queries;
+        Assert.assertEquals(0, sink);
+        Assert.assertTrue(indexed < linear);
+    }
+
+    @Test
+    public void sparseOutlier_ScannedInsteadOfRings() {
+        Random random = new Random(2);
+        double[][] points = randomPoints(random, 1000, 0.1);
+        GeoGrid<Integer> grid = index(points, 0.01);
+        grid.put(-1, 0, 0);
+
+        // Thousands of kilometers away, over 5000 rings of 0.01 degree cells
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(Integer.valueOf(-1), grid.nearest(LAT, LON, 1, Double.MAX_VALUE, key -> key < 0).get(0));
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        List<Integer> nearest = grid.nearest(LAT, LON, 3, Double.MAX_VALUE, key -> key < 0 || key % 3 != 0);
+        Assert.assertEquals(linearNearest(points, LAT, LON, 3, Double.MAX_VALUE), nearest);
+    }
+}
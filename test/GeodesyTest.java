@@ -0,0 +1,106 @@
+import droneapi.geo.DistanceBearing;
+import droneapi.geo.Geodesy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests the accuracy of the geodesy tiers against Vincenty and benchmarks each of them.
+ */
+public class GeodesyTest {
+
+    private static final int POINTS = 10000;
+    private static final int ROUNDS = 200;
+
+    // Plateau, Ghent
+    private static final double LAT = 51.046274;
+    private static final double LON = 3.724952;
+
+    @Test
+    public void local_MatchesVincenty_WithinOneKilometer() {
+        DistanceBearing local = new DistanceBearing();
+        DistanceBearing vincenty = new DistanceBearing();
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            double lat = LAT + (random.nextDouble() - 0.5) * 0.012;
+            double lon = LON + (random.nextDouble() - 0.5) * 0.018;
+            Geodesy.compute(Geodesy.Tier.LOCAL, LAT, LON, lat, lon, local);
+            Geodesy.compute(Geodesy.Tier.VINCENTY, LAT, LON, lat, lon, vincenty);
+            if (vincenty.getDistance() < Geodesy.LOCAL_RANGE) {
+                Assert.assertEquals(vincenty.getDistance(), local.getDistance(), 0.01);
+                if (vincenty.getDistance() > 10) {
+                    Assert.assertEquals(vincenty.getBearing(), local.getBearing(), 0.1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void haversine_MatchesVincenty() {
+        // Ghent - Brussels, about 50 km
+        double vincenty = Geodesy.distance(Geodesy.Tier.VINCENTY, LAT, LON, 50.846777, 4.352360);
+        double haversine = Geodesy.distance(Geodesy.Tier.HAVERSINE, LAT, LON, 50.846777, 4.352360);
+        Assert.assertEquals(vincenty, haversine, vincenty * 0.005);
+    }
+
+    @Test
+    public void auto_SelectsTier() {
+        double near = Geodesy.distance(Geodesy.Tier.AUTO, LAT, LON, 51.045681, 3.726754);
+        Assert.assertEquals(Geodesy.distance(Geodesy.Tier.LOCAL, LAT, LON, 51.045681, 3.726754), near, 0);
+
+        double far = Geodesy.distance(Geodesy.Tier.AUTO, LAT, LON, 51.036316, 3.735273);
+        Assert.assertEquals(Geodesy.distance(Geodesy.Tier.VINCENTY, LAT, LON, 51.036316, 3.735273), far, 0);
+    }
+
+    @Test
+    public void local_CrossesAntimeridian() {
+        double d = Geodesy.distance(Geodesy.Tier.LOCAL, 0, 179.999, 0, -179.999);
+        Assert.assertEquals(Geodesy.distance(Geodesy.Tier.VINCENTY, 0, 179.999, 0, -179.999), d, 0.01);
+    }
+
+    @Test
+    public void batch_MatchesSingle() {
+        double[] lats = {51.045681, 51.036316, 51.054057};
+        double[] lons = {3.726754, 3.735273, 3.732049};
+        double[] res = new double[3];
+        Geodesy.distances(Geodesy.Tier.VINCENTY, LAT, LON, lats, lons, res, 3);
+        double length = 0;
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(Geodesy.distance(Geodesy.Tier.VINCENTY, LAT, LON, lats[i], lons[i]), res[i], 0);
+            if (i > 0) {
+                length += Geodesy.distance(Geodesy.Tier.VINCENTY, lats[i - 1], lons[i - 1], lats[i], lons[i]);
+            }
+        }
+        Assert.assertEquals(length, Geodesy.pathLength(Geodesy.Tier.VINCENTY, lats, lons, 3), 1e-6);
+    }
+
+    @Test
+    public void benchmark_Tiers() {
+        Random random = new Random(1);
+        double[] lats = new double[POINTS];
+        double[] lons = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = LAT + (random.nextDouble() - 0.5) * 0.02;
+            lons[i] = LON + (random.nextDouble() - 0.5) * 0.02;
+        }
+        double[] res = new double[POINTS];
+
+        double[] ns = new double[Geodesy.Tier.values().length];
+        for (Geodesy.Tier tier : Geodesy.Tier.values()) {
+            // Warm up
+            for (int r = 0; r < ROUNDS; r++) {
+                Geodesy.distances(tier, LAT, LON, lats, lons, res, POINTS);
+            }
+            long start = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                Geodesy.distances(tier, LAT, LON, lats, lons, res, POINTS);
+            }
+            ns[tier.ordinal()] = (System.nanoTime() - start) / (double) (ROUNDS * POINTS);
+        }
+        // The cheaper tiers are worth their error
+        double vincenty = ns[Geodesy.Tier.VINCENTY.ordinal()];
+        Assert.assertTrue(ns[Geodesy.Tier.LOCAL.ordinal()] < vincenty);
+        Assert.assertTrue(ns[Geodesy.Tier.HAVERSINE.ordinal()] < vincenty);
+    }
+}
@@ -0,0 +1,181 @@
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Status;
+import akka.serialization.JavaSerializer;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.testkit.JavaTestKit;
+import droneapi.cluster.DroneEnvelope;
+import droneapi.messages.*;
+import droneapi.model.DroneException;
+import droneapi.model.properties.*;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the round trip of all drone-api messages through the binary serializer and benchmarks it
+ * against Java serialization.
+ */
+public class MessageSerializerTest {
+
+    private static final int ROUNDS = 200000;
+
+    private static ActorSystem system;
+    private static Serialization serialization;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create();
+        serialization = SerializationExtension.get(system);
+    }
+
+    @AfterClass
+    public static void teardown() {
+        JavaTestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static Object[] messages() {
+        Map<PropertyType, Object> values = new EnumMap<>(PropertyType.class);
+        values.put(PropertyType.LOCATION, new Location(51.2, 4.4, 12));
+        values.put(PropertyType.BATTERY, (byte) 55);
+        values.put(PropertyType.FLYINGSTATE, FlyingState.HOVERING);
+        values.put(PropertyType.GPSFIX, true);
+
+        return new Object[]{
+                new AltitudeChangedMessage(12.5), new AlertStateChangedMessage(AlertState.CUT_OUT),
+                new BatteryPercentageChangedMessage((byte) 80), new CalibrateRequestMessage(true, false),
+                new ConnectionStatusChangedMessage(true), new CorrelatedMessage(42, new TakeOffRequestMessage()),
+                new EmergencyRequestMessage(), new ExecutionResultMessage(null), new ExecutionResultMessage(3.5),
+                new FlatTrimChangedMessage(), new FlatTrimRequestMessage(), new FlipRequestMessage(FlipType.BACK),
+                new FlyingStateChangedMessage(FlyingState.FLYING), new GPSFixChangedMessage(false),
+                new ImageMessage(new byte[]{1, 2, 3}), new InitRequestMessage(), new InitVideoRequestMessage(),
+                new LandRequestMessage(), new LocationChangedMessage(4.4, 51.2, 10),
+                new MagnetoCalibrationStateChangedMessage(true), new MoveRequestMessage(0.1, 0.2, 0.3, 0.4),
+                new MoveToLocationCancellationMessage(), new MoveToLocationRequestMessage(51.2, 4.4, 5),
+                new NavigationStateChangedMessage(NavigationState.PENDING, NavigationStateReason.REQUESTED),
+                new ProductVersionChangedMessage("3.1", "HW-é"), new PropertyRequestMessage(PropertyType.SPEED),
+                new PropertyRequestMessage(EnumSet.of(PropertyType.LOCATION, PropertyType.BATTERY)),
+                new PropertyStoreRequestMessage(), new RotationChangedMessage(0.1, -0.2, 3.1),
+                new SetHullRequestMessage(true), new SetMaxHeightRequestMessage(20f), new SetMaxTiltRequestMessage(15f),
+                new SetOutdoorRequestMessage(false), new SpeedChangedMessage(1, 2, 3), new StopMessage(),
+                new StopVideoRequestMessage(), new TakeOffRequestMessage(),
+                new SubscribeEventMessage(new Class[]{LocationChangedMessage.class, AltitudeChangedMessage.class}, 2),
+                new SubscribeEventMessage(), new UnsubscribeEventMessage(LocationChangedMessage.class),
+                new UnsubscribeEventMessage(),
+                new Location(51.2, 4.4, 3), new Rotation(1, 2, 3), new Speed(4, 5, 6), new DroneVersion("1", "2"),
+                new DroneSnapshot(1234, values),
+                new CorrelatedMessage(7, new ExecutionResultMessage(new DroneSnapshot(99, values)))
+        };
+    }
+
+    @Test
+    public void allMessages_RoundTrip() {
+        for (Object msg : messages()) {
+            Serializer serializer = serialization.findSerializerFor(msg);
+            Assert.assertEquals(msg.getClass().getName(), MessageSerializer.IDENTIFIER, serializer.identifier());
+
+            byte[] bytes = serializer.toBinary(msg);
+            Object copy = serialization.deserialize(bytes, msg.getClass()).get();
+            Assert.assertEquals(msg.getClass(), copy.getClass());
+            Assert.assertArrayEquals(msg.getClass().getName(), bytes, serializer.toBinary(copy));
+        }
+    }
+
+    @Test
+    public void values_Preserved() {
+        LocationChangedMessage location = roundTrip(new LocationChangedMessage(4.4, 51.2, 10));
+        Assert.assertEquals(4.4, location.getLongitude(), 0);
+        Assert.assertEquals(51.2, location.getLatitude(), 0);
+        Assert.assertEquals(10, location.getGpsHeight(), 0);
+
+        PropertyRequestMessage request = roundTrip(new PropertyRequestMessage(EnumSet.of(PropertyType.ALTITUDE)));
+        Assert.assertEquals(EnumSet.of(PropertyType.ALTITUDE), request.getTypes());
+        Assert.assertNull(request.getType());
+
+        SubscribeEventMessage subscribe = roundTrip(new SubscribeEventMessage(new Class[]{SpeedChangedMessage.class}, 5));
+        Assert.assertEquals(SpeedChangedMessage.class, subscribe.getSubscribedClasses()[0]);
+        Assert.assertEquals(5, subscribe.getMaxRate(), 0);
+
+        Map<PropertyType, Object> values = new EnumMap<>(PropertyType.class);
+        values.put(PropertyType.BATTERY, (byte) 55);
+        values.put(PropertyType.NAVIGATIONSTATE, NavigationState.IN_PROGRESS);
+        values.put(PropertyType.ALTITUDE, 3.25);
+        DroneSnapshot snapshot = roundTrip(new DroneSnapshot(1234, values));
+        Assert.assertEquals(1234, snapshot.getTimestamp());
+        Assert.assertEquals(Byte.valueOf((byte) 55), snapshot.getBatteryPercentage());
+        Assert.assertEquals(NavigationState.IN_PROGRESS, snapshot.getNavigationState());
+        Assert.assertEquals(3.25, snapshot.getAltitude(), 0);
+        Assert.assertFalse(snapshot.has(PropertyType.LOCATION));
+    }
+
+    @Test
+    public void droneEnvelope_RoundTrip() {
+        DroneEnvelope envelope = roundTrip(new DroneEnvelope(12, "bebop/1", "192.168.42.1", system.deadLetters(), 3,
+                new CorrelatedMessage(5, new TakeOffRequestMessage())));
+        Assert.assertEquals(12, envelope.getDroneId());
+        Assert.assertEquals("bebop/1", envelope.getDriver());
+        Assert.assertEquals("192.168.42.1", envelope.getAddress());
+        Assert.assertEquals(system.deadLetters(), envelope.getProxy());
+        Assert.assertEquals(3, envelope.getSequence());
+        Assert.assertTrue(((CorrelatedMessage) envelope.getMessage()).getMessage() instanceof TakeOffRequestMessage);
+
+        Assert.assertNull(roundTrip(new DroneEnvelope(12, "bebop/1", null, system.deadLetters(), 4, null)).getMessage());
+    }
+
+    @Test
+    public void failureReply_UsesConfiguredSerializer() {
+        CorrelatedMessage failure = roundTrip(new CorrelatedMessage(3, new Status.Failure(new DroneException("Not flying"))));
+        Assert.assertEquals(3, failure.getId());
+        Assert.assertEquals("Not flying", ((Status.Failure) failure.getMessage()).cause().getMessage());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(T msg) {
+        byte[] bytes = serialization.serialize(msg).get();
+        return (T) serialization.deserialize(bytes, msg.getClass()).get();
+    }
+
+    @Test
+    public void benchmark_Telemetry() {
+        Serializer binary = serialization.serializerFor(LocationChangedMessage.class);
+        Serializer java = new JavaSerializer((ExtendedActorSystem) system);
+        Object[] telemetry = {
+                new LocationChangedMessage(4.4, 51.2, 10), new AltitudeChangedMessage(10),
+                new SpeedChangedMessage(1, 2, 3), new RotationChangedMessage(0.1, 0.2, 0.3),
+                new BatteryPercentageChangedMessage((byte) 80), new FlyingStateChangedMessage(FlyingState.HOVERING)
+        };
+
+        int[] bytes = new int[2];
+        double[] ns = new double[2];
+        List<Serializer> serializers = Arrays.asList(java, binary);
+        for (int s = 0; s < serializers.size(); s++) {
+            Serializer serializer = serializers.get(s);
+            for (Object msg : telemetry) {
+                bytes[s] += serializer.toBinary(msg).length;
+            }
+            run(serializer, telemetry); // warm up
+            long start = System.nanoTime();
+            run(serializer, telemetry);
+            ns[s] = (System.nanoTime() - start) / (double) ROUNDS;
+        }
+        Assert.assertTrue(bytes[1] < bytes[0]);
+        Assert.assertTrue(ns[1] < ns[0]);
+    }
+
+    private static void run(Serializer serializer, Object[] messages) {
+        for (int i = 0; i < ROUNDS; i++) {
+            Object msg = messages[i % messages.length];
+            Assert.assertNotNull(serializer.fromBinary(serializer.toBinary(msg), msg.getClass()));
+        }
+    }
+}
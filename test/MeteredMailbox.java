@@ -0,0 +1,107 @@
+import akka.actor.ActorPath;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.UnboundedMessageQueueSemantics;
+import com.typesafe.config.Config;
+import scala.Option;
+import scala.collection.JavaConversions;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unbounded mailbox keeping the highest number of messages that waited in it, used as default mailbox by the benchmark.
+ * Peaks are kept per actor role: the path of the actor with the numbers and generated names of its elements
+ * replaced by *, so the peak of all pilots or all shards is a single value that outlives the actors.
+ */
+public class MeteredMailbox implements MailboxType {
+
+    private static final ConcurrentHashMap<String, AtomicInteger> PEAKS = new ConcurrentHashMap<>();
+
+    public MeteredMailbox(ActorSystem.Settings settings, Config config) {
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        String role = owner.isDefined() ? role(owner.get().path()) : "unknown";
+        return new MeteredQueue(PEAKS.computeIfAbsent(role, r -> new AtomicInteger()));
+    }
+
+    private static String role(ActorPath path) {
+        StringBuilder role = new StringBuilder();
+        for (String element : JavaConversions.asJavaIterable(path.elements())) {
+            role.append('/').append(element.startsWith("$") ? "$*" : element.replaceAll("[0-9]+", "*"));
+        }
+        return role.toString();
+    }
+
+    /**
+     * @return Highest number of waiting messages by actor role
+     */
+    public static Map<String, Integer> getPeaks() {
+        Map<String, Integer> peaks = new TreeMap<>();
+        for (Map.Entry<String, AtomicInteger> peak : PEAKS.entrySet()) {
+            peaks.put(peak.getKey(), peak.getValue().get());
+        }
+        return peaks;
+    }
+
+    public static void reset() {
+        for (AtomicInteger peak : PEAKS.values()) {
+            peak.set(0);
+        }
+    }
+
+    public static class MeteredQueue implements MessageQueue, UnboundedMessageQueueSemantics {
+
+        private final ConcurrentLinkedQueue<Envelope> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicInteger peak;
+
+        private MeteredQueue(AtomicInteger peak) {
+            this.peak = peak;
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            queue.add(handle);
+            int current = depth.incrementAndGet();
+            if (current > peak.get()) {
+                peak.accumulateAndGet(current, Math::max);
+            }
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Envelope envelope = queue.poll();
+            if (envelope != null) {
+                depth.decrementAndGet();
+            }
+            return envelope;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return depth.get();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            Envelope envelope;
+            while ((envelope = dequeue()) != null) {
+                deadLetters.enqueue(owner, envelope);
+            }
+        }
+    }
+}
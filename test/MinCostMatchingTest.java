@@ -0,0 +1,141 @@
+import droneapi.geo.Geodesy;
+import drones.scheduler.MinCostMatching;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests the minimum cost matching against brute force, and compares it with greedy scheduling.
+ */
+public class MinCostMatchingTest {
+
+    private static final double INF = MinCostMatching.INFEASIBLE;
+
+    // Lowest total cost of a matching with the most pairs, by trying every matching
+    private static double[] bruteForce(double[][] cost, int row, boolean[] used, int pairs, double total, double[] best) {
+        if (row == cost.length) {
+            if (pairs > best[0] || (pairs == best[0] && total < best[1])) {
+                best[0] = pairs;
+                best[1] = total;
+            }
+            return best;
+        }
+        bruteForce(cost, row + 1, used, pairs, total, best);
+        for (int j = 0; j < cost[row].length; j++) {
+            if (!used[j] && cost[row][j] != INF) {
+                used[j] = true;
+                bruteForce(cost, row + 1, used, pairs + 1, total + cost[row][j], best);
+                used[j] = false;
+            }
+        }
+        return best;
+    }
+
+    private static double total(double[][] cost, int[] match) {
+        double total = 0;
+        boolean[] used = new boolean[cost.length == 0 ? 0 : cost[0].length];
+        for (int i = 0; i < match.length; i++) {
+            if (match[i] >= 0) {
+                Assert.assertFalse("Column matched twice", used[match[i]]);
+                used[match[i]] = true;
+                Assert.assertNotEquals(INF, cost[i][match[i]], 0);
+                total += cost[i][match[i]];
+            }
+        }
+        return total;
+    }
+
+    private static int pairs(int[] match) {
+        int pairs = 0;
+        for (int m : match) {
+            if (m >= 0) {
+                pairs++;
+            }
+        }
+        return pairs;
+    }
+
+    @Test
+    public void solve_Simple() {
+        double[][] cost = {
+                {4, 1, 3},
+                {2, 0, 5},
+                {3, 2, 2}
+        };
+        Assert.assertArrayEquals(new int[]{1, 0, 2}, MinCostMatching.solve(cost));
+        Assert.assertEquals(0, MinCostMatching.solve(new double[0][0]).length);
+    }
+
+    @Test
+    public void solve_Infeasible() {
+        double[][] cost = {
+                {1, INF},
+                {INF, INF},
+                {2, 10}
+        };
+        int[] match = MinCostMatching.solve(cost);
+        // Matching the most pairs beats the cheapest single pair
+        Assert.assertArrayEquals(new int[]{0, -1, 1}, match);
+    }
+
+    @Test
+    public void solve_MatchesBruteForce() {
+        Random random = new Random(42);
+        for (int run = 0; run < 300; run++) {
+            int rows = 1 + random.nextInt(6);
+            int columns = 1 + random.nextInt(6);
+            double[][] cost = new double[rows][columns];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    cost[i][j] = random.nextInt(4) == 0 ? INF : random.nextInt(1000);
+                }
+            }
+            int[] match = MinCostMatching.solve(cost);
+            double[] best = bruteForce(cost, 0, new boolean[columns], 0, 0, new double[]{-1, 0});
+            Assert.assertEquals(best[0], pairs(match), 0);
+            Assert.assertEquals(best[1], total(cost, match), 1e-6);
+        }
+    }
+
+    @Test
+    public void compare_Greedy() {
+        // Drones and assignment starts spread over 5 km, routes of up to 2 km
+        Random random = new Random(7);
+        int drones = 40;
+        double[][] dronePositions = new double[drones][];
+        double[][] startPositions = new double[drones][];
+        double[] routes = new double[drones];
+        for (int i = 0; i < drones; i++) {
+            dronePositions[i] = new double[]{51.03 + random.nextDouble() * 0.045, 3.70 + random.nextDouble() * 0.07};
+            startPositions[i] = new double[]{51.03 + random.nextDouble() * 0.045, 3.70 + random.nextDouble() * 0.07};
+            routes[i] = random.nextDouble() * 2000;
+        }
+        double[][] cost = new double[drones][drones];
+        for (int d = 0; d < drones; d++) {
+            for (int a = 0; a < drones; a++) {
+                cost[d][a] = Geodesy.distance(Geodesy.Tier.HAVERSINE, dronePositions[d][0], dronePositions[d][1],
+                        startPositions[a][0], startPositions[a][1]) + routes[a];
+            }
+        }
+
+        // Greedy: every assignment in order takes the closest free drone
+        double greedy = 0;
+        boolean[] busy = new boolean[drones];
+        for (int a = 0; a < drones; a++) {
+            int closest = -1;
+            for (int d = 0; d < drones; d++) {
+                if (!busy[d] && (closest < 0 || cost[d][a] < cost[closest][a])) {
+                    closest = d;
+                }
+            }
+            busy[closest] = true;
+            greedy += cost[closest][a];
+        }
+
+        int[] match = MinCostMatching.solve(cost);
+        Assert.assertEquals(drones, pairs(match));
+        double matched = total(cost, match);
+        Assert.assertTrue(matched <= greedy);
+    }
+}
@@ -0,0 +1,51 @@
+import drones.scheduler.PendingAssignments;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the order and the updates of the pending assignment queue.
+ */
+public class PendingAssignmentsTest {
+
+    @Test
+    public void first_PriorityThenId() {
+        PendingAssignments pending = new PendingAssignments();
+        pending.add(new PendingAssignments.Entry(3, 1, 51.05, 3.72, 100));
+        pending.add(new PendingAssignments.Entry(2, 0, 51.05, 3.72, 100));
+        pending.add(new PendingAssignments.Entry(1, 1, 51.05, 3.72, 100));
+        Assert.assertEquals(2, pending.first(e -> true).getAssignmentId());
+        Assert.assertEquals(1, pending.first(e -> e.getPriority() > 0).getAssignmentId());
+        Assert.assertNull(pending.first(e -> e.getPriority() > 1));
+    }
+
+    @Test
+    public void first_FiltersOnDistance() {
+        PendingAssignments pending = new PendingAssignments();
+        // Antwerp, then Ghent
+        pending.add(new PendingAssignments.Entry(1, 0, 51.22, 4.40, 1000));
+        pending.add(new PendingAssignments.Entry(2, 0, 51.05, 3.72, 1000));
+        // A drone in Ghent that can fly 10 km
+        PendingAssignments.Entry entry = pending.first(e -> e.distanceFrom(51.05, 3.73) + e.getRouteLength() < 10000);
+        Assert.assertEquals(2, entry.getAssignmentId());
+        Assert.assertEquals(700, entry.distanceFrom(51.05, 3.73), 10);
+    }
+
+    @Test
+    public void addAndRemove_KeepOrder() {
+        PendingAssignments pending = new PendingAssignments();
+        pending.add(new PendingAssignments.Entry(1, 0, 51.05, 3.72, 100));
+        pending.add(new PendingAssignments.Entry(2, 1, 51.05, 3.72, 100));
+        // Priority changed
+        pending.add(new PendingAssignments.Entry(1, 2, 51.05, 3.72, 100));
+        Assert.assertEquals(2, pending.size());
+        Assert.assertEquals(2, pending.first(e -> true).getAssignmentId());
+
+        Assert.assertTrue(pending.remove(2));
+        Assert.assertFalse(pending.remove(2));
+        Assert.assertFalse(pending.contains(2));
+        Assert.assertEquals(1, pending.first(e -> true).getAssignmentId());
+
+        pending.clear();
+        Assert.assertNull(pending.first(e -> true));
+    }
+}
@@ -0,0 +1,99 @@
+import droneapi.model.properties.*;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.concurrent.Await;
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests the versioned reads of drone properties from other threads than the owning actor.
+ */
+public class PropertyStoreTest {
+
+    private static final Duration TIMEOUT = Duration.create(1, TimeUnit.SECONDS);
+
+    @Test
+    public void write_IncrementsVersion() {
+        LazyProperty<Byte> battery = new LazyProperty<>();
+        PropertyReading<Byte> reading = new PropertyReading<>();
+        Assert.assertFalse(battery.read(reading));
+        Assert.assertEquals(0, reading.getVersion());
+
+        battery.setValue((byte) 80);
+        battery.setValue((byte) 79);
+        Assert.assertTrue(battery.read(reading));
+        Assert.assertEquals(Byte.valueOf((byte) 79), reading.getValue());
+        Assert.assertEquals(2, reading.getVersion());
+        Assert.assertTrue(reading.getTimestamp() > 0);
+
+        LazyProperty<Boolean> fix = new LazyProperty<>(false);
+        Assert.assertEquals(1, fix.getVersion());
+    }
+
+    @Test
+    public void awaitVersion_CompletesOnNewerVersion() throws Exception {
+        LocationProperty location = new LocationProperty();
+        location.update(1, 2, 3);
+        long version = location.getVersion();
+
+        Future<Location> next = location.awaitVersion(version);
+        Assert.assertFalse(next.isCompleted());
+        location.update(4, 5, 6);
+        Assert.assertEquals(4, Await.result(next, TIMEOUT).getLatitude(), 0);
+
+        // Already newer
+        Assert.assertTrue(location.awaitVersion(version).isCompleted());
+    }
+
+    @Test
+    public void store_ReadsByType() {
+        LocationProperty location = new LocationProperty();
+        DoubleProperty altitude = new DoubleProperty();
+        Map<PropertyType, LazyProperty<?>> properties = new EnumMap<>(PropertyType.class);
+        properties.put(PropertyType.LOCATION, location);
+        properties.put(PropertyType.ALTITUDE, altitude);
+        PropertyStore store = new PropertyStore(properties);
+
+        Assert.assertNull(store.get(PropertyType.LOCATION));
+        altitude.update(12);
+        Assert.assertEquals(12d, (Double) store.get(PropertyType.ALTITUDE), 0);
+        Assert.assertEquals(1, store.getVersion(PropertyType.ALTITUDE));
+
+        PropertyReading<Object> reading = new PropertyReading<>();
+        Assert.assertFalse(store.read(PropertyType.SPEED, reading));
+        Assert.assertFalse(store.has(PropertyType.SPEED));
+    }
+
+    @Test
+    public void concurrentReads_AreConsistent() throws InterruptedException {
+        LocationProperty location = new LocationProperty();
+        location.update(0, 0, 0);
+        AtomicBoolean torn = new AtomicBoolean(false);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        // All components are written with the same value, a reader must never see them differ
+        Thread reader = new Thread(() -> {
+            PropertyReading<Location> reading = new PropertyReading<>();
+            while (running.get()) {
+                location.read(reading);
+                Location l = reading.getValue();
+                if (l.getLatitude() != l.getLongitude() || l.getLongitude() != l.getHeight()) {
+                    torn.set(true);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 2000000; i++) {
+            location.update(i, i, i);
+        }
+        running.set(false);
+        reader.join();
+        Assert.assertFalse(torn.get());
+        Assert.assertEquals(2000001, location.getVersion());
+    }
+}
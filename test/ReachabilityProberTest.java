@@ -0,0 +1,103 @@
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.Status;
+import akka.testkit.JavaTestKit;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import parrot.messages.PingFleetMessage;
+import parrot.messages.PingFleetResult;
+import parrot.messages.PingMessage;
+import parrot.shared.models.PingResult;
+import parrot.shared.protocols.ReachabilityProber;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Tests the concurrent and cached reachability probes.
+ */
+public class ReachabilityProberTest {
+
+    private static ActorSystem system;
+
+    @BeforeClass
+    public static void setup() {
+        system = ActorSystem.create();
+    }
+
+    @AfterClass
+    public static void teardown() {
+        JavaTestKit.shutdownActorSystem(system);
+        system = null;
+    }
+
+    private static ActorRef prober(long ttl, int parallelism, Predicate<InetAddress> probe) {
+        return system.actorOf(Props.create(ReachabilityProber.class, () -> new ReachabilityProber(ttl, parallelism, probe)));
+    }
+
+    @Test
+    public void probes_RunConcurrently() {
+        new JavaTestKit(system) {{
+            // Every probe blocks until all of them started
+            CountDownLatch started = new CountDownLatch(3);
+            ActorRef prober = prober(10000, 3, address -> {
+                started.countDown();
+                try {
+                    return started.await(3, TimeUnit.SECONDS) && address.getAddress()[3] != 3;
+                } catch (InterruptedException ex) {
+                    return false;
+                }
+            });
+            prober.tell(new PingMessage("10.0.0.1"), getRef());
+            prober.tell(new PingMessage("10.0.0.2"), getRef());
+            prober.tell(new PingMessage("10.0.0.3"), getRef());
+            expectMsgAllOf(duration("2 seconds"), PingResult.OK, PingResult.OK, PingResult.UNREACHABLE);
+        }};
+    }
+
+    @Test
+    public void results_Cached() {
+        new JavaTestKit(system) {{
+            AtomicInteger probes = new AtomicInteger();
+            ActorRef prober = prober(10000, 2, address -> probes.incrementAndGet() > 0);
+            prober.tell(new PingMessage("192.168.1.200"), getRef());
+            prober.tell(new PingMessage("192.168.1.200"), getRef());
+            expectMsgEquals(PingResult.OK);
+            expectMsgEquals(PingResult.OK);
+            prober.tell(new PingMessage("192.168.1.200"), getRef());
+            expectMsgEquals(PingResult.OK);
+            // The first two requests shared a probe, the last one was answered from the cache
+            Assert.assertEquals(1, probes.get());
+
+            ActorRef expiring = prober(0, 2, address -> probes.incrementAndGet() > 0);
+            expiring.tell(new PingMessage("192.168.1.200"), getRef());
+            expectMsgEquals(PingResult.OK);
+            expiring.tell(new PingMessage("192.168.1.200"), getRef());
+            expectMsgEquals(PingResult.OK);
+            Assert.assertEquals(3, probes.get());
+        }};
+    }
+
+    @Test
+    public void pingFleet_AllResults() {
+        new JavaTestKit(system) {{
+            ActorRef prober = prober(10000, 4, address -> address.getAddress()[3] == 1);
+            prober.tell(new PingMessage("10.0.0"), getRef());
+            expectMsgClass(Status.Failure.class);
+
+            prober.tell(new PingFleetMessage(Arrays.asList("10.0.0.1", "10.0.0.2", "10.0.0.300")), getRef());
+            PingFleetResult result = expectMsgClass(PingFleetResult.class);
+            Assert.assertEquals(3, result.getResults().size());
+            Assert.assertEquals(PingResult.OK, result.getResults().get("10.0.0.1"));
+            Assert.assertEquals(PingResult.UNREACHABLE, result.getResults().get("10.0.0.2"));
+            Assert.assertEquals(PingResult.UNREACHABLE, result.getResults().get("10.0.0.300"));
+        }};
+    }
+}
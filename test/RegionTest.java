@@ -0,0 +1,36 @@
+import drones.scheduler.Region;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests routing locations to the regions of the regional scheduler.
+ */
+public class RegionTest {
+
+    private static final List<Region> REGIONS = Arrays.asList(
+            new Region(0, "Ghent", 51.05, 3.72),
+            new Region(1, "Antwerp", 51.22, 4.40),
+            new Region(2, "Brussels", 50.85, 4.35),
+            new Region(3, "Paris", 48.85, 2.35));
+
+    @Test
+    public void closest_Location() {
+        // Sint-Niklaas lies between Ghent and Antwerp, closer to Antwerp
+        Assert.assertEquals(1, Region.closest(REGIONS, 51.16, 4.14).getIndex());
+        Assert.assertEquals(0, Region.closest(REGIONS, 51.04, 3.73).getIndex());
+        Assert.assertEquals(3, Region.closest(REGIONS, 40.0, -3.7).getIndex());
+        Assert.assertNull(Region.closest(Arrays.asList(), 51.05, 3.72));
+    }
+
+    @Test
+    public void neighbours_ClosestFirst() {
+        List<Region> neighbours = REGIONS.get(0).neighbours(REGIONS, 2);
+        Assert.assertEquals(2, neighbours.size());
+        Assert.assertEquals("Brussels", neighbours.get(0).getName());
+        Assert.assertEquals("Antwerp", neighbours.get(1).getName());
+        Assert.assertEquals(3, REGIONS.get(3).neighbours(REGIONS, 5).size());
+    }
+}
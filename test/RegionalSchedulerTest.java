@@ -0,0 +1,209 @@
+import akka.actor.ActorSystem;
+import akka.actor.InvalidActorNameException;
+import akka.testkit.JavaTestKit;
+import com.avaje.ebean.Ebean;
+import drones.models.Fleet;
+import drones.scheduler.Helper;
+import drones.scheduler.RegionalScheduler;
+import drones.scheduler.Scheduler;
+import drones.scheduler.SchedulerException;
+import drones.scheduler.messages.from.*;
+import models.*;
+import org.junit.*;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+import simulator.SimulatorDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests borrowing drones between the regions of the regional scheduler.
+ * The regions lie on a line from west to east, the two closest neighbours of the eastern region are
+ * the two middle ones, so it can not borrow from the western region.
+ */
+public class RegionalSchedulerTest extends TestSuperclass {
+
+    private static ActorSystem system;
+    private static final FiniteDuration SHORT_TIMEOUT = Duration.create(2, TimeUnit.SECONDS);
+    private static final FiniteDuration FLIGHT_TIMEOUT = Duration.create(60, TimeUnit.SECONDS);
+    // Flights of about a kilometer take seconds
+    private static final double TOP_SPEED = 100;
+    private static final Location WEST = new Location(0, -0.015, 0);
+    private static final Location CENTER_WEST = new Location(0, -0.005, 0);
+    private static final Location CENTER_EAST = new Location(0, 0.005, 0);
+    private static final Location EAST = new Location(0, 0.015, 0);
+
+    private static double topSpeed;
+
+    @BeforeClass
+    public static void setup() {
+        startFakeApplication();
+        system = ActorSystem.create();
+        topSpeed = driver.getTopSpeed();
+        driver.setTopSpeed(TOP_SPEED);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        driver.setTopSpeed(topSpeed);
+        JavaTestKit.shutdownActorSystem(system);
+        system = null;
+        stopFakeApplication();
+    }
+
+    @Before
+    public void before() {
+        if (!setup) {
+            Fleet.registerDriver(new DroneType(SimulatorDriver.SIMULATOR_TYPE), driver);
+            setup = true;
+        }
+        new Basestation("West", WEST).save();
+        new Basestation("Center West", CENTER_WEST).save();
+        new Basestation("Center East", CENTER_EAST).save();
+        new Basestation("East", EAST).save();
+    }
+
+    @After
+    public void after() {
+        // Clean DB
+        for (Drone drone : Drone.FIND.all()) {
+            Fleet.getFleet().stopCommander(drone);
+        }
+        Ebean.delete(Assignment.FIND.all());
+        Ebean.delete(Drone.FIND.all());
+        Ebean.delete(Basestation.FIND.all());
+    }
+
+    @Test
+    public void pendingAssignment_BorrowsFromNeighbour() {
+        new JavaTestKit(system) {
+            {
+                Drone drone = createDrone("Center East", CENTER_EAST);
+                startRegionalScheduler(this);
+
+                Assignment assignment = createAssignment(WEST);
+                Scheduler.scheduleAssignment(assignment.getId());
+
+                DroneAssignedMessage assigned = expectMsgClass(SHORT_TIMEOUT, DroneAssignedMessage.class);
+                Assert.assertEquals(assignment.getId(), assigned.getAssignmentId());
+                Assert.assertEquals(drone.getId(), assigned.getDroneId());
+            }
+        };
+    }
+
+    @Test
+    public void borrowedFlightCompleted_RoutedByLocation() {
+        new JavaTestKit(system) {
+            {
+                Drone drone = createDrone("Center East", CENTER_EAST);
+                startRegionalScheduler(this);
+
+                // Borrowed by the western region, the flight ends in the center west
+                Assignment first = createAssignment(WEST, CENTER_WEST);
+                Scheduler.scheduleAssignment(first.getId());
+                Assert.assertEquals(drone.getId(), expectMsgClass(SHORT_TIMEOUT, DroneAssignedMessage.class).getDroneId());
+                Assert.assertEquals(first.getId(),
+                        expectMsgClass(FLIGHT_TIMEOUT, AssignmentCompletedMessage.class).getAssignmentId());
+
+                // Lent to the eastern region by its new owner
+                Assignment second = createAssignment(EAST);
+                Scheduler.scheduleAssignment(second.getId());
+                DroneAssignedMessage assigned = expectMsgClass(SHORT_TIMEOUT, DroneAssignedMessage.class);
+                Assert.assertEquals(second.getId(), assigned.getAssignmentId());
+                Assert.assertEquals(drone.getId(), assigned.getDroneId());
+            }
+        };
+    }
+
+    @Test
+    public void ownFlightCompleted_RoutedByLocation() {
+        new JavaTestKit(system) {
+            {
+                Drone drone = createDrone("West", WEST);
+                startRegionalScheduler(this);
+
+                // Flown by its own region, the flight ends in the center west
+                Assignment first = createAssignment(WEST, CENTER_WEST);
+                Scheduler.scheduleAssignment(first.getId());
+                Assert.assertEquals(drone.getId(), expectMsgClass(SHORT_TIMEOUT, DroneAssignedMessage.class).getDroneId());
+                Assert.assertEquals(first.getId(),
+                        expectMsgClass(FLIGHT_TIMEOUT, AssignmentCompletedMessage.class).getAssignmentId());
+
+                Assignment second = createAssignment(EAST);
+                Scheduler.scheduleAssignment(second.getId());
+                DroneAssignedMessage assigned = expectMsgClass(SHORT_TIMEOUT, DroneAssignedMessage.class);
+                Assert.assertEquals(second.getId(), assigned.getAssignmentId());
+                Assert.assertEquals(drone.getId(), assigned.getDroneId());
+            }
+        };
+    }
+
+    @Test
+    public void noLender_AssignmentStaysPending() {
+        new JavaTestKit(system) {
+            {
+                // Not a neighbour of the eastern region
+                createDrone("West", WEST);
+                startRegionalScheduler(this);
+
+                Assignment assignment = createAssignment(EAST);
+                Scheduler.scheduleAssignment(assignment.getId());
+
+                expectNoMsg(SHORT_TIMEOUT);
+                assignment.refresh();
+                Assert.assertEquals(Assignment.Status.PENDING, assignment.getStatus());
+                Assert.assertNull(assignment.getAssignedDrone());
+            }
+        };
+    }
+
+    /**
+     * Starts the regional scheduler again, so it has the regions of the basestations and owns the drones.
+     */
+    private void startRegionalScheduler(JavaTestKit test) {
+        try {
+            Scheduler.stop();
+        } catch (SchedulerException ex) {
+            // Not running
+        }
+        while (true) {
+            try {
+                Scheduler.start(RegionalScheduler.class);
+                break;
+            } catch (SchedulerException | InvalidActorNameException ex) {
+                // Still terminating
+                test.expectNoMsg(Duration.create(50, TimeUnit.MILLISECONDS));
+            }
+        }
+        subscribe(test, DroneAssignedMessage.class);
+        subscribe(test, AssignmentCompletedMessage.class);
+        // The drones are routed by their location
+        test.expectNoMsg(Duration.create(500, TimeUnit.MILLISECONDS));
+    }
+
+    private void subscribe(JavaTestKit test, Class<? extends SchedulerEvent> eventType) {
+        Scheduler.subscribe(eventType, test.getRef());
+        SubscribedMessage A = test.expectMsgClass(SubscribedMessage.class);
+        Assert.assertTrue(A.getEventType() == eventType);
+    }
+
+    private Drone createDrone(String name, Location location) {
+        Drone drone = new Drone(name, Drone.Status.AVAILABLE, new DroneType(SimulatorDriver.SIMULATOR_TYPE), "0.0.0.0");
+        drone.save();
+        driver.setStartLocation(Helper.entityToDroneLocation(location));
+        Fleet.getFleet().createCommanderForDrone(drone);
+        return drone;
+    }
+
+    private Assignment createAssignment(Location... locations) {
+        List<Checkpoint> route = new ArrayList<>();
+        for (Location location : locations) {
+            route.add(new Checkpoint(location));
+        }
+        Assignment assignment = new Assignment(route, getUser());
+        assignment.save();
+        return assignment;
+    }
+}
@@ -0,0 +1,47 @@
+import drones.scheduler.Helper;
+import models.Assignment;
+import models.Checkpoint;
+import models.RouteMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Tests the route metrics stored with an assignment.
+ */
+public class RouteMetricsTest {
+
+    @Test
+    public void of_Route() {
+        Checkpoint plateau = new Checkpoint(51.046274, 3.724952, 2, 10);
+        Checkpoint bridge = new Checkpoint(51.045235, 3.726378, 2, 0);
+        Checkpoint back = new Checkpoint(51.046274, 3.724952, 2, 5);
+        RouteMetrics metrics = RouteMetrics.of(Arrays.asList(plateau, bridge, back));
+
+        Assert.assertEquals(305, metrics.getRouteLength(), 2);
+        Assert.assertEquals(51.046274, metrics.getStartLatitude(), 0);
+        Assert.assertEquals(3.724952, metrics.getEndLongitude(), 0);
+        Assert.assertEquals(51.045235, metrics.getMinLatitude(), 0);
+        Assert.assertEquals(51.046274, metrics.getMaxLatitude(), 0);
+        Assert.assertEquals(3.724952, metrics.getMinLongitude(), 0);
+        Assert.assertEquals(3.726378, metrics.getMaxLongitude(), 0);
+        Assert.assertEquals(metrics.getRouteLength() / RouteMetrics.CRUISING_SPEED + 15, metrics.getEstimatedDuration(), 1e-9);
+
+        Assert.assertNull(RouteMetrics.of(new ArrayList<>()));
+        Assert.assertNull(RouteMetrics.of(null));
+    }
+
+    @Test
+    public void assignment_ComputesOnSetRoute() {
+        Assignment assignment = new Assignment(Arrays.asList(new Checkpoint(51.046274, 3.724952, 2),
+                new Checkpoint(51.045235, 3.726378, 2)), null);
+        Assert.assertEquals(153, assignment.getRouteMetrics().getRouteLength(), 1);
+        Assert.assertEquals(assignment.getRouteMetrics().getRouteLength(), Helper.getRouteLength(assignment), 0);
+
+        assignment.setRoute(new ArrayList<>());
+        Assert.assertNull(assignment.getRouteMetrics());
+        Assert.assertTrue(Double.isNaN(Helper.getRouteLength(assignment)));
+    }
+}
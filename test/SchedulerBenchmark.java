@@ -0,0 +1,417 @@
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.InvalidActorNameException;
+import akka.actor.Props;
+import akka.japi.pf.ReceiveBuilder;
+import com.avaje.ebean.Ebean;
+import droneapi.model.MailboxMetrics;
+import drones.models.Fleet;
+import drones.scheduler.FlightControlSimulator;
+import drones.scheduler.Scheduler;
+import drones.scheduler.SchedulerException;
+import drones.scheduler.messages.from.AssignmentCompletedMessage;
+import drones.scheduler.messages.from.DroneAssignedMessage;
+import models.*;
+import play.libs.Akka;
+import play.test.FakeApplication;
+import play.test.Helpers;
+import scala.concurrent.duration.Duration;
+import simulator.SimulatorDriver;
+
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless benchmark of the scheduler, run with sbt "benchmark [key=value ...]".
+ * It starts the application on an in-memory database, creates simulated drones around the basestations and
+ * submits a stream of assignments the way the assignment controller does. It reports the throughput, the time
+ * assignments wait for a drone, the database statements per assignment and the mailbox peaks of the actors.
+ *
+ * Options, with their defaults:
+ * scheduler=advanced         advanced, controltower, matching or regional
+ * drones=1000                simulated drones, spread over the regions
+ * assignments=5000           synthetic assignments
+ * rate=200                   assignments per second, all at once when 0
+ * regions=1                  basestations, the regional scheduler has a shard per basestation
+ * radius=5000                meters around a basestation that drones start and checkpoints are in
+ * trace=                     replay the assignments of a trace instead, see AssignmentStream
+ * speedup=1                  factor the offsets of the trace are divided by
+ * record=                    write the assignments submitted as a trace
+ * flight-control=simulator   simulator: FlightControlSimulator, pilot: SimplePilot flying the simulated drones
+ * fly-time=1                 seconds a flight of FlightControlSimulator takes
+ * speed=10                   top speed of the simulated drones in meters per second
+ * slow-drones=0              drones behind a slow link: no telemetry, snapshot requests answered late
+ * reply-delay=100            milliseconds a slow drone takes to answer
+ * bootstrap=32               drones initialized at the same time when the scheduler starts
+ * timeout=600                seconds to wait for the assignments to complete
+ * seed=1                     seed of the synthetic assignments and drone locations
+ *
+ * The control tower scheduler flies with its own pilots, whatever the flight control.
+ * Statements of the benchmark itself, like saving the submitted assignments, are not counted.
+ */
+public class SchedulerBenchmark {
+
+    private static final double[] GHENT = {51.05, 3.71667};
+    private static final double METERS_PER_DEGREE = 111320;
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Times of the assignments, written by the collector and read by the benchmark.
+     */
+    private static class Results {
+        private final Map<Long, Long> submitted = new ConcurrentHashMap<>();
+        private final Set<Long> assigned = ConcurrentHashMap.newKeySet();
+        private final Set<Long> completed = ConcurrentHashMap.newKeySet();
+        private final List<Double> waits = Collections.synchronizedList(new ArrayList<>());
+        private final List<Double> durations = Collections.synchronizedList(new ArrayList<>());
+        private volatile long lastCompleted;
+
+        public void submitted(long assignmentId) {
+            submitted.put(assignmentId, System.nanoTime());
+        }
+
+        public void assigned(long assignmentId) {
+            Long submit = submitted.get(assignmentId);
+            // Reassignments after a failed flight do not count as waiting again
+            if (submit != null && assigned.add(assignmentId)) {
+                waits.add(millis(System.nanoTime() - submit));
+            }
+        }
+
+        public void completed(long assignmentId) {
+            Long submit = submitted.get(assignmentId);
+            if (submit != null && completed.add(assignmentId)) {
+                lastCompleted = System.nanoTime();
+                durations.add(millis(lastCompleted - submit));
+            }
+        }
+    }
+
+    public static class Collector extends AbstractActor {
+
+        public Collector(Results results) {
+            receive(ReceiveBuilder
+                    .match(DroneAssignedMessage.class, m -> results.assigned(m.getAssignmentId()))
+                    .match(AssignmentCompletedMessage.class, m -> results.completed(m.getAssignmentId()))
+                    .matchAny(m -> {})
+                    .build());
+        }
+    }
+
+    private final Map<String, String> options;
+    private final Random random;
+    private final BenchmarkSimulatorDriver driver = new BenchmarkSimulatorDriver();
+    private final Results results = new Results();
+
+    private SchedulerBenchmark(Map<String, String> options) {
+        this.options = options;
+        this.random = new Random(getLong("seed", 1));
+    }
+
+    private String get(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private long getLong(String key, long defaultValue) {
+        return options.containsKey(key) ? Long.parseLong(options.get(key)) : defaultValue;
+    }
+
+    private double getDouble(String key, double defaultValue) {
+        return options.containsKey(key) ? Double.parseDouble(options.get(key)) : defaultValue;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private Map<String, Object> configuration() {
+        Map<String, Object> config = new HashMap<>(Helpers.inMemoryDatabase());
+        config.put("db.default.driver", StatementCounter.class.getName());
+        config.put("db.default.url", StatementCounter.wrap((String) config.get("db.default.url")));
+        config.put("db.default.logStatements", false);
+        config.put("scheduler.type", get("scheduler", "advanced"));
+        config.put("scheduler.flight-control", get("flight-control", "simulator"));
+        config.put("fleet.bootstrap.parallelism", getLong("bootstrap", 32));
+        config.put("akka.actor.default-mailbox.mailbox-type", MeteredMailbox.class.getName());
+        config.put("akka.loglevel", "WARNING");
+        config.put("logger.root", "WARN");
+        config.put("logger.play", "WARN");
+        config.put("logger.application", "WARN");
+        return config;
+    }
+
+    /**
+     * @return Latitude and longitude at a random distance of at most radius from the center
+     */
+    private double[] around(double[] center, double radius) {
+        double distance = radius * Math.sqrt(random.nextDouble());
+        double angle = 2 * Math.PI * random.nextDouble();
+        return new double[]{center[0] + distance * Math.cos(angle) / METERS_PER_DEGREE,
+                center[1] + distance * Math.sin(angle) / (METERS_PER_DEGREE * Math.cos(Math.toRadians(center[0])))};
+    }
+
+    /**
+     * @return Centers of the regions on a circle around Ghent, far enough apart not to overlap
+     */
+    private List<double[]> regionCenters(int regions, double radius) {
+        List<double[]> centers = new ArrayList<>();
+        double circle = regions > 1 ? 1.5 * radius / Math.sin(Math.PI / regions) : 0;
+        for (int i = 0; i < regions; i++) {
+            double angle = 2 * Math.PI * i / regions;
+            centers.add(new double[]{GHENT[0] + circle * Math.cos(angle) / METERS_PER_DEGREE,
+                    GHENT[1] + circle * Math.sin(angle) / (METERS_PER_DEGREE * Math.cos(Math.toRadians(GHENT[0])))});
+        }
+        return centers;
+    }
+
+    private List<Drone> createDrones(int count, int slow, List<double[]> centers, double radius) {
+        List<Drone> drones = new ArrayList<>();
+        DroneType type = new DroneType(SimulatorDriver.SIMULATOR_TYPE);
+        for (int i = 0; i < count; i++) {
+            String address = "benchmark-" + i;
+            double[] location = around(centers.get(i % centers.size()), radius);
+            driver.setStartLocation(address, new droneapi.model.properties.Location(location[0], location[1], 0));
+            // Spread over the fleet, and so over the regions
+            if ((long) i * slow / count != (long) (i + 1) * slow / count) {
+                driver.setSlow(address);
+            }
+            drones.add(new Drone("Benchmark " + i, Drone.Status.AVAILABLE, type, address));
+        }
+        Ebean.save(drones);
+        return drones;
+    }
+
+    /**
+     * Starts the scheduler again, so it boots with the drones and basestations of the benchmark.
+     */
+    private void restartScheduler() throws InterruptedException {
+        Scheduler.stop();
+        while (true) {
+            try {
+                Scheduler.start(Global.schedulerType(get("scheduler", "advanced")));
+                return;
+            } catch (SchedulerException | InvalidActorNameException ex) {
+                // Still terminating
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private void awaitBootstrap(List<Drone> drones, long deadline) throws InterruptedException {
+        Fleet fleet = Fleet.getFleet();
+        while (System.nanoTime() < deadline) {
+            int ready = 0;
+            for (Drone drone : drones) {
+                if (fleet.hasCommander(drone)) {
+                    ready++;
+                }
+            }
+            if (ready == drones.size()) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        System.err.println("Not all drones were initialized in time.");
+    }
+
+    private AssignmentStream createStream(List<double[]> centers, double radius) throws Exception {
+        String trace = get("trace", "");
+        AssignmentStream stream = trace.isEmpty() ?
+                AssignmentStream.synthetic((int) getLong("assignments", 5000), getDouble("rate", 200),
+                        centers, radius, random) :
+                AssignmentStream.replay(Paths.get(trace), getDouble("speedup", 1));
+        String record = get("record", "");
+        if (!record.isEmpty()) {
+            stream.write(Paths.get(record));
+        }
+        return stream;
+    }
+
+    private static List<Checkpoint> route(AssignmentStream.Arrival arrival) {
+        List<Checkpoint> route = new ArrayList<>();
+        for (double[] checkpoint : arrival.getRoute()) {
+            route.add(new Checkpoint(checkpoint[0], checkpoint[1], checkpoint[2], (int) checkpoint[3]));
+        }
+        return route;
+    }
+
+    private void submit(AssignmentStream stream, User creator, long start, long deadline) throws Exception {
+        long lastProgress = start;
+        for (AssignmentStream.Arrival arrival : stream.getArrivals()) {
+            long delay = start + TimeUnit.MILLISECONDS.toNanos(arrival.getOffset()) - System.nanoTime();
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            if (System.nanoTime() > deadline) {
+                return;
+            }
+            // Saved like the assignment controller does, then scheduled
+            Assignment assignment = StatementCounter.uncounted(() -> {
+                Assignment created = new Assignment(route(arrival), creator);
+                created.save();
+                return created;
+            });
+            results.submitted(assignment.getId());
+            Scheduler.scheduleAssignment(assignment.getId());
+            lastProgress = progress(start, lastProgress);
+        }
+    }
+
+    private void awaitCompletion(int count, long start, long deadline) throws InterruptedException {
+        long lastProgress = start;
+        while (results.completed.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            lastProgress = progress(start, lastProgress);
+        }
+    }
+
+    private long progress(long start, long lastProgress) {
+        long now = System.nanoTime();
+        if (now - lastProgress < PROGRESS_INTERVAL) {
+            return lastProgress;
+        }
+        System.err.printf(Locale.ROOT, "%6.0fs: %d submitted, %d assigned, %d completed%n", seconds(now - start),
+                results.submitted.size(), results.assigned.size(), results.completed.size());
+        return now;
+    }
+
+    private static double percentile(List<Double> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return Double.NaN;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private static List<Double> sorted(List<Double> values) {
+        List<Double> sorted;
+        synchronized (values) {
+            sorted = new ArrayList<>(values);
+        }
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private static String percentiles(List<Double> sorted) {
+        return String.format(Locale.ROOT, "p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+    }
+
+    private void report(int drones, int submitted, double bootstrap, long start, List<Drone> fleetDrones) {
+        int completed = results.completed.size();
+        double elapsed = seconds((completed > 0 ? results.lastCompleted : System.nanoTime()) - start);
+        double perAssignment = Math.max(1, completed);
+        List<Double> waits = sorted(results.waits);
+        long queries = StatementCounter.getQueries();
+        long writes = StatementCounter.getWrites();
+
+        int droneMailboxPeak = 0;
+        for (Drone drone : fleetDrones) {
+            droneapi.api.DroneCommander commander = Fleet.getFleet().getCommanderForDrone(drone);
+            MailboxMetrics metrics = commander == null ? null : commander.getMailboxMetrics();
+            if (metrics != null) {
+                droneMailboxPeak = Math.max(droneMailboxPeak, metrics.getMaxDepth());
+            }
+        }
+        List<Map.Entry<String, Integer>> peaks = new ArrayList<>(MeteredMailbox.getPeaks().entrySet());
+        peaks.sort((p1, p2) -> Integer.compare(p2.getValue(), p1.getValue()));
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Scheduler %s, flight control %s, %d drones, %d slow replying after %d ms%n",
+                get("scheduler", "advanced"), get("flight-control", "simulator"), drones,
+                getLong("slow-drones", 0), getLong("reply-delay", 100));
+        System.out.printf(Locale.ROOT, "Fleet bootstrap    %.2f s%n", bootstrap);
+        System.out.printf(Locale.ROOT, "Assignments        %d submitted, %d assigned, %d completed in %.2f s%n",
+                submitted, results.assigned.size(), completed, elapsed);
+        System.out.printf(Locale.ROOT, "Throughput         %.1f assignments/s%n", completed / elapsed);
+        System.out.println("Wait for a drone   " + percentiles(waits));
+        System.out.println("Until completed    " + percentiles(sorted(results.durations)));
+        System.out.printf(Locale.ROOT, "Database           %.2f queries and %.2f writes per assignment (%d, %d)%n",
+                queries / perAssignment, writes / perAssignment, queries, writes);
+        System.out.println("Mailbox peaks");
+        System.out.printf(Locale.ROOT, "  %-48s %d%n", "drone actors", droneMailboxPeak);
+        for (Map.Entry<String, Integer> peak : peaks.subList(0, Math.min(10, peaks.size()))) {
+            System.out.printf(Locale.ROOT, "  %-48s %d%n", peak.getKey(), peak.getValue());
+        }
+        // Single line to compare runs with
+        System.out.printf(Locale.ROOT, "RESULT scheduler=%s drones=%d slow=%d completed=%d throughput=%.1f " +
+                        "wait_p50=%.1f wait_p99=%.1f queries=%.2f writes=%.2f scheduler_mailbox=%d%n",
+                get("scheduler", "advanced"), drones, getLong("slow-drones", 0), completed, completed / elapsed,
+                percentile(waits, 50), percentile(waits, 99),
+                queries / perAssignment, writes / perAssignment,
+                MeteredMailbox.getPeaks().getOrDefault("/user/CROS-Scheduler", 0));
+    }
+
+    private void run() throws Exception {
+        int droneCount = (int) getLong("drones", 1000);
+        int regions = (int) Math.max(1, getLong("regions", 1));
+        double radius = getDouble("radius", 5000);
+        long timeout = TimeUnit.SECONDS.toNanos(getLong("timeout", 600));
+        FlightControlSimulator.setFlyTime((int) getLong("fly-time", 1));
+        driver.setTopSpeed(getDouble("speed", 10));
+        driver.setReplyDelay(Duration.create(getLong("reply-delay", 100), TimeUnit.MILLISECONDS));
+        Fleet.registerDriver(new DroneType(SimulatorDriver.SIMULATOR_TYPE), driver);
+
+        // Seed the database
+        User creator = new User("benchmark@test.cros", "password", "Scheduler", "Benchmark");
+        creator.save();
+        List<double[]> centers = regionCenters(regions, radius);
+        for (int i = 0; i < centers.size(); i++) {
+            new Basestation("Region " + i, centers.get(i)[0], centers.get(i)[1], 0).save();
+        }
+        List<Drone> drones = createDrones(droneCount, (int) Math.min(droneCount, getLong("slow-drones", 0)), centers, radius);
+        AssignmentStream stream = createStream(centers, radius);
+
+        long bootStart = System.nanoTime();
+        restartScheduler();
+        awaitBootstrap(drones, bootStart + timeout);
+        double bootstrap = seconds(System.nanoTime() - bootStart);
+
+        Results results = this.results;
+        ActorRef collector = Akka.system().actorOf(Props.create(Collector.class, () -> new Collector(results)));
+        Scheduler.subscribe(DroneAssignedMessage.class, collector);
+        Scheduler.subscribe(AssignmentCompletedMessage.class, collector);
+        // Subscriptions are handled before the first assignment is scheduled
+        Thread.sleep(500);
+
+        // Measure the stream only
+        StatementCounter.reset();
+        MeteredMailbox.reset();
+        long start = System.nanoTime();
+        long deadline = start + timeout;
+        submit(stream, creator, start, deadline);
+        awaitCompletion(results.submitted.size(), start, deadline);
+        report(droneCount, results.submitted.size(), bootstrap, start, drones);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split < 0) {
+                throw new IllegalArgumentException("Option " + arg + " is not of the form key=value.");
+            }
+            options.put(arg.substring(0, split), arg.substring(split + 1));
+        }
+        return options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        SchedulerBenchmark benchmark = new SchedulerBenchmark(parse(args));
+        FakeApplication application = Helpers.fakeApplication(benchmark.configuration());
+        Helpers.start(application);
+        try {
+            benchmark.run();
+        } finally {
+            Helpers.stop(application);
+        }
+        // Threads of the database pool and the simulators do not stop by themselves
+        System.exit(0);
+    }
+}
@@ -74,7 +74,7 @@ public class SimplePilotTest extends TestSuperclass {
                 final ActorRef bebopSimulator = system.actorOf(
                         Props.create(BepopSimulator.class,
                                 () -> new BepopSimulator(STERRE, MAX_HEIGHT, ANGLE_WRT_EQUATOR, TOP_SPEED)));
-                final DroneCommander dc = new DroneCommander(bebopSimulator);
+                final DroneCommander dc = new DroneCommander(system, bebopSimulator);
                 Await.ready(dc.init(), MAX_DURATION_MESSAGE);
                 final ActorRef simplePilot = system.actorOf(
                         Props.create(SimplePilot.class,
@@ -124,7 +124,7 @@ public class SimplePilotTest extends TestSuperclass {
                 final ActorRef bebopSimulator = system.actorOf(
                         Props.create(BepopSimulator.class,
                                 () -> new BepopSimulator(STERRE, MAX_HEIGHT, ANGLE_WRT_EQUATOR, TOP_SPEED)));
-                final DroneCommander dc = new DroneCommander(bebopSimulator);
+                final DroneCommander dc = new DroneCommander(system, bebopSimulator);
                 Await.ready(dc.init(), MAX_DURATION_MESSAGE);
                 final ActorRef simplePilot = system.actorOf(
                         Props.create(SimplePilot.class,
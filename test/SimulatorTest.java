@@ -54,7 +54,7 @@ public class SimulatorTest extends TestSuperclass {
     }
 
     protected DroneCommander newCommander() {
-        return new DroneCommander(newSimulator());
+        return new DroneCommander(system, newSimulator());
     }
 
     @Test
@@ -0,0 +1,73 @@
+import akka.actor.ActorRef;
+import droneapi.messages.CorrelatedMessage;
+import droneapi.messages.PropertyRequestMessage;
+import droneapi.model.DispatchBuilder;
+import droneapi.model.properties.Location;
+import scala.concurrent.Promise;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Simulated drone behind a slow link, for the scheduler benchmark. It publishes no telemetry, so the fleet view
+ * never has its location and battery, and it answers the snapshot requests of the scheduler only after a delay.
+ */
+public class SlowBepopSimulator extends simulator.BepopSimulator {
+
+    private static class DelayedRequest {
+        private final CorrelatedMessage request;
+        private final ActorRef sender;
+
+        public DelayedRequest(CorrelatedMessage request, ActorRef sender) {
+            this.request = request;
+            this.sender = sender;
+        }
+    }
+
+    private static class ReleasedRequest {
+        private final long id;
+
+        public ReleasedRequest(long id) {
+            this.id = id;
+        }
+    }
+
+    private final FiniteDuration delay;
+    // Requests sent to this drone again after their delay, handled as usual then
+    private final Set<Long> delayed = new HashSet<>();
+
+    public SlowBepopSimulator(Location startLocation, double maxHeight, double angleWrtEquator, double topSpeed,
+                              FiniteDuration delay) {
+        super(startLocation, maxHeight, angleWrtEquator, topSpeed);
+        this.delay = delay;
+    }
+
+    @Override
+    protected DispatchBuilder createListeners() {
+        return super.createListeners().
+                match(CorrelatedMessage.class, m -> isSnapshotRequest(m) && !delayed.contains(m.getId()), m -> {
+                    delayed.add(m.getId());
+                    getContext().system().scheduler().scheduleOnce(delay, self(), new DelayedRequest(m, sender()),
+                            getContext().dispatcher(), self());
+                }).
+                match(DelayedRequest.class, m -> {
+                    self().tell(m.request, m.sender);
+                    // Arrives after the request, which is no longer delayed then
+                    self().tell(new ReleasedRequest(m.request.getId()), self());
+                }).
+                match(ReleasedRequest.class, m -> delayed.remove(m.id));
+    }
+
+    private static boolean isSnapshotRequest(CorrelatedMessage message) {
+        return message.getMessage() instanceof PropertyRequestMessage
+                && ((PropertyRequestMessage) message.getMessage()).isSnapshotRequest();
+    }
+
+    @Override
+    protected void init(Promise<Void> p) {
+        super.init(p);
+        // Telemetry does not make it over the link
+        eventBus.setPublishDisabled(true);
+    }
+}
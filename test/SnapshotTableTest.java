@@ -0,0 +1,50 @@
+import droneapi.model.properties.DroneSnapshot;
+import droneapi.model.properties.Location;
+import droneapi.model.properties.PropertyType;
+import drones.scheduler.SnapshotTable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the snapshot table. Its effect on the scheduler with slow drones is measured by SchedulerBenchmark.
+ */
+public class SnapshotTableTest {
+
+    private static DroneSnapshot snapshot() {
+        Map<PropertyType, Object> values = new EnumMap<>(PropertyType.class);
+        values.put(PropertyType.LOCATION, new Location(51.05, 3.72, 0));
+        values.put(PropertyType.BATTERY, (byte) 80);
+        return new DroneSnapshot(System.currentTimeMillis(), values);
+    }
+
+    @Test
+    public void await_ParksDecisionsUntilArrival() {
+        SnapshotTable table = new SnapshotTable(1000);
+        Assert.assertNull(table.get(1, 0));
+        Assert.assertTrue(table.await(1, "first"));
+        Assert.assertFalse(table.await(1, "second"));
+        Assert.assertFalse(table.await(1, "first"));
+        Assert.assertTrue(table.isRequested(1));
+
+        List<Object> decisions = table.arrived(1, snapshot(), 100);
+        Assert.assertEquals(2, decisions.size());
+        Assert.assertEquals("first", decisions.get(0));
+        Assert.assertFalse(table.isRequested(1));
+        Assert.assertEquals(0, table.requests());
+        Assert.assertNotNull(table.get(1, 1099));
+        Assert.assertNull(table.get(1, 1100));
+    }
+
+    @Test
+    public void arrived_Failed() {
+        SnapshotTable table = new SnapshotTable(1000);
+        table.await(2, "decision");
+        Assert.assertEquals(1, table.arrived(2, null, 0).size());
+        Assert.assertNull(table.get(2, 0));
+        Assert.assertTrue(table.arrived(2, null, 0).isEmpty());
+    }
+}
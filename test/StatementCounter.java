@@ -0,0 +1,161 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver counting the statements executed on the database it wraps.
+ * A url jdbc:counting:h2:mem:... connects to jdbc:h2:mem:... through the driver registered for it.
+ * Queries are counted apart from writes, a batch counts as a single write.
+ */
+public class StatementCounter implements Driver {
+
+    public static final String PREFIX = "jdbc:counting:";
+
+    private static final LongAdder queries = new LongAdder();
+    private static final LongAdder writes = new LongAdder();
+    // Statements of the calling thread are not counted
+    private static final ThreadLocal<Boolean> excluded = ThreadLocal.withInitial(() -> false);
+
+    static {
+        try {
+            DriverManager.registerDriver(new StatementCounter());
+        } catch (SQLException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    /**
+     * @return Url connecting to the given database through this driver
+     */
+    public static String wrap(String url) {
+        return PREFIX + url.substring("jdbc:".length());
+    }
+
+    public static long getQueries() {
+        return queries.sum();
+    }
+
+    public static long getWrites() {
+        return writes.sum();
+    }
+
+    public static void reset() {
+        queries.reset();
+        writes.reset();
+    }
+
+    /**
+     * Runs work of the benchmark itself without counting its statements.
+     */
+    public static <T> T uncounted(Callable<T> work) throws Exception {
+        excluded.set(true);
+        try {
+            return work.call();
+        } finally {
+            excluded.set(false);
+        }
+    }
+
+    private static void count(String sql) {
+        if (excluded.get()) {
+            return;
+        }
+        if (sql != null && sql.trim().regionMatches(true, 0, "select", 0, 6)) {
+            queries.increment();
+        } else {
+            writes.increment();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * @param sql Statement prepared with the connection, null for plain statements
+     */
+    private static Statement countingStatement(Class<? extends Statement> type, Statement statement, String sql) {
+        return proxy(type, (p, method, args) -> {
+            String name = method.getName();
+            if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                count(null);
+            } else if (name.startsWith("execute")) {
+                count(args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql);
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private static Connection countingConnection(Connection connection) {
+        return proxy(Connection.class, (p, method, args) -> {
+            Object result = invoke(connection, method, args);
+            switch (method.getName()) {
+                case "createStatement":
+                    return countingStatement(Statement.class, (Statement) result, null);
+                case "prepareStatement":
+                    return countingStatement(PreparedStatement.class, (Statement) result, (String) args[0]);
+                case "prepareCall":
+                    return countingStatement(CallableStatement.class, (Statement) result, (String) args[0]);
+                default:
+                    return result;
+            }
+        });
+    }
+
+    private static String unwrap(String url) {
+        return "jdbc:" + url.substring(PREFIX.length());
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        return countingConnection(DriverManager.getConnection(unwrap(url), info));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
+        return DriverManager.getDriver(unwrap(url)).getPropertyInfo(unwrap(url), info);
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
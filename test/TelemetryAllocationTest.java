@@ -0,0 +1,119 @@
+import akka.actor.ActorRef;
+import droneapi.messages.LocationChangedMessage;
+import droneapi.messages.SpeedChangedMessage;
+import droneapi.model.DroneEventBus;
+import droneapi.model.DroneEventMessage;
+import droneapi.model.properties.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Benchmark of the bytes allocated per telemetry update in the DroneActor ingest path.
+ * The legacy path boxes every value and rebuilds the published message, the current one updates in place.
+ */
+public class TelemetryAllocationTest {
+
+    private static final int WARMUP = 200000;
+    private static final int UPDATES = 1000000;
+
+    private final DroneEventBus bus = new DroneEventBus(ActorRef.noSender());
+
+    // Incoming driver messages, these are created by the protocol in both cases
+    private final LocationChangedMessage locationMsg = new LocationChangedMessage(3.724952, 51.046274, 2);
+    private final SpeedChangedMessage speedMsg = new SpeedChangedMessage(1, 2, 3);
+
+    private final LazyProperty<Location> legacyLocation = new LazyProperty<>();
+    private final LazyProperty<Speed> legacySpeed = new LazyProperty<>();
+
+    private final LocationProperty location = new LocationProperty();
+    private final SpeedProperty speed = new SpeedProperty();
+
+    private void legacyUpdate() {
+        Location l = new Location(locationMsg.getLatitude(), locationMsg.getLongitude(), locationMsg.getGpsHeight());
+        legacyLocation.setValue(l);
+        bus.publish(new DroneEventMessage(new LocationChangedMessage(l.getLongitude(), l.getLatitude(), l.getHeight())));
+
+        Speed s = new Speed(speedMsg.getSpeedX(), speedMsg.getSpeedY(), speedMsg.getSpeedZ());
+        legacySpeed.setValue(s);
+        bus.publish(new DroneEventMessage(new SpeedChangedMessage(s.getVx(), s.getVy(), s.getVz())));
+    }
+
+    private void inPlaceUpdate() {
+        location.update(locationMsg.getLatitude(), locationMsg.getLongitude(), locationMsg.getGpsHeight());
+        bus.publish(locationMsg);
+
+        speed.update(speedMsg.getSpeedX(), speedMsg.getSpeedY(), speedMsg.getSpeedZ());
+        bus.publish(speedMsg);
+    }
+
+    private static double bytesPerUpdate(Runnable update) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP; i++) {
+            update.run();
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < UPDATES; i++) {
+            update.run();
+        }
+        long after = threads.getThreadAllocatedBytes(threadId);
+        return (after - before) / (double) UPDATES;
+    }
+
+    @Test
+    public void inPlaceUpdate_allocatesLess() {
+        double legacy = bytesPerUpdate(this::legacyUpdate);
+        double inPlace = bytesPerUpdate(this::inPlaceUpdate);
+        Assert.assertTrue(inPlace < legacy);
+    }
+
+    @Test
+    public void inPlaceUpdate_materializesLatestValue() {
+        location.update(1, 2, 3);
+        Location first = location.getRawValue();
+        Assert.assertEquals(1, first.getLatitude(), 0);
+
+        // Every version is boxed once, for all of its readers
+        location.update(4, 5, 6);
+        Location second = location.getRawValue();
+        Assert.assertSame(second, location.getRawValue());
+        Assert.assertEquals(4, second.getLatitude(), 0);
+        Assert.assertEquals(5, second.getLongitude(), 0);
+        Assert.assertEquals(6, second.getHeight(), 0);
+    }
+
+    @Test
+    public void reads_doNotAllocate() {
+        location.update(1, 2, 3);
+        location.getRawValue();
+        location.update(4, 5, 6);
+
+        Location[] last = new Location[1];
+        double bytes = bytesPerUpdate(() -> last[0] = location.getRawValue());
+        Assert.assertEquals(4, last[0].getLatitude(), 0);
+        Assert.assertTrue(bytes < 1);
+    }
+
+    @Test
+    public void updatesAfterRead_doNotAllocate() {
+        location.update(1, 2, 3);
+        Assert.assertEquals(1, location.getRawValue().getLatitude(), 0);
+
+        double[] i = new double[1];
+        double bytes = bytesPerUpdate(() -> location.update(i[0]++, 2, 3));
+        Assert.assertTrue(bytes < 1);
+        Assert.assertEquals(i[0] - 1, location.getRawValue().getLatitude(), 0);
+    }
+
+    @Test
+    public void pendingRequest_completesOnFirstUpdate() {
+        LocationProperty property = new LocationProperty();
+        Assert.assertFalse(property.getValue().isCompleted());
+        property.update(1, 2, 3);
+        Assert.assertTrue(property.getValue().isCompleted());
+        Assert.assertEquals(1, property.getRawValue().getLatitude(), 0);
+    }
+}
@@ -1,4 +1,4 @@
-import akka.japi.pf.UnitPFBuilder;
+import droneapi.model.DispatchBuilder;
 import droneapi.model.DroneActor;
 import droneapi.model.DroneException;
 import droneapi.model.properties.FlipType;
@@ -99,7 +99,7 @@ public class TestDroneActor extends DroneActor {
     }
 
     @Override
-    protected UnitPFBuilder<Object> createListeners() {
+    protected DispatchBuilder createListeners() {
         return null;
     }
 }
@@ -0,0 +1,124 @@
+import drones.scheduler.WriteBehind;
+import drones.scheduler.messages.from.AssignmentProgressedMessage;
+import drones.scheduler.messages.from.DroneStatusMessage;
+import drones.scheduler.messages.from.SchedulerEvent;
+import models.Assignment;
+import models.Drone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests coalescing, batching and the events held back by the scheduler's write-behind.
+ */
+public class WriteBehindTest {
+
+    @Test
+    public void drain_CoalescesProgress() {
+        WriteBehind writes = new WriteBehind(100);
+        for (int progress = 1; progress <= 50; progress++) {
+            writes.assignmentProgress(1, progress);
+        }
+        writes.assignmentStatus(1, Assignment.Status.EXECUTING);
+        writes.droneStatus(7, Drone.Status.FLYING);
+        writes.droneStatus(7, Drone.Status.AVAILABLE);
+
+        WriteBehind.Batch batch = writes.drain();
+        Assert.assertEquals(2, batch.size());
+        // One batch at a time
+        Assert.assertNull(writes.drain());
+        Assert.assertFalse(writes.isPending());
+        Assert.assertEquals(Arrays.asList(7L), writes.dronesWithStatus(Drone.Status.AVAILABLE));
+        Assert.assertTrue(writes.written(batch).isEmpty());
+        Assert.assertTrue(writes.dronesWithStatus(Drone.Status.AVAILABLE).isEmpty());
+        Assert.assertNull(writes.drain());
+    }
+
+    @Test
+    public void hold_UntilWritten() {
+        WriteBehind writes = new WriteBehind(100);
+        SchedulerEvent first = new DroneStatusMessage(7, Drone.Status.AVAILABLE, Drone.Status.FLYING);
+        // Nothing to wait for
+        Assert.assertFalse(writes.hold(first));
+
+        writes.droneStatus(7, Drone.Status.FLYING);
+        Assert.assertTrue(writes.hold(first));
+        WriteBehind.Batch batch = writes.drain();
+        // Changes and events after the batch wait for the next one
+        writes.assignmentProgress(1, 3);
+        SchedulerEvent second = new AssignmentProgressedMessage(1, 3);
+        Assert.assertTrue(writes.hold(second));
+
+        List<SchedulerEvent> events = writes.written(batch);
+        Assert.assertEquals(Arrays.asList(first), events);
+        batch = writes.drain();
+        Assert.assertEquals(1, batch.size());
+        Assert.assertEquals(Arrays.asList(second), writes.written(batch));
+        Assert.assertFalse(writes.hold(first));
+    }
+
+    @Test
+    public void failed_RetriedWithNewerChanges() {
+        WriteBehind writes = new WriteBehind(100);
+        SchedulerEvent first = new DroneStatusMessage(7, Drone.Status.AVAILABLE, Drone.Status.FLYING);
+        writes.droneStatus(7, Drone.Status.FLYING);
+        writes.hold(first);
+        WriteBehind.Batch failed = writes.drain();
+
+        // Changed while the batch was written
+        writes.droneStatus(7, Drone.Status.AVAILABLE);
+        SchedulerEvent second = new DroneStatusMessage(7, Drone.Status.FLYING, Drone.Status.AVAILABLE);
+        writes.hold(second);
+        writes.failed(failed);
+        Assert.assertTrue(writes.isPending());
+
+        WriteBehind.Batch retry = writes.drain();
+        Assert.assertEquals(1, retry.size());
+        Assert.assertEquals(Arrays.asList(first, second), retry.getEvents());
+        // A batch that is no longer written is ignored
+        Assert.assertTrue(writes.written(failed).isEmpty());
+        Assert.assertEquals(Arrays.asList(first, second), writes.written(retry));
+        Assert.assertTrue(writes.dronesWithStatus(Drone.Status.AVAILABLE).isEmpty());
+    }
+
+    @Test
+    public void failed_GivenUpAfterMaxAttempts() {
+        WriteBehind writes = new WriteBehind(100);
+        SchedulerEvent event = new DroneStatusMessage(7, Drone.Status.AVAILABLE, Drone.Status.FLYING);
+        writes.droneStatus(7, Drone.Status.FLYING);
+        writes.hold(event);
+
+        for (int attempt = 1; attempt < WriteBehind.MAX_ATTEMPTS; attempt++) {
+            WriteBehind.Batch batch = writes.drain();
+            Assert.assertTrue(writes.failed(batch).isEmpty());
+            Assert.assertTrue(batch.getDropped().isEmpty());
+            Assert.assertTrue(writes.isPending());
+        }
+        // The event is no longer held back by a change that can not be written
+        WriteBehind.Batch last = writes.drain();
+        Assert.assertEquals(Arrays.asList(event), writes.failed(last));
+        Assert.assertEquals(Arrays.asList("drone 7"), last.getDropped());
+        Assert.assertFalse(writes.isPending());
+        Assert.assertTrue(writes.dronesWithStatus(Drone.Status.FLYING).isEmpty());
+        Assert.assertFalse(writes.hold(event));
+    }
+
+    @Test
+    public void written_KeepsNewerChanges() {
+        WriteBehind writes = new WriteBehind(100);
+        writes.droneStatus(7, Drone.Status.FLYING);
+        WriteBehind.Batch batch = writes.drain();
+        writes.droneStatus(7, Drone.Status.AVAILABLE);
+        writes.written(batch);
+        // Still newer than the database
+        Assert.assertEquals(Arrays.asList(7L), writes.dronesWithStatus(Drone.Status.AVAILABLE));
+        Assert.assertTrue(writes.isPending());
+
+        WriteBehind.Batch all = writes.drainAll();
+        Assert.assertEquals(1, all.size());
+        Assert.assertFalse(writes.isPending());
+        Assert.assertNull(writes.drain());
+    }
+}